@@ -240,10 +240,12 @@ CTX.INPUT['executors'] = """
  seqscanexecutor.cpp
  unionexecutor.cpp
  updateexecutor.cpp
+ windowfunctionexecutor.cpp
 """
 
 CTX.INPUT['expressions'] = """
  abstractexpression.cpp
+ batchfilter.cpp
  expressionutil.cpp
  vectorexpression.cpp
  functionexpression.cpp
@@ -277,6 +279,7 @@ CTX.INPUT['plannodes'] = """
  seqscannode.cpp
  unionnode.cpp
  updatenode.cpp
+ windowfunctionnode.cpp
 """
 
 CTX.INPUT['indexes'] = """
@@ -380,6 +383,7 @@ if whichtests in ("${eetestsuite}", "common"):
      pool_test
      tabletuple_test
      elastic_hashinator_test
+     hyperloglog_test
     """
 
 if whichtests in ("${eetestsuite}", "execution"):
@@ -391,6 +395,7 @@ if whichtests in ("${eetestsuite}", "execution"):
 
 if whichtests in ("${eetestsuite}", "expressions"):
     CTX.TESTS['expressions'] = """
+     batchfilter_test
      expression_test
      function_test
     """
@@ -402,6 +407,7 @@ if whichtests in ("${eetestsuite}", "indexes"):
      index_test
      compacting_hash_index
      CompactingTreeMultiIndexTest
+     CompactingBTreeIndexTest
     """
 
 if whichtests in ("${eetestsuite}", "storage"):
@@ -426,6 +432,7 @@ if whichtests in ("${eetestsuite}", "storage"):
 if whichtests in ("${eetestsuite}", "structures"):
     CTX.TESTS['structures'] = """
      CompactingMapTest
+     CompactingBTreeTest
      CompactingMapIndexCountTest
      CompactingHashTest
      CompactingPoolTest
@@ -436,6 +443,12 @@ if whichtests in ("${eetestsuite}", "plannodes"):
      PlanNodeFragmentTest
     """
 
+# too slow for the unit tests, only run when asked for
+if whichtests == "benchmarks":
+    CTX.TESTS['structures'] = """
+     CompactingBTreeBenchmark
+    """
+
 ###############################################################################
 # BUILD THE MAKEFILE
 ###############################################################################
@@ -462,7 +462,8 @@ def gencpp( classes, javaOnlyClasses, prepath, postpath ):
         for field in actualFields:
             if field.type[-1] == '*':
                 ftype = field.type.rstrip('*')
-                itr = ftype.lower() + '_iter'
+                # one iterator per collection: a class may hold several of one type
+                itr = field.name.lower() + '_iter'
                 privname = 'm_' + field.name
                 tab = '   '
                 write(interp('$tab std::map<std::string, $ftype*>::const_iterator $itr = $privname.begin();', locals()))
@@ -95,6 +95,63 @@ void Catalog::execute(const string &stmts) {
     }
 }
 
+bool Catalog::isBinary(const string &payload) {
+    return !payload.empty() && payload[0] == BINARY_MAGIC;
+}
+
+void Catalog::executeBinary(const string &catalogBytes) {
+    cleanupExecutionBookkeeping();
+
+    ReferenceSerializeInputBE input(catalogBytes.data(), catalogBytes.size());
+    if (input.readByte() != BINARY_MAGIC || input.readByte() != BINARY_VERSION) {
+        throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
+                                      "unsupported binary catalog format");
+    }
+    vector<string> names(input.readInt());
+    for (int32_t i = 0; i < names.size(); ++i) {
+        names[i] = input.readTextString();
+    }
+    executeBinaryNode(this, input, names);
+
+    if (m_unresolved.size() > 0) {
+        throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
+                                      "failed to execute catalog");
+    }
+}
+
+/*
+ * Set the fields of a node of a binary catalog and add its children,
+ * as the set and add commands of the text form would.
+ */
+void Catalog::executeBinaryNode(CatalogType *item, ReferenceSerializeInputBE &input,
+                                const vector<string> &names) {
+    int32_t fieldCount = input.readInt();
+    for (int32_t i = 0; i < fieldCount; ++i) {
+        const string &field = names[input.readInt()];
+        item->set(field, input.readTextString());
+        item->updated();
+    }
+
+    int32_t collectionCount = input.readInt();
+    for (int32_t i = 0; i < collectionCount; ++i) {
+        const string &collection = names[input.readInt()];
+        int32_t childCount = input.readInt();
+        for (int32_t j = 0; j < childCount; ++j) {
+            string childName = input.readTextString();
+            int32_t length = input.readInt();
+            CatalogType *child = item->addChild(collection, childName);
+            if (child == NULL) {
+                // Skip the types that the EE doesn't need/support, as execute() does.
+                input.getRawPointer(length);
+                continue;
+            }
+            child->added();
+            resolveUnresolvedInfo(child->path());
+            executeBinaryNode(child, input, names);
+        }
+    }
+}
+
 /*
  * Produce constituent elements of catalog command.
  */
@@ -29,11 +29,16 @@
 #include "boost/unordered_map.hpp"
 #include "catalogtype.h"
 #include "catalogmap.h"
+#include "common/serializeio.h"
 
 namespace catalog {
 
 class Cluster;
 
+// First byte and version of the binary form of a catalog, see executeBinary()
+const int8_t BINARY_MAGIC = 0;
+const int8_t BINARY_VERSION = 1;
+
 /**
  * The root class in the Catalog hierarchy, which is essentially a tree of
  * instances of CatalogType objects, accessed by guids globally, paths
@@ -80,6 +85,8 @@ protected:
 private:
     void resolveUnresolvedInfo(std::string path);
     void cleanupExecutionBookkeeping();
+    void executeBinaryNode(CatalogType *item, voltdb::ReferenceSerializeInputBE &input,
+                           const std::vector<std::string> &names);
 
 public:
     void purgeDeletions();
@@ -98,6 +105,15 @@ public:
      */
     void execute(const std::string &stmts);
 
+    /**
+     * Load the binary form of a catalog, as serialized by the Java
+     * Catalog.serializeBinary(), into this empty catalog.
+     */
+    void executeBinary(const std::string &catalogBytes);
+
+    /** Is the payload the binary form of a catalog rather than commands? */
+    static bool isBinary(const std::string &payload);
+
     /** GETTER: The set of the clusters in this catalog */
     const CatalogMap<Cluster> & clusters() const;
 
@@ -23,6 +23,12 @@ package org.voltdb.catalog;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.google_voltpatches.common.cache.Cache;
 import com.google_voltpatches.common.cache.CacheBuilder;
@@ -37,6 +43,14 @@ public class Catalog extends CatalogType {
 
     public static final char MAP_SEPARATOR = '#';
 
+    /**
+     * First byte of the binary form of a catalog, which never starts the
+     * commands of the text form.
+     */
+    public static final byte BINARY_MAGIC = 0;
+    static final byte BINARY_VERSION = 1;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
     //private final HashMap<String, CatalogType> m_pathCache = new HashMap<String, CatalogType>();
     //private final PatriciaTrie<CatalogType> m_pathCache = new PatriciaTrie<>();
     Cache<String, CatalogType> m_pathCache = CacheBuilder.newBuilder().maximumSize(8).build();
@@ -226,6 +240,121 @@ public class Catalog extends CatalogType {
         return sb.toString();
     }
 
+    /**
+     * Serialize the catalog to its binary form, the tree of the catalog
+     * with each node holding the values of its fields and its child
+     * collections, so it loads without the path lookups of the commands
+     * that serialize() produces. The format is:
+     *
+     * magic byte, version byte, name count, names,
+     * node := field count, (name index, value)*,
+     *         collection count, (name index, child count, (name, node length, node)*)*
+     *
+     * where the names are those of the fields and collections, the values
+     * are written as in the set commands, and all counts, lengths and indexes
+     * are big endian ints and strings are UTF-8 prefixed by their length.
+     * @return The binary form of the catalog.
+     */
+    public byte[] serializeBinary() {
+        BinaryWriter out = new BinaryWriter();
+        writeBinary(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Load a catalog serialized with serializeBinary() into this empty catalog.
+     * @param catalogBytes The binary form of the catalog.
+     */
+    public void executeBinary(byte[] catalogBytes) {
+        ByteBuffer buf = ByteBuffer.wrap(catalogBytes);
+        if (buf.get() != BINARY_MAGIC || buf.get() != BINARY_VERSION) {
+            throw new CatalogException("Unsupported binary catalog format");
+        }
+        String[] names = new String[buf.getInt()];
+        for (int i = 0; i < names.length; ++i) {
+            names[i] = BinaryWriter.readString(buf);
+        }
+        readBinary(buf, names);
+    }
+
+    /**
+     * Buffer the binary form of a catalog is written to. Field and collection
+     * names are numbered as they are first written and listed ahead of the
+     * tree, so a reader can skip the nodes of the types it doesn't know.
+     */
+    static class BinaryWriter {
+        private ByteBuffer m_buf = ByteBuffer.allocate(64 * 1024);
+        private final Map<String, Integer> m_nameIndexes = new HashMap<String, Integer>();
+        private final List<String> m_names = new ArrayList<String>();
+
+        private void ensureRemaining(int length) {
+            if (m_buf.remaining() < length) {
+                ByteBuffer buf = ByteBuffer.allocate(Math.max(m_buf.capacity() * 2, m_buf.position() + length));
+                m_buf.flip();
+                buf.put(m_buf);
+                m_buf = buf;
+            }
+        }
+
+        void writeInt(int value) {
+            ensureRemaining(4);
+            m_buf.putInt(value);
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(UTF8);
+            ensureRemaining(4 + bytes.length);
+            m_buf.putInt(bytes.length);
+            m_buf.put(bytes);
+        }
+
+        void writeName(String name) {
+            Integer index = m_nameIndexes.get(name);
+            if (index == null) {
+                index = m_names.size();
+                m_nameIndexes.put(name, index);
+                m_names.add(name);
+            }
+            writeInt(index);
+        }
+
+        /** Reserve the length of a node, returning the position to pass to endLength() */
+        int startLength() {
+            writeInt(0);
+            return m_buf.position();
+        }
+
+        void endLength(int start) {
+            m_buf.putInt(start - 4, m_buf.position() - start);
+        }
+
+        byte[] toByteArray() {
+            int namesLength = 4;
+            byte[][] names = new byte[m_names.size()][];
+            for (int i = 0; i < names.length; ++i) {
+                names[i] = m_names.get(i).getBytes(UTF8);
+                namesLength += 4 + names[i].length;
+            }
+            ByteBuffer out = ByteBuffer.allocate(2 + namesLength + m_buf.position());
+            out.put(BINARY_MAGIC);
+            out.put(BINARY_VERSION);
+            out.putInt(names.length);
+            for (byte[] name : names) {
+                out.putInt(name.length);
+                out.put(name);
+            }
+            out.put(m_buf.array(), 0, m_buf.position());
+            return out.array();
+        }
+
+        static String readString(ByteBuffer buf) {
+            int length = buf.getInt();
+            String value = new String(buf.array(), buf.arrayOffset() + buf.position(), length, UTF8);
+            buf.position(buf.position() + length);
+            return value;
+        }
+    }
+
     public Catalog deepCopy() {
         Catalog copy = new Catalog();
         // Note that CatalogType.deepCopy isn't called on the catalog node.
@@ -310,7 +310,9 @@ public class CatalogDiffEngine {
      * by a table node.  This indicates that the Statement is the
      * DELETE statement in a
      *   LIMIT PARTITION ROWS <n> EXECUTE (DELETE ...)
-     * constraint.
+     * constraint, or one of the statements expiring rows for a
+     *   USING TTL <n> ON COLUMN <c>
+     * clause.
      */
     static protected boolean isTableLimitDeleteStmt(final CatalogType catType) {
         if (catType instanceof Statement && catType.getParent() instanceof Table)
@@ -656,7 +658,8 @@ public class CatalogDiffEngine {
             return null;
         if (suspect instanceof Table) {
             if (field.equals("signature") ||
-                field.equals("tuplelimit"))
+                field.equals("tuplelimit") ||
+                field.startsWith("ttl"))
                 return null;
 
             // Always allow disabling DR on table
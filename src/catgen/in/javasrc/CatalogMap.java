@@ -196,6 +196,16 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
         }
     }
 
+    void writeBinaryForMembers(Catalog.BinaryWriter out) {
+        out.writeInt(size());
+        for (T type : this) {
+            out.writeString(type.m_typename);
+            int start = out.startLength();
+            type.writeBinary(out);
+            out.endLength(start);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     void copyFrom(CatalogMap<? extends CatalogType> catalogMap) {
         CatalogMap<T> castedMap = (CatalogMap<T>) catalogMap;
@@ -22,6 +22,7 @@
 package org.voltdb.catalog;
 
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 
 
 /**
@@ -244,6 +245,11 @@ public abstract class CatalogType implements Comparable<CatalogType> {
             sb.append("$PREV "); // use caching to shrink output + speed parsing
         }
         sb.append(field).append(' ');
+        writeFieldValue(sb, field);
+        sb.append("\n");
+    }
+
+    void writeFieldValue(StringBuilder sb, String field) {
         Object value = getField(field);
         if (value == null) {
             sb.append("null");
@@ -258,7 +264,6 @@ public abstract class CatalogType implements Comparable<CatalogType> {
             ((CatalogType)value).getCatalogPath(sb);
         else
             throw new CatalogException("Unsupported field type '" + value + "'");
-        sb.append("\n");
     }
 
     void writeFieldCommands(StringBuilder sb) {
@@ -276,6 +281,43 @@ public abstract class CatalogType implements Comparable<CatalogType> {
         }
     }
 
+    void writeBinary(Catalog.BinaryWriter out) {
+        String[] fields = getFields();
+        out.writeInt(fields.length);
+        StringBuilder sb = new StringBuilder();
+        for (String field : fields) {
+            out.writeName(field);
+            sb.setLength(0);
+            writeFieldValue(sb, field);
+            out.writeString(sb.toString());
+        }
+        String[] childCollections = getChildCollections();
+        out.writeInt(childCollections.length);
+        for (String childCollection : childCollections) {
+            out.writeName(childCollection);
+            getCollection(childCollection).writeBinaryForMembers(out);
+        }
+    }
+
+    void readBinary(ByteBuffer buf, String[] names) {
+        int fieldCount = buf.getInt();
+        for (int i = 0; i < fieldCount; ++i) {
+            String field = names[buf.getInt()];
+            set(field, Catalog.BinaryWriter.readString(buf));
+        }
+        int collectionCount = buf.getInt();
+        for (int i = 0; i < collectionCount; ++i) {
+            CatalogMap<? extends CatalogType> map = getCollection(names[buf.getInt()]);
+            int childCount = buf.getInt();
+            for (int j = 0; j < childCount; ++j) {
+                String name = Catalog.BinaryWriter.readString(buf);
+                // the node length is only needed to skip unknown types
+                buf.getInt();
+                map.add(name).readBinary(buf, names);
+            }
+        }
+    }
+
     @Override
     public int compareTo(CatalogType o) {
         if (this == o) {
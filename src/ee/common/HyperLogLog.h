@@ -0,0 +1,177 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef HYPERLOGLOG_H_
+#define HYPERLOGLOG_H_
+
+#include "common/NValue.hpp"
+#include "common/SQLException.h"
+#include "common/ValuePeeker.hpp"
+#include "murmur3/MurmurHash3.h"
+
+#include <cmath>
+#include <cstring>
+#include <stdint.h>
+
+namespace voltdb {
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct values added to it,
+ * used by APPROX_COUNT_DISTINCT. With 2^12 one-byte registers the standard
+ * error of the estimate is about 1.6%.
+ *
+ * Two sketches built from different inputs merge into the sketch of the union
+ * of the inputs, which is how the partial results of the partitions are
+ * combined by the coordinator. The serialized form is the raw register array,
+ * so its size must agree with AggregateExpression.HYPERLOGLOG_SKETCH_SIZE in
+ * the planner.
+ */
+class HyperLogLog {
+public:
+    static const int PRECISION = 12;
+    static const int REGISTER_COUNT = 1 << PRECISION;
+    static const int SERIALIZED_SIZE = REGISTER_COUNT;
+
+    HyperLogLog()
+    {
+        clear();
+    }
+
+    void clear()
+    {
+        ::memset(m_registers, 0, sizeof(m_registers));
+    }
+
+    /** Add a non-NULL value. Return true if the sketch changed. */
+    bool add(const NValue& value)
+    {
+        return addHash(hashValue(value));
+    }
+
+    bool addHash(uint64_t hash)
+    {
+        const uint32_t index = static_cast<uint32_t>(hash >> (64 - PRECISION));
+        // The guard bit bounds the rank when the remaining bits are all zero.
+        const uint64_t remaining = (hash << PRECISION) | (1ULL << (PRECISION - 1));
+        const uint8_t rank = static_cast<uint8_t>(__builtin_clzll(remaining) + 1);
+        if (rank > m_registers[index]) {
+            m_registers[index] = rank;
+            return true;
+        }
+        return false;
+    }
+
+    void merge(const HyperLogLog& other)
+    {
+        mergeRegisters(other.m_registers);
+    }
+
+    /** Merge a serialized sketch, as produced by data() */
+    void merge(const NValue& sketch)
+    {
+        if (ValuePeeker::peekValueType(sketch) != VALUE_TYPE_VARBINARY ||
+            ValuePeeker::peekObjectLength_withoutNull(sketch) != SERIALIZED_SIZE) {
+            throw SQLException(SQLException::data_exception_invalid_parameter,
+                               "Invalid HyperLogLog sketch");
+        }
+        mergeRegisters(static_cast<const uint8_t*>(ValuePeeker::peekObjectValue_withoutNull(sketch)));
+    }
+
+    int64_t estimate() const
+    {
+        const double m = REGISTER_COUNT;
+        double sum = 0.0;
+        int zeroRegisters = 0;
+        for (int i = 0; i < REGISTER_COUNT; ++i) {
+            sum += std::ldexp(1.0, -m_registers[i]);
+            if (m_registers[i] == 0) {
+                ++zeroRegisters;
+            }
+        }
+        const double alpha = 0.7213 / (1.0 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeroRegisters != 0) {
+            // Small range correction: linear counting is more accurate here.
+            estimate = m * std::log(m / zeroRegisters);
+        }
+        return static_cast<int64_t>(estimate + 0.5);
+    }
+
+    /** The serialized sketch, SERIALIZED_SIZE bytes long */
+    const char* data() const
+    {
+        return reinterpret_cast<const char*>(m_registers);
+    }
+
+    /**
+     * 64-bit hash of a non-NULL value. Values that compare equal hash equally:
+     * integers of any width and timestamps hash their 64-bit value, and
+     * strings and binary values hash their bytes.
+     */
+    static uint64_t hashValue(const NValue& value)
+    {
+        const ValueType type = ValuePeeker::peekValueType(value);
+        switch (type) {
+        case VALUE_TYPE_VARCHAR:
+        case VALUE_TYPE_VARBINARY:
+            return hashBytes(ValuePeeker::peekObjectValue_withoutNull(value),
+                             ValuePeeker::peekObjectLength_withoutNull(value));
+        case VALUE_TYPE_DOUBLE:
+        {
+            double dbl = ValuePeeker::peekDouble(value);
+            if (dbl == 0.0) {
+                dbl = 0.0; // -0.0 equals 0.0
+            }
+            return hashBytes(&dbl, sizeof(dbl));
+        }
+        case VALUE_TYPE_DECIMAL:
+        {
+            const TTInt decimal = ValuePeeker::peekDecimal(value);
+            return hashBytes(&decimal, sizeof(decimal));
+        }
+        default:
+        {
+            const int64_t integer = ValuePeeker::peekAsRawInt64(value);
+            return hashBytes(&integer, sizeof(integer));
+        }
+        }
+    }
+
+private:
+    void mergeRegisters(const uint8_t* registers)
+    {
+        for (int i = 0; i < REGISTER_COUNT; ++i) {
+            if (registers[i] > m_registers[i]) {
+                m_registers[i] = registers[i];
+            }
+        }
+    }
+
+    static uint64_t hashBytes(const void* data, int length)
+    {
+        // MurmurHash3_x64_128 only hands back 32 bits; two seeds make 64.
+        const uint32_t high = static_cast<uint32_t>(MurmurHash3_x64_128(data, length, 0));
+        const uint32_t low = static_cast<uint32_t>(MurmurHash3_x64_128(data, length, 1));
+        return (static_cast<uint64_t>(high) << 32) | low;
+    }
+
+    uint8_t m_registers[REGISTER_COUNT];
+};
+
+}
+
+#endif /* HYPERLOGLOG_H_ */
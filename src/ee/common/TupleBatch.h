@@ -0,0 +1,126 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef TUPLEBATCH_H_
+#define TUPLEBATCH_H_
+
+#include "common/tabletuple.h"
+#include "common/TupleSchema.h"
+#include "common/value_defs.h"
+
+#include <cassert>
+#include <cmath>
+#include <stdint.h>
+
+namespace voltdb {
+
+/*
+ * Null checks for the fixed-width numeric column storage read directly
+ * by the batch loops, mirroring NValue::initFromTupleStorage.
+ */
+inline bool isNullStorage(int8_t value) { return value == INT8_NULL; }
+inline bool isNullStorage(int16_t value) { return value == INT16_NULL; }
+inline bool isNullStorage(int32_t value) { return value == INT32_NULL; }
+inline bool isNullStorage(int64_t value) { return value == INT64_NULL; }
+inline bool isNullStorage(double value) { return value <= DOUBLE_NULL; }
+
+/*
+ * Three-way comparisons for the batch loops, mirroring NValue::compare.
+ */
+inline int compareBatchValues(int64_t lhs, int64_t rhs)
+{
+    return lhs < rhs ? -1 : (lhs > rhs ? 1 : 0);
+}
+
+inline int compareBatchValues(double lhs, double rhs)
+{
+    // Same ordering as NValue::compareDoubleValue: NaN values are equal to
+    // each other and smaller than negative infinity.
+    if (std::isnan(lhs)) {
+        return std::isnan(rhs) ? 0 : -1;
+    }
+    if (std::isnan(rhs)) {
+        return 1;
+    }
+    return lhs < rhs ? -1 : (lhs > rhs ? 1 : 0);
+}
+
+/**
+ * A fixed-size batch of tuple addresses gathered by a scan, together with a
+ * selection vector holding the positions that still qualify. Filters narrow
+ * the selection in place; downstream consumers only visit selected tuples.
+ *
+ * The batch only borrows the tuples: the caller must not let the source
+ * table free or compact its blocks while a batch is being processed.
+ */
+class TupleBatch {
+public:
+    static const int MAX_SIZE = 1024;
+
+    TupleBatch() : m_size(0), m_selectedCount(0) {}
+
+    void reset()
+    {
+        m_size = 0;
+        m_selectedCount = 0;
+    }
+
+    /** Append a tuple and select it */
+    void append(const TableTuple& tuple)
+    {
+        assert(m_size < MAX_SIZE);
+        m_addresses[m_size] = tuple.address();
+        m_selection[m_selectedCount++] = static_cast<uint16_t>(m_size++);
+    }
+
+    int size() const { return m_size; }
+
+    int selectedCount() const { return m_selectedCount; }
+
+    /** Shrink the selection after a filter compacted the selection vector */
+    void setSelectedCount(int count)
+    {
+        assert(count <= m_selectedCount);
+        m_selectedCount = count;
+    }
+
+    uint16_t* selection() { return m_selection; }
+
+    /** Address of the tuple at the given position of the batch (not the selection) */
+    char* address(uint16_t position) const { return m_addresses[position]; }
+
+    /** Address of the ith selected tuple */
+    char* selectedAddress(int i) const { return m_addresses[m_selection[i]]; }
+
+    /** Raw storage of a fixed-width column of the ith selected tuple */
+    template <typename T>
+    T selectedValue(int i, uint32_t offset) const
+    {
+        return *reinterpret_cast<const T*>(
+                m_addresses[m_selection[i]] + TUPLE_HEADER_SIZE + offset);
+    }
+
+private:
+    char* m_addresses[MAX_SIZE];
+    uint16_t m_selection[MAX_SIZE];
+    int m_size;
+    int m_selectedCount;
+};
+
+}
+
+#endif /* TUPLEBATCH_H_ */
@@ -26,6 +26,25 @@ namespace voltdb {
 class DRTupleStream;
 class VoltDBEngine;
 
+/*
+ * Running totals of what the persistent tables and indexes of a site hold,
+ * in bytes but for the tuple count. The tables and indexes keep them up to
+ * date as they change so that the memory statistics of the site don't have
+ * to visit every table.
+ */
+struct TableMemoryCounters {
+    TableMemoryCounters()
+        : tupleCount(0), tupleAllocatedMemory(0), tupleDataMemory(0),
+          stringMemory(0), indexMemory(0)
+    { }
+
+    int64_t tupleCount;
+    int64_t tupleAllocatedMemory;
+    int64_t tupleDataMemory;
+    int64_t stringMemory;
+    int64_t indexMemory;
+};
+
 /*
  * EE site global data required by executors at runtime.
  *
@@ -164,6 +183,12 @@ class ExecutorContext {
         m_drStream = drStream;
     }
 
+    /** The memory counters of the site on this thread, NULL when there is no site */
+    static TableMemoryCounters* getTableMemoryCounters() {
+        ExecutorContext* singleton = getExecutorContext();
+        return singleton == NULL ? NULL : &singleton->m_tableMemoryCounters;
+    }
+
   private:
     Topend *m_topEnd;
     Pool *m_tempStringPool;
@@ -184,6 +209,8 @@ class ExecutorContext {
 
     /** local epoch for voltdb, somtime around 2008, pulled from catalog */
     int64_t m_epoch;
+
+    TableMemoryCounters m_tableMemoryCounters;
 };
 
 }
@@ -392,6 +392,9 @@ string planNodeToString(PlanNodeType type)
     case PLAN_NODE_TYPE_PARTIALAGGREGATE: {
         return "PARTIALAGGREGATE";
     }
+    case PLAN_NODE_TYPE_WINDOWFUNCTION: {
+        return "WINDOWFUNCTION";
+    }
     case PLAN_NODE_TYPE_UNION: {
         return "UNION";
     }
@@ -446,6 +449,8 @@ PlanNodeType stringToPlanNode(string str )
         return PLAN_NODE_TYPE_HASHAGGREGATE;
     } else if (str == "PARTIALAGGREGATE") {
         return PLAN_NODE_TYPE_PARTIALAGGREGATE;
+    } else if (str == "WINDOWFUNCTION") {
+        return PLAN_NODE_TYPE_WINDOWFUNCTION;
     } else if (str == "UNION") {
         return PLAN_NODE_TYPE_UNION;
     } else if (str == "ORDERBY") {
@@ -558,6 +563,24 @@ string expressionToString(ExpressionType type)
     case EXPRESSION_TYPE_AGGREGATE_AVG: {
         return "AGGREGATE_AVG";
     }
+    case EXPRESSION_TYPE_AGGREGATE_APPROX_COUNT_DISTINCT: {
+        return "AGGREGATE_APPROX_COUNT_DISTINCT";
+    }
+    case EXPRESSION_TYPE_AGGREGATE_VALS_TO_HYPERLOGLOG: {
+        return "AGGREGATE_VALS_TO_HYPERLOGLOG";
+    }
+    case EXPRESSION_TYPE_AGGREGATE_HYPERLOGLOGS_TO_CARD: {
+        return "AGGREGATE_HYPERLOGLOGS_TO_CARD";
+    }
+    case EXPRESSION_TYPE_WINDOW_RANK: {
+        return "WINDOW_RANK";
+    }
+    case EXPRESSION_TYPE_WINDOW_DENSE_RANK: {
+        return "WINDOW_DENSE_RANK";
+    }
+    case EXPRESSION_TYPE_WINDOW_ROW_NUMBER: {
+        return "WINDOW_ROW_NUMBER";
+    }
     case EXPRESSION_TYPE_FUNCTION: {
         return "FUNCTION";
     }
@@ -641,6 +664,18 @@ ExpressionType stringToExpression(string str )
         return EXPRESSION_TYPE_AGGREGATE_MAX;
     } else if (str == "AGGREGATE_AVG") {
         return EXPRESSION_TYPE_AGGREGATE_AVG;
+    } else if (str == "AGGREGATE_APPROX_COUNT_DISTINCT") {
+        return EXPRESSION_TYPE_AGGREGATE_APPROX_COUNT_DISTINCT;
+    } else if (str == "AGGREGATE_VALS_TO_HYPERLOGLOG") {
+        return EXPRESSION_TYPE_AGGREGATE_VALS_TO_HYPERLOGLOG;
+    } else if (str == "AGGREGATE_HYPERLOGLOGS_TO_CARD") {
+        return EXPRESSION_TYPE_AGGREGATE_HYPERLOGLOGS_TO_CARD;
+    } else if (str == "WINDOW_RANK") {
+        return EXPRESSION_TYPE_WINDOW_RANK;
+    } else if (str == "WINDOW_DENSE_RANK") {
+        return EXPRESSION_TYPE_WINDOW_DENSE_RANK;
+    } else if (str == "WINDOW_ROW_NUMBER") {
+        return EXPRESSION_TYPE_WINDOW_ROW_NUMBER;
     } else if (str == "FUNCTION") {
         return EXPRESSION_TYPE_FUNCTION;
     } else if (str == "VALUE_VECTOR") {
@@ -211,7 +211,8 @@ enum PlanNodeType {
     PLAN_NODE_TYPE_PROJECTION       = 54,
     PLAN_NODE_TYPE_MATERIALIZE      = 55,
     PLAN_NODE_TYPE_LIMIT            = 56,
-    PLAN_NODE_TYPE_PARTIALAGGREGATE = 57
+    PLAN_NODE_TYPE_PARTIALAGGREGATE = 57,
+    PLAN_NODE_TYPE_WINDOWFUNCTION   = 58
 };
 
 // ------------------------------------------------------------------
@@ -298,6 +299,16 @@ enum ExpressionType {
     EXPRESSION_TYPE_AGGREGATE_MIN                   = 43,
     EXPRESSION_TYPE_AGGREGATE_MAX                   = 44,
     EXPRESSION_TYPE_AGGREGATE_AVG                   = 45,
+    EXPRESSION_TYPE_AGGREGATE_APPROX_COUNT_DISTINCT = 46,
+    EXPRESSION_TYPE_AGGREGATE_VALS_TO_HYPERLOGLOG   = 47,
+    EXPRESSION_TYPE_AGGREGATE_HYPERLOGLOGS_TO_CARD  = 48,
+
+    // -----------------------------
+    // Window Functions
+    // -----------------------------
+    EXPRESSION_TYPE_WINDOW_RANK                     = 70,
+    EXPRESSION_TYPE_WINDOW_DENSE_RANK               = 71,
+    EXPRESSION_TYPE_WINDOW_ROW_NUMBER               = 72,
 
     // -----------------------------
     // Functions
@@ -324,6 +335,7 @@ enum ExpressionType {
 enum TableIndexType {
     BALANCED_TREE_INDEX     = 1,
     HASH_TABLE_INDEX        = 2,
+    BTREE_INDEX             = 3,
 };
 
 // ------------------------------------------------------------------
@@ -418,7 +430,8 @@ inline bool tableStreamTypeAppliesToPreTruncateTable(TableStreamType streamType)
 // ------------------------------------------------------------------
 enum StatisticsSelectorType {
     STATISTICS_SELECTOR_TYPE_TABLE,
-    STATISTICS_SELECTOR_TYPE_INDEX
+    STATISTICS_SELECTOR_TYPE_INDEX,
+    STATISTICS_SELECTOR_TYPE_PLANNODE
 };
 
 // ------------------------------------------------------------------
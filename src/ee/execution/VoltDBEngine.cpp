@@ -73,6 +73,7 @@
 #include "indexes/tableindexfactory.h"
 #include "plannodes/abstractplannode.h"
 #include "plannodes/plannodefragment.h"
+#include "stats/StatsSource.h"
 #include "storage/tablefactory.h"
 #include "storage/persistenttable.h"
 #include "storage/streamedtable.h"
@@ -94,6 +95,7 @@
 
 #include <sstream>
 #include <locale>
+#include <time.h>
 #ifdef LINUX
 #include <malloc.h>
 #endif // LINUX
@@ -186,6 +188,8 @@ public:
     /** Accessor function to satisfy boost::multi_index::const_mem_fun template. */
     int64_t getFragId() const { return m_fragId; }
 
+    const std::vector<AbstractExecutor*>& getExecutors() const { return m_list; }
+
     const TempTableLimits& limits() const { return m_limits; }
 
     /** Return a string with helpful info about this object. */
@@ -211,11 +215,20 @@ public:
         // its children are positioned before it in this list,
         // therefore dependency tracking is not needed here.
         const NValueArray& params = engine->getParameterContainer();
+        const bool profiling = engine->isPlanNodeProfiling();
         int ctr = 0;
         BOOST_FOREACH(AbstractExecutor *executor, m_list) {
             assert (executor);
 
             try {
+                int64_t tuplesProcessed = 0;
+                int64_t startMicros = 0;
+                if (profiling) {
+                    tuplesProcessed = engine->getTuplesProcessedInBatch();
+                    executor->resetIndexProbes();
+                    startMicros = nowMicros();
+                }
+
                 // Now call the execute method to actually perform
                 // whatever action it is that the node is supposed to
                 // do...
@@ -227,6 +240,11 @@ public:
 
                     return ENGINE_ERRORCODE_ERROR;
                 }
+
+                if (profiling) {
+                    countExecution(executor, nowMicros() - startMicros,
+                                   engine->getTuplesProcessedInBatch() - tuplesProcessed);
+                }
             } catch (const SerializableEEException &e) {
                 VOLT_TRACE("The Executor's execution at position '%d'"
                            " failed for PlanFragment '%jd'",
@@ -246,6 +264,40 @@ public:
 
 private:
 
+    // Monotonic, so that a wall clock adjustment can't skew an execution time
+    static int64_t nowMicros() {
+        timespec ts;
+        clock_gettime(CLOCK_MONOTONIC, &ts);
+        return static_cast<int64_t>(ts.tv_sec) * 1000000 + ts.tv_nsec / 1000;
+    }
+
+    /**
+     * Add an execution to the profile counters of an executor. The tuples
+     * it took in are those it noted for the progress monitor, when it
+     * scans, or else the tuples of the temp tables it was given.
+     */
+    static void countExecution(AbstractExecutor* executor, int64_t micros, int64_t tuplesProcessed) {
+        AbstractExecutor::ProfileCounters& counters = executor->getProfileCounters();
+        AbstractPlanNode* node = executor->getPlanNode();
+        ++counters.invocations;
+        counters.executionMicros += micros;
+        counters.indexProbes += executor->getIndexProbes();
+        if (tuplesProcessed == 0) {
+            for (int ii = 0; ii < node->getInputTableCount(); ii++) {
+                TempTable* input = dynamic_cast<TempTable*>(node->getInputTable(ii));
+                if (input) {
+                    tuplesProcessed += input->tempTableTupleCount();
+                }
+            }
+        }
+        counters.tuplesIn += tuplesProcessed;
+        TempTable* output = dynamic_cast<TempTable*>(node->getOutputTable());
+        if (output) {
+            counters.tuplesOut += output->tempTableTupleCount();
+            counters.tempTableBytes += output->occupiedTupleMemory();
+        }
+    }
+
     /**
      * This method is private.  Please use static factory method
      * fromJsonPlan to construct an instance of ExecutorVector.
@@ -363,6 +415,8 @@ VoltDBEngine::VoltDBEngine(Topend *topend, LogProxy *logProxy)
       m_tuplesProcessedSinceReport(0),
       m_tupleReportThreshold(LONG_OP_THRESHOLD),
       m_lastAccessedTable(NULL),
+      m_planNodeProfiling(false),
+      m_planNodeStatsPool(64 * 1024, 1),
       m_currentUndoQuantum(NULL),
       m_hashinator(NULL),
       m_staticParams(MAX_PARAM_COUNT),
@@ -484,6 +538,7 @@ VoltDBEngine::~VoltDBEngine() {
 
     // clean up execution plans
     m_plans.reset();
+    m_planNodeStatsTable.reset();
 
     // Clear the undo log before deleting the persistent tables so
     // that the persistent table schema are still around so we can
@@ -787,7 +842,12 @@ bool VoltDBEngine::loadCatalog(const int64_t timestamp, const string &catalogPay
     VOLT_DEBUG("Loading catalog...");
 
 
-    m_catalog->execute(catalogPayload);
+    if (catalog::Catalog::isBinary(catalogPayload)) {
+        m_catalog->executeBinary(catalogPayload);
+    }
+    else {
+        m_catalog->execute(catalogPayload);
+    }
 
 
     if (updateCatalogDatabaseReference() == false) {
@@ -1551,6 +1611,10 @@ int VoltDBEngine::getStats(int selector, int locators[], int numLocators,
                 (StatisticsSelectorType) selector,
                 locatorIds, interval, now);
             break;
+        case STATISTICS_SELECTOR_TYPE_PLANNODE:
+            // every cached fragment, there are no locators
+            resultTable = getPlanNodeStats(interval, now);
+            break;
         default:
             char message[256];
             snprintf(message, 256, "getStats() called with an unrecognized selector"
@@ -1574,6 +1638,108 @@ int VoltDBEngine::getStats(int selector, int locators[], int numLocators,
     }
 }
 
+void VoltDBEngine::getTableMemoryStats()
+{
+    const TableMemoryCounters &counters = m_executorContext->m_tableMemoryCounters;
+    int64_t tupleCount = counters.tupleCount;
+    int64_t tupleAllocatedMemory = counters.tupleAllocatedMemory;
+
+    // the buffers of the export tables aren't counted as they fill, there are few of them
+    BOOST_FOREACH (TablePair table, m_exportingTables) {
+        tupleCount += table.second->activeTupleCount();
+        tupleAllocatedMemory += table.second->allocatedTupleMemory();
+    }
+
+    m_resultOutput.writeLong(tupleCount);
+    m_resultOutput.writeLong(tupleAllocatedMemory);
+    m_resultOutput.writeLong(counters.tupleDataMemory);
+    m_resultOutput.writeLong(counters.stringMemory);
+    m_resultOutput.writeLong(counters.indexMemory);
+}
+
+/**
+ * Build the PLANNODE statistics, a row for each executor of each plan fragment
+ * in the plan cache, with what its executions did while plan node profiling was on.
+ * The counters of a fragment go away with it when it falls out of the cache.
+ */
+Table* VoltDBEngine::getPlanNodeStats(bool interval, int64_t now)
+{
+    if ( ! m_plans) {
+        return NULL;
+    }
+    if ( ! m_planNodeStatsTable) {
+        vector<string> columnNames = StatsSource::generateBaseStatsColumnNames();
+        columnNames.push_back("FRAGMENT_ID");
+        columnNames.push_back("PLAN_NODE_ID");
+        columnNames.push_back("PLAN_NODE_TYPE");
+        columnNames.push_back("INVOCATIONS");
+        columnNames.push_back("TUPLES_IN");
+        columnNames.push_back("TUPLES_OUT");
+        columnNames.push_back("EXECUTION_TIME");
+        columnNames.push_back("INDEX_PROBES");
+        columnNames.push_back("TEMP_TABLE_BYTES");
+
+        vector<ValueType> types;
+        vector<int32_t> columnLengths;
+        vector<bool> allowNull;
+        vector<bool> inBytes;
+        StatsSource::populateBaseSchema(types, columnLengths, allowNull, inBytes);
+        types.push_back(VALUE_TYPE_BIGINT); columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT)); allowNull.push_back(false); inBytes.push_back(false);
+        types.push_back(VALUE_TYPE_INTEGER); columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER)); allowNull.push_back(false); inBytes.push_back(false);
+        types.push_back(VALUE_TYPE_VARCHAR); columnLengths.push_back(4096); allowNull.push_back(false); inBytes.push_back(false);
+        for (int ii = 0; ii < 6; ii++) {
+            types.push_back(VALUE_TYPE_BIGINT); columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT)); allowNull.push_back(false); inBytes.push_back(false);
+        }
+        TupleSchema *schema = TupleSchema::createTupleSchema(types, columnLengths, allowNull, inBytes);
+        // Not associated with any database, like the other stats tables
+        m_planNodeStatsTable.reset(TableFactory::getTempTable(1, "PLANNODE", schema, columnNames, NULL));
+    }
+
+    // the table only points at the strings of the last poll
+    m_planNodeStatsTable->deleteAllTuples(false);
+    m_planNodeStatsPool.purge();
+    NValue hostname = ValueFactory::getStringValue(m_executorContext->m_hostname.c_str(), &m_planNodeStatsPool);
+
+    TableTuple tuple = m_planNodeStatsTable->tempTuple();
+    BOOST_FOREACH (boost::shared_ptr<ExecutorVector> ev, *m_plans) {
+        BOOST_FOREACH (AbstractExecutor* executor, ev->getExecutors()) {
+            AbstractExecutor::ProfileCounters counters = executor->getProfileCounters();
+            if (counters.invocations == 0) {
+                continue;
+            }
+            if (interval) {
+                AbstractExecutor::ProfileCounters& reported = executor->getReportedProfileCounters();
+                AbstractExecutor::ProfileCounters total = counters;
+                counters.invocations -= reported.invocations;
+                counters.tuplesIn -= reported.tuplesIn;
+                counters.tuplesOut -= reported.tuplesOut;
+                counters.executionMicros -= reported.executionMicros;
+                counters.indexProbes -= reported.indexProbes;
+                counters.tempTableBytes -= reported.tempTableBytes;
+                reported = total;
+            }
+
+            AbstractPlanNode* node = executor->getPlanNode();
+            string type = planNodeToString(node->getPlanNodeType());
+            tuple.setNValue(0, ValueFactory::getBigIntValue(now));
+            tuple.setNValue(1, ValueFactory::getIntegerValue(static_cast<int32_t>(m_executorContext->m_hostId)));
+            tuple.setNValue(2, hostname);
+            tuple.setNValue(3, ValueFactory::getIntegerValue(static_cast<int32_t>(m_siteId >> 32)));
+            tuple.setNValue(4, ValueFactory::getBigIntValue(m_partitionId));
+            tuple.setNValue(5, ValueFactory::getBigIntValue(ev->getFragId()));
+            tuple.setNValue(6, ValueFactory::getIntegerValue(node->getPlanNodeId()));
+            tuple.setNValue(7, ValueFactory::getStringValue(type.c_str(), &m_planNodeStatsPool));
+            tuple.setNValue(8, ValueFactory::getBigIntValue(counters.invocations));
+            tuple.setNValue(9, ValueFactory::getBigIntValue(counters.tuplesIn));
+            tuple.setNValue(10, ValueFactory::getBigIntValue(counters.tuplesOut));
+            tuple.setNValue(11, ValueFactory::getBigIntValue(counters.executionMicros));
+            tuple.setNValue(12, ValueFactory::getBigIntValue(counters.indexProbes));
+            tuple.setNValue(13, ValueFactory::getBigIntValue(counters.tempTableBytes));
+            m_planNodeStatsTable->insertTuple(tuple);
+        }
+    }
+    return m_planNodeStatsTable.get();
+}
 
 void VoltDBEngine::setCurrentUndoQuantum(voltdb::UndoQuantum* undoQuantum)
 {
@@ -1823,6 +1989,13 @@ void VoltDBEngine::getUSOForExportTable(size_t &ackOffset, int64_t &seqNo, std::
     return;
 }
 
+void VoltDBEngine::getTableChangeCounts(const int32_t *tableIds, int32_t count, int64_t *changeCounts) {
+    for (int32_t i = 0; i < count; i++) {
+        PersistentTable *table = dynamic_cast<PersistentTable*>(getTable(tableIds[i]));
+        changeCounts[i] = table ? table->changeCount() : -1;
+    }
+}
+
 size_t VoltDBEngine::tableHashCode(int32_t tableId) {
     Table* found = getTable(tableId);
     if (! found) {
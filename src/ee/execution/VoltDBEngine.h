@@ -162,6 +162,11 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         inline int64_t pushTuplesProcessedForProgressMonitoring(int64_t tuplesProcessed);
         inline void pushFinalTuplesProcessedForProgressMonitoring(int64_t tuplesProcessed);
 
+        // Tuples noted by the executors so far in this batch
+        int64_t getTuplesProcessedInBatch() const {
+            return m_tuplesProcessedInBatch + m_tuplesProcessedInFragment + m_tuplesProcessedSinceReport;
+        }
+
         // If an insert will fail due to row limit constraint and user
         // has defined a delete action to make space, this method
         // executes the corresponding fragment.
@@ -267,6 +272,22 @@ class __attribute__((visibility("default"))) VoltDBEngine {
                 bool interval,
                 int64_t now);
 
+        /**
+         * Place the running totals of the memory held by the tables and indexes of this
+         * site into the result buffer: tuple count, allocated tuple memory, tuple data
+         * memory, string memory and index memory, as longs, the memory in bytes.
+         * This costs the same however many tables there are.
+         */
+        void getTableMemoryStats();
+
+        /**
+         * Turn the counters of the executors of every plan fragment on or off. They are
+         * reported under STATISTICS_SELECTOR_TYPE_PLANNODE and cost two clock reads
+         * for every run of an executor while on.
+         */
+        void setPlanNodeProfiling(bool enabled) { m_planNodeProfiling = enabled; }
+        bool isPlanNodeProfiling() const { return m_planNodeProfiling; }
+
         Pool* getStringPool() { return &m_stringPool; }
 
         LogManager* getLogManager() { return &m_logManager; }
@@ -359,6 +380,12 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 
         void getUSOForExportTable(size_t &ackOffset, int64_t &seqNo, std::string tableSignature);
 
+        /**
+         * Change count of the persistent table of each id, -1 for an id
+         * without one.
+         */
+        void getTableChangeCounts(const int32_t *tableIds, int32_t count, int64_t *changeCounts);
+
         /**
          * Retrieve a hash code for the specified table
          */
@@ -436,6 +463,9 @@ class __attribute__((visibility("default"))) VoltDBEngine {
          */
         ExecutorVector *getExecutorVectorForFragmentId(const int64_t fragId);
 
+        /** One row of counters for each executor of each cached plan fragment */
+        Table* getPlanNodeStats(bool interval, int64_t now);
+
         bool checkTempTableCleanup(ExecutorVector * execsForFrag);
         void resetExecutionMetadata();
 
@@ -454,6 +484,9 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         AbstractExecutor* m_lastAccessedExec;
 
         boost::scoped_ptr<EnginePlanSet> m_plans;
+        bool m_planNodeProfiling;
+        Pool m_planNodeStatsPool;
+        boost::scoped_ptr<Table> m_planNodeStatsTable;
         voltdb::UndoLog m_undoLog;
         voltdb::UndoQuantum *m_currentUndoQuantum;
 
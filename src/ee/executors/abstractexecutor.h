@@ -96,13 +96,44 @@ class AbstractExecutor {
         // LEAVE as blank on purpose
     }
 
+    /**
+     * What the executions of this executor did, summed up by the
+     * ExecutorVector of its fragment while plan node profiling is on.
+     */
+    struct ProfileCounters {
+        ProfileCounters()
+            : invocations(0), tuplesIn(0), tuplesOut(0),
+              executionMicros(0), indexProbes(0), tempTableBytes(0)
+        { }
+
+        int64_t invocations;
+        int64_t tuplesIn;
+        int64_t tuplesOut;
+        int64_t executionMicros;
+        int64_t indexProbes;
+        int64_t tempTableBytes;
+    };
+
+    ProfileCounters& getProfileCounters() { return m_profileCounters; }
+
+    /** The counters as of the last interval poll of the plan node statistics */
+    ProfileCounters& getReportedProfileCounters() { return m_reportedProfileCounters; }
+
+    /** Index lookups since the last reset, the ExecutorVector resets it for every execution */
+    int64_t getIndexProbes() const { return m_indexProbes; }
+    void resetIndexProbes() { m_indexProbes = 0; }
+
   protected:
     AbstractExecutor(VoltDBEngine* engine, AbstractPlanNode* abstractNode) {
         m_abstractNode = abstractNode;
         m_tmpOutputTable = NULL;
         m_engine = engine;
+        m_indexProbes = 0;
     }
 
+    /** Executors that position an index cursor call this for every lookup */
+    void countIndexProbe() { ++m_indexProbes; }
+
     /** Concrete executor classes implement initialization in p_init() */
     virtual bool p_init(AbstractPlanNode*,
                         TempTableLimits* limits) = 0;
@@ -128,6 +159,11 @@ class AbstractExecutor {
 
     /** reference to the engine to call up to the top end */
     VoltDBEngine* m_engine;
+
+  private:
+    ProfileCounters m_profileCounters;
+    ProfileCounters m_reportedProfileCounters;
+    int64_t m_indexProbes;
 };
 
 
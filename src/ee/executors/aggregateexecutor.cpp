@@ -45,11 +45,13 @@
 
 #include "executors/aggregateexecutor.h"
 
+#include "common/HyperLogLog.h"
 #include "common/ValueFactory.hpp"
 #include "common/common.h"
 #include "common/debuglog.h"
 #include "common/SerializableEEException.h"
 #include "expressions/abstractexpression.h"
+#include "expressions/tuplevalueexpression.h"
 #include "plannodes/aggregatenode.h"
 #include "plannodes/limitnode.h"
 #include "storage/temptable.h"
@@ -78,6 +80,9 @@ typedef boost::unordered_set<NValue,
  * It is specified as a parameter class that determines the type of the ifDistinct data member.
  */
 struct Distinct : public AggregateNValueSetType {
+    // De-duping needs every value, so typed batch loops do not apply.
+    bool allowsBatch() const { return false; }
+
     bool excludeValue(const NValue& val)
     {
         // find this value in the set.  If it doesn't exist, add
@@ -99,6 +104,7 @@ struct Distinct : public AggregateNValueSetType {
  * It is specified as a parameter class that determines the type of the ifDistinct data member.
  */
 struct NotDistinct {
+    bool allowsBatch() const { return true; }
     void clear() { }
     bool excludeValue(const NValue& val)
     {
@@ -106,6 +112,155 @@ struct NotDistinct {
     }
 };
 
+/*
+ * Accumulators for the typed loops behind Agg::advanceBatch. Each folds the
+ * non-NULL values of one fixed-width column of the selected tuples of a batch.
+ */
+struct BatchCount {
+    BatchCount() : m_count(0) {}
+    template <typename T> void add(T) { ++m_count; }
+    int64_t m_count;
+};
+
+struct BatchIntegerSum {
+    BatchIntegerSum() : m_sum(0), m_count(0), m_overflow(false) {}
+    void add(int64_t value)
+    {
+        if ((value > 0 && m_sum > INT64_MAX - value) ||
+            (value < 0 && m_sum <= INT64_MIN - value)) {
+            // Leave it to the NValue arithmetic to report the overflow.
+            m_overflow = true;
+            return;
+        }
+        m_sum += value;
+        ++m_count;
+    }
+    int64_t m_sum;
+    int64_t m_count;
+    bool m_overflow;
+};
+
+struct BatchDoubleSum {
+    BatchDoubleSum() : m_sum(0.0), m_count(0) {}
+    void add(double value)
+    {
+        m_sum += value;
+        ++m_count;
+    }
+    double m_sum;
+    int64_t m_count;
+};
+
+template <typename V, bool isMin>
+struct BatchExtreme {
+    BatchExtreme() : m_value(), m_found(false) {}
+    void add(V value)
+    {
+        if ( ! m_found) {
+            m_value = value;
+            m_found = true;
+        }
+        else if (isMin ? compareBatchValues(value, m_value) < 0 :
+                         compareBatchValues(value, m_value) > 0) {
+            m_value = value;
+        }
+    }
+    V m_value;
+    bool m_found;
+};
+
+template <typename T, typename A>
+inline void foldColumn(const TupleBatch& batch, uint32_t offset, A& acc)
+{
+    const int count = batch.selectedCount();
+    for (int i = 0; i < count; ++i) {
+        const T value = batch.selectedValue<T>(i, offset);
+        if ( ! isNullStorage(value)) {
+            acc.add(value);
+        }
+    }
+}
+
+/*
+ * Fold an integer column (TINYINT through BIGINT) into the accumulator.
+ * Return false for any other column type.
+ */
+template <typename A>
+inline bool foldIntegerColumn(const TupleBatch& batch, const TupleSchema::ColumnInfo* column, A& acc)
+{
+    switch (column->getVoltType()) {
+    case VALUE_TYPE_TINYINT:
+        foldColumn<int8_t>(batch, column->offset, acc);
+        return true;
+    case VALUE_TYPE_SMALLINT:
+        foldColumn<int16_t>(batch, column->offset, acc);
+        return true;
+    case VALUE_TYPE_INTEGER:
+        foldColumn<int32_t>(batch, column->offset, acc);
+        return true;
+    case VALUE_TYPE_BIGINT:
+        foldColumn<int64_t>(batch, column->offset, acc);
+        return true;
+    default:
+        return false;
+    }
+}
+
+/*
+ * Sum a numeric column into a single NValue, or return false if it is not an
+ * integer or double column or the partial sum over- or underflows, in which case
+ * the values must be added one at a time to get the usual error reporting.
+ */
+inline bool sumColumn(const TupleBatch& batch, const TupleSchema::ColumnInfo* column,
+                      NValue& sum, int64_t& count)
+{
+    if (column->getVoltType() == VALUE_TYPE_DOUBLE) {
+        BatchDoubleSum acc;
+        foldColumn<double>(batch, column->offset, acc);
+        if ( ! std::isfinite(acc.m_sum)) {
+            return false;
+        }
+        sum = ValueFactory::getDoubleValue(acc.m_sum);
+        count = acc.m_count;
+        return true;
+    }
+    BatchIntegerSum acc;
+    if ( ! foldIntegerColumn(batch, column, acc) || acc.m_overflow) {
+        return false;
+    }
+    sum = ValueFactory::getBigIntValue(acc.m_sum);
+    count = acc.m_count;
+    return true;
+}
+
+/*
+ * Find the MIN or MAX of a numeric column as a single NValue, or return false
+ * if it is not an integer or double column.
+ */
+template <bool isMin>
+inline bool extremeOfColumn(const TupleBatch& batch, const TupleSchema::ColumnInfo* column,
+                            NValue& extreme, bool& found)
+{
+    if (column->getVoltType() == VALUE_TYPE_DOUBLE) {
+        BatchExtreme<double, isMin> acc;
+        foldColumn<double>(batch, column->offset, acc);
+        found = acc.m_found;
+        if (found) {
+            extreme = ValueFactory::getDoubleValue(acc.m_value);
+        }
+        return true;
+    }
+    BatchExtreme<int64_t, isMin> acc;
+    if ( ! foldIntegerColumn(batch, column, acc)) {
+        return false;
+    }
+    found = acc.m_found;
+    if (found) {
+        extreme = ValueFactory::getBigIntValue(acc.m_value);
+    }
+    return true;
+}
+
 // Parameter D is either Distinct of NotDistinct.
 template<class D>
 class SumAgg : public Agg
@@ -127,6 +282,19 @@ class SumAgg : public Agg
         }
     }
 
+    virtual bool advanceBatch(const TupleBatch& batch, const TupleSchema::ColumnInfo* column)
+    {
+        NValue sum;
+        int64_t count;
+        if (column == NULL || ! ifDistinct.allowsBatch() || ! sumColumn(batch, column, sum, count)) {
+            return false;
+        }
+        if (count > 0) {
+            advance(sum);
+        }
+        return true;
+    }
+
     virtual NValue finalize(ValueType type)
     {
         ifDistinct.clear();
@@ -159,6 +327,20 @@ public:
         ++m_count;
     }
 
+    virtual bool advanceBatch(const TupleBatch& batch, const TupleSchema::ColumnInfo* column)
+    {
+        NValue sum;
+        int64_t count;
+        if (column == NULL || ! ifDistinct.allowsBatch() || ! sumColumn(batch, column, sum, count)) {
+            return false;
+        }
+        if (count > 0) {
+            m_value = (m_count == 0) ? sum : m_value.op_add(sum);
+            m_count += count;
+        }
+        return true;
+    }
+
     virtual NValue finalize(ValueType type)
     {
         if (m_count == 0)
@@ -197,6 +379,28 @@ public:
         m_count++;
     }
 
+    virtual bool advanceBatch(const TupleBatch& batch, const TupleSchema::ColumnInfo* column)
+    {
+        if (column == NULL || ! ifDistinct.allowsBatch()) {
+            return false;
+        }
+        BatchCount acc;
+        switch (column->getVoltType()) {
+        case VALUE_TYPE_TIMESTAMP:
+            foldColumn<int64_t>(batch, column->offset, acc);
+            break;
+        case VALUE_TYPE_DOUBLE:
+            foldColumn<double>(batch, column->offset, acc);
+            break;
+        default:
+            if ( ! foldIntegerColumn(batch, column, acc)) {
+                return false;
+            }
+        }
+        m_count += acc.m_count;
+        return true;
+    }
+
     virtual NValue finalize(ValueType type)
     {
         ifDistinct.clear();
@@ -224,6 +428,12 @@ public:
         ++m_count;
     }
 
+    virtual bool advanceBatch(const TupleBatch& batch, const TupleSchema::ColumnInfo* column)
+    {
+        m_count += batch.selectedCount();
+        return true;
+    }
+
     virtual NValue finalize(ValueType type)
     {
         return ValueFactory::getBigIntValue(m_count).castAs(type);
@@ -239,6 +449,79 @@ private:
     int64_t m_count;
 };
 
+/*
+ * APPROX_COUNT_DISTINCT: estimates the number of distinct non-NULL values
+ * with a HyperLogLog sketch instead of remembering every value.
+ */
+class ApproxCountDistinctAgg : public Agg
+{
+public:
+    ApproxCountDistinctAgg() {}
+
+    virtual void advance(const NValue& val)
+    {
+        if (val.isNull()) {
+            return;
+        }
+        m_hyperLogLog.add(val);
+    }
+
+    virtual NValue finalize(ValueType type)
+    {
+        return ValueFactory::getBigIntValue(m_hyperLogLog.estimate()).castAs(type);
+    }
+
+    virtual void resetAgg()
+    {
+        m_haveAdvanced = false;
+        m_hyperLogLog.clear();
+    }
+
+protected:
+    HyperLogLog m_hyperLogLog;
+};
+
+/*
+ * The partition side of a distributed APPROX_COUNT_DISTINCT:
+ * produces the sketch itself as a VARBINARY value.
+ */
+class ValsToHyperLogLogAgg : public ApproxCountDistinctAgg
+{
+public:
+    ValsToHyperLogLogAgg(Pool* memoryPool)
+        : m_memoryPool(memoryPool)
+    {
+    }
+
+    virtual NValue finalize(ValueType type)
+    {
+        assert(type == VALUE_TYPE_VARBINARY);
+        return ValueFactory::getBinaryValue(reinterpret_cast<const unsigned char*>(m_hyperLogLog.data()),
+                                            HyperLogLog::SERIALIZED_SIZE, m_memoryPool);
+    }
+
+private:
+    Pool* m_memoryPool;
+};
+
+/*
+ * The coordinator side of a distributed APPROX_COUNT_DISTINCT:
+ * merges the sketches of the partitions and estimates from the union.
+ */
+class HyperLogLogsToCardAgg : public ApproxCountDistinctAgg
+{
+public:
+    HyperLogLogsToCardAgg() {}
+
+    virtual void advance(const NValue& val)
+    {
+        if (val.isNull()) {
+            return;
+        }
+        m_hyperLogLog.merge(val);
+    }
+};
+
 class MaxAgg : public Agg
 {
 public:
@@ -247,6 +530,19 @@ public:
     {
     }
 
+    virtual bool advanceBatch(const TupleBatch& batch, const TupleSchema::ColumnInfo* column)
+    {
+        NValue extreme;
+        bool found;
+        if (column == NULL || ! extremeOfColumn<false>(batch, column, extreme, found)) {
+            return false;
+        }
+        if (found) {
+            advance(extreme);
+        }
+        return true;
+    }
+
     virtual void advance(const NValue& val)
     {
         if (val.isNull())
@@ -301,6 +597,19 @@ public:
     {
     }
 
+    virtual bool advanceBatch(const TupleBatch& batch, const TupleSchema::ColumnInfo* column)
+    {
+        NValue extreme;
+        bool found;
+        if (column == NULL || ! extremeOfColumn<true>(batch, column, extreme, found)) {
+            return false;
+        }
+        if (found) {
+            advance(extreme);
+        }
+        return true;
+    }
+
     virtual void advance(const NValue& val)
     {
         if (val.isNull())
@@ -368,6 +677,12 @@ inline Agg* getAggInstance(Pool& memoryPool, ExpressionType agg_type, bool isDis
             return new (memoryPool) AvgAgg<Distinct>();
         }
         return new (memoryPool) AvgAgg<NotDistinct>();
+    case EXPRESSION_TYPE_AGGREGATE_APPROX_COUNT_DISTINCT:
+        return new (memoryPool) ApproxCountDistinctAgg();
+    case EXPRESSION_TYPE_AGGREGATE_VALS_TO_HYPERLOGLOG:
+        return new (memoryPool) ValsToHyperLogLogAgg(&memoryPool);
+    case EXPRESSION_TYPE_AGGREGATE_HYPERLOGLOGS_TO_CARD:
+        return new (memoryPool) HyperLogLogsToCardAgg();
     default:
     {
         char message[128];
@@ -607,6 +922,17 @@ TableTuple AggregateExecutorBase::p_execute_init(const NValueArray& params,
     return TableTuple(storage, schema);
 }
 
+bool AggregateExecutorBase::p_execute_batch(const TupleBatch& batch, TableTuple& scratch)
+{
+    for (int i = 0; i < batch.selectedCount(); ++i) {
+        scratch.move(batch.selectedAddress(i));
+        if (p_execute_tuple(scratch)) {
+            return true;
+        }
+    }
+    return false;
+}
+
 void AggregateExecutorBase::p_execute_finish()
 {
     TableTuple& nextGroupByKeyTuple = m_nextGroupByKeyStorage;
@@ -732,6 +1058,15 @@ TableTuple AggregateSerialExecutor::p_execute_init(const NValueArray& params,
             m_memoryPool.allocateZeroes(schema->tupleLength() + TUPLE_HEADER_SIZE));
     m_passThroughTupleSource = TableTuple(storage, schema);
 
+    m_batchable = m_groupByExpressions.empty() && m_prePredicate == NULL;
+    m_batchColumns.assign(m_aggTypes.size(), NULL);
+    for (int ii = 0; ii < m_aggTypes.size(); ii++) {
+        const TupleValueExpression* tve = dynamic_cast<const TupleValueExpression*>(m_inputExpressions[ii]);
+        if (tve != NULL && tve->getTupleId() == 0) {
+            m_batchColumns[ii] = schema->getColumnInfo(tve->getColumnId());
+        }
+    }
+
     // for next input tuple
     return nextInputTuple;
 }
@@ -808,6 +1143,39 @@ bool AggregateSerialExecutor::p_execute_tuple(const TableTuple& nextTuple) {
     return false;
 }
 
+bool AggregateSerialExecutor::p_execute_batch(const TupleBatch& batch, TableTuple& scratch)
+{
+    if ( ! m_batchable) {
+        return AggregateExecutorBase::p_execute_batch(batch, scratch);
+    }
+    const int count = batch.selectedCount();
+    if (count == 0) {
+        return false;
+    }
+    // Use the first input tuple to "prime" the system, as p_execute_tuple does.
+    if (m_noInputRows) {
+        scratch.move(batch.selectedAddress(0));
+        initGroupByKeyTuple(scratch);
+        initAggInstances(m_aggregateRow);
+        m_aggregateRow->recordPassThroughTuple(m_passThroughTupleSource, scratch);
+        m_noInputRows = false;
+    }
+
+    // With a single group, each aggregate can consume the whole batch at once.
+    Agg** aggs = m_aggregateRow->m_aggregates;
+    for (int ii = 0; ii < m_aggTypes.size(); ii++) {
+        if (aggs[ii]->advanceBatch(batch, m_batchColumns[ii])) {
+            continue;
+        }
+        AbstractExpression* inputExpr = m_inputExpressions[ii];
+        for (int i = 0; i < count; ++i) {
+            scratch.move(batch.selectedAddress(i));
+            aggs[ii]->advance(inputExpr ? inputExpr->eval(&scratch) : NValue());
+        }
+    }
+    return false;
+}
+
 void AggregateSerialExecutor::p_execute_finish()
 {
     if (!m_earlyReturn) {
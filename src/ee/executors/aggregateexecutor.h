@@ -52,6 +52,7 @@
 #include "common/common.h"
 #include "common/debuglog.h"
 #include "common/tabletuple.h"
+#include "common/TupleBatch.h"
 #include "expressions/abstractexpression.h"
 #include "execution/ProgressMonitorProxy.h"
 
@@ -77,6 +78,19 @@ public:
         /* do nothing */
     }
     virtual void advance(const NValue& val) = 0;
+
+    /**
+     * Advance over one column of the selected tuples of a batch using a typed loop.
+     * Return false, without advancing, when there is no typed loop for this
+     * aggregate and column type; the caller then falls back to advance().
+     * The column is NULL for COUNT(*) and for input expressions that are not
+     * a plain column reference.
+     */
+    virtual bool advanceBatch(const TupleBatch& batch, const TupleSchema::ColumnInfo* column)
+    {
+        return false;
+    }
+
     virtual NValue finalize(ValueType type)
     {
         m_value.castAs(type);
@@ -181,6 +195,13 @@ public:
      */
     virtual bool p_execute_tuple(const TableTuple& nextTuple) = 0;
 
+    /**
+     * Aggregate the selected tuples of a batch, using the scratch tuple to visit them.
+     * Return true when LIMIT has been met. By default, each selected tuple is passed
+     * to p_execute_tuple.
+     */
+    virtual bool p_execute_batch(const TupleBatch& batch, TableTuple& scratch);
+
     /**
      * Last method to insert the results to output table and clean up memory or variables.
      */
@@ -297,12 +318,13 @@ public:
     AggregateSerialExecutor(VoltDBEngine* engine, AbstractPlanNode* abstract_node) :
         AggregateExecutorBase(engine, abstract_node),
         m_aggregateRow(NULL), m_noInputRows(true),
-        m_failPrePredicateOnFirstRow(false) { }
+        m_failPrePredicateOnFirstRow(false), m_batchable(false) { }
     ~AggregateSerialExecutor();
 
     TableTuple p_execute_init(const NValueArray& params, ProgressMonitorProxy* pmp,
                               const TupleSchema * schema, TempTable* newTempTable  = NULL);
     bool p_execute_tuple(const TableTuple& nextTuple);
+    bool p_execute_batch(const TupleBatch& batch, TableTuple& scratch);
     void p_execute_finish();
 
 protected:
@@ -313,6 +335,11 @@ protected:
 
     TableTuple m_passThroughTupleSource;
 
+    // Batches are folded one aggregate at a time when there is no group by
+    // and no pre-predicate. The input column of each aggregate, if any.
+    bool m_batchable;
+    std::vector<const TupleSchema::ColumnInfo*> m_batchColumns;
+
 private:
     virtual bool p_execute(const NValueArray& params);
 };
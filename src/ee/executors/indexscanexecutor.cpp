@@ -333,6 +333,7 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
     //
 
     TableTuple tuple;
+    countIndexProbe();
     if (activeNumOfSearchKeys > 0) {
         VOLT_TRACE("INDEX_LOOKUP_TYPE(%d) m_numSearchkeys(%d) key:%s",
                 localLookupType, activeNumOfSearchKeys, searchKey.debugNoHeader().c_str());
@@ -43,6 +43,7 @@
  * OTHER DEALINGS IN THE SOFTWARE.
  */
 
+#include <algorithm>
 #include <iostream>
 #include "seqscanexecutor.h"
 #include "common/debuglog.h"
@@ -52,6 +53,7 @@
 #include "executors/aggregateexecutor.h"
 #include "execution/ProgressMonitorProxy.h"
 #include "expressions/abstractexpression.h"
+#include "expressions/batchfilter.h"
 #include "plannodes/aggregatenode.h"
 #include "plannodes/seqscannode.h"
 #include "plannodes/projectionnode.h"
@@ -63,6 +65,11 @@
 
 using namespace voltdb;
 
+SeqScanExecutor::~SeqScanExecutor()
+{
+    delete m_batchFilter;
+}
+
 bool SeqScanExecutor::p_init(AbstractPlanNode* abstract_node,
                              TempTableLimits* limits)
 {
@@ -103,6 +110,11 @@ bool SeqScanExecutor::p_init(AbstractPlanNode* abstract_node,
     // Inline aggregation can be serial, partial or hash
     m_aggExec = voltdb::getInlineAggregateExecutor(node);
 
+    if (node->getPredicate() != NULL) {
+        delete m_batchFilter;
+        m_batchFilter = new BatchFilter(node->getPredicate());
+    }
+
     return true;
 }
 
@@ -159,9 +171,9 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
         limit_node != NULL || m_aggExec != NULL)
     {
         //
-        // Just walk through the table using our iterator and apply
-        // the predicate to each tuple. For each tuple that satisfies
-        // our expression, we'll insert them into the output table.
+        // Just walk through the table using our iterator, a batch of tuples
+        // at a time, and apply the predicate to each batch. For each tuple
+        // that satisfies our expression, we'll insert them into the output table.
         //
         TableTuple tuple(input_table->schema());
         TableIterator iterator = input_table->iteratorDeletingAsWeGo();
@@ -170,6 +182,7 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
         if (predicate)
         {
             VOLT_TRACE("SCAN PREDICATE A:\n%s\n", predicate->debug(true).c_str());
+            m_batchFilter->bind(input_table->schema());
         }
 
         int limit = -1;
@@ -195,22 +208,69 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             temp_tuple = output_temp_table->tempTuple();
         }
 
-        while ((limit == -1 || tuple_ctr < limit) && iterator.next(tuple))
+        //
+        // A subquery's temp table frees each block as soon as the iterator
+        // moves past it, so its tuples can only be batched one at a time.
+        //
+        const int max_batch_size = node->isSubQuery() ? 1 : TupleBatch::MAX_SIZE;
+        //
+        // Without an inline projection or limit, the inline aggregate
+        // takes whole batches and folds plain columns with typed loops.
+        //
+        const bool aggregate_batches = m_aggExec != NULL &&
+                projection_node == NULL && limit_node == NULL;
+        bool done = false;
+
+        while (!done && (limit == -1 || tuple_ctr < limit))
         {
-            VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
-                       tuple.debug(input_table->name()).c_str(), tuple_ctr,
-                       (int)input_table->activeTupleCount());
-            pmp.countdownProgress();
             //
-            // For each tuple we need to evaluate it against our predicate
+            // With a limit, never read ahead further than the limit could
+            // need, so the predicate sees no tuple it would not have seen
+            // when evaluated a tuple at a time.
+            //
+            int batch_size = max_batch_size;
+            if (limit != -1) {
+                batch_size = std::min(batch_size,
+                        limit - tuple_ctr + std::max(offset, 0) - tuple_skipped);
+            }
+            m_batch.reset();
+            while (m_batch.size() < batch_size && iterator.next(tuple))
+            {
+                VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
+                           tuple.debug(input_table->name()).c_str(), tuple_ctr,
+                           (int)input_table->activeTupleCount());
+                pmp.countdownProgress();
+                m_batch.append(tuple);
+            }
+            if (m_batch.size() == 0) {
+                break;
+            }
+
+            //
+            // Narrow the batch to the tuples that satisfy our predicate
             //
-            if (predicate == NULL || predicate->eval(&tuple, NULL).isTrue())
+            if (predicate != NULL) {
+                m_batchFilter->apply(m_batch, tuple);
+            }
+
+            if (aggregate_batches) {
+                // progress was counted as the batch was read
+                done = m_aggExec->p_execute_batch(m_batch, tuple);
+                continue;
+            }
+
+            for (int batch_ctr = 0; batch_ctr < m_batch.selectedCount(); batch_ctr++)
             {
+                tuple.move(m_batch.selectedAddress(batch_ctr));
+
                 // Check if we have to skip this tuple because of offset
                 if (tuple_skipped < offset) {
                     tuple_skipped++;
                     continue;
                 }
+                if (limit != -1 && tuple_ctr >= limit) {
+                    break;
+                }
                 ++tuple_ctr;
 
                 //
@@ -227,6 +287,7 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
 
                     if (m_aggExec != NULL) {
                         if (m_aggExec->p_execute_tuple(temp_tuple)) {
+                            done = true;
                             break;
                         }
                     } else {
@@ -237,6 +298,7 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
                 {
                     if (m_aggExec != NULL) {
                         if (m_aggExec->p_execute_tuple(tuple)) {
+                            done = true;
                             break;
                         }
                     } else {
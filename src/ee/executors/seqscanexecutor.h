@@ -48,6 +48,7 @@
 
 #include "common/common.h"
 #include "common/valuevector.h"
+#include "common/TupleBatch.h"
 #include "executors/abstractexecutor.h"
 #include "execution/VoltDBEngine.h"
 
@@ -56,13 +57,16 @@ namespace voltdb
     class UndoLog;
     class ReadWriteSet;
     class AggregateExecutorBase;
+    class BatchFilter;
 
     class SeqScanExecutor : public AbstractExecutor {
     public:
         SeqScanExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
             : AbstractExecutor(engine, abstract_node)
             , m_aggExec(NULL)
+            , m_batchFilter(NULL)
         {}
+        ~SeqScanExecutor();
     protected:
         bool p_init(AbstractPlanNode* abstract_node,
                     TempTableLimits* limits);
@@ -70,6 +74,9 @@ namespace voltdb
 
     private:
         AggregateExecutorBase* m_aggExec;
+        // The scan reads and filters TupleBatch::MAX_SIZE tuples at a time.
+        BatchFilter* m_batchFilter;
+        TupleBatch m_batch;
     };
 }
 
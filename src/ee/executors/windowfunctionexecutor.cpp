@@ -0,0 +1,204 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "windowfunctionexecutor.h"
+#include "common/debuglog.h"
+#include "common/ValueFactory.hpp"
+#include "execution/ProgressMonitorProxy.h"
+#include "expressions/abstractexpression.h"
+#include "plannodes/windowfunctionnode.h"
+#include "storage/table.h"
+#include "storage/tableiterator.h"
+#include "storage/temptable.h"
+
+namespace voltdb {
+
+bool WindowFunctionExecutor::p_init(AbstractPlanNode* abstract_node,
+                                    TempTableLimits* limits)
+{
+    VOLT_TRACE("init WindowFunction Executor");
+    assert(limits);
+
+    m_node = dynamic_cast<WindowFunctionPlanNode*>(abstract_node);
+    assert(m_node);
+    assert(m_node->getInputTableCount() == 1);
+
+    // The output columns are the input columns followed by the window functions.
+    setTempOutputTable(limits);
+    m_inputColumnCount = static_cast<int>(m_node->getInputTable()->columnCount());
+    assert(m_inputColumnCount + m_node->getFunctionTypes().size() == m_node->getOutputSchema().size());
+
+    m_aggregates.resize(m_node->getFunctionTypes().size());
+    return true;
+}
+
+bool WindowFunctionExecutor::keysDiffer(const std::vector<AbstractExpression*>& keys,
+                                        const TableTuple& previous, const TableTuple& current) const
+{
+    for (int i = 0; i < keys.size(); ++i) {
+        if (keys[i]->eval(&previous, NULL).compare(keys[i]->eval(&current, NULL)) != 0) {
+            return true;
+        }
+    }
+    return false;
+}
+
+void WindowFunctionExecutor::resetAggregates()
+{
+    const TupleSchema* outputSchema = m_node->getOutputTable()->schema();
+    for (int i = 0; i < m_aggregates.size(); ++i) {
+        m_aggregates[i].m_count = 0;
+        m_aggregates[i].m_value = NValue::getNullValue(outputSchema->columnType(m_inputColumnCount + i));
+    }
+}
+
+void WindowFunctionExecutor::advanceAggregates(const TableTuple& tuple)
+{
+    const std::vector<ExpressionType>& types = m_node->getFunctionTypes();
+    const std::vector<AbstractExpression*>& inputs = m_node->getFunctionExpressions();
+    for (int i = 0; i < m_aggregates.size(); ++i) {
+        RunningAggregate& agg = m_aggregates[i];
+        switch (types[i]) {
+        case EXPRESSION_TYPE_AGGREGATE_COUNT_STAR:
+            ++agg.m_count;
+            break;
+        case EXPRESSION_TYPE_AGGREGATE_COUNT:
+        case EXPRESSION_TYPE_AGGREGATE_SUM:
+        case EXPRESSION_TYPE_AGGREGATE_MIN:
+        case EXPRESSION_TYPE_AGGREGATE_MAX:
+        {
+            assert(inputs[i] != NULL);
+            NValue value = inputs[i]->eval(&tuple, NULL);
+            if (value.isNull()) {
+                break;
+            }
+            if (types[i] == EXPRESSION_TYPE_AGGREGATE_SUM) {
+                agg.m_value = (agg.m_count == 0) ? value : agg.m_value.op_add(value);
+            }
+            else if (types[i] == EXPRESSION_TYPE_AGGREGATE_MIN) {
+                agg.m_value = (agg.m_count == 0) ? value : agg.m_value.op_min(value);
+            }
+            else if (types[i] == EXPRESSION_TYPE_AGGREGATE_MAX) {
+                agg.m_value = (agg.m_count == 0) ? value : agg.m_value.op_max(value);
+            }
+            ++agg.m_count;
+            break;
+        }
+        default:
+            // The ranking functions only depend on the row position.
+            break;
+        }
+    }
+}
+
+void WindowFunctionExecutor::outputPeers(TempTable* output_table, const std::vector<TableTuple>& peers,
+                                         int64_t rank, int64_t denseRank)
+{
+    const std::vector<ExpressionType>& types = m_node->getFunctionTypes();
+    const TupleSchema* outputSchema = output_table->schema();
+    for (int p = 0; p < peers.size(); ++p) {
+        const TableTuple& tuple = peers[p];
+        TableTuple& temp_tuple = output_table->tempTuple();
+        for (int ctr = 0; ctr < m_inputColumnCount; ++ctr) {
+            temp_tuple.setNValue(ctr, tuple.getNValue(ctr));
+        }
+        for (int i = 0; i < types.size(); ++i) {
+            const int column = m_inputColumnCount + i;
+            NValue result;
+            switch (types[i]) {
+            case EXPRESSION_TYPE_WINDOW_RANK:
+                result = ValueFactory::getBigIntValue(rank);
+                break;
+            case EXPRESSION_TYPE_WINDOW_DENSE_RANK:
+                result = ValueFactory::getBigIntValue(denseRank);
+                break;
+            case EXPRESSION_TYPE_WINDOW_ROW_NUMBER:
+                // Peers get consecutive row numbers starting from their rank.
+                result = ValueFactory::getBigIntValue(rank + p);
+                break;
+            case EXPRESSION_TYPE_AGGREGATE_COUNT_STAR:
+            case EXPRESSION_TYPE_AGGREGATE_COUNT:
+                result = ValueFactory::getBigIntValue(m_aggregates[i].m_count);
+                break;
+            default:
+                result = m_aggregates[i].m_value.castAs(outputSchema->columnType(column));
+                break;
+            }
+            temp_tuple.setNValue(column, result);
+        }
+        output_table->insertTupleNonVirtual(temp_tuple);
+    }
+}
+
+bool WindowFunctionExecutor::p_execute(const NValueArray& params)
+{
+    assert(m_node == dynamic_cast<WindowFunctionPlanNode*>(m_abstractNode));
+    TempTable* output_table = dynamic_cast<TempTable*>(m_node->getOutputTable());
+    assert(output_table);
+    Table* input_table = m_node->getInputTable();
+    assert(input_table);
+    VOLT_TRACE("Running WindowFunction '%s'", m_node->debug().c_str());
+
+    const std::vector<AbstractExpression*>& partitionKeys = m_node->getPartitionByExpressions();
+    const std::vector<AbstractExpression*>& orderKeys = m_node->getOrderByExpressions();
+
+    // The input tuples stay valid until the input table is cleaned up,
+    // so the current peer group is buffered by reference.
+    std::vector<TableTuple> peers;
+    TableTuple previous(input_table->schema());
+    TableTuple tuple(input_table->schema());
+    int64_t rowNumber = 0;
+    int64_t rank = 0;
+    int64_t denseRank = 0;
+
+    ProgressMonitorProxy pmp(m_engine, this);
+    TableIterator iterator = input_table->iterator();
+    while (iterator.next(tuple)) {
+        pmp.countdownProgress();
+        bool newPartition = peers.empty() || keysDiffer(partitionKeys, previous, tuple);
+        bool newPeerGroup = newPartition || keysDiffer(orderKeys, previous, tuple);
+        if (newPeerGroup && ! peers.empty()) {
+            outputPeers(output_table, peers, rank, denseRank);
+            peers.clear();
+        }
+        if (newPartition) {
+            rowNumber = 0;
+            denseRank = 0;
+            resetAggregates();
+        }
+        if (newPeerGroup) {
+            rank = rowNumber + 1;
+            ++denseRank;
+        }
+        ++rowNumber;
+        advanceAggregates(tuple);
+        peers.push_back(tuple);
+        previous.move(tuple.address());
+    }
+    if ( ! peers.empty()) {
+        outputPeers(output_table, peers, rank, denseRank);
+    }
+    VOLT_TRACE("Result of WindowFunction:\n '%s'", output_table->debug().c_str());
+
+    cleanupInputTempTable(input_table);
+    return true;
+}
+
+WindowFunctionExecutor::~WindowFunctionExecutor() {
+}
+
+}
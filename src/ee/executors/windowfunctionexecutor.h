@@ -0,0 +1,73 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef WINDOWFUNCTIONEXECUTOR_H
+#define WINDOWFUNCTIONEXECUTOR_H
+
+#include "common/common.h"
+#include "common/tabletuple.h"
+#include "common/valuevector.h"
+#include "executors/abstractexecutor.h"
+
+#include <vector>
+
+namespace voltdb
+{
+    class TempTable;
+    class WindowFunctionPlanNode;
+
+    /**
+     * Computes RANK, DENSE_RANK, ROW_NUMBER and the running COUNT, SUM,
+     * MIN and MAX aggregates in a single pass over input that is sorted on
+     * the window's PARTITION BY and ORDER BY expressions.
+     *
+     * Rows with equal ORDER BY values (peers) are buffered until the peer
+     * group ends, because the running aggregates of all the peers include
+     * every peer, as for the default RANGE UNBOUNDED PRECEDING frame.
+     */
+    class WindowFunctionExecutor : public AbstractExecutor {
+    public:
+        WindowFunctionExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
+        : AbstractExecutor(engine, abstract_node), m_node(NULL), m_inputColumnCount(0)
+        {}
+        ~WindowFunctionExecutor();
+    protected:
+        bool p_init(AbstractPlanNode* abstract_node,
+                    TempTableLimits* limits);
+        bool p_execute(const NValueArray& params);
+
+    private:
+        // The running state of one aggregate over the current window partition
+        struct RunningAggregate {
+            NValue m_value;
+            int64_t m_count;
+        };
+
+        bool keysDiffer(const std::vector<AbstractExpression*>& keys,
+                        const TableTuple& previous, const TableTuple& current) const;
+        void resetAggregates();
+        void advanceAggregates(const TableTuple& tuple);
+        void outputPeers(TempTable* output_table, const std::vector<TableTuple>& peers,
+                         int64_t rank, int64_t denseRank);
+
+        WindowFunctionPlanNode* m_node;
+        int m_inputColumnCount;
+        std::vector<RunningAggregate> m_aggregates;
+    };
+}
+
+#endif // WINDOWFUNCTIONEXECUTOR_H
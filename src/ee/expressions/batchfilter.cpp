@@ -0,0 +1,308 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "expressions/batchfilter.h"
+
+#include "common/NValue.hpp"
+#include "common/ValuePeeker.hpp"
+#include "common/debuglog.h"
+#include "expressions/abstractexpression.h"
+#include "expressions/tuplevalueexpression.h"
+
+namespace voltdb {
+
+namespace {
+
+struct BatchCmpEq  { static bool test(int cmp) { return cmp == 0; } };
+struct BatchCmpNe  { static bool test(int cmp) { return cmp != 0; } };
+struct BatchCmpLt  { static bool test(int cmp) { return cmp < 0; } };
+struct BatchCmpGt  { static bool test(int cmp) { return cmp > 0; } };
+struct BatchCmpLte { static bool test(int cmp) { return cmp <= 0; } };
+struct BatchCmpGte { static bool test(int cmp) { return cmp >= 0; } };
+
+/*
+ * The typed loop: keep the selected tuples whose column value (stored as T)
+ * is not NULL and compares to the operand (promoted to V) as C requires.
+ */
+template <typename T, typename V, typename C>
+void filterColumn(TupleBatch& batch, uint32_t offset, V operand)
+{
+    uint16_t* selection = batch.selection();
+    const int count = batch.selectedCount();
+    int kept = 0;
+    for (int i = 0; i < count; ++i) {
+        const T value = batch.selectedValue<T>(i, offset);
+        if ( ! isNullStorage(value) &&
+             C::test(compareBatchValues(static_cast<V>(value), operand))) {
+            selection[kept++] = selection[i];
+        }
+    }
+    batch.setSelectedCount(kept);
+}
+
+template <typename T, typename V>
+void filterColumnByOp(ExpressionType op, TupleBatch& batch, uint32_t offset, V operand)
+{
+    switch (op) {
+    case EXPRESSION_TYPE_COMPARE_EQUAL:
+        filterColumn<T, V, BatchCmpEq>(batch, offset, operand);
+        break;
+    case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+        filterColumn<T, V, BatchCmpNe>(batch, offset, operand);
+        break;
+    case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+        filterColumn<T, V, BatchCmpLt>(batch, offset, operand);
+        break;
+    case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+        filterColumn<T, V, BatchCmpGt>(batch, offset, operand);
+        break;
+    case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+        filterColumn<T, V, BatchCmpLte>(batch, offset, operand);
+        break;
+    case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+        filterColumn<T, V, BatchCmpGte>(batch, offset, operand);
+        break;
+    default:
+        assert(false);
+    }
+}
+
+template <typename V>
+void filterColumnByType(ValueType columnType, ExpressionType op,
+                        TupleBatch& batch, uint32_t offset, V operand)
+{
+    switch (columnType) {
+    case VALUE_TYPE_TINYINT:
+        filterColumnByOp<int8_t, V>(op, batch, offset, operand);
+        break;
+    case VALUE_TYPE_SMALLINT:
+        filterColumnByOp<int16_t, V>(op, batch, offset, operand);
+        break;
+    case VALUE_TYPE_INTEGER:
+        filterColumnByOp<int32_t, V>(op, batch, offset, operand);
+        break;
+    case VALUE_TYPE_BIGINT:
+    case VALUE_TYPE_TIMESTAMP:
+        filterColumnByOp<int64_t, V>(op, batch, offset, operand);
+        break;
+    case VALUE_TYPE_DOUBLE:
+        filterColumnByOp<double, V>(op, batch, offset, operand);
+        break;
+    default:
+        assert(false);
+    }
+}
+
+bool isTypedComparison(ExpressionType type)
+{
+    switch (type) {
+    case EXPRESSION_TYPE_COMPARE_EQUAL:
+    case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+    case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+    case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+    case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+    case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+        return true;
+    default:
+        return false;
+    }
+}
+
+bool isBoundOperand(const AbstractExpression* expr)
+{
+    return expr->getExpressionType() == EXPRESSION_TYPE_VALUE_CONSTANT ||
+           expr->getExpressionType() == EXPRESSION_TYPE_VALUE_PARAMETER;
+}
+
+// Returns the column index of an outer tuple column reference, or -1.
+int outerColumnIndex(const AbstractExpression* expr)
+{
+    if (expr->getExpressionType() != EXPRESSION_TYPE_VALUE_TUPLE) {
+        return -1;
+    }
+    const TupleValueExpression* tve = dynamic_cast<const TupleValueExpression*>(expr);
+    if (tve == NULL || tve->getTupleId() != 0) {
+        return -1;
+    }
+    return tve->getColumnId();
+}
+
+// "constant < column" is evaluated as "column > constant"
+ExpressionType reverseComparison(ExpressionType type)
+{
+    switch (type) {
+    case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+        return EXPRESSION_TYPE_COMPARE_GREATERTHAN;
+    case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+        return EXPRESSION_TYPE_COMPARE_LESSTHAN;
+    case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+        return EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO;
+    case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+        return EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO;
+    default:
+        return type;
+    }
+}
+
+bool isFixedWidthNumeric(ValueType type)
+{
+    return isIntegralType(type) || type == VALUE_TYPE_DOUBLE;
+}
+
+} // anonymous namespace
+
+BatchFilter::BatchFilter(AbstractExpression* predicate)
+{
+    assert(predicate);
+    addConjuncts(predicate);
+}
+
+void BatchFilter::addConjuncts(AbstractExpression* expr)
+{
+    if (expr->getExpressionType() == EXPRESSION_TYPE_CONJUNCTION_AND) {
+        addConjuncts(const_cast<AbstractExpression*>(expr->getLeft()));
+        addConjuncts(const_cast<AbstractExpression*>(expr->getRight()));
+        return;
+    }
+
+    if (isTypedComparison(expr->getExpressionType())) {
+        const AbstractExpression* left = expr->getLeft();
+        const AbstractExpression* right = expr->getRight();
+        ColumnConjunct conjunct;
+        conjunct.m_expr = expr;
+        conjunct.m_column = -1;
+        if (isBoundOperand(right) && (conjunct.m_column = outerColumnIndex(left)) >= 0) {
+            conjunct.m_op = expr->getExpressionType();
+            conjunct.m_operand = right;
+        }
+        else if (isBoundOperand(left) && (conjunct.m_column = outerColumnIndex(right)) >= 0) {
+            conjunct.m_op = reverseComparison(expr->getExpressionType());
+            conjunct.m_operand = left;
+        }
+        if (conjunct.m_column >= 0) {
+            conjunct.m_typed = false;
+            conjunct.m_neverTrue = false;
+            m_columnConjuncts.push_back(conjunct);
+            return;
+        }
+    }
+    m_otherConjuncts.push_back(expr);
+}
+
+void BatchFilter::bind(const TupleSchema* schema)
+{
+    m_residual.clear();
+    for (int ii = 0; ii < m_columnConjuncts.size(); ii++) {
+        ColumnConjunct& conjunct = m_columnConjuncts[ii];
+        const TupleSchema::ColumnInfo* columnInfo = schema->getColumnInfo(conjunct.m_column);
+        const ValueType columnType = columnInfo->getVoltType();
+        conjunct.m_typed = false;
+        conjunct.m_neverTrue = false;
+        conjunct.m_columnType = columnType;
+        conjunct.m_offset = columnInfo->offset;
+
+        const NValue operand = conjunct.m_operand->eval(NULL, NULL);
+        const ValueType operandType = ValuePeeker::peekValueType(operand);
+        if (isFixedWidthNumeric(columnType) && isFixedWidthNumeric(operandType)) {
+            if (operand.isNull()) {
+                // A comparison with NULL is never true.
+                conjunct.m_neverTrue = true;
+            }
+            else if (columnType == VALUE_TYPE_DOUBLE || operandType == VALUE_TYPE_DOUBLE) {
+                conjunct.m_compareAsDouble = true;
+                conjunct.m_doubleOperand = (operandType == VALUE_TYPE_DOUBLE) ?
+                        ValuePeeker::peekDouble(operand) :
+                        static_cast<double>(ValuePeeker::peekAsRawInt64(operand));
+            }
+            else {
+                conjunct.m_compareAsDouble = false;
+                conjunct.m_intOperand = ValuePeeker::peekAsRawInt64(operand);
+            }
+            conjunct.m_typed = true;
+        }
+        else if (columnType == VALUE_TYPE_TIMESTAMP && operandType == VALUE_TYPE_TIMESTAMP) {
+            conjunct.m_neverTrue = operand.isNull();
+            conjunct.m_compareAsDouble = false;
+            if ( ! conjunct.m_neverTrue) {
+                conjunct.m_intOperand = ValuePeeker::peekAsRawInt64(operand);
+            }
+            conjunct.m_typed = true;
+        }
+        else {
+            m_residual.push_back(conjunct.m_expr);
+        }
+    }
+    m_residual.insert(m_residual.end(), m_otherConjuncts.begin(), m_otherConjuncts.end());
+    VOLT_TRACE("batch filter bound %d typed conjuncts, %d evaluated per tuple",
+               typedConjunctCount(), (int)m_residual.size());
+}
+
+void BatchFilter::apply(TupleBatch& batch, TableTuple& scratch) const
+{
+    for (int ii = 0; ii < m_columnConjuncts.size() && batch.selectedCount() > 0; ii++) {
+        const ColumnConjunct& conjunct = m_columnConjuncts[ii];
+        if ( ! conjunct.m_typed) {
+            continue;
+        }
+        if (conjunct.m_neverTrue) {
+            batch.setSelectedCount(0);
+            return;
+        }
+        if (conjunct.m_compareAsDouble) {
+            filterColumnByType<double>(conjunct.m_columnType, conjunct.m_op,
+                                       batch, conjunct.m_offset, conjunct.m_doubleOperand);
+        }
+        else {
+            filterColumnByType<int64_t>(conjunct.m_columnType, conjunct.m_op,
+                                        batch, conjunct.m_offset, conjunct.m_intOperand);
+        }
+    }
+
+    if (m_residual.empty()) {
+        return;
+    }
+    uint16_t* selection = batch.selection();
+    const int count = batch.selectedCount();
+    int kept = 0;
+    for (int i = 0; i < count; ++i) {
+        scratch.move(batch.address(selection[i]));
+        bool qualifies = true;
+        for (int jj = 0; jj < m_residual.size(); jj++) {
+            if ( ! m_residual[jj]->eval(&scratch, NULL).isTrue()) {
+                qualifies = false;
+                break;
+            }
+        }
+        if (qualifies) {
+            selection[kept++] = selection[i];
+        }
+    }
+    batch.setSelectedCount(kept);
+}
+
+int BatchFilter::typedConjunctCount() const
+{
+    int count = 0;
+    for (int ii = 0; ii < m_columnConjuncts.size(); ii++) {
+        if (m_columnConjuncts[ii].m_typed) {
+            ++count;
+        }
+    }
+    return count;
+}
+
+}
@@ -0,0 +1,90 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef BATCHFILTER_H_
+#define BATCHFILTER_H_
+
+#include "common/tabletuple.h"
+#include "common/TupleBatch.h"
+#include "common/TupleSchema.h"
+#include "common/types.h"
+
+#include <vector>
+
+namespace voltdb {
+
+class AbstractExpression;
+
+/**
+ * Applies a scan predicate to a TupleBatch at a time.
+ *
+ * The predicate is split into its top-level AND conjuncts. Conjuncts of the form
+ * "column <op> constant-or-parameter" (in either order) on an integer or double
+ * column are evaluated by typed loops that read the column storage of every
+ * selected tuple directly. The remaining conjuncts are evaluated through the
+ * usual AbstractExpression::eval() on the tuples that survive the typed loops.
+ * As with eval(), a comparison involving NULL never qualifies.
+ */
+class BatchFilter {
+public:
+    BatchFilter(AbstractExpression* predicate);
+
+    /**
+     * Evaluate the constant and parameter operands for the upcoming execution
+     * and resolve the typed loop for each column conjunct against the schema of
+     * the scanned table. Conjuncts whose operand does not fit a typed loop
+     * (e.g. a DECIMAL or VARCHAR parameter) fall back to eval() for this execution.
+     */
+    void bind(const TupleSchema* schema);
+
+    /**
+     * Narrow the batch selection to the tuples that satisfy the predicate.
+     * The scratch tuple must use the schema passed to bind().
+     */
+    void apply(TupleBatch& batch, TableTuple& scratch) const;
+
+    /** Number of conjuncts handled by typed loops in the current binding */
+    int typedConjunctCount() const;
+
+private:
+    void addConjuncts(AbstractExpression* expr);
+
+    struct ColumnConjunct {
+        AbstractExpression* m_expr;
+        ExpressionType m_op;
+        int m_column;
+        const AbstractExpression* m_operand;
+
+        // Resolved by bind()
+        bool m_typed;
+        bool m_neverTrue;
+        ValueType m_columnType;
+        uint32_t m_offset;
+        bool m_compareAsDouble;
+        int64_t m_intOperand;
+        double m_doubleOperand;
+    };
+
+    std::vector<ColumnConjunct> m_columnConjuncts;
+    std::vector<AbstractExpression*> m_otherConjuncts;
+    // Conjuncts evaluated through eval() in the current binding
+    std::vector<AbstractExpression*> m_residual;
+};
+
+}
+
+#endif /* BATCHFILTER_H_ */
@@ -51,19 +51,25 @@
 #include "indexes/tableindex.h"
 #include "common/tabletuple.h"
 #include "structures/CompactingMap.h"
+#include "structures/CompactingBTree.h"
+
+#include <boost/type_traits/is_same.hpp>
 
 namespace voltdb {
 
 /**
  * Index implemented as a Binary Tree Multimap.
+ * TreeMap is the ordered map holding the entries, the red-black
+ * CompactingMap or the B+tree CompactingBTree.
  * @see TableIndex
  */
-template<typename KeyValuePair, bool hasRank>
+template<typename KeyValuePair, bool hasRank,
+         template<typename, typename, bool> class TreeMap = CompactingMap>
 class CompactingTreeMultiMapIndex : public TableIndex
 {
     typedef typename KeyValuePair::first_type KeyType;
     typedef typename KeyType::KeyComparator KeyComparator;
-    typedef CompactingMap<KeyValuePair, KeyComparator, hasRank> MapType;
+    typedef TreeMap<KeyValuePair, KeyComparator, hasRank> MapType;
     typedef typename MapType::iterator MapIterator;
     typedef std::pair<MapIterator, MapIterator> MapRange;
 
@@ -329,7 +335,12 @@ class CompactingTreeMultiMapIndex : public TableIndex
         return (ret);
     }
 
-    std::string getTypeName() const { return "CompactingTreeMultiMapIndex"; };
+    std::string getTypeName() const {
+        if (boost::is_same<MapType, CompactingBTree<KeyValuePair, KeyComparator, hasRank> >::value) {
+            return "CompactingBTreeMultiMapIndex";
+        }
+        return "CompactingTreeMultiMapIndex";
+    };
 
     MapIterator findKey(const TableTuple *searchKey) const {
         KeyType tempKey(searchKey);
@@ -53,19 +53,25 @@
 #include "common/tabletuple.h"
 #include "indexes/tableindex.h"
 #include "structures/CompactingMap.h"
+#include "structures/CompactingBTree.h"
+
+#include <boost/type_traits/is_same.hpp>
 
 namespace voltdb {
 
 /**
  * Index implemented as a Binary Tree Unique Map.
+ * TreeMap is the ordered map holding the entries, the red-black
+ * CompactingMap or the B+tree CompactingBTree.
  * @see TableIndex
  */
-template<typename KeyValuePair, bool hasRank>
+template<typename KeyValuePair, bool hasRank,
+         template<typename, typename, bool> class TreeMap = CompactingMap>
 class CompactingTreeUniqueIndex : public TableIndex
 {
     typedef typename KeyValuePair::first_type KeyType;
     typedef typename KeyType::KeyComparator KeyComparator;
-    typedef CompactingMap<KeyValuePair, KeyComparator, hasRank> MapType;
+    typedef TreeMap<KeyValuePair, KeyComparator, hasRank> MapType;
     typedef typename MapType::iterator MapIterator;
 
     ~CompactingTreeUniqueIndex() {};
@@ -318,11 +324,16 @@ class CompactingTreeUniqueIndex : public TableIndex
         return (ret);
     }
 
-    std::string getTypeName() const { return "CompactingTreeUniqueIndex"; };
+    std::string getTypeName() const {
+        if (boost::is_same<MapType, CompactingBTree<KeyValuePair, KeyComparator, hasRank> >::value) {
+            return "CompactingBTreeUniqueIndex";
+        }
+        return "CompactingTreeUniqueIndex";
+    };
 
     virtual TableIndex *cloneEmptyNonCountingTreeIndex() const
     {
-        return new CompactingTreeUniqueIndex<KeyValuePair, false >(TupleSchema::createTupleSchema(getKeySchema()), m_scheme);
+        return new CompactingTreeUniqueIndex<KeyValuePair, false, TreeMap>(TupleSchema::createTupleSchema(getKeySchema()), m_scheme);
     }
 
 
@@ -48,6 +48,7 @@
 #include "expressions/abstractexpression.h"
 #include "expressions/expressionutil.h"
 #include "storage/TableCatalogDelegate.hpp"
+#include "common/executorcontext.hpp"
 
 using namespace voltdb;
 
@@ -91,11 +92,17 @@ TableIndex::TableIndex(const TupleSchema *keySchema, const TableIndexScheme &sch
     m_deletes(0),
     m_updates(0),
 
-    m_stats(this)
+    m_stats(this),
+    m_memoryCounters(ExecutorContext::getTableMemoryCounters()),
+    m_countedMemory(0)
 {}
 
 TableIndex::~TableIndex()
 {
+    // take this index out of the counters, unless the site went away first
+    if (m_memoryCounters != NULL && m_memoryCounters == ExecutorContext::getTableMemoryCounters()) {
+        m_memoryCounters->indexMemory -= m_countedMemory;
+    }
     TupleSchema::freeTupleSchema(const_cast<TupleSchema*>(m_keySchema));
     const std::vector<AbstractExpression*> &indexed_expressions = getIndexedExpressions();
     for (int ii = 0; ii < indexed_expressions.size(); ++ii) {
@@ -164,13 +171,24 @@ bool TableIndex::equals(const TableIndex *other) const
     return true;
 }
 
+void TableIndex::countMemory()
+{
+    if (m_memoryCounters) {
+        int64_t memory = getMemoryEstimate();
+        m_memoryCounters->indexMemory += memory - m_countedMemory;
+        m_countedMemory = memory;
+    }
+}
+
 bool TableIndex::addEntry(const TableTuple *tuple)
 {
     if (isPartialIndex() && !getPredicate()->eval(tuple, NULL).isTrue()) {
         // Tuple fails the predicate. Do not add it.
         return true;
     }
-    return addEntryDo(tuple);
+    bool added = addEntryDo(tuple);
+    countMemory();
+    return added;
 }
 
 bool TableIndex::deleteEntry(const TableTuple *tuple)
@@ -179,10 +197,20 @@ bool TableIndex::deleteEntry(const TableTuple *tuple)
         // Tuple fails the predicate. Nothing to delete
         return true;
     }
-    return deleteEntryDo(tuple);
+    bool deleted = deleteEntryDo(tuple);
+    countMemory();
+    return deleted;
 }
 
 bool TableIndex::replaceEntryNoKeyChange(const TableTuple &destinationTuple, const TableTuple &originalTuple)
+{
+    bool replaced = replaceEntryNoKeyChangeWithPredicate(destinationTuple, originalTuple);
+    countMemory();
+    return replaced;
+}
+
+bool TableIndex::replaceEntryNoKeyChangeWithPredicate(const TableTuple &destinationTuple,
+                                                      const TableTuple &originalTuple)
 {
     assert(originalTuple.address() != destinationTuple.address());
 
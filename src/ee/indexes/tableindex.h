@@ -60,6 +60,8 @@
 
 namespace voltdb {
 
+struct TableMemoryCounters;
+
 class AbstractExpression;
 
 /**
@@ -433,6 +435,12 @@ public:
     // index.
     virtual int64_t getMemoryEstimate() const = 0;
 
+    /**
+     * Bring the index memory counter of the site up to date with this index.
+     * Adding and deleting entries does so as they go.
+     */
+    void countMemory();
+
     const std::vector<int>& getColumnIndices() const
     {
         return m_scheme.columnIndices;
@@ -530,12 +538,19 @@ protected:
 
 private:
 
+    bool replaceEntryNoKeyChangeWithPredicate(const TableTuple &destinationTuple,
+                                              const TableTuple &originalTuple);
+
     // This should always/only be required for unique key indexes used for primary keys.
     virtual TableIndex *cloneEmptyNonCountingTreeIndex() const {
         throwFatalException("Primary key index discovered to be non-unique or missing a cloneEmptyTreeIndex implementation.");
     }
 
     ThreadLocalPool m_tlPool;
+
+    // the memory counters of the site, and what this index has added to them so far
+    TableMemoryCounters* m_memoryCounters;
+    int64_t m_countedMemory;
 };
 
 }
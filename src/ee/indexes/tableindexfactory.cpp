@@ -61,28 +61,40 @@ namespace voltdb {
 
 class TableIndexPicker
 {
-    template <class TKeyType>
-    TableIndex *getInstanceForKeyType() const
+    template <class TKeyType, template<typename, typename, bool> class TreeMap>
+    TableIndex *getTreeInstanceForKeyType() const
     {
         if (m_scheme.unique) {
-            if (m_type != BALANCED_TREE_INDEX) {
-                return new CompactingHashUniqueIndex<TKeyType >(m_keySchema, m_scheme);
-            } else if (m_scheme.countable) {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, true>(m_keySchema, m_scheme);
+            if (m_scheme.countable) {
+                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, true, TreeMap>(m_keySchema, m_scheme);
             } else {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, false>(m_keySchema, m_scheme);
+                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, false, TreeMap>(m_keySchema, m_scheme);
             }
         } else {
-            if (m_type != BALANCED_TREE_INDEX) {
-                return new CompactingHashMultiMapIndex<TKeyType >(m_keySchema, m_scheme);
-            } else if (m_scheme.countable) {
-                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, true>(m_keySchema, m_scheme);
+            if (m_scheme.countable) {
+                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, true, TreeMap>(m_keySchema, m_scheme);
             } else {
-                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, false>(m_keySchema, m_scheme);
+                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, false, TreeMap>(m_keySchema, m_scheme);
             }
         }
     }
 
+    template <class TKeyType>
+    TableIndex *getInstanceForKeyType() const
+    {
+        if (m_type == BTREE_INDEX) {
+            return getTreeInstanceForKeyType<TKeyType, CompactingBTree>();
+        }
+        if (m_type == BALANCED_TREE_INDEX) {
+            return getTreeInstanceForKeyType<TKeyType, CompactingMap>();
+        }
+        if (m_scheme.unique) {
+            return new CompactingHashUniqueIndex<TKeyType >(m_keySchema, m_scheme);
+        } else {
+            return new CompactingHashMultiMapIndex<TKeyType >(m_keySchema, m_scheme);
+        }
+    }
+
     template <std::size_t KeySize>
     TableIndex *getInstanceIfKeyFits()
     {
@@ -181,18 +193,10 @@ public:
             return result;
         }
 
-        if (m_scheme.unique) {
-            if (m_scheme.countable) {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TupleKey>, true >(m_keySchema, m_scheme);
-            } else {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TupleKey>, false>(m_keySchema, m_scheme);
-            }
-        }
-        if (m_scheme.countable) {
-            return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TupleKey>, true >(m_keySchema, m_scheme);
-        } else {
-            return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TupleKey>, false>(m_keySchema, m_scheme);
+        if (m_type == BTREE_INDEX) {
+            return getTreeInstanceForKeyType<TupleKey, CompactingBTree>();
         }
+        return getTreeInstanceForKeyType<TupleKey, CompactingMap>();
     }
 
     TableIndexPicker(const TupleSchema *keySchema, bool intsOnly, bool inlinesOrColumnsOnly,
@@ -65,6 +65,7 @@
 #include "plannodes/seqscannode.h"
 #include "plannodes/unionnode.h"
 #include "plannodes/updatenode.h"
+#include "plannodes/windowfunctionnode.h"
 
 #include <sstream>
 
@@ -159,6 +160,12 @@ voltdb::AbstractPlanNode* getEmptyPlanNode(voltdb::PlanNodeType type) {
             ret = new voltdb::OrderByPlanNode();
             break;
         // ------------------------------------------------------------------
+        // WindowFunction
+        // ------------------------------------------------------------------
+        case (voltdb::PLAN_NODE_TYPE_WINDOWFUNCTION):
+            ret = new voltdb::WindowFunctionPlanNode();
+            break;
+        // ------------------------------------------------------------------
         // Projection
         // ------------------------------------------------------------------
         case (voltdb::PLAN_NODE_TYPE_PROJECTION):
@@ -0,0 +1,79 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "windowfunctionnode.h"
+
+#include <sstream>
+
+namespace voltdb {
+
+WindowFunctionPlanNode::~WindowFunctionPlanNode() { }
+
+PlanNodeType WindowFunctionPlanNode::getPlanNodeType() const { return PLAN_NODE_TYPE_WINDOWFUNCTION; }
+
+std::string WindowFunctionPlanNode::debugInfo(const std::string& spacer) const
+{
+    std::ostringstream buffer;
+    buffer << spacer << "WindowFunctions[" << m_functionTypes.size() << "]\n";
+    for (int ctr = 0, cnt = (int)m_functionTypes.size(); ctr < cnt; ctr++) {
+        buffer << spacer << "  [" << ctr << "] " << expressionToString(m_functionTypes[ctr]);
+        if (m_functionExpressions[ctr] != NULL) {
+            buffer << " " << m_functionExpressions[ctr]->debug();
+        }
+        buffer << "\n";
+    }
+    buffer << spacer << "PartitionBy[" << m_partitionByExpressions.size() << "]\n";
+    for (int ctr = 0, cnt = (int)m_partitionByExpressions.size(); ctr < cnt; ctr++) {
+        buffer << spacer << "  [" << ctr << "] " << m_partitionByExpressions[ctr]->debug() << "\n";
+    }
+    buffer << spacer << "OrderBy[" << m_orderByExpressions.size() << "]\n";
+    for (int ctr = 0, cnt = (int)m_orderByExpressions.size(); ctr < cnt; ctr++) {
+        buffer << spacer << "  [" << ctr << "] " << m_orderByExpressions[ctr]->debug()
+               << "::" << m_orderByDirections[ctr] << "\n";
+    }
+    return buffer.str();
+}
+
+void WindowFunctionPlanNode::loadFromJSONObject(PlannerDomValue obj)
+{
+    m_partitionByExpressions.loadExpressionArrayFromJSONObject("PARTITIONBY_EXPRESSIONS", obj);
+    m_orderByExpressions.loadExpressionArrayFromJSONObject("ORDERBY_EXPRESSIONS", obj);
+
+    PlannerDomValue directionsArray = obj.valueForKey("ORDERBY_DIRECTIONS");
+    for (int i = 0; i < directionsArray.arrayLen(); i++) {
+        m_orderByDirections.push_back(stringToSortDirection(directionsArray.valueAtIndex(i).asStr()));
+    }
+    if (m_orderByDirections.size() != m_orderByExpressions.size()) {
+        throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
+                                      "WindowFunctionPlanNode::loadFromJSONObject:"
+                                      " Mismatched order by expressions and directions.");
+    }
+
+    PlannerDomValue functionsArray = obj.valueForKey("WINDOW_FUNCTIONS");
+    for (int i = 0; i < functionsArray.arrayLen(); i++) {
+        PlannerDomValue function = functionsArray.valueAtIndex(i);
+        if ( ! function.hasNonNullKey("WINDOW_FUNCTION_TYPE")) {
+            throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
+                                          "WindowFunctionPlanNode::loadFromJSONObject:"
+                                          " Missing window function type.");
+        }
+        m_functionTypes.push_back(stringToExpression(function.valueForKey("WINDOW_FUNCTION_TYPE").asStr()));
+        m_functionExpressions.push_back(loadExpressionFromJSONObject("WINDOW_FUNCTION_EXPRESSION", function));
+    }
+}
+
+} // namespace voltdb
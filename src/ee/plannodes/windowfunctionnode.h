@@ -0,0 +1,67 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef WINDOWFUNCTIONNODE_H
+#define WINDOWFUNCTIONNODE_H
+
+#include "plannodes/abstractplannode.h"
+
+namespace voltdb {
+
+/**
+ * Evaluates window functions sharing one window over input sorted on the
+ * window's PARTITION BY and then ORDER BY expressions. The output columns
+ * are the input columns followed by one column per window function.
+ */
+class WindowFunctionPlanNode : public AbstractPlanNode
+{
+public:
+    WindowFunctionPlanNode() { }
+    ~WindowFunctionPlanNode();
+    PlanNodeType getPlanNodeType() const;
+    std::string debugInfo(const std::string &spacer) const;
+
+    const std::vector<AbstractExpression*>& getPartitionByExpressions() const
+    { return m_partitionByExpressions; }
+
+    const std::vector<AbstractExpression*>& getOrderByExpressions() const
+    { return m_orderByExpressions; }
+
+    /*
+     * EXPRESSION_TYPE_WINDOW_RANK, _DENSE_RANK or _ROW_NUMBER for the
+     * ranking functions, otherwise the type of the running aggregate.
+     */
+    const std::vector<ExpressionType>& getFunctionTypes() const
+    { return m_functionTypes; }
+
+    /* The aggregate inputs, NULL for the ranking functions and COUNT(*) */
+    const std::vector<AbstractExpression*>& getFunctionExpressions() const
+    { return m_functionExpressions; }
+
+protected:
+    void loadFromJSONObject(PlannerDomValue obj);
+
+    OwningExpressionVector m_partitionByExpressions;
+    OwningExpressionVector m_orderByExpressions;
+    std::vector<SortDirectionType> m_orderByDirections;
+    std::vector<ExpressionType> m_functionTypes;
+    OwningExpressionVector m_functionExpressions;
+};
+
+} // namespace voltdb
+
+#endif
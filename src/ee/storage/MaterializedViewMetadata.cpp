@@ -21,7 +21,11 @@
 #include "common/types.h"
 #include "common/PlannerDomValue.h"
 #include "common/FatalException.hpp"
+#include "common/UndoAction.h"
+#include "common/UndoQuantum.h"
 #include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "common/executorcontext.hpp"
 #include "catalog/catalog.h"
 #include "catalog/columnref.h"
 #include "catalog/column.h"
@@ -38,15 +42,84 @@
 
 namespace voltdb {
 
+namespace {
+
+// Bound the memory held by the cached APPROX_COUNT_DISTINCT sketches of one view (16MB).
+const std::size_t MAX_CACHED_SKETCHES = 4096;
+
+/*
+ * Rolling back a change to the source table restores the view rows but not the
+ * cached sketches, so they are dropped and rebuilt from the source table on demand.
+ */
+class ApproxCountDistinctUndoAction : public UndoAction {
+public:
+    ApproxCountDistinctUndoAction(MaterializedViewMetadata *view) : m_view(view) {}
+
+    virtual void undo() {
+        m_view->clearApproxCountDistinctSketches();
+    }
+
+    virtual void release() {}
+
+private:
+    MaterializedViewMetadata *m_view;
+};
+
+// Append an encoding of a group by value to a sketch key. Equal values encode equally.
+void appendToSketchKey(std::string &key, const NValue &value)
+{
+    if (value.isNull()) {
+        key.push_back('\0');
+        return;
+    }
+    key.push_back('\1');
+    switch (ValuePeeker::peekValueType(value)) {
+    case VALUE_TYPE_VARCHAR:
+    case VALUE_TYPE_VARBINARY:
+    {
+        const int32_t length = ValuePeeker::peekObjectLength_withoutNull(value);
+        key.append(reinterpret_cast<const char*>(&length), sizeof(length));
+        key.append(static_cast<const char*>(ValuePeeker::peekObjectValue_withoutNull(value)), length);
+        break;
+    }
+    case VALUE_TYPE_DOUBLE:
+    {
+        double dbl = ValuePeeker::peekDouble(value);
+        if (dbl == 0.0) {
+            dbl = 0.0; // -0.0 equals 0.0
+        }
+        key.append(reinterpret_cast<const char*>(&dbl), sizeof(dbl));
+        break;
+    }
+    case VALUE_TYPE_DECIMAL:
+    {
+        const TTInt decimal = ValuePeeker::peekDecimal(value);
+        key.append(reinterpret_cast<const char*>(&decimal), sizeof(decimal));
+        break;
+    }
+    default:
+    {
+        const int64_t integer = ValuePeeker::peekAsRawInt64(value);
+        key.append(reinterpret_cast<const char*>(&integer), sizeof(integer));
+        break;
+    }
+    }
+}
+
+}
+
 MaterializedViewMetadata::MaterializedViewMetadata(PersistentTable *srcTable,
                                                    PersistentTable *destTable,
                                                    catalog::MaterializedViewInfo *mvInfo)
     : m_srcTable(srcTable), m_target(destTable), m_index(destTable->primaryKeyIndex())
     , m_indexForMinMax(NULL)
+    , m_minMaxSearchKeyBackingStore(NULL)
     , m_filterPredicate(parsePredicate(mvInfo))
     , m_groupByColumnCount(parseGroupBy(mvInfo)) // also loads m_groupByExprs/Columns as needed
     , m_searchKeyValue(m_groupByColumnCount)
     , m_aggColumnCount(parseAggregation(mvInfo))
+    , m_hasApproxCountDistinct(false)
+    , m_sketchUndoToken(-1)
 {
     // best not to have to worry about the destination table disappearing out from under the source table that feeds it.
     VOLT_TRACE("construct materializedViewMetadata...");
@@ -72,6 +145,12 @@ MaterializedViewMetadata::MaterializedViewMetadata(PersistentTable *srcTable,
     // handle index for min / max support
     setIndexForMinMax(mvInfo->indexForMinMax());
 
+    for (int aggIndex = 0; aggIndex < m_aggColumnCount; aggIndex++) {
+        if (m_aggTypes[aggIndex] == EXPRESSION_TYPE_AGGREGATE_APPROX_COUNT_DISTINCT) {
+            m_hasApproxCountDistinct = true;
+        }
+    }
+
     allocateBackedTuples();
 
     // Catch up on pre-existing source tuples UNLESS target tuples have already been migrated in.
@@ -87,6 +166,7 @@ MaterializedViewMetadata::MaterializedViewMetadata(PersistentTable *srcTable,
 
 MaterializedViewMetadata::~MaterializedViewMetadata() {
     freeBackedTuples();
+    delete[] m_minMaxSearchKeyBackingStore;
     delete m_filterPredicate;
     for (int ii = 0; ii < m_groupByExprs.size(); ++ii) {
         delete m_groupByExprs[ii];
@@ -109,6 +189,7 @@ void MaterializedViewMetadata::setTargetTable(PersistentTable * target)
 
     freeBackedTuples();
     allocateBackedTuples();
+    clearApproxCountDistinctSketches();
 
     oldTarget->decrementRefcount();
 }
@@ -125,6 +206,37 @@ void MaterializedViewMetadata::setIndexForMinMax(std::string indexForMinOrMax)
             }
         }
     }
+
+    delete[] m_minMaxSearchKeyBackingStore;
+    m_minMaxSearchKeyBackingStore = NULL;
+    m_minMaxAggOrderedByIndex.assign(m_aggColumnCount, false);
+    if (m_indexForMinMax == NULL ||
+        m_indexForMinMax->getKeySchema()->columnCount() == m_groupByColumnCount) {
+        // The index key is the group key; groups are looked up with m_searchKeyTuple.
+        return;
+    }
+
+    // The DDL compiler only picks a (tree) index keyed on the group by columns
+    // followed by the argument of a MIN or MAX, and only for a view on plain columns.
+    const TupleSchema *keySchema = m_indexForMinMax->getKeySchema();
+    assert(keySchema->columnCount() == m_groupByColumnCount + 1);
+    m_minMaxSearchKeyBackingStore = new char[keySchema->tupleLength() + 1];
+    memset(m_minMaxSearchKeyBackingStore, 0, keySchema->tupleLength() + 1);
+    m_minMaxSearchKeyTuple = TableTuple(keySchema);
+    m_minMaxSearchKeyTuple.move(m_minMaxSearchKeyBackingStore);
+
+    if (m_aggExprs.size() != 0 || m_groupByExprs.size() != 0 ||
+        m_indexForMinMax->getIndexedExpressions().size() != 0) {
+        return;
+    }
+    const int orderedColumn = m_indexForMinMax->getColumnIndices()[m_groupByColumnCount];
+    for (int aggIndex = 0; aggIndex < m_aggColumnCount; aggIndex++) {
+        if ((m_aggTypes[aggIndex] == EXPRESSION_TYPE_AGGREGATE_MIN ||
+             m_aggTypes[aggIndex] == EXPRESSION_TYPE_AGGREGATE_MAX) &&
+            m_aggColIndexes[aggIndex] == orderedColumn) {
+            m_minMaxAggOrderedByIndex[aggIndex] = true;
+        }
+    }
 }
 
 void MaterializedViewMetadata::freeBackedTuples()
@@ -219,6 +331,7 @@ std::size_t MaterializedViewMetadata::parseAggregation(catalog::MaterializedView
         case EXPRESSION_TYPE_AGGREGATE_COUNT:
         case EXPRESSION_TYPE_AGGREGATE_MIN:
         case EXPRESSION_TYPE_AGGREGATE_MAX:
+        case EXPRESSION_TYPE_AGGREGATE_APPROX_COUNT_DISTINCT:
             break; // legal value
         default: {
             char message[128];
@@ -282,10 +395,12 @@ NValue MaterializedViewMetadata::findMinMaxFallbackValueIndexed(const TableTuple
     NValue newVal = initialNull;
     IndexCursor minMaxCursor(m_indexForMinMax->getTupleSchema());
 
-    m_indexForMinMax->moveToKey(&m_searchKeyTuple, minMaxCursor);
+    moveToGroupInIndexForMinMax(minMaxCursor);
     VOLT_TRACE("Starting to scan tuples using index %s\n", m_indexForMinMax->debug().c_str());
     TableTuple tuple;
-    while (!(tuple = m_indexForMinMax->nextValueAtKey(minMaxCursor)).isNullTuple()) {
+    int64_t scanned = 0;
+    while (!(tuple = nextInGroupOfIndexForMinMax(minMaxCursor)).isNullTuple()) {
+        ++scanned;
         // skip the oldTuple and apply post filter
         if (tuple.equals(oldTuple) ||
             (m_filterPredicate && !m_filterPredicate->eval(&tuple, NULL).isTrue())) {
@@ -307,9 +422,105 @@ NValue MaterializedViewMetadata::findMinMaxFallbackValueIndexed(const TableTuple
             VOLT_TRACE("\tAfter: new best %s\n", newVal.debug().c_str());
         }
     }
+    m_target->countViewRecompute(scanned);
     return newVal;
 }
 
+NValue MaterializedViewMetadata::findMinMaxFallbackValueOrdered(const TableTuple& oldTuple,
+                                                                const NValue &existingValue,
+                                                                const NValue &initialNull,
+                                                                int negate_for_min,
+                                                                int aggIndex)
+{
+    const int srcColIdx = m_aggColIndexes[aggIndex];
+    for (int colindex = 0; colindex < m_groupByColumnCount; colindex++) {
+        m_minMaxSearchKeyTuple.setNValue(colindex, m_searchKeyValue[colindex]);
+    }
+    m_minMaxSearchKeyTuple.setNValue((int)m_groupByColumnCount, existingValue);
+
+    // The index orders the tuples of a group by the aggregated value, so
+    // nothing but NULLs precedes the old MIN and nothing follows the old MAX.
+    // Only tuples that are filtered out of the view (or the old tuple itself,
+    // which is still indexed during an update) need to be stepped over.
+    IndexCursor cursor(m_indexForMinMax->getTupleSchema());
+    TableTuple tuple;
+    int64_t scanned = 0;
+    NValue newVal = initialNull;
+    m_indexForMinMax->moveToKeyOrGreater(&m_minMaxSearchKeyTuple, cursor);
+    while ( ! (tuple = nextInGroupOfIndexForMinMax(cursor)).isNullTuple()) {
+        ++scanned;
+        NValue current = tuple.getNValue(srcColIdx);
+        if (negate_for_min > 0 && current.compare(existingValue) != 0) {
+            // MAX: past the ties with the old value
+            break;
+        }
+        if (tuple.address() == oldTuple.address() ||
+            (m_filterPredicate && !m_filterPredicate->eval(&tuple, NULL).isTrue())) {
+            continue;
+        }
+        newVal = current;
+        break;
+    }
+
+    if (negate_for_min > 0 && newVal.isNull()) {
+        // MAX: walk back from the old value.
+        m_indexForMinMax->moveToLessThanKey(&m_minMaxSearchKeyTuple, cursor);
+        while ( ! (tuple = nextInGroupOfIndexForMinMax(cursor)).isNullTuple()) {
+            ++scanned;
+            NValue current = tuple.getNValue(srcColIdx);
+            if (current.isNull()) {
+                // NULLs sort first, so no value is left in the group.
+                break;
+            }
+            if (tuple.address() == oldTuple.address() ||
+                (m_filterPredicate && !m_filterPredicate->eval(&tuple, NULL).isTrue())) {
+                continue;
+            }
+            newVal = current;
+            break;
+        }
+    }
+    VOLT_TRACE("\tFinal: new best %s after %d index entries\n", newVal.debug().c_str(), (int)scanned);
+    m_target->countViewRecompute(scanned);
+    return newVal;
+}
+
+void MaterializedViewMetadata::moveToGroupInIndexForMinMax(IndexCursor &cursor)
+{
+    if (m_minMaxSearchKeyBackingStore == NULL) {
+        m_indexForMinMax->moveToKey(&m_searchKeyTuple, cursor);
+        return;
+    }
+    // NULL sorts first, so the group key followed by NULL precedes the whole group.
+    m_minMaxSearchKeyTuple.setAllNulls();
+    for (int colindex = 0; colindex < m_groupByColumnCount; colindex++) {
+        m_minMaxSearchKeyTuple.setNValue(colindex, m_searchKeyValue[colindex]);
+    }
+    m_indexForMinMax->moveToKeyOrGreater(&m_minMaxSearchKeyTuple, cursor);
+}
+
+TableTuple MaterializedViewMetadata::nextInGroupOfIndexForMinMax(IndexCursor &cursor)
+{
+    if (m_minMaxSearchKeyBackingStore == NULL) {
+        return m_indexForMinMax->nextValueAtKey(cursor);
+    }
+    TableTuple tuple = m_indexForMinMax->nextValue(cursor);
+    if ( ! tuple.isNullTuple() && ! isInCurrentGroup(tuple)) {
+        return TableTuple();
+    }
+    return tuple;
+}
+
+bool MaterializedViewMetadata::isInCurrentGroup(const TableTuple &tuple)
+{
+    for (int idx = 0; idx < m_groupByColumnCount; idx++) {
+        if (m_searchKeyValue[idx].compare(getGroupByValueFromSrcTuple(idx, tuple)) != 0) {
+            return false;
+        }
+    }
+    return true;
+}
+
 NValue MaterializedViewMetadata::findMinMaxFallbackValueSequential(const TableTuple& oldTuple,
                                                                    const NValue &existingValue,
                                                                    const NValue &initialNull,
@@ -329,7 +540,9 @@ NValue MaterializedViewMetadata::findMinMaxFallbackValueSequential(const TableTu
     TableTuple tuple(m_srcTable->schema());
     TableIterator &iterator = m_srcTable->iterator();
     VOLT_TRACE("Starting iteration on: %s\n", m_srcTable->debug().c_str());
+    int64_t scanned = 0;
     while (iterator.next(tuple)) {
+        ++scanned;
         // apply post filter
         VOLT_TRACE("Checking tuple: %s\n", tuple.debugNoHeader().c_str());
         if (m_filterPredicate && !m_filterPredicate->eval(&tuple, NULL).isTrue()) {
@@ -369,6 +582,7 @@ NValue MaterializedViewMetadata::findMinMaxFallbackValueSequential(const TableTu
         }
     }
     VOLT_TRACE("\tFinal: new best %s\n", newVal.debug().c_str());
+    m_target->countViewRecompute(scanned);
     return newVal;
 }
 
@@ -433,6 +647,10 @@ void MaterializedViewMetadata::processTupleInsert(const TableTuple &newTuple, bo
                         newValue = existingValue;
                     }
                     break;
+                case EXPRESSION_TYPE_AGGREGATE_APPROX_COUNT_DISTINCT:
+                    newValue = approxCountDistinctAfterInsert(aggIndex, newValue, existingValue,
+                                                              false, fallible);
+                    break;
                 default:
                     assert(false); // Should have been caught when the matview was loaded.
                     /* no break */
@@ -462,6 +680,9 @@ void MaterializedViewMetadata::processTupleInsert(const TableTuple &newTuple, bo
                     newValue = ValueFactory::getBigIntValue(1);
                 }
             }
+            else if (m_aggTypes[aggIndex] == EXPRESSION_TYPE_AGGREGATE_APPROX_COUNT_DISTINCT) {
+                newValue = approxCountDistinctAfterInsert(aggIndex, newValue, newValue, true, fallible);
+            }
             m_updatedTuple.setNValue(aggOffset+aggIndex, newValue);
         }
         m_target->insertPersistentTuple(m_updatedTuple, fallible);
@@ -489,6 +710,9 @@ void MaterializedViewMetadata::processTupleDelete(const TableTuple &oldTuple, bo
 
     // check if we should remove the tuple
     if (count.isZero()) {
+        if (m_hasApproxCountDistinct) {
+            eraseApproxCountDistinctSketches();
+        }
         m_target->deleteTuple(m_existingTuple, fallible);
         return;
     }
@@ -528,8 +752,12 @@ void MaterializedViewMetadata::processTupleDelete(const TableTuple &oldTuple, bo
                     // re-calculate MIN / MAX
                     newValue = NValue::getNullValue(m_target->schema()->columnType(aggOffset+aggIndex));
 
-                    // indexscan if an index is available, otherwise tablescan
-                    if (m_indexForMinMax) {
+                    // index lookup if an index orders the group by this column,
+                    // else indexscan if an index is available, otherwise tablescan
+                    if (m_minMaxAggOrderedByIndex[aggIndex]) {
+                        newValue = findMinMaxFallbackValueOrdered(oldTuple, existingValue, newValue,
+                                                                  reversedForMin, aggIndex);
+                    } else if (m_indexForMinMax) {
                         newValue = findMinMaxFallbackValueIndexed(oldTuple, existingValue, newValue,
                                                                   reversedForMin, aggIndex);
                     } else {
@@ -540,6 +768,10 @@ void MaterializedViewMetadata::processTupleDelete(const TableTuple &oldTuple, bo
                     }
                 }
                 break;
+            case EXPRESSION_TYPE_AGGREGATE_APPROX_COUNT_DISTINCT:
+                // A sketch can not forget a value, so rebuild it without the old tuple.
+                newValue = approxCountDistinctAfterDelete(aggIndex, oldTuple, fallible);
+                break;
             default:
                 assert(false); // Should have been caught when the matview was loaded.
                 /* no break */
@@ -556,6 +788,134 @@ void MaterializedViewMetadata::processTupleDelete(const TableTuple &oldTuple, bo
                                              m_updatableIndexList, fallible);
 }
 
+NValue MaterializedViewMetadata::approxCountDistinctAfterInsert(int aggIndex,
+                                                               const NValue &newValue,
+                                                               const NValue &existingValue,
+                                                               bool isNewGroup,
+                                                               bool fallible)
+{
+    bool found;
+    HyperLogLog &sketch = cachedSketch(sketchKey(aggIndex), found);
+    bool changed = false;
+    if (isNewGroup) {
+        // The new source tuple is the only one in its group.
+        sketch.clear();
+        changed = true;
+    }
+    else if ( ! found) {
+        // The scan also adds the new source tuple, which is already in the table.
+        rebuildSketch(aggIndex, NULL, sketch);
+        changed = true;
+    }
+    if ( ! newValue.isNull() && sketch.add(newValue)) {
+        changed = true;
+    }
+    registerSketchUndo(fallible);
+    if ( ! changed) {
+        // Skip re-estimating when no register moved.
+        return existingValue;
+    }
+    return ValueFactory::getBigIntValue(sketch.estimate());
+}
+
+NValue MaterializedViewMetadata::approxCountDistinctAfterDelete(int aggIndex,
+                                                               const TableTuple &oldTuple,
+                                                               bool fallible)
+{
+    bool found;
+    HyperLogLog &sketch = cachedSketch(sketchKey(aggIndex), found);
+    rebuildSketch(aggIndex, &oldTuple, sketch);
+    registerSketchUndo(fallible);
+    return ValueFactory::getBigIntValue(sketch.estimate());
+}
+
+void MaterializedViewMetadata::eraseApproxCountDistinctSketches()
+{
+    for (int aggIndex = 0; aggIndex < m_aggColumnCount; aggIndex++) {
+        if (m_aggTypes[aggIndex] == EXPRESSION_TYPE_AGGREGATE_APPROX_COUNT_DISTINCT) {
+            m_sketches.erase(sketchKey(aggIndex));
+        }
+    }
+}
+
+std::string MaterializedViewMetadata::sketchKey(int aggIndex) const
+{
+    std::string key(reinterpret_cast<const char*>(&aggIndex), sizeof(aggIndex));
+    for (int colindex = 0; colindex < m_groupByColumnCount; colindex++) {
+        appendToSketchKey(key, m_searchKeyValue[colindex]);
+    }
+    return key;
+}
+
+HyperLogLog& MaterializedViewMetadata::cachedSketch(const std::string &key, bool &found)
+{
+    SketchMap::iterator sketch = m_sketches.find(key);
+    found = (sketch != m_sketches.end());
+    if (found) {
+        return sketch->second;
+    }
+    if (m_sketches.size() >= MAX_CACHED_SKETCHES) {
+        // Evict an arbitrary group; it is rebuilt by a scan if it changes again.
+        m_sketches.erase(m_sketches.begin());
+    }
+    return m_sketches[key];
+}
+
+void MaterializedViewMetadata::rebuildSketch(int aggIndex,
+                                             const TableTuple *skippedTuple,
+                                             HyperLogLog &sketch)
+{
+    sketch.clear();
+    TableTuple tuple(m_srcTable->schema());
+    int64_t scanned = 0;
+    if (m_indexForMinMax) {
+        IndexCursor groupCursor(m_indexForMinMax->getTupleSchema());
+        moveToGroupInIndexForMinMax(groupCursor);
+        while ( ! (tuple = nextInGroupOfIndexForMinMax(groupCursor)).isNullTuple()) {
+            ++scanned;
+            if ((skippedTuple && tuple.address() == skippedTuple->address()) ||
+                (m_filterPredicate && ! m_filterPredicate->eval(&tuple, NULL).isTrue())) {
+                continue;
+            }
+            NValue value = getAggInputFromSrcTuple(aggIndex, tuple);
+            if ( ! value.isNull()) {
+                sketch.add(value);
+            }
+        }
+        m_target->countViewRecompute(scanned);
+        return;
+    }
+    TableIterator iterator = m_srcTable->iterator();
+    while (iterator.next(tuple)) {
+        ++scanned;
+        if ((skippedTuple && tuple.address() == skippedTuple->address()) ||
+            (m_filterPredicate && ! m_filterPredicate->eval(&tuple, NULL).isTrue())) {
+            continue;
+        }
+        if ( ! isInCurrentGroup(tuple)) {
+            continue;
+        }
+        NValue value = getAggInputFromSrcTuple(aggIndex, tuple);
+        if ( ! value.isNull()) {
+            sketch.add(value);
+        }
+    }
+    m_target->countViewRecompute(scanned);
+}
+
+void MaterializedViewMetadata::registerSketchUndo(bool fallible)
+{
+    if ( ! fallible) {
+        return;
+    }
+    UndoQuantum *uq = ExecutorContext::currentUndoQuantum();
+    // One undo action per undo quantum is enough to drop the whole cache.
+    if (uq && uq->getUndoToken() != m_sketchUndoToken) {
+        uq->registerUndoAction(new (*uq) ApproxCountDistinctUndoAction(this));
+        m_sketchUndoToken = uq->getUndoToken();
+    }
+}
+
 bool MaterializedViewMetadata::findExistingTuple(const TableTuple &tuple)
 {
     // find the key for this tuple (which is the group by columns)
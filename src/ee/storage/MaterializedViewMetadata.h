@@ -18,12 +18,15 @@
 #ifndef MATERIALIZEDVIEWMETADATA_H_
 #define MATERIALIZEDVIEWMETADATA_H_
 
+#include <string>
 #include <vector>
 
+#include "common/HyperLogLog.h"
 #include "common/types.h"
 #include "common/tabletuple.h"
 #include "indexes/tableindex.h"
 #include "catalog/materializedviewinfo.h"
+#include "boost/unordered_map.hpp"
 
 namespace voltdb {
 
@@ -64,6 +67,14 @@ public:
     catalog::MaterializedViewInfo* getMaterializedViewInfo() {
         return m_mvInfo;
     }
+
+    /**
+     * Forget the cached APPROX_COUNT_DISTINCT sketches. They are rebuilt from
+     * the source table the next time their group changes.
+     */
+    void clearApproxCountDistinctSketches() {
+        m_sketches.clear();
+    }
 private:
 
     void freeBackedTuples();
@@ -95,6 +106,41 @@ private:
                                              int negate_for_min,
                                              int aggIndex);
 
+    /**
+     * Find the new MIN / MAX with a lookup on an index keyed on the group by
+     * columns followed by the aggregated column, visiting only the tuples
+     * next to the old value instead of the whole group.
+     */
+    NValue findMinMaxFallbackValueOrdered(const TableTuple& oldTuple,
+                                          const NValue &existingValue,
+                                          const NValue &initialNull,
+                                          int negate_for_min,
+                                          int aggIndex);
+
+    /**
+     * Iterate over the source tuples of the current group (as found by
+     * findExistingTuple) in m_indexForMinMax.
+     */
+    void moveToGroupInIndexForMinMax(IndexCursor &cursor);
+    TableTuple nextInGroupOfIndexForMinMax(IndexCursor &cursor);
+    bool isInCurrentGroup(const TableTuple &tuple);
+
+    /**
+     * Keep the APPROX_COUNT_DISTINCT sketch of the current group (as found by
+     * findExistingTuple) in step with the source table and return the new estimate.
+     */
+    NValue approxCountDistinctAfterInsert(int aggIndex, const NValue& newValue,
+                                          const NValue& existingValue, bool isNewGroup,
+                                          bool fallible);
+    NValue approxCountDistinctAfterDelete(int aggIndex, const TableTuple& oldTuple,
+                                          bool fallible);
+    void eraseApproxCountDistinctSketches();
+
+    std::string sketchKey(int aggIndex) const;
+    HyperLogLog& cachedSketch(const std::string& key, bool& found);
+    void rebuildSketch(int aggIndex, const TableTuple* skippedTuple, HyperLogLog& sketch);
+    void registerSketchUndo(bool fallible);
+
     // the source persistent table
     PersistentTable *m_srcTable;
     // the materialized view table
@@ -108,6 +154,12 @@ private:
 
     // the index on srcTable which can be used to maintain min/max
     TableIndex *m_indexForMinMax;
+    // If m_indexForMinMax is keyed on the group by columns followed by one
+    // more column, space for its search keys (otherwise NULL) ...
+    TableTuple m_minMaxSearchKeyTuple;
+    char *m_minMaxSearchKeyBackingStore;
+    // ... and the MIN / MAX aggregates of that column, which it keeps ordered.
+    std::vector<bool> m_minMaxAggOrderedByIndex;
 
     // space to store temp view tuples
     TableTuple m_existingTuple;
@@ -144,6 +196,15 @@ private:
     // This MUST be declared/initialized AFTER m_aggExprs/m_aggColIndexes/m_aggTypes.
     std::size_t m_aggColumnCount;
 
+    // APPROX_COUNT_DISTINCT columns can not be maintained from the stored
+    // estimate alone, so the sketches of recently changed groups are cached,
+    // keyed by aggregate index and group by values.
+    typedef boost::unordered_map<std::string, HyperLogLog> SketchMap;
+    SketchMap m_sketches;
+    bool m_hasApproxCountDistinct;
+    // the undo quantum that will drop the cached sketches on rollback
+    int64_t m_sketchUndoToken;
+
     // vector of target table indexes to update.
     // Ideally, these should be a subset of the target table indexes that depend on the count and/or
     // aggregated columns, but there might be some other mostly harmless ones in there that are based
@@ -16,13 +16,15 @@
  */
 #include "storage/PersistentTableStats.h"
 #include "storage/persistenttable.h"
+#include "common/ValueFactory.hpp"
 #include <vector>
 #include <string>
 
 namespace voltdb {
 
 PersistentTableStats::PersistentTableStats(voltdb::PersistentTable* table)
-  : voltdb::TableStats(table)
+  : voltdb::TableStats(table), m_persistentTable(table),
+    m_lastViewRecomputeCount(0), m_lastViewRecomputeRowsScanned(0)
 {
 }
 
@@ -30,4 +32,23 @@ std::vector<std::string> PersistentTableStats::generateStatsColumnNames() {
     std::vector<std::string> columnNames = TableStats::generateStatsColumnNames();
     return columnNames;
 }
+
+void PersistentTableStats::updateStatsTuple(voltdb::TableTuple *tuple) {
+    TableStats::updateStatsTuple(tuple);
+    if (!m_persistentTable->isMaterialized()) {
+        return;
+    }
+    int64_t recomputes = m_persistentTable->viewRecomputeCount();
+    int64_t rowsScanned = m_persistentTable->viewRecomputeRowsScanned();
+    if (interval()) {
+        recomputes -= m_lastViewRecomputeCount;
+        rowsScanned -= m_lastViewRecomputeRowsScanned;
+        m_lastViewRecomputeCount = m_persistentTable->viewRecomputeCount();
+        m_lastViewRecomputeRowsScanned = m_persistentTable->viewRecomputeRowsScanned();
+    }
+    tuple->setNValue(StatsSource::m_columnName2Index["VIEW_RECOMPUTES"],
+                     ValueFactory::getBigIntValue(recomputes));
+    tuple->setNValue(StatsSource::m_columnName2Index["VIEW_RECOMPUTE_ROWS"],
+                     ValueFactory::getBigIntValue(rowsScanned));
+}
 }
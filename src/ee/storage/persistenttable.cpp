@@ -100,7 +100,11 @@ PersistentTable::PersistentTable(int partitionColumn, char * signature, bool isM
     m_invisibleTuplesPendingDeleteCount(0),
     m_surgeon(*this),
     m_isMaterialized(isMaterialized),
-    m_drEnabled(drEnabled)
+    m_viewRecomputeCount(0),
+    m_viewRecomputeRowsScanned(0),
+    m_changeCount(0),
+    m_drEnabled(drEnabled),
+    m_memoryCounters(ExecutorContext::getTableMemoryCounters())
 {
     // this happens here because m_data might not be initialized above
     m_iter.reset(m_data.begin());
@@ -116,6 +120,13 @@ PersistentTable::PersistentTable(int partitionColumn, char * signature, bool isM
 
 PersistentTable::~PersistentTable()
 {
+    // take what is left of this table out of the counters, unless the site went away first
+    if (m_memoryCounters != NULL && m_memoryCounters == ExecutorContext::getTableMemoryCounters()) {
+        countTuples(-static_cast<int64_t>(m_tupleCount));
+        countBlocks(-static_cast<int64_t>(m_data.size()));
+        m_memoryCounters->stringMemory -= m_nonInlinedMemorySize;
+    }
+
     for (int ii = 0; ii < TUPLE_BLOCK_NUM_BUCKETS; ii++) {
         m_blocksNotPendingSnapshotLoad[ii]->clear();
         m_blocksPendingSnapshotLoad[ii]->clear();
@@ -168,6 +179,7 @@ void PersistentTable::nextFreeTuple(TableTuple *tuple) {
 
         tuple->move(retval.first);
         ++m_tupleCount;
+        countTuples(1);
         if (!block->hasFreeTuples()) {
             m_blocksWithSpace.erase(block);
         }
@@ -204,6 +216,7 @@ void PersistentTable::nextFreeTuple(TableTuple *tuple) {
 
     tuple->move(retval.first);
     ++m_tupleCount;
+    countTuples(1);
     if (block->hasFreeTuples()) {
         m_blocksWithSpace.insert(block);
     }
@@ -286,6 +299,7 @@ void PersistentTable::truncateTable(VoltDBEngine* engine, bool fallible) {
     PersistentTable * emptyTable = tcd->getPersistentTable();
     assert(emptyTable);
     assert(emptyTable->views().size() == 0);
+    emptyTable->m_changeCount = m_changeCount + 1;
     if (m_tableStreamer != NULL && m_tableStreamer->hasStreamType(TABLE_STREAM_ELASTIC_INDEX)) {
         // There is an Elastic Index work going on and it should continue access the old table.
         // Add one reference count to keep the original table.
@@ -399,6 +413,7 @@ void PersistentTable::insertPersistentTuple(TableTuple &source, bool fallible)
 
 void PersistentTable::insertTupleCommon(TableTuple &source, TableTuple &target, bool fallible, bool shouldDRStream)
 {
+    ++m_changeCount;
     if (fallible) {
         // not null checks at first
         FAIL_IF(!checkNulls(target)) {
@@ -471,6 +486,7 @@ void PersistentTable::insertTupleCommon(TableTuple &source, TableTuple &target,
  */
 void PersistentTable::insertTupleForUndo(char *tuple)
 {
+    ++m_changeCount;
     TableTuple target(m_schema);
     target.move(tuple);
     target.setPendingDeleteOnUndoReleaseFalse();
@@ -503,6 +519,7 @@ bool PersistentTable::updateTupleWithSpecificIndexes(TableTuple &targetTupleToUp
                                                      std::vector<TableIndex*> const &indexesToUpdate,
                                                      bool fallible)
 {
+    ++m_changeCount;
     UndoQuantum *uq = NULL;
     char* oldTupleData = NULL;
     int tupleLength = targetTupleToUpdate.tupleLength();
@@ -664,6 +681,7 @@ void PersistentTable::updateTupleForUndo(char* tupleWithUnwantedValues,
                                          char* sourceTupleDataWithNewValues,
                                          bool revertIndexes)
 {
+    ++m_changeCount;
     TableTuple matchable(m_schema);
     // Get the address of the tuple in the table from one of the copies on hand.
     // Any TableScan OR a primary key lookup on an already updated index will find the tuple
@@ -715,6 +733,7 @@ void PersistentTable::updateTupleForUndo(char* tupleWithUnwantedValues,
 }
 
 bool PersistentTable::deleteTuple(TableTuple &target, bool fallible) {
+    ++m_changeCount;
     // May not delete an already deleted tuple.
     assert(target.isActive());
 
@@ -830,6 +849,7 @@ void PersistentTable::deleteTupleForSchemaChange(TableTuple &target) {
  *     can be used directly.
  */
 void PersistentTable::deleteTupleForUndo(char* tupleData, bool skipLookup) {
+    ++m_changeCount;
     TableTuple matchable(tupleData, m_schema);
     TableTuple target(tupleData, m_schema);
     //* enable for debug */ std::cout << "DEBUG: undoing "
@@ -1386,6 +1406,7 @@ bool PersistentTable::doCompactionWithinSubset(TBBucketMap *bucketMap) {
         if (lightest->isEmpty()) {
             notifyBlockWasCompactedAway(lightest);
             m_data.erase(lightest->address());
+            countBlocks(-1);
             m_blocksWithSpace.erase(lightest);
             m_blocksNotPendingSnapshot.erase(lightest);
             m_blocksPendingSnapshot.erase(lightest);
@@ -53,6 +53,7 @@
 #include <boost/scoped_ptr.hpp>
 #include <boost/shared_ptr.hpp>
 #include "common/declarations.h"
+#include "common/executorcontext.hpp"
 #include "common/types.h"
 #include "common/ids.h"
 #include "common/valuevector.h"
@@ -333,6 +334,24 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
                                     std::vector<MaterializedViewMetadata*> &obsoleteViewsOut);
     void updateMaterializedViewTargetTable(PersistentTable* target, catalog::MaterializedViewInfo* targetMvInfo);
 
+    bool isMaterialized() const { return m_isMaterialized; }
+
+    /**
+     * Account for a view aggregate (MIN, MAX or APPROX_COUNT_DISTINCT) of this
+     * materialized view that had to be recomputed from source table rows.
+     */
+    void countViewRecompute(int64_t sourceRowsScanned) {
+        ++m_viewRecomputeCount;
+        m_viewRecomputeRowsScanned += sourceRowsScanned;
+    }
+    int64_t viewRecomputeCount() const { return m_viewRecomputeCount; }
+    int64_t viewRecomputeRowsScanned() const { return m_viewRecomputeRowsScanned; }
+
+    // Number of inserts, updates and deletes, including undone ones, since the
+    // table was created. Carried over by truncation, so that an unchanged count
+    // means unchanged content.
+    int64_t changeCount() const { return m_changeCount; }
+
     /**
      * Attempt to stream more tuples from the table to the provided
      * output stream.
@@ -363,10 +382,16 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
     void increaseStringMemCount(size_t bytes)
     {
         m_nonInlinedMemorySize += bytes;
+        if (m_memoryCounters) {
+            m_memoryCounters->stringMemory += bytes;
+        }
     }
     void decreaseStringMemCount(size_t bytes)
     {
         m_nonInlinedMemorySize -= bytes;
+        if (m_memoryCounters) {
+            m_memoryCounters->stringMemory -= bytes;
+        }
     }
 
     size_t allocatedBlockCount() const {
@@ -548,6 +573,19 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
 
     TBPtr allocateNextBlock();
 
+    void countTuples(int64_t tuples) {
+        if (m_memoryCounters) {
+            m_memoryCounters->tupleCount += tuples;
+            m_memoryCounters->tupleDataMemory += tuples * m_tempTuple.tupleLength();
+        }
+    }
+
+    void countBlocks(int64_t blocks) {
+        if (m_memoryCounters) {
+            m_memoryCounters->tupleAllocatedMemory += blocks * m_tableAllocationSize;
+        }
+    }
+
     inline DRTupleStream *getDRTupleStream(ExecutorContext *ec) {
         if (m_partitionColumn == -1) {
             return ec->drReplicatedStream();
@@ -611,9 +649,19 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
     //Cache config info, is this a materialized view
     bool m_isMaterialized;
 
+    // view maintenance cost, reported in the table stats of a materialized view
+    int64_t m_viewRecomputeCount;
+    int64_t m_viewRecomputeRowsScanned;
+
+    // see changeCount()
+    int64_t m_changeCount;
+
     // is DR enabled
     bool m_drEnabled;
 
+    // the memory counters of the site, kept in step with the tuples and blocks of this table
+    TableMemoryCounters* m_memoryCounters;
+
     //SHA-1 of signature string
     char m_signature[20];
 };
@@ -830,6 +878,7 @@ inline void PersistentTable::deleteTupleStorage(TableTuple &tuple, TBPtr block)
 
     // add to the free list
     m_tupleCount--;
+    countTuples(-1);
     if (tuple.isPendingDelete()) {
         tuple.setPendingDeleteFalse();
         --m_invisibleTuplesPendingDeleteCount;
@@ -861,6 +910,7 @@ inline void PersistentTable::deleteTupleStorage(TableTuple &tuple, TBPtr block)
 
     if (block->isEmpty()) {
         m_data.erase(block->address());
+        countBlocks(-1);
         m_blocksWithSpace.erase(block);
         m_blocksNotPendingSnapshot.erase(block);
         assert(m_blocksPendingSnapshot.find(block) == m_blocksPendingSnapshot.end());
@@ -896,6 +946,7 @@ inline TBPtr PersistentTable::findBlock(char *tuple, TBMap &blocks, int blockSiz
 inline TBPtr PersistentTable::allocateNextBlock() {
     TBPtr block(new (ThreadLocalPool::getExact(sizeof(TupleBlock))->malloc()) TupleBlock(this, m_blocksNotPendingSnapshotLoad[0]));
     m_data.insert( block->address(), block);
+    countBlocks(1);
     m_blocksNotPendingSnapshot.insert(block);
     return block;
 }
@@ -532,6 +532,8 @@ void Table::addIndex(TableIndex *index) {
     while (iter.next(tuple)) {
         index->addEntry(&tuple);
     }
+    // an empty index holds memory too
+    index->countMemory();
 
     // add the index to the table
     if (index->isUniqueIndex()) {
@@ -0,0 +1,1127 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef COMPACTINGBTREE_H_
+#define COMPACTINGBTREE_H_
+
+#include "ContiguousAllocator.h"
+#include "CompactingMap.h"
+
+#include <cstdio>
+#include <cstring>
+#include <new>
+#include <stdint.h>
+#include <utility>
+#include <cassert>
+
+namespace voltdb {
+
+/**
+ * B+tree with the same interface as CompactingMap, so that the tree indexes
+ * can use either one.
+ *
+ * Where CompactingMap allocates one red-black node per key, this tree packs
+ * the key/value pairs of a leaf contiguously into a node of a few cache
+ * lines, and keeps the smallest key of each child in the inner nodes, so a
+ * lookup touches one node per level instead of one per comparison and a
+ * range scan walks the leaves through their sibling links. When hasRank is
+ * set the inner nodes also count the entries below each child, which gives
+ * the same rank operations as CompactingMap in O(log n).
+ *
+ * Like CompactingMap, nodes live in ContiguousAllocators and a freed node is
+ * filled with the last allocated one, so the memory stays packed and can be
+ * returned as the tree shrinks. The same caveats apply: iterators are
+ * invalidated by any mutation, and the pairs are moved around by assignment.
+ *
+ * The inner nodes keep bitwise copies of keys that are only compared, never
+ * destroyed. That works for the index key types, whose non-inlined values
+ * live outside the key itself, but not for keys like std::string.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank=false>
+class CompactingBTree {
+    typedef typename KeyValuePair::first_type Key;
+    typedef typename KeyValuePair::second_type Data;
+
+    enum {
+        // Nodes are sized to a few cache lines, but hold a minimum number of
+        // entries so that very wide keys still make a shallow tree.
+        NODE_BYTES = 512,
+        MIN_CAPACITY = 8,
+        LEAF_CAPACITY = (NODE_BYTES / sizeof(KeyValuePair) > MIN_CAPACITY) ?
+                            NODE_BYTES / sizeof(KeyValuePair) : MIN_CAPACITY,
+        INNER_CAPACITY = (NODE_BYTES / (sizeof(Key) + 2 * sizeof(void*)) > MIN_CAPACITY) ?
+                            NODE_BYTES / (sizeof(Key) + 2 * sizeof(void*)) : MIN_CAPACITY,
+        // Below these a node borrows from or merges with a sibling
+        LEAF_MINIMUM = LEAF_CAPACITY / 3,
+        INNER_MINIMUM = INNER_CAPACITY / 3,
+        // Bytes per allocator buffer
+        CHUNK_BYTES = 256 * 1024,
+        // Enough for any tree that fits in memory
+        MAX_PENDING = 64
+    };
+
+    /**
+     * Bitwise copy of a key, for the smallest key of each child. It never
+     * owns the key's non-inlined storage, and it is refreshed whenever the
+     * key it copies changes so it never outlives that storage.
+     */
+    struct KeyCopy {
+        union {
+            char bytes[sizeof(Key)];
+            int64_t align;
+        };
+        const Key &get() const { return *reinterpret_cast<const Key*>(bytes); }
+        Key &getMutable() { return *reinterpret_cast<Key*>(bytes); }
+        void set(const Key &key) { ::memcpy(bytes, &key, sizeof(Key)); }
+    };
+
+    struct Inner;
+
+    struct Node {
+        Inner *parent;
+        // entries of a leaf, children of an inner node
+        int32_t count;
+        bool leaf;
+    };
+
+    struct Leaf : public Node {
+        Leaf *prev;
+        Leaf *next;
+        KeyValuePair kv[LEAF_CAPACITY];
+    };
+
+    struct Inner : public Node {
+        // One spare slot to add a child before splitting
+        Node *child[INNER_CAPACITY + 1];
+        int64_t subct[INNER_CAPACITY + 1];
+        KeyCopy minKey[INNER_CAPACITY + 1];
+    };
+
+    int64_t m_count;
+    Node *m_root;
+    ContiguousAllocator m_leaves;
+    ContiguousAllocator m_inners;
+    bool m_unique;
+
+    // Nodes emptied by the current erase, released once it is done because
+    // releasing moves another node into the hole
+    Node *m_pending[MAX_PENDING];
+    int m_pendingCount;
+
+    // templated comparison function object
+    // follows STL conventions
+    Compare m_comper;
+
+public:
+    class iterator {
+        friend class CompactingBTree<KeyValuePair, Compare, hasRank>;
+    protected:
+        // Index cursors keep iterators in 16 bytes: no room for the map
+        Leaf *m_leaf;
+        int32_t m_pos;
+        iterator(Leaf *leaf, int32_t pos) : m_leaf(leaf), m_pos(pos) {}
+    public:
+        iterator() : m_leaf(NULL), m_pos(0) {}
+        iterator(const iterator &iter) : m_leaf(iter.m_leaf), m_pos(iter.m_pos) {}
+        // Like the NIL node of CompactingMap, the end has an empty entry
+        const Key &key() const { return entry().getKey(); }
+        const Data &value() const { return entry().getValue(); }
+        void setValue(const Data &value) { m_leaf->kv[m_pos].setValue(value); }
+        void moveNext()
+        {
+            if (++m_pos == m_leaf->count) {
+                m_leaf = m_leaf->next;
+                m_pos = 0;
+            }
+        }
+        void movePrev()
+        {
+            if (m_pos > 0) {
+                --m_pos;
+            }
+            else {
+                m_leaf = m_leaf->prev;
+                m_pos = m_leaf ? m_leaf->count - 1 : 0;
+            }
+        }
+        bool isEnd() const { return m_leaf == NULL; }
+    private:
+        const KeyValuePair &entry() const {
+            static const KeyValuePair empty;
+            return m_leaf ? m_leaf->kv[m_pos] : empty;
+        }
+    public:
+        bool equals(const iterator &iter) const {
+            if (isEnd()) {
+                return iter.isEnd();
+            }
+            return m_leaf == iter.m_leaf && m_pos == iter.m_pos;
+        }
+    };
+
+    CompactingBTree(bool unique, Compare comper);
+    ~CompactingBTree();
+
+    bool insert(std::pair<Key, Data> value) { return insert(value.first, value.second); };
+    bool insert(const Key &key, const Data &data);
+    bool erase(const Key &key);
+    bool erase(iterator &iter);
+
+    iterator find(const Key &key) const;
+    iterator findRank(int64_t ith) const;
+    int64_t size() const { return m_count; }
+    iterator begin() const;
+    iterator rbegin() const;
+
+    iterator lowerBound(const Key &key) const { return bound(key, false); }
+    iterator upperBound(const Key &key) const;
+
+    std::pair<iterator, iterator> equalRange(const Key &key) const
+    {
+        return std::pair<iterator, iterator>(lowerBound(key), upperBound(key));
+    }
+
+    size_t bytesAllocated() const { return m_leaves.bytesAllocated() + m_inners.bytesAllocated(); }
+
+    // Same contracts as CompactingMap: the key must be in the map, or -1
+    int64_t rankAsc(const Key& key) const;
+    int64_t rankUpper(const Key& key) const;
+
+    /**
+     * For debugging: verify the ordering, links and counts. SLOW.
+     */
+    bool verify() const;
+    bool verifyRank() const;
+
+protected:
+    iterator end() const { return iterator(); }
+
+    static int32_t chunkSize(size_t nodeSize)
+    {
+        return static_cast<int32_t>(nodeSize < CHUNK_BYTES / 4 ? CHUNK_BYTES / nodeSize : 4);
+    }
+
+    static const Key &minKeyOf(const Node *node)
+    {
+        if (node->leaf) {
+            return static_cast<const Leaf*>(node)->kv[0].getKey();
+        }
+        return static_cast<const Inner*>(node)->minKey[0].get();
+    }
+
+    static int childIndex(const Inner *parent, const Node *node)
+    {
+        for (int i = 0; i < parent->count; ++i) {
+            if (parent->child[i] == node) {
+                return i;
+            }
+        }
+        assert(false);
+        return -1;
+    }
+
+    static void resetEntry(KeyValuePair &kv)
+    {
+        kv.~KeyValuePair();
+        new (&kv) KeyValuePair();
+    }
+
+    int64_t subtreeCount(const Node *node) const;
+    int childFor(const Inner *node, const Key &key, bool strict) const;
+    int leafBound(const Leaf *leaf, const Key &key, bool upper) const;
+    Leaf *findLeaf(const Key &key, bool strict) const;
+    iterator bound(const Key &key, bool upper) const;
+    int64_t position(const iterator &iter) const;
+
+    Leaf *newLeaf();
+    Inner *newInner();
+    void refreshMinKey(Node *node);
+    void addToCounts(Node *node, int64_t delta);
+    void addChild(Node *left, Node *right);
+    void removeChild(Inner *parent, int index);
+    Leaf *splitLeaf(Leaf *leaf);
+    void splitInner(Inner *node);
+    void eraseAt(Leaf *leaf, int pos);
+    void rebalanceLeaf(Leaf *leaf);
+    void rebalanceInner(Inner *node);
+    void release(Node *node);
+    void releasePending();
+
+    int verify(const Node *node, const Key *lower, int64_t *count) const;
+};
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+CompactingBTree<KeyValuePair, Compare, hasRank>::CompactingBTree(bool unique, Compare comper)
+    : m_count(0),
+      m_root(NULL),
+      m_leaves(static_cast<int32_t>(sizeof(Leaf)), chunkSize(sizeof(Leaf))),
+      m_inners(static_cast<int32_t>(sizeof(Inner)), chunkSize(sizeof(Inner))),
+      m_unique(unique),
+      m_pendingCount(0),
+      m_comper(comper)
+{
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+CompactingBTree<KeyValuePair, Compare, hasRank>::~CompactingBTree()
+{
+    if (m_root == NULL) {
+        return;
+    }
+    Node *node = m_root;
+    while ( ! node->leaf) {
+        node = static_cast<Inner*>(node)->child[0];
+    }
+    Leaf *leaf = static_cast<Leaf*>(node);
+    while (leaf) {
+        Leaf *next = leaf->next;
+        leaf->~Leaf();
+        leaf = next;
+    }
+    // inner nodes only hold bitwise key copies, nothing to destroy
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::insert(const Key &key, const Data &value)
+{
+    if (m_root == NULL) {
+        m_root = newLeaf();
+    }
+    Leaf *leaf = findLeaf(key, false);
+    int pos;
+    if (m_unique) {
+        pos = leafBound(leaf, key, false);
+        // Inserting exact matches fails for unique indexes.
+        if (pos < leaf->count && m_comper(leaf->kv[pos].getKey(), key) == 0) {
+            return false;
+        }
+    }
+    else {
+        // Duplicates go after the existing ones, as in CompactingMap
+        pos = leafBound(leaf, key, true);
+    }
+
+    if (leaf->count == LEAF_CAPACITY) {
+        Leaf *right = splitLeaf(leaf);
+        if (pos > leaf->count) {
+            pos -= leaf->count;
+            leaf = right;
+        }
+    }
+
+    for (int i = leaf->count; i > pos; --i) {
+        leaf->kv[i] = leaf->kv[i - 1];
+    }
+    leaf->kv[pos].setKey(key);
+    leaf->kv[pos].setValue(value); // for PointerKeyType, this is a little duplicating process
+    ++leaf->count;
+    ++m_count;
+
+    if (pos == 0) {
+        refreshMinKey(leaf);
+    }
+    if (hasRank) {
+        addToCounts(leaf, 1);
+    }
+    return true;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::erase(const Key &key)
+{
+    iterator iter = find(key);
+    if (iter.isEnd()) {
+        return false;
+    }
+    eraseAt(iter.m_leaf, iter.m_pos);
+    return true;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::erase(iterator &iter)
+{
+    assert( ! iter.isEnd());
+    eraseAt(iter.m_leaf, iter.m_pos);
+    return true;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::find(const Key &key) const
+{
+    // the first of the matching keys, as in CompactingMap
+    iterator iter = lowerBound(key);
+    if (iter.isEnd() || m_comper(iter.key(), key) != 0) {
+        return end();
+    }
+    return iter;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::findRank(int64_t ith) const
+{
+    if ( ! hasRank || ith < 1 || ith > m_count) {
+        return end();
+    }
+    int64_t rank = ith - 1;
+    const Node *node = m_root;
+    while ( ! node->leaf) {
+        const Inner *inner = static_cast<const Inner*>(node);
+        int i = 0;
+        while (rank >= inner->subct[i]) {
+            rank -= inner->subct[i];
+            ++i;
+        }
+        node = inner->child[i];
+    }
+    return iterator(const_cast<Leaf*>(static_cast<const Leaf*>(node)), static_cast<int>(rank));
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::begin() const
+{
+    if (m_count == 0) {
+        return end();
+    }
+    Node *node = m_root;
+    while ( ! node->leaf) {
+        node = static_cast<Inner*>(node)->child[0];
+    }
+    return iterator(static_cast<Leaf*>(node), 0);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::rbegin() const
+{
+    if (m_count == 0) {
+        return end();
+    }
+    Node *node = m_root;
+    while ( ! node->leaf) {
+        Inner *inner = static_cast<Inner*>(node);
+        node = inner->child[inner->count - 1];
+    }
+    return iterator(static_cast<Leaf*>(node), node->count - 1);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::upperBound(const Key &key) const
+{
+    // A bitwise copy rather than a Key copy, which for GenericPersistentKey
+    // would take over the storage of the key passed in.
+    KeyCopy tmpKey;
+    tmpKey.set(key);
+    setPointerValue(tmpKey.getMutable(), MAXPOINTER);
+    return bound(tmpKey.get(), true);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::rankAsc(const Key& key) const
+{
+    if ( ! hasRank) {
+        return -1;
+    }
+    // return -1 if the key passed in is not in the map
+    if (find(key).isEnd()) {
+        return -1;
+    }
+    // The rank of the first entry with the same key, regardless of the
+    // tuple pointer of a multi-map key.
+    KeyCopy firstKey;
+    firstKey.set(key);
+    setPointerValue(firstKey.getMutable(), static_cast<const void*>(NULL));
+    return position(lowerBound(firstKey.get())) + 1;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::rankUpper(const Key& key) const
+{
+    if ( ! hasRank) {
+        return -1;
+    }
+    if (m_unique) {
+        return rankAsc(key);
+    }
+    // return -1 if the key passed in is not in the map
+    if (find(key).isEnd()) {
+        return -1;
+    }
+    iterator iter = upperBound(key);
+    if (iter.isEnd()) {
+        return m_count;
+    }
+    return position(iter);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::subtreeCount(const Node *node) const
+{
+    if (node->leaf) {
+        return node->count;
+    }
+    const Inner *inner = static_cast<const Inner*>(node);
+    int64_t count = 0;
+    for (int i = 0; i < inner->count; ++i) {
+        count += inner->subct[i];
+    }
+    return count;
+}
+
+/**
+ * The last child whose smallest key is below the key (strict) or not above
+ * it, or the first child when there is none.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int CompactingBTree<KeyValuePair, Compare, hasRank>::childFor(const Inner *node, const Key &key,
+                                                              bool strict) const
+{
+    int lo = 1;
+    int hi = node->count;
+    while (lo < hi) {
+        int mid = (lo + hi) / 2;
+        int cmp = m_comper(node->minKey[mid].get(), key);
+        if (cmp < 0 || (cmp == 0 && ! strict)) {
+            lo = mid + 1;
+        }
+        else {
+            hi = mid;
+        }
+    }
+    return lo - 1;
+}
+
+/**
+ * The first position in the leaf whose key is not below the key, or above it
+ * when upper is set.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int CompactingBTree<KeyValuePair, Compare, hasRank>::leafBound(const Leaf *leaf, const Key &key,
+                                                               bool upper) const
+{
+    int lo = 0;
+    int hi = leaf->count;
+    while (lo < hi) {
+        int mid = (lo + hi) / 2;
+        int cmp = m_comper(leaf->kv[mid].getKey(), key);
+        if (cmp < 0 || (cmp == 0 && upper)) {
+            lo = mid + 1;
+        }
+        else {
+            hi = mid;
+        }
+    }
+    return lo;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::Leaf *
+CompactingBTree<KeyValuePair, Compare, hasRank>::findLeaf(const Key &key, bool strict) const
+{
+    Node *node = m_root;
+    while ( ! node->leaf) {
+        const Inner *inner = static_cast<const Inner*>(node);
+        node = inner->child[childFor(inner, key, strict)];
+    }
+    return static_cast<Leaf*>(node);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::bound(const Key &key, bool upper) const
+{
+    if (m_count == 0) {
+        return end();
+    }
+    // Descend to the child that may hold the bound. When the whole leaf is
+    // below the bound, the bound is the first entry of the next leaf.
+    Leaf *leaf = findLeaf(key, ! upper);
+    int pos = leafBound(leaf, key, upper);
+    if (pos == leaf->count) {
+        return iterator(leaf->next, 0);
+    }
+    return iterator(leaf, pos);
+}
+
+/** The number of entries before the iterator */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::position(const iterator &iter) const
+{
+    assert(hasRank);
+    int64_t rank = iter.m_pos;
+    const Node *node = iter.m_leaf;
+    while (node->parent != NULL) {
+        const Inner *parent = node->parent;
+        int index = childIndex(parent, node);
+        for (int i = 0; i < index; ++i) {
+            rank += parent->subct[i];
+        }
+        node = parent;
+    }
+    return rank;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::Leaf *
+CompactingBTree<KeyValuePair, Compare, hasRank>::newLeaf()
+{
+    void *memory = m_leaves.alloc();
+    assert(memory);
+    // placement new
+    Leaf *leaf = new(memory) Leaf();
+    leaf->parent = NULL;
+    leaf->count = 0;
+    leaf->leaf = true;
+    leaf->prev = leaf->next = NULL;
+    return leaf;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::Inner *
+CompactingBTree<KeyValuePair, Compare, hasRank>::newInner()
+{
+    void *memory = m_inners.alloc();
+    assert(memory);
+    // placement new
+    Inner *inner = new(memory) Inner();
+    inner->parent = NULL;
+    inner->count = 0;
+    inner->leaf = false;
+    return inner;
+}
+
+/** Propagate a change of the smallest key of the node to its ancestors */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::refreshMinKey(Node *node)
+{
+    while (node->parent != NULL && node->count > 0) {
+        Inner *parent = node->parent;
+        int index = childIndex(parent, node);
+        parent->minKey[index].set(minKeyOf(node));
+        if (index != 0) {
+            break;
+        }
+        node = parent;
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::addToCounts(Node *node, int64_t delta)
+{
+    while (node->parent != NULL) {
+        Inner *parent = node->parent;
+        parent->subct[childIndex(parent, node)] += delta;
+        node = parent;
+    }
+}
+
+/** Link the new node right after its left sibling, splitting up the tree as needed */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::addChild(Node *left, Node *right)
+{
+    Inner *parent = left->parent;
+    if (parent == NULL) {
+        // grow a new root
+        parent = newInner();
+        parent->count = 1;
+        parent->child[0] = left;
+        parent->minKey[0].set(minKeyOf(left));
+        left->parent = parent;
+        m_root = parent;
+    }
+    int index = childIndex(parent, left) + 1;
+    for (int i = parent->count; i > index; --i) {
+        parent->child[i] = parent->child[i - 1];
+        parent->subct[i] = parent->subct[i - 1];
+        parent->minKey[i] = parent->minKey[i - 1];
+    }
+    parent->child[index] = right;
+    parent->minKey[index].set(minKeyOf(right));
+    right->parent = parent;
+    ++parent->count;
+    if (hasRank) {
+        parent->subct[index - 1] = subtreeCount(left);
+        parent->subct[index] = subtreeCount(right);
+    }
+    if (parent->count > INNER_CAPACITY) {
+        splitInner(parent);
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::removeChild(Inner *parent, int index)
+{
+    for (int i = index; i < parent->count - 1; ++i) {
+        parent->child[i] = parent->child[i + 1];
+        parent->subct[i] = parent->subct[i + 1];
+        parent->minKey[i] = parent->minKey[i + 1];
+    }
+    --parent->count;
+    if (index == 0) {
+        refreshMinKey(parent);
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::Leaf *
+CompactingBTree<KeyValuePair, Compare, hasRank>::splitLeaf(Leaf *leaf)
+{
+    Leaf *right = newLeaf();
+    int mid = leaf->count / 2;
+    for (int i = mid; i < leaf->count; ++i) {
+        right->kv[i - mid] = leaf->kv[i];
+        resetEntry(leaf->kv[i]);
+    }
+    right->count = leaf->count - mid;
+    leaf->count = mid;
+
+    right->prev = leaf;
+    right->next = leaf->next;
+    if (leaf->next) {
+        leaf->next->prev = right;
+    }
+    leaf->next = right;
+
+    addChild(leaf, right);
+    return right;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::splitInner(Inner *node)
+{
+    Inner *right = newInner();
+    int mid = node->count / 2;
+    for (int i = mid; i < node->count; ++i) {
+        right->child[i - mid] = node->child[i];
+        right->subct[i - mid] = node->subct[i];
+        right->minKey[i - mid] = node->minKey[i];
+        node->child[i]->parent = right;
+    }
+    right->count = node->count - mid;
+    node->count = mid;
+    addChild(node, right);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::eraseAt(Leaf *leaf, int pos)
+{
+    // Shift the entries after it down. For GenericPersistentKey, whose
+    // assignment swaps, this also moves the erased key to the last slot.
+    for (int i = pos; i < leaf->count - 1; ++i) {
+        leaf->kv[i] = leaf->kv[i + 1];
+    }
+    --leaf->count;
+    resetEntry(leaf->kv[leaf->count]);
+    --m_count;
+
+    if (hasRank) {
+        addToCounts(leaf, -1);
+    }
+    if (pos == 0) {
+        refreshMinKey(leaf);
+    }
+    rebalanceLeaf(leaf);
+    releasePending();
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::rebalanceLeaf(Leaf *leaf)
+{
+    Inner *parent = leaf->parent;
+    if (parent == NULL) {
+        if (leaf->count == 0) {
+            m_pending[m_pendingCount++] = leaf;
+            m_root = NULL;
+        }
+        return;
+    }
+    if (leaf->count >= LEAF_MINIMUM) {
+        return;
+    }
+
+    // Every inner node has at least two children
+    int index = childIndex(parent, leaf);
+    int leftIndex = (index + 1 < parent->count) ? index : index - 1;
+    Leaf *left = static_cast<Leaf*>(parent->child[leftIndex]);
+    Leaf *right = static_cast<Leaf*>(parent->child[leftIndex + 1]);
+    bool leftWasEmpty = (left->count == 0);
+
+    if (left->count + right->count <= LEAF_CAPACITY) {
+        // merge the right leaf into the left one
+        for (int i = 0; i < right->count; ++i) {
+            left->kv[left->count + i] = right->kv[i];
+            resetEntry(right->kv[i]);
+        }
+        left->count += right->count;
+        right->count = 0;
+        left->next = right->next;
+        if (right->next) {
+            right->next->prev = left;
+        }
+        if (hasRank) {
+            parent->subct[leftIndex] += parent->subct[leftIndex + 1];
+        }
+        removeChild(parent, leftIndex + 1);
+        m_pending[m_pendingCount++] = right;
+        if (leftWasEmpty) {
+            refreshMinKey(left);
+        }
+        rebalanceInner(parent);
+        return;
+    }
+
+    // even out the two leaves
+    int target = (left->count + right->count) / 2;
+    if (left->count < target) {
+        int moved = target - left->count;
+        for (int i = 0; i < moved; ++i) {
+            left->kv[left->count + i] = right->kv[i];
+        }
+        for (int i = 0; i < right->count - moved; ++i) {
+            right->kv[i] = right->kv[i + moved];
+        }
+        for (int i = right->count - moved; i < right->count; ++i) {
+            resetEntry(right->kv[i]);
+        }
+        left->count += moved;
+        right->count -= moved;
+    }
+    else {
+        int moved = left->count - target;
+        for (int i = right->count - 1; i >= 0; --i) {
+            right->kv[i + moved] = right->kv[i];
+        }
+        for (int i = 0; i < moved; ++i) {
+            right->kv[i] = left->kv[target + i];
+            resetEntry(left->kv[target + i]);
+        }
+        left->count -= moved;
+        right->count += moved;
+    }
+    if (hasRank) {
+        parent->subct[leftIndex] = left->count;
+        parent->subct[leftIndex + 1] = right->count;
+    }
+    if (leftWasEmpty) {
+        refreshMinKey(left);
+    }
+    refreshMinKey(right);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::rebalanceInner(Inner *node)
+{
+    Inner *parent = node->parent;
+    if (parent == NULL) {
+        if (node->count == 1) {
+            // shrink the tree by a level
+            m_root = node->child[0];
+            m_root->parent = NULL;
+            node->count = 0;
+            m_pending[m_pendingCount++] = node;
+        }
+        return;
+    }
+    if (node->count >= INNER_MINIMUM) {
+        return;
+    }
+
+    int index = childIndex(parent, node);
+    int leftIndex = (index + 1 < parent->count) ? index : index - 1;
+    Inner *left = static_cast<Inner*>(parent->child[leftIndex]);
+    Inner *right = static_cast<Inner*>(parent->child[leftIndex + 1]);
+
+    if (left->count + right->count <= INNER_CAPACITY) {
+        // merge the right node into the left one
+        for (int i = 0; i < right->count; ++i) {
+            left->child[left->count + i] = right->child[i];
+            left->subct[left->count + i] = right->subct[i];
+            left->minKey[left->count + i] = right->minKey[i];
+            right->child[i]->parent = left;
+        }
+        left->count += right->count;
+        right->count = 0;
+        if (hasRank) {
+            parent->subct[leftIndex] += parent->subct[leftIndex + 1];
+        }
+        removeChild(parent, leftIndex + 1);
+        m_pending[m_pendingCount++] = right;
+        rebalanceInner(parent);
+        return;
+    }
+
+    // even out the two nodes
+    int target = (left->count + right->count) / 2;
+    if (left->count < target) {
+        int moved = target - left->count;
+        for (int i = 0; i < moved; ++i) {
+            left->child[left->count + i] = right->child[i];
+            left->subct[left->count + i] = right->subct[i];
+            left->minKey[left->count + i] = right->minKey[i];
+            right->child[i]->parent = left;
+        }
+        for (int i = 0; i < right->count - moved; ++i) {
+            right->child[i] = right->child[i + moved];
+            right->subct[i] = right->subct[i + moved];
+            right->minKey[i] = right->minKey[i + moved];
+        }
+        left->count += moved;
+        right->count -= moved;
+    }
+    else {
+        int moved = left->count - target;
+        for (int i = right->count - 1; i >= 0; --i) {
+            right->child[i + moved] = right->child[i];
+            right->subct[i + moved] = right->subct[i];
+            right->minKey[i + moved] = right->minKey[i];
+        }
+        for (int i = 0; i < moved; ++i) {
+            right->child[i] = left->child[target + i];
+            right->subct[i] = left->subct[target + i];
+            right->minKey[i] = left->minKey[target + i];
+            right->child[i]->parent = right;
+        }
+        left->count -= moved;
+        right->count += moved;
+    }
+    if (hasRank) {
+        parent->subct[leftIndex] = subtreeCount(left);
+        parent->subct[leftIndex + 1] = subtreeCount(right);
+    }
+    refreshMinKey(right);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::releasePending()
+{
+    for (int i = 0; i < m_pendingCount; ++i) {
+        release(m_pending[i]);
+        m_pending[i] = NULL;
+    }
+    m_pendingCount = 0;
+}
+
+/**
+ * Free an unlinked node by moving the last allocated node of its kind into
+ * its memory, as CompactingMap::fragmentFixup does.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::release(Node *hole)
+{
+    ContiguousAllocator &allocator = hole->leaf ? m_leaves : m_inners;
+    Node *last = static_cast<Node*>(allocator.last());
+
+    // A node still waiting to be released is not linked anymore: just move it.
+    bool lastIsPending = false;
+    for (int i = 0; i < m_pendingCount; ++i) {
+        if (m_pending[i] == last && last != hole) {
+            m_pending[i] = hole;
+            lastIsPending = true;
+        }
+    }
+
+    if (hole->leaf) {
+        Leaf *leafHole = static_cast<Leaf*>(hole);
+        Leaf *leafLast = static_cast<Leaf*>(last);
+        leafHole->~Leaf();
+        if (leafLast != leafHole) {
+            new (leafHole) Leaf();
+            leafHole->parent = leafLast->parent;
+            leafHole->count = leafLast->count;
+            leafHole->leaf = true;
+            leafHole->prev = leafLast->prev;
+            leafHole->next = leafLast->next;
+            for (int i = 0; i < leafLast->count; ++i) {
+                leafHole->kv[i] = leafLast->kv[i];
+            }
+            if ( ! lastIsPending) {
+                if (leafHole->prev) {
+                    leafHole->prev->next = leafHole;
+                }
+                if (leafHole->next) {
+                    leafHole->next->prev = leafHole;
+                }
+                if (leafHole->parent) {
+                    leafHole->parent->child[childIndex(leafHole->parent, leafLast)] = leafHole;
+                }
+                if (m_root == leafLast) {
+                    m_root = leafHole;
+                }
+            }
+            leafLast->~Leaf();
+        }
+        m_leaves.trim();
+    }
+    else {
+        Inner *innerHole = static_cast<Inner*>(hole);
+        Inner *innerLast = static_cast<Inner*>(last);
+        if (innerLast != innerHole) {
+            // inner nodes are plain data
+            ::memcpy(static_cast<void*>(innerHole), static_cast<void*>(innerLast), sizeof(Inner));
+            if ( ! lastIsPending) {
+                for (int i = 0; i < innerHole->count; ++i) {
+                    innerHole->child[i]->parent = innerHole;
+                }
+                if (innerHole->parent) {
+                    innerHole->parent->child[childIndex(innerHole->parent, innerLast)] = innerHole;
+                }
+                if (m_root == innerLast) {
+                    m_root = innerHole;
+                }
+            }
+        }
+        m_inners.trim();
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::verify() const
+{
+    if (m_root == NULL) {
+        if (m_count != 0) {
+            printf("Empty tree with a count of %ld\n", (long)m_count);
+            return false;
+        }
+        return true;
+    }
+    if (m_root->parent != NULL) {
+        printf("Root has a parent\n");
+        return false;
+    }
+    int64_t count = 0;
+    if (verify(m_root, NULL, &count) < 0) {
+        return false;
+    }
+    if (count != m_count) {
+        printf("Counted %ld entries instead of %ld\n", (long)count, (long)m_count);
+        return false;
+    }
+    // the leaf chain walks all the entries in order
+    int64_t walked = 0;
+    const Key *previous = NULL;
+    for (iterator iter = begin(); ! iter.isEnd(); iter.moveNext()) {
+        if (previous && m_comper(*previous, iter.key()) > 0) {
+            printf("Leaf chain out of order\n");
+            return false;
+        }
+        previous = &iter.key();
+        ++walked;
+    }
+    if (walked != m_count) {
+        printf("Walked %ld entries instead of %ld\n", (long)walked, (long)m_count);
+        return false;
+    }
+    return true;
+}
+
+/** Check the subtree and return its depth, or -1 */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int CompactingBTree<KeyValuePair, Compare, hasRank>::verify(const Node *node, const Key *lower,
+                                                            int64_t *count) const
+{
+    bool isRoot = (node == m_root);
+    if (node->leaf) {
+        const Leaf *leaf = static_cast<const Leaf*>(node);
+        if (leaf->count == 0 || (! isRoot && leaf->count < LEAF_MINIMUM)) {
+            printf("Leaf with %d entries\n", leaf->count);
+            return -1;
+        }
+        if (lower && m_comper(*lower, leaf->kv[0].getKey()) != 0) {
+            printf("Smallest key of a leaf does not match its parent\n");
+            return -1;
+        }
+        for (int i = 1; i < leaf->count; ++i) {
+            int cmp = m_comper(leaf->kv[i - 1].getKey(), leaf->kv[i].getKey());
+            if (cmp > 0 || (cmp == 0 && m_unique)) {
+                printf("Leaf out of order\n");
+                return -1;
+            }
+        }
+        *count += leaf->count;
+        return 1;
+    }
+
+    const Inner *inner = static_cast<const Inner*>(node);
+    if (inner->count < 2 || (! isRoot && inner->count < INNER_MINIMUM) ||
+        inner->count > INNER_CAPACITY) {
+        printf("Inner node with %d children\n", inner->count);
+        return -1;
+    }
+    if (lower && m_comper(*lower, inner->minKey[0].get()) != 0) {
+        printf("Smallest key of an inner node does not match its parent\n");
+        return -1;
+    }
+    int depth = -1;
+    for (int i = 0; i < inner->count; ++i) {
+        const Node *child = inner->child[i];
+        if (child->parent != inner) {
+            printf("Bad parent pointer\n");
+            return -1;
+        }
+        if (i > 0 && m_comper(inner->minKey[i - 1].get(), inner->minKey[i].get()) > 0) {
+            printf("Inner node out of order\n");
+            return -1;
+        }
+        int64_t childCount = 0;
+        int childDepth = verify(child, &inner->minKey[i].get(), &childCount);
+        if (childDepth < 0 || (depth >= 0 && childDepth != depth)) {
+            printf("Unbalanced tree\n");
+            return -1;
+        }
+        depth = childDepth;
+        if (hasRank && childCount != inner->subct[i]) {
+            printf("Subtree count %ld instead of %ld\n", (long)inner->subct[i], (long)childCount);
+            return -1;
+        }
+        *count += childCount;
+    }
+    return depth + 1;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::verifyRank() const
+{
+    if (!hasRank) {
+        return true;
+    }
+
+    // iterate rank start from 1 to m_count
+    int64_t i = 1;
+    for (iterator iter = begin(); ! iter.isEnd(); iter.moveNext(), ++i) {
+        iterator ranked = findRank(i);
+        if ( ! ranked.equals(iter)) {
+            printf("Can not find rank %ld node\n", (long)i);
+            return false;
+        }
+        if (position(iter) != i - 1) {
+            printf("false: position expected %ld, but got %ld\n", (long)(i - 1), (long)position(iter));
+            return false;
+        }
+        if (m_unique && rankAsc(iter.key()) != i) {
+            printf("false: unique_rankAsc expected %ld, but got %ld\n", (long)i, (long)rankAsc(iter.key()));
+            return false;
+        }
+    }
+    return true;
+}
+
+}
+
+#endif // COMPACTINGBTREE_H_
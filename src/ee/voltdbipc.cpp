@@ -180,6 +180,7 @@ private:
     void tableStreamSerializeMore(struct ipc_command *cmd);
     void exportAction(struct ipc_command *cmd);
     void getUSOForExportTable(struct ipc_command *cmd);
+    void getTableChangeCounts(struct ipc_command *cmd);
 
     void signalHandler(int signum, siginfo_t *info, void *context);
     static void signalDispatcher(int signum, siginfo_t *info, void *context);
@@ -319,6 +320,12 @@ typedef struct {
     char tableSignature[0];
 }__attribute__((packed)) get_uso;
 
+typedef struct {
+    struct ipc_command cmd;
+    int32_t count;
+    int32_t tableIds[0];
+}__attribute__((packed)) get_table_change_counts;
+
 typedef struct {
     struct ipc_command cmd;
     int64_t timestamp;
@@ -486,6 +493,10 @@ bool VoltDBIPC::execute(struct ipc_command *cmd) {
           applyBinaryLog(cmd);
           result = kErrorCode_None;
           break;
+      case 30:
+          getTableChangeCounts(cmd);
+          result = kErrorCode_None;
+          break;
       default:
         result = stub(cmd);
     }
@@ -520,7 +531,9 @@ int8_t VoltDBIPC::loadCatalog(struct ipc_command *cmd) {
 
     catalog_load *msg = reinterpret_cast<catalog_load*>(cmd);
     try {
-        if (m_engine->loadCatalog(ntohll(msg->timestamp), std::string(msg->data)) == true) {
+        // the catalog may be binary, so take its length rather than stop at a nul
+        std::string catalogPayload(msg->data, ntohl(cmd->msgsize) - sizeof(catalog_load) - 1);
+        if (m_engine->loadCatalog(ntohll(msg->timestamp), catalogPayload) == true) {
             return kErrorCode_Success;
         }
     //TODO: FatalException and SerializableException should be universally caught and handled in "execute",
@@ -1359,6 +1372,26 @@ void VoltDBIPC::getUSOForExportTable(struct ipc_command *cmd) {
     writeOrDie(m_fd, (unsigned char*)&seqNo, sizeof(seqNo));
 }
 
+void VoltDBIPC::getTableChangeCounts(struct ipc_command *cmd) {
+    get_table_change_counts *get = (get_table_change_counts*)cmd;
+
+    int32_t count = ntohl(get->count);
+    std::vector<int32_t> tableIds(count);
+    std::vector<int64_t> changeCounts(count);
+    for (int32_t i = 0; i < count; i++) {
+        tableIds[i] = ntohl(get->tableIds[i]);
+    }
+    if (count > 0) {
+        m_engine->getTableChangeCounts(&tableIds[0], count, &changeCounts[0]);
+    }
+
+    // write the counts across bigendian.
+    for (int32_t i = 0; i < count; i++) {
+        int64_t changeCount = htonll(changeCounts[i]);
+        writeOrDie(m_fd, (unsigned char*)&changeCount, sizeof(changeCount));
+    }
+}
+
 void VoltDBIPC::hashinate(struct ipc_command* cmd) {
     hashinate_msg* hash = (hashinate_msg*)cmd;
     NValueArray& params = m_engine->getParameterContainer();
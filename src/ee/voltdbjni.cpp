@@ -856,6 +856,31 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeToggl
     return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
 }
 
+/**
+ * Writes the memory counters of the tables and indexes of the site to the result buffer.
+ */
+SHAREDLIB_JNIEXPORT void JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeGetTableMemoryStats
+(JNIEnv *env, jobject obj, jlong engine_ptr)
+{
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    if (engine) {
+        engine->resetReusedResultOutputBuffer();
+        engine->getTableMemoryStats();
+    }
+}
+
+/**
+ * Turns on or off the profile counters of the plan node executors.
+ */
+SHAREDLIB_JNIEXPORT void JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeSetPlanNodeProfiling
+(JNIEnv *env, jobject obj, jlong engine_ptr, jboolean enabled)
+{
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    if (engine) {
+        engine->setPlanNodeProfiling(enabled == JNI_TRUE);
+    }
+}
+
 /**
  * Release the undo token
  * @returns JNI_TRUE on success. JNI_FALSE otherwise.
@@ -1136,6 +1161,37 @@ SHAREDLIB_JNIEXPORT jlongArray JNICALL Java_org_voltdb_jni_ExecutionEngine_nativ
     return NULL;
 }
 
+/*
+ * Class:     org_voltdb_jni_ExecutionEngine
+ * Method:    nativeGetTableChangeCounts
+ * Signature: (J[I)[J
+ */
+SHAREDLIB_JNIEXPORT jlongArray JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeGetTableChangeCounts
+  (JNIEnv *env, jobject obj, jlong engine_ptr, jintArray tableIds) {
+
+    VOLT_DEBUG("nativeGetTableChangeCounts in C++ called");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    try {
+        jsize count = env->GetArrayLength(tableIds);
+        std::vector<int32_t> ids(count);
+        std::vector<int64_t> changeCounts(count);
+        if (count > 0) {
+            env->GetIntArrayRegion(tableIds, 0, count, reinterpret_cast<jint*>(&ids[0]));
+            engine->getTableChangeCounts(&ids[0], count, &changeCounts[0]);
+        }
+        jlongArray retval = env->NewLongArray(count);
+        if (count > 0) {
+            env->SetLongArrayRegion(retval, 0, count, reinterpret_cast<jlong*>(&changeCounts[0]));
+        }
+        return retval;
+    }
+    catch (const FatalException &e) {
+        topend->crashVoltDB(e);
+    }
+    return NULL;
+}
+
 /*
  * Class:     org_voltdb_jni_ExecutionEngine
  * Method:    nativeProcessRecoveryMessage
@@ -48,7 +48,7 @@ public class NetworkDBBPool {
     BBContainer acquire() {
        final BBContainer cont = m_buffers.poll();
        if (cont == null) {
-           final BBContainer originContainer = DBBPool.allocateDirect(m_allocationSize);
+           final BBContainer originContainer = DBBPool.allocateDirect(m_allocationSize, DBBPool.MemoryUse.NETWORK);
            return new BBContainer(originContainer.b()) {
                 @Override
                 public void discard() {
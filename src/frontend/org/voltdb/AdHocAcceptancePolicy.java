@@ -37,11 +37,24 @@ public class AdHocAcceptancePolicy extends InvocationValidationPolicy {
             Procedure sysProc) {
 
         if ( ! invocation.procName.equals("@AdHoc") &&
-             ! invocation.procName.equals("@AdHocSpForTest")) {
+             ! invocation.procName.equals("@AdHocSpForTest") &&
+             ! invocation.procName.equals("@AdHocPrepare") &&
+             ! invocation.procName.equals("@AdHocExecute")) {
             return null;
         }
 
         ParameterSet params = invocation.getParams();
+        if (invocation.procName.equals("@AdHocExecute")) {
+            // The first parameter is the handle from @AdHocPrepare
+            if (params.toArray().length < 1 || !(params.toArray()[0] instanceof Number)) {
+                return new ClientResponseImpl(ClientResponseImpl.GRACEFUL_FAILURE,
+                        new VoltTable[0],
+                        "@AdHocExecute requires the statement handle as its first parameter.",
+                        invocation.clientHandle);
+            }
+            return null;
+        }
+
         // Make sure there is at least 1 parameter!  ENG-4921
         if (params.toArray().length < 1) {
             return new ClientResponseImpl(ClientResponseImpl.GRACEFUL_FAILURE,
@@ -85,6 +85,11 @@ public class CatalogContext {
     // Some people may be interested in the JAXB rather than the raw deployment bytes.
     private DeploymentType m_memoizedDeployment;
 
+    // Binary catalog the sites starting together load into their EEs, and how
+    // many of them have yet to get it.
+    private byte[] m_sharedCatalogBinary;
+    private int m_catalogBinaryUsers = 0;
+
     public CatalogContext(
             long transactionId,
             long uniqueId,
@@ -237,6 +242,35 @@ public class CatalogContext {
         return m_memoizedDeployment;
     }
 
+    /**
+     * Share one read-only copy of the binary catalog between the given number of
+     * sites about to load it into their EEs. It is serialized for the first of them
+     * and released once the last one got it.
+     */
+    public synchronized void shareCatalogBinary(int sites)
+    {
+        m_catalogBinaryUsers = sites;
+        if (m_catalogBinaryUsers <= 0) {
+            m_sharedCatalogBinary = null;
+        }
+    }
+
+    /**
+     * Get the binary form of the catalog for an EE, the shared copy while sites
+     * are sharing it, or else serialized for this caller alone.
+     */
+    public synchronized byte[] getCatalogBinary()
+    {
+        byte[] binary = m_sharedCatalogBinary;
+        if (binary == null) {
+            binary = catalog.serializeBinary();
+        }
+        if (m_catalogBinaryUsers > 0) {
+            m_sharedCatalogBinary = (--m_catalogBinaryUsers > 0) ? binary : null;
+        }
+        return binary;
+    }
+
     /**
      * Get the XML Deployment bytes
      */
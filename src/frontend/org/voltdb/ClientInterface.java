@@ -91,6 +91,7 @@ import org.voltdb.common.Constants;
 import org.voltdb.compiler.AdHocPlannedStatement;
 import org.voltdb.compiler.AdHocPlannedStmtBatch;
 import org.voltdb.compiler.AdHocPlannerWork;
+import org.voltdb.compiler.AdHocPreparedStatementCache;
 import org.voltdb.compiler.AsyncCompilerResult;
 import org.voltdb.compiler.AsyncCompilerWork.AsyncCompilerWorkCompletionHandler;
 import org.voltdb.compiler.CatalogChangeResult;
@@ -99,6 +100,7 @@ import org.voltdb.dtxn.InitiatorStats.InvocationInfo;
 import org.voltdb.iv2.Cartographer;
 import org.voltdb.iv2.Iv2Trace;
 import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.TxnTracer;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2EndOfLogMessage;
@@ -152,6 +154,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
     public static final long SNAPSHOT_UTIL_CID          = Long.MIN_VALUE + 2;
     public static final long ELASTIC_JOIN_CID           = Long.MIN_VALUE + 3;
     public static final long DR_REPLICATION_CID         = Long.MIN_VALUE + 4;
+    public static final long TTL_MANAGER_CID            = Long.MIN_VALUE + 5;
     // Leave CL_REPLAY_BASE_CID at the end, it uses this as a base and generates more cids
     public static final long CL_REPLAY_BASE_CID         = Long.MIN_VALUE + 100;
 
@@ -266,6 +269,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
 
     private final boolean m_isConfiguredForHSQL;
 
+    // Plans of the statements prepared with @AdHocPrepare, by handle
+    private final AdHocPreparedStatementCache m_preparedAdHoc = new AdHocPreparedStatementCache();
+
     /** A port that accepts client connections */
     public class ClientAcceptor implements Runnable {
         private final int m_port;
@@ -887,6 +893,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         private final InitiateResponseMessage response;
         private final Procedure catProc;
         private ClientResponseImpl clientResponse;
+        // when the response was handed to the network, if the transaction is traced
+        private final long traceStartNanos;
 
         private ClientResponseWork(InitiateResponseMessage response,
                                    ClientInterfaceHandleManager cihm,
@@ -896,6 +904,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             this.clientResponse = response.getClientResponseData();
             this.cihm = cihm;
             this.catProc = catProc;
+            this.traceStartNanos = TxnTracer.isSampled(response.getTxnId()) ? System.nanoTime() : 0;
         }
 
         @Override
@@ -903,6 +912,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         {
             buf.putInt(buf.capacity() - 4);
             clientResponse.flattenToBuffer(buf);
+            if (traceStartNanos != 0) {
+                TxnTracer.recordSpan("ClientInterface.response", response.getTxnId(),
+                        traceStartNanos, System.nanoTime());
+            }
         }
 
         @Override
@@ -937,6 +950,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
 
             final long now = System.nanoTime();
             final long delta = now - clientData.m_creationTimeNanos;
+            if (traceStartNanos != 0) {
+                TxnTracer.recordSpan("ClientInterface.roundtrip", response.getTxnId(),
+                        clientData.m_creationTimeNanos, now);
+            }
 
             /*
              * Log initiator stats
@@ -1505,13 +1522,72 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         return null;
     }
 
+    private final ClientResponseImpl dispatchAdHocPrepare(StoredProcedureInvocation task,
+            ClientInputHandler handler, Connection ccxn, AuthSystem.AuthUser user) {
+        String sql = (String) task.getParams().toArray()[0];
+        List<String> sqlStatements = SQLLexer.splitStatements(sql);
+        // DDL would be run by the planner rather than planned
+        if (sqlStatements.size() != 1 || SQLLexer.extractDDLToken(sqlStatements.get(0)) != null) {
+            return new ClientResponseImpl(ClientResponseImpl.GRACEFUL_FAILURE, new VoltTable[0],
+                    "@AdHocPrepare requires a single SQL query or DML statement.", task.clientHandle);
+        }
+        dispatchAdHocCommon(task, handler, ccxn, ExplainMode.NONE, sql, null, null, user);
+        return null;
+    }
+
+    /**
+     * Run a statement prepared with @AdHocPrepare with the plans kept for its handle,
+     * without a trip through the planner unless the catalog changed since.
+     */
+    private final ClientResponseImpl dispatchAdHocExecute(StoredProcedureInvocation task,
+            ClientInputHandler handler, Connection ccxn, AuthSystem.AuthUser user) {
+        Object[] paramArray = task.getParams().toArray();
+        long handle = ((Number) paramArray[0]).longValue();
+        AdHocPlannedStmtBatch prepared = m_preparedAdHoc.get(handle);
+        if (prepared == null) {
+            return new ClientResponseImpl(ClientResponseImpl.GRACEFUL_FAILURE, new VoltTable[0],
+                    AdHocPreparedStatementCache.UNKNOWN_HANDLE + " " + handle + ".", task.clientHandle);
+        }
+        // The planner checks this for @AdHoc, the kept plans have to be checked here
+        int expectedParams = prepared.getPlannedStatement(0).getQuestionMarkParameterCount();
+        if (paramArray.length - 1 != expectedParams) {
+            return new ClientResponseImpl(ClientResponseImpl.GRACEFUL_FAILURE, new VoltTable[0],
+                    String.format("Incorrect number of parameters passed: expected %d, passed %d",
+                            expectedParams, paramArray.length - 1), task.clientHandle);
+        }
+        Object[] userParams = null;
+        if (paramArray.length > 1) {
+            userParams = Arrays.copyOfRange(paramArray, 1, paramArray.length);
+        }
+        AdHocPlannerWork ahpw = makeAdHocPlannerWork(task, handler, ccxn, ExplainMode.NONE,
+                prepared.getSQLBatchText(), userParams, null, user);
+        processPlannedStmtBatch(new AdHocPlannedStmtBatch(ahpw,
+                                                          prepared.plannedStatements,
+                                                          prepared.partitionParamIndex,
+                                                          prepared.partitionParamType,
+                                                          prepared.partitionParamValue,
+                                                          null),
+                                ccxn);
+        return null;
+    }
+
     private final void dispatchAdHocCommon(StoredProcedureInvocation task,
             ClientInputHandler handler, Connection ccxn, ExplainMode explainMode,
             String sql, Object[] userParams, Object[] userPartitionKey, AuthSystem.AuthUser user) {
+        AdHocPlannerWork ahpw = makeAdHocPlannerWork(task, handler, ccxn, explainMode,
+                sql, userParams, userPartitionKey, user);
+        LocalObjectMessage work = new LocalObjectMessage( ahpw );
+
+        m_mailbox.send(m_plannerSiteId, work);
+    }
+
+    private final AdHocPlannerWork makeAdHocPlannerWork(StoredProcedureInvocation task,
+            ClientInputHandler handler, Connection ccxn, ExplainMode explainMode,
+            String sql, Object[] userParams, Object[] userPartitionKey, AuthSystem.AuthUser user) {
         List<String> sqlStatements = SQLLexer.splitStatements(sql);
         String[] stmtsArray = sqlStatements.toArray(new String[sqlStatements.size()]);
 
-        AdHocPlannerWork ahpw = new AdHocPlannerWork(
+        return new AdHocPlannerWork(
                 m_siteId,
                 task.clientHandle, handler.connectionId(),
                 handler.isAdmin(), ccxn,
@@ -1521,9 +1597,6 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 VoltDB.instance().getReplicationRole() == ReplicationRole.REPLICA,
                 VoltDB.instance().getCatalogContext().cluster.getUseddlschema(),
                 m_adhocCompletionHandler, user);
-        LocalObjectMessage work = new LocalObjectMessage( ahpw );
-
-        m_mailbox.send(m_plannerSiteId, work);
     }
 
     ClientResponseImpl dispatchUpdateApplicationCatalog(StoredProcedureInvocation task,
@@ -1747,7 +1820,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
 
         if (catProc == null) {
             String proc = task.procName;
-            if (task.procName.equals("@AdHoc") || task.procName.equals("@AdHocSpForTest")) {
+            if (task.procName.equals("@AdHoc") || task.procName.equals("@AdHocSpForTest") ||
+                    task.procName.equals("@AdHocPrepare") || task.procName.equals("@AdHocExecute")) {
                 // Map @AdHoc... to @AdHoc_RW_MP for validation. In the future if security is
                 // configured differently for @AdHoc... variants this code will have to
                 // change in order to use the proper variant based on whether the work
@@ -1845,6 +1919,12 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             else if (task.procName.equals("@AdHocSpForTest")) {
                 return dispatchAdHocSpForTest(task, handler, ccxn, false, user);
             }
+            else if (task.procName.equals("@AdHocPrepare")) {
+                return dispatchAdHocPrepare(task, handler, ccxn, user);
+            }
+            else if (task.procName.equals("@AdHocExecute")) {
+                return dispatchAdHocExecute(task, handler, ccxn, user);
+            }
             else if (task.procName.equals("@LoadMultipartitionTable")) {
                 /*
                  * For IV2 DR: This will generate a sentinel for each partition,
@@ -2205,6 +2285,70 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         }
     }
 
+    /*
+     * Run, explain or keep the plans of an ad hoc statement batch, in the network thread
+     * of the connection that sent it.
+     */
+    private void processPlannedStmtBatch(final AdHocPlannedStmtBatch plannedStmtBatch, Connection c) {
+        ExplainMode explainMode = plannedStmtBatch.getExplainMode();
+
+        // assume all stmts have the same catalog version
+        if ((plannedStmtBatch.getPlannedStatementCount() > 0) &&
+            (!plannedStmtBatch.getPlannedStatement(0).core.wasPlannedAgainstHash(m_catalogContext.get().getCatalogHash())))
+        {
+
+            /* The adhoc planner learns of catalog updates after the EE and the
+               rest of the system. If the adhoc sql was planned against an
+               obsolete catalog, re-plan. */
+            LocalObjectMessage work = new LocalObjectMessage(
+                    AdHocPlannerWork.rework(plannedStmtBatch.work, m_adhocCompletionHandler));
+
+            m_mailbox.send(m_plannerSiteId, work);
+        }
+        else if (explainMode == ExplainMode.EXPLAIN_ADHOC) {
+            processExplainPlannedStmtBatch(plannedStmtBatch);
+        }
+        else if (explainMode == ExplainMode.EXPLAIN_DEFAULT_PROC) {
+            processExplainDefaultProc(plannedStmtBatch);
+        }
+        else if (plannedStmtBatch.work.invocationName.equals("@AdHocPrepare")) {
+            m_preparedAdHoc.offer(plannedStmtBatch);
+            VoltTable handle = new VoltTable(new VoltTable.ColumnInfo("HANDLE", VoltType.BIGINT));
+            handle.addRow(AdHocPreparedStatementCache.handleForSql(plannedStmtBatch.getSQLBatchText()));
+            ClientResponseImpl response =
+                new ClientResponseImpl(
+                        ClientResponseImpl.SUCCESS,
+                        new VoltTable[] { handle }, null,
+                        plannedStmtBatch.clientHandle);
+            ByteBuffer buf = ByteBuffer.allocate(response.getSerializedSize() + 4);
+            buf.putInt(buf.capacity() - 4);
+            response.flattenToBuffer(buf);
+            buf.flip();
+            c.writeStream().enqueue(buf);
+        }
+        else {
+            // Single @AdHoc statements are kept too, a later @AdHocExecute may use them
+            m_preparedAdHoc.offer(plannedStmtBatch);
+            try {
+                createAdHocTransaction(plannedStmtBatch, c);
+            }
+            catch (VoltTypeException vte) {
+                String msg = "Unable to execute adhoc sql statement(s): " +
+                        vte.getMessage();
+                ClientResponseImpl errorResponse =
+                    new ClientResponseImpl(
+                            ClientResponseImpl.GRACEFUL_FAILURE,
+                            new VoltTable[0], msg,
+                            plannedStmtBatch.clientHandle);
+                ByteBuffer buf = ByteBuffer.allocate(errorResponse.getSerializedSize() + 4);
+                buf.putInt(buf.capacity() - 4);
+                errorResponse.flattenToBuffer(buf);
+                buf.flip();
+                c.writeStream().enqueue(buf);
+            }
+        }
+    }
+
     /*
      * Invoked from the AsyncCompilerWorkCompletionHandler from the AsyncCompilerAgent thread.
      * Has the effect of immediately handing the completed work to the network thread of the
@@ -2222,47 +2366,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             public void run() {
                 if (result.errorMsg == null) {
                     if (result instanceof AdHocPlannedStmtBatch) {
-                        final AdHocPlannedStmtBatch plannedStmtBatch = (AdHocPlannedStmtBatch) result;
-                        ExplainMode explainMode = plannedStmtBatch.getExplainMode();
-
-                        // assume all stmts have the same catalog version
-                        if ((plannedStmtBatch.getPlannedStatementCount() > 0) &&
-                            (!plannedStmtBatch.getPlannedStatement(0).core.wasPlannedAgainstHash(m_catalogContext.get().getCatalogHash())))
-                        {
-
-                            /* The adhoc planner learns of catalog updates after the EE and the
-                               rest of the system. If the adhoc sql was planned against an
-                               obsolete catalog, re-plan. */
-                            LocalObjectMessage work = new LocalObjectMessage(
-                                    AdHocPlannerWork.rework(plannedStmtBatch.work, m_adhocCompletionHandler));
-
-                            m_mailbox.send(m_plannerSiteId, work);
-                        }
-                        else if (explainMode == ExplainMode.EXPLAIN_ADHOC) {
-                            processExplainPlannedStmtBatch(plannedStmtBatch);
-                        }
-                        else if (explainMode == ExplainMode.EXPLAIN_DEFAULT_PROC) {
-                            processExplainDefaultProc(plannedStmtBatch);
-                        }
-                        else {
-                            try {
-                                createAdHocTransaction(plannedStmtBatch, c);
-                            }
-                            catch (VoltTypeException vte) {
-                                String msg = "Unable to execute adhoc sql statement(s): " +
-                                        vte.getMessage();
-                                ClientResponseImpl errorResponse =
-                                    new ClientResponseImpl(
-                                            ClientResponseImpl.GRACEFUL_FAILURE,
-                                            new VoltTable[0], msg,
-                                            result.clientHandle);
-                                ByteBuffer buf = ByteBuffer.allocate(errorResponse.getSerializedSize() + 4);
-                                buf.putInt(buf.capacity() - 4);
-                                errorResponse.flattenToBuffer(buf);
-                                buf.flip();
-                                c.writeStream().enqueue(buf);
-                            }
-                        }
+                        processPlannedStmtBatch((AdHocPlannedStmtBatch) result, c);
                     }
                     else if (result instanceof CatalogChangeResult) {
                         final CatalogChangeResult changeResult = (CatalogChangeResult) result;
@@ -2396,6 +2500,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
 
     private ScheduledFuture<?> m_deadConnectionFuture;
     private ScheduledFuture<?> m_topologyCheckFuture;
+    private TTLManager m_ttlManager;
     public void schedulePeriodicWorks() {
         m_deadConnectionFuture = VoltDB.instance().scheduleWork(new Runnable() {
             @Override
@@ -2420,6 +2525,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 checkForTopologyChanges();
             }
         }, 0, TOPOLOGY_CHANGE_CHECK_MS, TimeUnit.MILLISECONDS);
+
+        // Delete the expired rows of the tables declared with USING TTL
+        m_ttlManager = new TTLManager(this, m_cartographer, CoreUtils.getHostIdFromHSId(m_mailbox.getHSId()));
+        m_ttlManager.start();
     }
 
     /*
@@ -2562,6 +2671,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         if (m_maxConnectionUpdater != null) {
             m_maxConnectionUpdater.cancel(false);
         }
+        if (m_ttlManager != null) {
+            m_ttlManager.shutdown();
+        }
         if (m_acceptor != null) {
             m_acceptor.shutdown();
         }
@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONString;
 import org.json_voltpatches.JSONStringer;
+import org.json_voltpatches.JSONWriter;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ClientUtils;
 import org.voltdb.common.Constants;
@@ -141,6 +142,15 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     }
 
     public void initFromBuffer(ByteBuffer buf) throws IOException {
+        initHeaderFromBuffer(buf);
+        initResultsFromBuffer(buf);
+    }
+
+    /**
+     * Read the fields in front of the result tables, leaving the buffer positioned
+     * at the tables for {@link #initResultsFromBuffer(ByteBuffer)}.
+     */
+    public void initHeaderFromBuffer(ByteBuffer buf) throws IOException {
         buf.get();//Skip version byte
         clientHandle = buf.getLong();
         byte presentFields = buf.get();
@@ -165,6 +175,12 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         } else {
             m_hash = null;
         }
+    }
+
+    /**
+     * Read the result tables, which are views of the buffer rather than copies.
+     */
+    public void initResultsFromBuffer(ByteBuffer buf) {
         int tableCount = buf.getShort();
         results = new VoltTable[tableCount];
         for (int i = 0; i < tableCount; i++) {
@@ -292,24 +308,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     public String toJSONString() {
         JSONStringer js = new JSONStringer();
         try {
-            js.object();
-
-            js.key(JSON_STATUS_KEY);
-            js.value(status);
-            js.key(JSON_APPSTATUS_KEY);
-            js.value(appStatus);
-            js.key(JSON_STATUSSTRING_KEY);
-            js.value(statusString);
-            js.key(JSON_APPSTATUSSTRING_KEY);
-            js.value(appStatusString);
-            js.key(JSON_RESULTS_KEY);
-            js.array();
-            for (VoltTable o : results) {
-                js.value(o);
-            }
-            js.endArray();
-
-            js.endObject();
+            toJSONWriter(js);
         }
         catch (JSONException e) {
             e.printStackTrace();
@@ -318,6 +317,36 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         return js.toString();
     }
 
+    /**
+     * Write the JSON representation of the response, the one returned by
+     * {@link #toJSONString()}, with a JSONWriter, table by table.
+     */
+    public void toJSONWriter(JSONWriter js) throws JSONException {
+        js.object();
+
+        js.key(JSON_STATUS_KEY);
+        js.value(status);
+        js.key(JSON_APPSTATUS_KEY);
+        js.value(appStatus);
+        js.key(JSON_STATUSSTRING_KEY);
+        js.value(statusString);
+        js.key(JSON_APPSTATUSSTRING_KEY);
+        js.value(appStatusString);
+        js.key(JSON_RESULTS_KEY);
+        js.array();
+        for (VoltTable o : results) {
+            if (o == null) {
+                js.value(null);
+            }
+            else {
+                o.toJSONWriter(js);
+            }
+        }
+        js.endArray();
+
+        js.endObject();
+    }
+
     /**
      * @return MD5 hash as int of the tables in the result. Only hashes first bits of big results.
      */
@@ -424,7 +424,8 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         Future<BBContainer> compressionTask = null;
         if (prependLength) {
             BBContainer cont =
-                    DBBPool.allocateDirectAndPool(SnapshotSiteProcessor.m_snapshotBufferCompressedLen);
+                    DBBPool.allocateDirectAndPool(SnapshotSiteProcessor.m_snapshotBufferCompressedLen,
+                            DBBPool.MemoryUse.SNAPSHOT);
             //Skip 4-bytes so the partition ID is not compressed
             //That way if we detect a corruption we know what partition is bad
             tupleData.position(tupleData.position() + 4);
@@ -573,6 +573,13 @@ public class ElasticHashinator extends TheHashinator {
         }
     }
 
+    /**
+     * @return bytes of native memory held by the token rings of the hashinators not yet collected
+     */
+    public static long getAllocatedHashinatorBytes() {
+        return m_allocatedHashinatorBytes.get();
+    }
+
     /**
      * Return (cooked) bytes optimized for serialization.
      * @return optimized config bytes
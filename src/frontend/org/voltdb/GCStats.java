@@ -0,0 +1,251 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.HdrHistogram_voltpatches.Histogram;
+import org.HdrHistogram_voltpatches.HistogramData;
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.VoltTable.ColumnInfo;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+/**
+ * The collections of each garbage collector of the JVM, as the JVM notifies them.
+ *
+ * A collection is timed by the duration the JVM reports for it. For the stop the world
+ * collectors that is a pause, counted in PAUSE_TIME and its percentiles. For the concurrent
+ * collectors it is a whole cycle that mostly ran alongside the application, counted in
+ * CYCLE_TIME only, as the JVM doesn't report the short pauses of its phases. What was
+ * allocated on the heap between the end of a collection and the start of the next is put
+ * down to the collector of the next, so the ALLOCATED_BYTES and ALLOCATION_RATE of all the
+ * rows add up to those of the JVM.
+ */
+public class GCStats extends StatsSource {
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+
+    private static final long MAX_PAUSE_MILLIS = 60L * 60L * 1000L;
+
+    private static class GCCounters {
+        long collections = 0;
+        long pauseMillis = 0;
+        long cycleMillis = 0;
+        long allocatedBytes = 0;
+        final Histogram pauses = new Histogram(MAX_PAUSE_MILLIS, 2);
+
+        void add(GCCounters other) {
+            collections += other.collections;
+            pauseMillis += other.pauseMillis;
+            cycleMillis += other.cycleMillis;
+            allocatedBytes += other.allocatedBytes;
+            pauses.add(other.pauses);
+        }
+
+        void reset() {
+            collections = 0;
+            pauseMillis = 0;
+            cycleMillis = 0;
+            allocatedBytes = 0;
+            pauses.reset();
+        }
+    }
+
+    // collections since the last interval poll, and up to it, by collector
+    private final Map<String, GCCounters> m_current = new TreeMap<String, GCCounters>();
+    private final Map<String, GCCounters> m_accumulated = new TreeMap<String, GCCounters>();
+
+    private final Set<String> m_heapPools = new HashSet<String>();
+    private long m_heapUsedAfterLastGC = 0;
+
+    private final long m_startTime = System.currentTimeMillis();
+    private long m_lastIntervalTime = m_startTime;
+
+    // the rows of the poll in progress and the time they cover
+    private Map<String, GCCounters> m_rows = null;
+    private long m_rowsMillis = 0;
+
+    public GCStats() {
+        super(false);
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                m_heapPools.add(pool.getName());
+                m_heapUsedAfterLastGC += pool.getUsage().getUsed();
+            }
+        }
+
+        NotificationListener listener = new NotificationListener() {
+            @Override
+            public void handleNotification(Notification notification, Object handback) {
+                if (notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                    collected(GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()));
+                }
+            }
+        };
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            m_current.put(gc.getName(), new GCCounters());
+            m_accumulated.put(gc.getName(), new GCCounters());
+            if (gc instanceof NotificationEmitter) {
+                ((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+            }
+            else {
+                hostLog.info("The collections of garbage collector " + gc.getName() + " can't be counted");
+            }
+        }
+    }
+
+    private long heapUsed(Map<String, MemoryUsage> usage) {
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> pool : usage.entrySet()) {
+            if (m_heapPools.contains(pool.getKey())) {
+                used += pool.getValue().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Whether the collections of the named collector run concurrently with the application,
+     * CMS and the cycles of the concurrent collectors of later JVMs, rather than pause it.
+     */
+    static boolean isConcurrentCollector(String gcName) {
+        return gcName.equals("ConcurrentMarkSweep") || gcName.contains("Concurrent") || gcName.endsWith("Cycles");
+    }
+
+    private void collected(GarbageCollectionNotificationInfo info) {
+        GcInfo gcInfo = info.getGcInfo();
+        collected(info.getGcName(), gcInfo.getDuration(),
+                  heapUsed(gcInfo.getMemoryUsageBeforeGc()), heapUsed(gcInfo.getMemoryUsageAfterGc()));
+    }
+
+    synchronized void collected(String gcName, long durationMillis, long heapUsedBefore, long heapUsedAfter) {
+        GCCounters counters = m_current.get(gcName);
+        if (counters == null) {
+            counters = new GCCounters();
+            m_current.put(gcName, counters);
+            m_accumulated.put(gcName, new GCCounters());
+        }
+        long duration = Math.max(0, Math.min(durationMillis, MAX_PAUSE_MILLIS));
+        counters.collections++;
+        if (isConcurrentCollector(gcName)) {
+            counters.cycleMillis += duration;
+        }
+        else {
+            counters.pauseMillis += duration;
+            counters.pauses.recordValue(duration);
+        }
+        counters.allocatedBytes += Math.max(0, heapUsedBefore - m_heapUsedAfterLastGC);
+        m_heapUsedAfterLastGC = heapUsedAfter;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("COLLECTOR", VoltType.STRING));
+        columns.add(new ColumnInfo("COLLECTIONS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PAUSE_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PAUSE_P50", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PAUSE_P99", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PAUSE_MAX", VoltType.BIGINT));
+        columns.add(new ColumnInfo("CYCLE_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("ALLOCATED_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("ALLOCATION_RATE", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final GCCounters counters = m_rows.get(rowKey);
+        rowValues[columnNameToIndex.get("COLLECTOR")] = rowKey;
+        rowValues[columnNameToIndex.get("COLLECTIONS")] = counters.collections;
+        rowValues[columnNameToIndex.get("PAUSE_TIME")] = counters.pauseMillis;
+        if (counters.pauses.getHistogramData().getTotalCount() == 0) {
+            // an empty histogram has no percentiles
+            rowValues[columnNameToIndex.get("PAUSE_P50")] = 0L;
+            rowValues[columnNameToIndex.get("PAUSE_P99")] = 0L;
+            rowValues[columnNameToIndex.get("PAUSE_MAX")] = 0L;
+        }
+        else {
+            final HistogramData pauses = counters.pauses.getHistogramData();
+            rowValues[columnNameToIndex.get("PAUSE_P50")] = pauses.getValueAtPercentile(50.0);
+            rowValues[columnNameToIndex.get("PAUSE_P99")] = pauses.getValueAtPercentile(99.0);
+            rowValues[columnNameToIndex.get("PAUSE_MAX")] = pauses.getMaxValue();
+        }
+        rowValues[columnNameToIndex.get("CYCLE_TIME")] = counters.cycleMillis;
+        rowValues[columnNameToIndex.get("ALLOCATED_BYTES")] = counters.allocatedBytes;
+        // bytes per second
+        rowValues[columnNameToIndex.get("ALLOCATION_RATE")] =
+                m_rowsMillis == 0 ? 0 : counters.allocatedBytes * 1000 / m_rowsMillis;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        long now = System.currentTimeMillis();
+        m_rows = new TreeMap<String, GCCounters>();
+        for (Map.Entry<String, GCCounters> e : m_current.entrySet()) {
+            GCCounters row = new GCCounters();
+            row.add(e.getValue());
+            if (interval) {
+                m_accumulated.get(e.getKey()).add(e.getValue());
+                e.getValue().reset();
+            }
+            else {
+                row.add(m_accumulated.get(e.getKey()));
+            }
+            m_rows.put(e.getKey(), row);
+        }
+        m_rowsMillis = now - (interval ? m_lastIntervalTime : m_startTime);
+        if (interval) {
+            m_lastIntervalTime = now;
+        }
+
+        final Iterator<String> i = m_rows.keySet().iterator();
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return i.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return i.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -18,6 +18,7 @@
 package org.voltdb;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -27,6 +28,8 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.jetty.continuation.Continuation;
 import org.eclipse.jetty.continuation.ContinuationSupport;
 import org.eclipse.jetty.server.Request;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONWriter;
 import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.EstTime;
@@ -46,7 +49,7 @@ public class HTTPClientInterface {
     private static final VoltLogger m_log = new VoltLogger("HOST");
     private static final RateLimitedLogger m_rate_limited_log = new RateLimitedLogger(10 * 1000, m_log, Level.WARN);
 
-    AuthenticatedConnectionCache m_connections = null;
+    volatile AuthenticatedConnectionCache m_connections = null;
     static final int CACHE_TARGET_SIZE = 10;
     private final AtomicBoolean m_shouldUpdateCatalog = new AtomicBoolean(false);
 
@@ -80,16 +83,9 @@ public class HTTPClientInterface {
 
         @Override
         public void clientCallback(ClientResponse clientResponse) throws Exception {
-            ClientResponseImpl rimpl = (ClientResponseImpl) clientResponse;
-            String msg = rimpl.toJSONString();
-
-            // handle jsonp pattern
-            // http://en.wikipedia.org/wiki/JSON#The_Basic_Idea:_Retrieving_JSON_via_Script_Tags
-            if (m_jsonp != null) {
-                msg = String.format("%s( %s )", m_jsonp, msg);
-            }
-
-            m_request.setAttribute("result", msg);
+            // The response is encoded when it is written out, on the resumed request
+            m_request.setAttribute("result", clientResponse);
+            m_request.setAttribute("jsonp", m_jsonp);
             if (!m_continuation.isInitial()) try {
                 m_continuation.resume();
             } catch (IllegalStateException e) {
@@ -114,12 +110,12 @@ public class HTTPClientInterface {
         if (m_timeout > 0) {
             continuation.setTimeout(m_timeout);
         }
-        String result = (String )request.getAttribute("result");
+        ClientResponseImpl result = (ClientResponseImpl) request.getAttribute("result");
         if (result != null) {
             try {
                 response.setStatus(HttpServletResponse.SC_OK);
                 request.setHandled(true);
-                response.getWriter().print(result);
+                writeResponse(response, result, (String) request.getAttribute("jsonp"));
             } catch (IllegalStateException | IOException e){
                // Thrown when we shut down the server via the JSON/HTTP (web studio) API
                // Essentially we're closing everything down from underneath the HTTP request.
@@ -165,14 +161,10 @@ public class HTTPClientInterface {
             if (!authResult.isAuthenticated()) {
                 String msg = authResult.m_message;
                 ClientResponseImpl rimpl = new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0], msg);
-                msg = rimpl.toJSONString();
-                if (jsonp != null) {
-                    msg = String.format("%s( %s )", jsonp, msg);
-                }
                 response.setStatus(HttpServletResponse.SC_OK);
                 request.setHandled(true);
                 try {
-                    response.getWriter().print(msg);
+                    writeResponse(response, rimpl, jsonp);
                 } catch (IOException e1) {} // Ignore this as browser must have closed.
                 return;
             }
@@ -217,14 +209,10 @@ public class HTTPClientInterface {
             }
             m_rate_limited_log.log("JSON interface exception: " + msg, EstTime.currentTimeMillis());
             ClientResponseImpl rimpl = new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0], msg);
-            msg = rimpl.toJSONString();
-            if (jsonp != null) {
-                msg = String.format("%s( %s )", jsonp, msg);
-            }
             response.setStatus(HttpServletResponse.SC_OK);
             request.setHandled(true);
             try {
-                response.getWriter().print(msg);
+                writeResponse(response, rimpl, jsonp);
                 if (suspended) {
                     continuation.complete();
                 }
@@ -234,6 +222,74 @@ public class HTTPClientInterface {
         }
     }
 
+    /**
+     * Encode the response as JSON straight into the servlet writer, table by table,
+     * rather than building the JSON text of the whole response as a string first.
+     */
+    static void writeResponse(HttpServletResponse response, ClientResponseImpl clientResponse, String jsonp)
+            throws IOException {
+        PrintWriter writer = response.getWriter();
+        // handle jsonp pattern
+        // http://en.wikipedia.org/wiki/JSON#The_Basic_Idea:_Retrieving_JSON_via_Script_Tags
+        if (jsonp != null) {
+            writer.write(jsonp);
+            writer.write("( ");
+        }
+        try {
+            clientResponse.toJSONWriter(new JSONWriter(writer));
+        } catch (JSONException e) {
+            throw new IOException("Failed to serialize the response to JSON", e);
+        }
+        if (jsonp != null) {
+            writer.write(" )");
+        }
+    }
+
+    // The connection cache, created again after a catalog update.
+    private AuthenticatedConnectionCache getConnections() {
+        // first check for a catalog update and purge the cached connections
+        // if one has happened since we were here last
+        if (m_shouldUpdateCatalog.compareAndSet(true, false))
+        {
+            synchronized (this) {
+                if (m_connections != null) {
+                    m_connections.closeAll();
+                    // Just null the old object so we'll create a new one with
+                    // updated state below
+                    m_connections = null;
+                }
+            }
+        }
+
+        AuthenticatedConnectionCache connections = m_connections;
+        if (connections != null) {
+            return connections;
+        }
+        synchronized (this) {
+            if (m_connections == null) {
+                Configuration config = VoltDB.instance().getConfig();
+                int port = config.m_port;
+                int adminPort = config.m_adminPort;
+                String externalInterface = config.m_externalInterface;
+                String adminInterface = "localhost";
+                String clientInterface = "localhost";
+                if (externalInterface != null && !externalInterface.isEmpty()) {
+                    clientInterface = externalInterface;
+                    adminInterface = externalInterface;
+                }
+                //If individual override is available use them.
+                if (config.m_clientInterface.length() > 0) {
+                    clientInterface = config.m_clientInterface;
+                }
+                if (config.m_adminInterface.length() > 0) {
+                    adminInterface = config.m_adminInterface;
+                }
+                m_connections = new AuthenticatedConnectionCache(10, clientInterface, port, adminInterface, adminPort);
+            }
+            return m_connections;
+        }
+    }
+
     private AuthenticationResult getAuthenticationResult(Request request) {
         boolean adminMode = false;
 
@@ -271,38 +327,7 @@ public class HTTPClientInterface {
         }
         String admin = request.getParameter(PARAM_ADMIN);
 
-        // first check for a catalog update and purge the cached connections
-        // if one has happened since we were here last
-        if (m_shouldUpdateCatalog.compareAndSet(true, false))
-        {
-            if (m_connections != null) {
-                m_connections.closeAll();
-                // Just null the old object so we'll create a new one with
-                // updated state below
-                m_connections = null;
-            }
-        }
-
-        if (m_connections == null) {
-            Configuration config = VoltDB.instance().getConfig();
-            int port = config.m_port;
-            int adminPort = config.m_adminPort;
-            String externalInterface = config.m_externalInterface;
-            String adminInterface = "localhost";
-            String clientInterface = "localhost";
-            if (externalInterface != null && !externalInterface.isEmpty()) {
-                clientInterface = externalInterface;
-                adminInterface = externalInterface;
-            }
-            //If individual override is available use them.
-            if (config.m_clientInterface.length() > 0) {
-                clientInterface = config.m_clientInterface;
-            }
-            if (config.m_adminInterface.length() > 0) {
-                adminInterface = config.m_adminInterface;
-            }
-            m_connections = new AuthenticatedConnectionCache(10, clientInterface, port, adminInterface, adminPort);
-        }
+        AuthenticatedConnectionCache connections = getConnections();
 
         // check for admin mode
         if (admin != null) {
@@ -345,7 +370,7 @@ public class HTTPClientInterface {
 
         try {
             // get a connection to localhost from the pool
-            Client client = m_connections.getClient(username, password, hashedPasswordBytes, adminMode);
+            Client client = connections.getClient(username, password, hashedPasswordBytes, adminMode);
             if (client != null) {
                 return new AuthenticationResult(client, adminMode, username, "");
             }
@@ -42,6 +42,8 @@ public class InvocationValidator {
         // NOTE: These "policies" are really parameter correctness checks, not permissions
         registerValidationPolicy("@AdHoc", new AdHocAcceptancePolicy(true));
         registerValidationPolicy("@AdHocSpForTest", new AdHocAcceptancePolicy(true));
+        registerValidationPolicy("@AdHocPrepare", new AdHocAcceptancePolicy(true));
+        registerValidationPolicy("@AdHocExecute", new AdHocAcceptancePolicy(true));
         registerValidationPolicy("@UpdateApplicationCatalog", new UpdateCatalogAcceptancePolicy(true));
         registerValidationPolicy("@UpdateClasses", new UpdateClassesAcceptancePolicy(true));
     }
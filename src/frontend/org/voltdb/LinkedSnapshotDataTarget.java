@@ -0,0 +1,137 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool.BBContainer;
+
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
+/**
+ * Target of a table that an incremental snapshot carries over from its base
+ * because the table has not changed since. Nothing is streamed to it, the file
+ * of the base snapshot is hard linked under the name of the new snapshot, or
+ * copied where the file system can't link it, so every snapshot stays complete
+ * on its own and deleting the base does not affect it.
+ */
+public class LinkedSnapshotDataTarget implements SnapshotDataTarget {
+    private static final VoltLogger SNAP_LOG = new VoltLogger("SNAPSHOT");
+
+    private final File m_baseFile;
+    private final File m_file;
+    private long m_bytesWritten = 0;
+    private Runnable m_onCloseTask;
+    private volatile Throwable m_writeException = null;
+
+    public LinkedSnapshotDataTarget(File baseFile, File file) {
+        m_baseFile = baseFile;
+        m_file = file;
+    }
+
+    /**
+     * Create the file of the new snapshot, done once by the snapshot IO thread
+     * during setup so that the base may be deleted any time after.
+     */
+    public void link() {
+        try {
+            try {
+                Files.createLink(m_file.toPath(), m_baseFile.toPath());
+            } catch (FileSystemException e) {
+                SNAP_LOG.info("Unable to link " + m_file + " to " + m_baseFile + ", copying it instead: " + e);
+                Files.copy(m_baseFile.toPath(), m_file.toPath());
+            } catch (UnsupportedOperationException e) {
+                Files.copy(m_baseFile.toPath(), m_file.toPath());
+            }
+            m_bytesWritten = m_file.length();
+        } catch (Throwable t) {
+            SNAP_LOG.error("Error carrying snapshot file " + m_baseFile + " over to " + m_file, t);
+            m_writeException = t;
+        }
+    }
+
+    public File getFile() {
+        return m_file;
+    }
+
+    @Override
+    public int getHeaderSize() {
+        return 0;
+    }
+
+    @Override
+    public ListenableFuture<?> write(Callable<BBContainer> tupleData, int tableId) {
+        // The file is carried over whole, anything streamed to it is dropped
+        try {
+            BBContainer container = tupleData.call();
+            if (container != null) {
+                container.discard();
+            }
+        } catch (Exception e) {
+            m_writeException = e;
+            return Futures.immediateFailedFuture(e);
+        }
+        return Futures.immediateFuture(null);
+    }
+
+    @Override
+    public boolean needsFinalClose() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        m_onCloseTask.run();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return m_bytesWritten;
+    }
+
+    @Override
+    public void setOnCloseHandler(Runnable onClose) {
+        m_onCloseTask = onClose;
+    }
+
+    @Override
+    public Throwable getLastWriteException() {
+        return m_writeException;
+    }
+
+    @Override
+    public SnapshotFormat getFormat() {
+        return SnapshotFormat.NATIVE;
+    }
+
+    @Override
+    public String toString() {
+        return m_file.toString();
+    }
+
+    @Override
+    public int getInContainerRowCount(BBContainer tupleData) {
+        return SnapshotDataTarget.ROW_COUNT_UNSUPPORTED;
+    }
+}
@@ -0,0 +1,110 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.MemoryUse;
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * The memory outside of the Java heap held by each subsystem of this host, as accounted
+ * for by DBBPool, plus the token rings of the hashinators. The JVM row is every direct
+ * buffer the JVM knows of, counted by a subsystem or not. The memory of the tables and
+ * indexes of the EE is in the MEMORY statistics.
+ *
+ * The memory held is always current, the allocations are counted since the last interval
+ * poll for interval polls. There is no count of the allocations of the HASHINATOR and JVM rows.
+ */
+public class OffHeapStats extends StatsSource {
+
+    static final String HASHINATOR = "HASHINATOR";
+    static final String JVM = "JVM";
+
+    private final long[] m_lastAllocationCounts = new long[MemoryUse.values().length];
+    private final long[] m_allocationCounts = new long[MemoryUse.values().length];
+
+    private final BufferPoolMXBean m_directPool;
+
+    public OffHeapStats() {
+        super(false);
+        BufferPoolMXBean directPool = null;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                directPool = pool;
+            }
+        }
+        m_directPool = directPool;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("SUBSYSTEM", VoltType.STRING));
+        columns.add(new ColumnInfo("DIRECT_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("NATIVE_BYTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("ALLOCATIONS", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        if (rowKey instanceof MemoryUse) {
+            MemoryUse use = (MemoryUse) rowKey;
+            rowValues[columnNameToIndex.get("SUBSYSTEM")] = use.name();
+            rowValues[columnNameToIndex.get("DIRECT_BYTES")] = DBBPool.getDirectBytesAllocated(use);
+            rowValues[columnNameToIndex.get("NATIVE_BYTES")] = DBBPool.getNativeBytesAllocated(use);
+            rowValues[columnNameToIndex.get("ALLOCATIONS")] = m_allocationCounts[use.ordinal()];
+        }
+        else if (rowKey.equals(HASHINATOR)) {
+            rowValues[columnNameToIndex.get("SUBSYSTEM")] = HASHINATOR;
+            rowValues[columnNameToIndex.get("DIRECT_BYTES")] = 0L;
+            rowValues[columnNameToIndex.get("NATIVE_BYTES")] = ElasticHashinator.getAllocatedHashinatorBytes();
+            rowValues[columnNameToIndex.get("ALLOCATIONS")] = null;
+        }
+        else {
+            rowValues[columnNameToIndex.get("SUBSYSTEM")] = JVM;
+            rowValues[columnNameToIndex.get("DIRECT_BYTES")] = m_directPool.getMemoryUsed();
+            rowValues[columnNameToIndex.get("NATIVE_BYTES")] = 0L;
+            rowValues[columnNameToIndex.get("ALLOCATIONS")] = null;
+        }
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        List<Object> rows = new ArrayList<Object>();
+        for (MemoryUse use : MemoryUse.values()) {
+            long count = DBBPool.getAllocationCount(use);
+            m_allocationCounts[use.ordinal()] = interval ? count - m_lastAllocationCounts[use.ordinal()] : count;
+            if (interval) {
+                m_lastAllocationCounts[use.ordinal()] = count;
+            }
+            rows.add(use);
+        }
+        rows.add(HASHINATOR);
+        if (m_directPool != null) {
+            rows.add(JVM);
+        }
+        return rows.iterator();
+    }
+}
@@ -121,7 +121,7 @@ public class PartitionDRGateway {
                                    ClientResponseImpl response) {}
     public void onBinaryDR(int partitionId, long startSequenceNumber, long lastSequenceNumber, long lastUniqueId, ByteBuffer buf) {
         final BBContainer cont = DBBPool.wrapBB(buf);
-        DBBPool.registerUnsafeMemory(cont.address());
+        DBBPool.registerUnsafeMemory(cont.address(), buf.capacity(), DBBPool.MemoryUse.DR);
         cont.discard();
     }
     public void tick(long txnId) {}
@@ -0,0 +1,90 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.planner.ActivePlanRepository;
+
+/**
+ * What the executors of the plan fragments cached in the EE of a site did, counted
+ * while plan node profiling is on (-DEE_PLANNODE_PROFILING=true). There is a row for
+ * each plan node of each fragment that ran.
+ *
+ * The EE knows fragments by id only, so the site adds the text of their statement.
+ * It is the SQL_STATEMENT of @ExplainProc, and PLAN_NODE_ID is the id of the node
+ * in the plan of that statement.
+ */
+public class PlanNodeStats extends SiteStatsSource {
+    public PlanNodeStats(long siteId) {
+        super(siteId, true);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return null;
+    }
+
+    // Everything but STATEMENT comes from the EE schema, keep them in sync.
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("PARTITION_ID", VoltType.BIGINT));
+        columns.add(new ColumnInfo("FRAGMENT_ID", VoltType.BIGINT));
+        columns.add(new ColumnInfo("STATEMENT", VoltType.STRING));
+        columns.add(new ColumnInfo("PLAN_NODE_ID", VoltType.INTEGER));
+        columns.add(new ColumnInfo("PLAN_NODE_TYPE", VoltType.STRING));
+        columns.add(new ColumnInfo("INVOCATIONS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("TUPLES_IN", VoltType.BIGINT));
+        columns.add(new ColumnInfo("TUPLES_OUT", VoltType.BIGINT));
+        columns.add(new ColumnInfo("EXECUTION_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("INDEX_PROBES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("TEMP_TABLE_BYTES", VoltType.BIGINT));
+    }
+
+    /**
+     * Cache the statistics from the EE, with the statement of each fragment.
+     */
+    public void setEEStats(VoltTable eeStats) {
+        ArrayList<ColumnInfo> columns = new ArrayList<ColumnInfo>();
+        populateColumnSchema(columns);
+        VoltTable stats = new VoltTable(columns.toArray(new ColumnInfo[columns.size()]));
+        int[] eeColumns = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            String name = columns.get(i).name;
+            eeColumns[i] = name.equals("STATEMENT") ? -1 : eeStats.getColumnIndex(name);
+        }
+
+        eeStats.resetRowPosition();
+        while (eeStats.advanceRow()) {
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                if (eeColumns[i] < 0) {
+                    row[i] = ActivePlanRepository.getStmtTextForFragmentId(eeStats.getLong("FRAGMENT_ID"));
+                }
+                else {
+                    row[i] = eeStats.get(eeColumns[i], columns.get(i).type);
+                }
+            }
+            stats.addRow(row);
+        }
+        setStatsTable(stats);
+    }
+}
@@ -0,0 +1,187 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.HdrHistogram_voltpatches.Histogram;
+import org.voltcore.utils.CompressionStrategySnappy;
+import org.voltdb.catalog.Procedure;
+
+/**
+ * Histogram of the execution time, in microseconds, of every invocation of a user
+ * procedure at a site. The site thread records into a plain histogram that the
+ * statistics swap out on every poll, and ship serialized for StatsAgent to merge
+ * across the partitions and hosts of the cluster into the percentiles of
+ * PROCEDURELATENCY. No histogram is allocated until the procedure is invoked.
+ */
+class ProcedureLatencyStatsCollector extends SiteStatsSource {
+
+    /**
+     * Execution times are tracked up to 10 seconds, longer ones are recorded as 10 seconds
+     */
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(10);
+
+    /**
+     * Invocations the site records into until the next poll swaps it out, null until
+     * the first invocation after the previous poll
+     */
+    private final AtomicReference<AbstractHistogram> m_recording = new AtomicReference<AbstractHistogram>();
+
+    /**
+     * Odd while the site thread records, so that a poll can wait for the recording
+     * into the histogram it swapped out to finish
+     */
+    private final AtomicLong m_recordingEpoch = new AtomicLong();
+
+    /**
+     * Invocations swapped out since the last interval poll, and up to it
+     */
+    private AbstractHistogram m_interval = null;
+    private AbstractHistogram m_accumulated = null;
+
+    private AbstractHistogram m_rowHistogram = null;
+
+    private final Procedure m_catProc;
+    private final int m_partitionId;
+
+    public ProcedureLatencyStatsCollector(long siteId, int partitionId, Procedure catProc) {
+        super(siteId, false);
+        m_partitionId = partitionId;
+        m_catProc = catProc;
+    }
+
+    static AbstractHistogram constructHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_MICROS, 2);
+    }
+
+    /**
+     * Record the execution time of an invocation, called from the site thread only.
+     */
+    public final void recordExecutionTime(long deltaNanos) {
+        m_recordingEpoch.incrementAndGet();
+        try {
+            AbstractHistogram histogram = m_recording.get();
+            if (histogram == null) {
+                histogram = constructHistogram();
+                m_recording.set(histogram);
+            }
+            histogram.recordValue(Math.max(1, Math.min(TimeUnit.NANOSECONDS.toMicros(deltaNanos),
+                                                       HIGHEST_TRACKABLE_MICROS)));
+        }
+        finally {
+            m_recordingEpoch.incrementAndGet();
+        }
+    }
+
+    /**
+     * Take the histogram the site records into, once the site is done with it,
+     * and add it to the invocations of this interval.
+     */
+    private void swapRecording() {
+        AbstractHistogram recorded = m_recording.getAndSet(null);
+        if (recorded == null) {
+            return;
+        }
+        long epoch = m_recordingEpoch.get();
+        if ((epoch & 1) != 0) {
+            while (m_recordingEpoch.get() == epoch) {
+                Thread.yield();
+            }
+        }
+        if (m_interval == null) {
+            m_interval = recorded;
+        }
+        else {
+            m_interval.add(recorded);
+        }
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+        super.updateStatsRow(rowKey, rowValues);
+        rowValues[columnNameToIndex.get("PARTITION_ID")] = m_partitionId;
+        rowValues[columnNameToIndex.get("PROCEDURE")] = m_catProc.getClassname();
+        rowValues[columnNameToIndex.get("INVOCATIONS")] = m_rowHistogram.getHistogramData().getTotalCount();
+        rowValues[columnNameToIndex.get("HISTOGRAM")] =
+                m_rowHistogram.toCompressedBytes(CompressionStrategySnappy.INSTANCE);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<VoltTable.ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("PARTITION_ID", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("PROCEDURE", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("INVOCATIONS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("HISTOGRAM", VoltType.VARBINARY));
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        swapRecording();
+        if (interval) {
+            m_rowHistogram = m_interval;
+            if (m_interval != null) {
+                if (m_accumulated == null) {
+                    m_accumulated = constructHistogram();
+                }
+                m_accumulated.add(m_interval);
+                m_interval = null;
+            }
+        }
+        else if (m_interval == null) {
+            m_rowHistogram = m_accumulated;
+        }
+        else {
+            m_rowHistogram = m_interval.copy();
+            if (m_accumulated != null) {
+                m_rowHistogram.add(m_accumulated);
+            }
+        }
+        return new Iterator<Object>() {
+            boolean givenNext = m_rowHistogram == null ||
+                                m_rowHistogram.getHistogramData().getTotalCount() == 0;
+            @Override
+            public boolean hasNext() {
+                return !givenNext;
+            }
+
+            @Override
+            public Object next() {
+                if (!givenNext) {
+                    givenNext = true;
+                    return new Object();
+                }
+                return null;
+            }
+
+            @Override
+            public void remove() {}
+        };
+    }
+
+    @Override
+    public String toString() {
+        return m_catProc.getTypeName();
+    }
+}
@@ -218,6 +218,12 @@ public class ProcedureRunner {
                 StatsSelector.PROCEDURE,
                 site.getCorrespondingSiteId(),
                 m_statsCollector);
+        if (m_statsCollector.getLatencyStatsCollector() != null) {
+            VoltDB.instance().getStatsAgent().registerStatsSource(
+                    StatsSelector.PROCEDURELATENCY,
+                    site.getCorrespondingSiteId(),
+                    m_statsCollector.getLatencyStatsCollector());
+        }
 
         reflect();
     }
@@ -71,6 +71,11 @@ class ProcedureStatsCollector extends SiteStatsSource {
      */
     private long m_currentStartTime = -1;
 
+    /**
+     * Whether the current invocation is one of the sampled ones
+     */
+    private boolean m_currentSampled = false;
+
     /**
      * Count of the number of aborts (user initiated or DB initiated)
      */
@@ -127,6 +132,12 @@ class ProcedureStatsCollector extends SiteStatsSource {
     private final Procedure m_catProc;
     private final int m_partitionId;
 
+    /**
+     * Histogram of the execution times of all the invocations, not just the sampled ones,
+     * kept for user procedures only
+     */
+    private final ProcedureLatencyStatsCollector m_latencyStats;
+
     /**
      * Constructor requires no args because it has access to the enclosing classes members.
      */
@@ -134,15 +145,24 @@ class ProcedureStatsCollector extends SiteStatsSource {
         super(siteId, false);
         m_partitionId = partitionId;
         m_catProc = catProc;
+        m_latencyStats = catProc.getSystemproc() ? null :
+            new ProcedureLatencyStatsCollector(siteId, partitionId, catProc);
+    }
+
+    /**
+     * @return the source of the PROCEDURELATENCY statistics of this procedure at this site,
+     * null for a system procedure
+     */
+    public ProcedureLatencyStatsCollector getLatencyStatsCollector() {
+        return m_latencyStats;
     }
 
     /**
      * Called when a procedure begins executing. Caches the time the procedure starts.
      */
     public final void beginProcedure() {
-        if (m_invocations % timeCollectionInterval == 0) {
-            m_currentStartTime = System.nanoTime();
-        }
+        m_currentSampled = (m_invocations % timeCollectionInterval == 0);
+        m_currentStartTime = System.nanoTime();
     }
 
     /**
@@ -155,8 +175,6 @@ class ProcedureStatsCollector extends SiteStatsSource {
             VoltTable[] results,
             ParameterSet parameterSet) {
         if (m_currentStartTime > 0) {
-            // This is a sampled invocation.
-            // Update timings and size statistics.
             final long endTime = System.nanoTime();
             final long delta = endTime - m_currentStartTime;
             if (delta < 0)
@@ -170,34 +188,42 @@ class ProcedureStatsCollector extends SiteStatsSource {
             }
             else
             {
-                m_totalTimedExecutionTime += delta;
-                m_timedInvocations++;
-
-                // sampled timings
-                m_minExecutionTime = Math.min( delta, m_minExecutionTime);
-                m_maxExecutionTime = Math.max( delta, m_maxExecutionTime);
-                m_lastMinExecutionTime = Math.min( delta, m_lastMinExecutionTime);
-                m_lastMaxExecutionTime = Math.max( delta, m_lastMaxExecutionTime);
-
-                // sampled size statistics
-                int resultSize = 0;
-                if (results != null) {
-                    for (VoltTable result : results ) {
-                        resultSize += result.getSerializedSize();
+                if (m_latencyStats != null) {
+                    m_latencyStats.recordExecutionTime(delta);
+                }
+
+                if (m_currentSampled) {
+                    // This is a sampled invocation.
+                    // Update timings and size statistics.
+                    m_totalTimedExecutionTime += delta;
+                    m_timedInvocations++;
+
+                    // sampled timings
+                    m_minExecutionTime = Math.min( delta, m_minExecutionTime);
+                    m_maxExecutionTime = Math.max( delta, m_maxExecutionTime);
+                    m_lastMinExecutionTime = Math.min( delta, m_lastMinExecutionTime);
+                    m_lastMaxExecutionTime = Math.max( delta, m_lastMaxExecutionTime);
+
+                    // sampled size statistics
+                    int resultSize = 0;
+                    if (results != null) {
+                        for (VoltTable result : results ) {
+                            resultSize += result.getSerializedSize();
+                        }
                     }
+                    m_totalResultSize += resultSize;
+                    m_minResultSize = Math.min(resultSize, m_minResultSize);
+                    m_maxResultSize = Math.max(resultSize, m_maxResultSize);
+                    m_lastMinResultSize = Math.min(resultSize, m_lastMinResultSize);
+                    m_lastMaxResultSize = Math.max(resultSize, m_lastMaxResultSize);
+                    long parameterSetSize = (
+                            parameterSet != null ? parameterSet.getSerializedSize() : 0);
+                    m_totalParameterSetSize += parameterSetSize;
+                    m_minParameterSetSize = Math.min(parameterSetSize, m_minParameterSetSize);
+                    m_maxParameterSetSize = Math.max(parameterSetSize, m_maxParameterSetSize);
+                    m_lastMinParameterSetSize = Math.min(parameterSetSize, m_lastMinParameterSetSize);
+                    m_lastMaxParameterSetSize = Math.max(parameterSetSize, m_lastMaxParameterSetSize);
                 }
-                m_totalResultSize += resultSize;
-                m_minResultSize = Math.min(resultSize, m_minResultSize);
-                m_maxResultSize = Math.max(resultSize, m_maxResultSize);
-                m_lastMinResultSize = Math.min(resultSize, m_lastMinResultSize);
-                m_lastMaxResultSize = Math.max(resultSize, m_lastMaxResultSize);
-                long parameterSetSize = (
-                        parameterSet != null ? parameterSet.getSerializedSize() : 0);
-                m_totalParameterSetSize += parameterSetSize;
-                m_minParameterSetSize = Math.min(parameterSetSize, m_minParameterSetSize);
-                m_maxParameterSetSize = Math.max(parameterSetSize, m_maxParameterSetSize);
-                m_lastMinParameterSetSize = Math.min(parameterSetSize, m_lastMinParameterSetSize);
-                m_lastMaxParameterSetSize = Math.max(parameterSetSize, m_lastMaxParameterSetSize);
             }
             m_currentStartTime = -1;
         }
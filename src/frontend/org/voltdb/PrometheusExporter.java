@@ -0,0 +1,183 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.voltcore.logging.VoltLogger;
+
+/**
+ * Renders the statistics of this host in the Prometheus text exposition format,
+ * for the /metrics page of the HTTP interface.
+ *
+ * The statistics come straight from the sources registered with the StatsAgent
+ * of this host, without the fan out of @Statistics to the other hosts. The sources
+ * keep their values up to date as they go, and those of the EE (TABLE and INDEX)
+ * are cached by the sites as they tick, so a scrape never waits on a site thread.
+ * Each host is meant to be scraped on its own, the HOST_ID label tells them apart.
+ *
+ * Every numeric column of a selector is a metric named voltdb_selector_column, the
+ * id and string columns of a row are its labels. The kind of each metric is left
+ * untyped since the statistics don't say which columns are counters.
+ */
+public class PrometheusExporter {
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // the selectors whose sources are cheap to read at any time
+    static final StatsSelector[] EXPORTED_SELECTORS = new StatsSelector[] {
+        StatsSelector.PROCEDURE,
+        StatsSelector.TABLE,
+        StatsSelector.INDEX,
+        StatsSelector.MEMORY,
+        StatsSelector.CPU,
+        StatsSelector.GC,
+        StatsSelector.OFFHEAP,
+        StatsSelector.IOSTATS,
+        StatsSelector.INITIATOR,
+        StatsSelector.LIVECLIENTS,
+        StatsSelector.PLANNER,
+        StatsSelector.STARVATION,
+        StatsSelector.TTL
+    };
+
+    private final StatsAgent m_statsAgent;
+
+    public PrometheusExporter(StatsAgent statsAgent) {
+        m_statsAgent = statsAgent;
+    }
+
+    /**
+     * @return the metrics of all the exported selectors
+     */
+    public String getMetrics() {
+        StringBuilder sb = new StringBuilder(64 * 1024);
+        Long now = System.currentTimeMillis();
+        for (StatsSelector selector : EXPORTED_SELECTORS) {
+            try {
+                VoltTable stats = m_statsAgent.getStatsAggregate(selector, false, now);
+                if (stats != null) {
+                    appendMetrics(sb, selector, stats);
+                }
+            } catch (Exception e) {
+                // leave out what fails rather than fail the scrape
+                hostLog.warn("Unable to export " + selector + " statistics: " + e.getMessage());
+            }
+        }
+        return sb.toString();
+    }
+
+    static boolean isLabelColumn(VoltTable stats, int column) {
+        String name = stats.getColumnName(column);
+        return stats.getColumnType(column) == VoltType.STRING ||
+                name.endsWith("_ID") || name.equals("PARTITIONID");
+    }
+
+    /**
+     * Append one metric family per numeric column of the statistics, with a sample per row.
+     */
+    static void appendMetrics(StringBuilder sb, StatsSelector selector, VoltTable stats) {
+        List<Integer> labelColumns = new ArrayList<Integer>();
+        List<Integer> valueColumns = new ArrayList<Integer>();
+        for (int i = 0; i < stats.getColumnCount(); i++) {
+            if (stats.getColumnName(i).equals("TIMESTAMP")) {
+                continue;
+            }
+            if (isLabelColumn(stats, i)) {
+                labelColumns.add(i);
+            }
+            else if (stats.getColumnType(i).isNumber()) {
+                valueColumns.add(i);
+            }
+        }
+
+        // the labels of every row, the same for all of its metrics
+        List<String> rowLabels = new ArrayList<String>(stats.getRowCount());
+        stats.resetRowPosition();
+        while (stats.advanceRow()) {
+            StringBuilder labels = new StringBuilder();
+            for (int column : labelColumns) {
+                Object value = stats.get(column, stats.getColumnType(column));
+                if (stats.wasNull()) {
+                    continue;
+                }
+                labels.append(labels.length() == 0 ? "{" : ",");
+                labels.append(metricName(stats.getColumnName(column))).append("=\"");
+                appendEscapedLabelValue(labels, value.toString());
+                labels.append('"');
+            }
+            if (labels.length() > 0) {
+                labels.append('}');
+            }
+            rowLabels.add(labels.toString());
+        }
+
+        String prefix = "voltdb_" + metricName(selector.name()) + "_";
+        for (int column : valueColumns) {
+            String name = prefix + metricName(stats.getColumnName(column));
+            sb.append("# TYPE ").append(name).append(" untyped\n");
+            VoltType type = stats.getColumnType(column);
+            stats.resetRowPosition();
+            int row = 0;
+            while (stats.advanceRow()) {
+                String labels = rowLabels.get(row++);
+                String value;
+                if (type == VoltType.FLOAT) {
+                    value = Double.toString(stats.getDouble(column));
+                }
+                else if (type == VoltType.DECIMAL) {
+                    value = String.valueOf(stats.getDecimalAsBigDecimal(column));
+                }
+                else {
+                    value = Long.toString(stats.getLong(column));
+                }
+                if (stats.wasNull()) {
+                    continue;
+                }
+                sb.append(name).append(labels).append(' ').append(value).append('\n');
+            }
+        }
+        stats.resetRowPosition();
+    }
+
+    static String metricName(String columnName) {
+        return columnName.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "_");
+    }
+
+    static void appendEscapedLabelValue(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+    }
+}
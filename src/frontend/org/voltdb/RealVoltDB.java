@@ -685,6 +685,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
             m_cpuStats = new CpuStats();
             getStatsAgent().registerStatsSource(StatsSelector.CPU,
                     0, m_cpuStats);
+            getStatsAgent().registerStatsSource(StatsSelector.GC, 0, new GCStats());
+            getStatsAgent().registerStatsSource(StatsSelector.OFFHEAP, 0, new OffHeapStats());
 
             /*
              * Initialize the command log on rejoin and join before configuring the IV2
@@ -785,6 +787,11 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
              * Configure and start all the IV2 sites
              */
             try {
+                // The sites with native EEs share the binary catalog they start with
+                if (getBackendTargetType() != BackendTarget.HSQLDB_BACKEND &&
+                        getBackendTargetType() != BackendTarget.NONE) {
+                    m_catalogContext.shareCatalogBinary(m_iv2Initiators.size());
+                }
                 boolean createMpDRGateway = true;
                 for (Initiator iv2init : m_iv2Initiators) {
                     iv2init.configure(
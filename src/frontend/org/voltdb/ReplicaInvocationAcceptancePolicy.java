@@ -43,7 +43,9 @@ public class ReplicaInvocationAcceptancePolicy extends InvocationValidationPolic
 
             // This path is only executed before the AdHoc statement is run through the planner. After the
             // Planner, the client interface will figure out what kind of statement this is.
-            if (invocation.procName.equals("@AdHoc")) {
+            if (invocation.procName.equals("@AdHoc") ||
+                    invocation.procName.equals("@AdHocPrepare") ||
+                    invocation.procName.equals("@AdHocExecute")) {
                 return null;
             }
 
@@ -96,7 +98,9 @@ public class ReplicaInvocationAcceptancePolicy extends InvocationValidationPolic
         }
 
         if (invocation.getType() == ProcedureInvocationType.ORIGINAL &&
-                !procName.equalsIgnoreCase("@AdHoc")) {
+                !procName.equalsIgnoreCase("@AdHoc") &&
+                !procName.equalsIgnoreCase("@AdHocPrepare") &&
+                !procName.equalsIgnoreCase("@AdHocExecute")) {
             Config sysProc = SystemProcedureCatalog.listing.get(procName);
             if (sysProc != null && sysProc.allowedInReplica) {
                 // white-listed sysprocs, adhoc is a special case
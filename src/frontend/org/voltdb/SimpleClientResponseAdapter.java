@@ -133,6 +133,13 @@ public class SimpleClientResponseAdapter implements Connection, WriteStream {
         return handle;
     }
 
+    /**
+     * Forget the callback of a request that never made it to a transaction
+     */
+    public void unregisterCallback(long handle) {
+        m_callbacks.remove(handle);
+    }
+
     public Supplier<Pair<Long, SyncCallback>> getSyncCallbackSupplier() {
         return new Supplier<Pair<Long, SyncCallback>>() {
             @Override
@@ -166,6 +166,8 @@ public interface SiteProcedureConnection {
 
     public long[] getUSOForExportTable(String signature);
 
+    public long[] getTableChangeCounts(int[] tableIds);
+
     public TupleStreamStateInfo getDRTupleStreamStateInfo();
 
     public void setDRSequenceNumbers(Long partitionSequenceNumber, Long mpSequenceNumber);
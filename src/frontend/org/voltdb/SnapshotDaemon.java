@@ -271,6 +271,13 @@ public class SnapshotDaemon implements SnapshotCompletionInterest {
     }
 
     private static final long INITIATION_RESPONSE_TIMEOUT_MS = 20 * 60 * 1000;
+
+    /*
+     * Automated snapshots write only the tables changed since the previous one,
+     * carrying the files of the others over, when this is set. Off by default.
+     */
+    private static final boolean INCREMENTAL_SNAPSHOTS = Boolean.getBoolean("INCREMENTAL_SNAPSHOTS");
+
     // Tracks when the last @SnapshotSave call was issued.
     // Prevents two @SnapshotSave calls being issued back to back.
     // This is reset when a response is received for the initiation.
@@ -1347,6 +1354,11 @@ public class SnapshotDaemon implements SnapshotCompletionInterest {
             jsObj.put("path", m_path);
             jsObj.put("nonce", nonce);
             jsObj.put("perPartitionTxnIds", retrievePerPartitionTransactionIds());
+            if (INCREMENTAL_SNAPSHOTS) {
+                JSONObject jsData = new JSONObject();
+                jsData.put("incremental", true);
+                jsObj.put("data", jsData.toString());
+            }
             m_snapshots.offer(new Snapshot(m_path, nonce, now));
             long handle = m_nextCallbackHandle++;
             m_procedureCallbacks.put(handle, new ProcedureCallback() {
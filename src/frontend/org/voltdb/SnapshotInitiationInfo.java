@@ -131,6 +131,9 @@ public class SnapshotInitiationInfo
      *   as blocking.  true/false will be interpreted as you'd expect
      *
      *   format: one of 'native' or 'csv'.
+     *
+     *   (optional) incremental: true to carry the files of the tables that have not
+     *   changed over from the last native snapshot of each node instead of writing them.
      */
     private void parseJsonParams(Object[] params) throws Exception
     {
@@ -121,6 +121,14 @@ public class SnapshotSiteProcessor {
 
     private static final Map<Integer, Pair<Long, Long>> m_drTupleStreamInfo = new HashMap<>();
 
+    /**
+     * Change counts of the tables of each local partition as of the start of the last snapshot,
+     * which tell incremental snapshots the tables left unchanged since their base. Repopulated
+     * before each snapshot by each execution site that reaches the snapshot.
+     */
+    private static final Map<String, Map<Integer, Long>> m_tableChangeCounts =
+        new HashMap<String, Map<Integer, Long>>();
+
     /**
      * This field is the same values as m_exportSequenceNumbers once they have been extracted
      * in SnapshotSaveAPI.createSetup and then passed back in to SSS.initiateSnapshots. The only
@@ -242,6 +250,7 @@ public class SnapshotSiteProcessor {
                                 ackOffSetAndSequenceNumber[0],
                                 ackOffSetAndSequenceNumber[1]));
         }
+        populateTableChangeCounts(context);
         TupleStreamStateInfo drStateInfo = context.getSiteProcedureConnection().getDRTupleStreamStateInfo();
         m_drTupleStreamInfo.put(context.getPartitionId(), Pair.of(drStateInfo.partitionSequenceNumber, drStateInfo.partitionUniqueId));
         if (drStateInfo.containsReplicatedStreamInfo) {
@@ -249,6 +258,43 @@ public class SnapshotSiteProcessor {
         }
     }
 
+    private static void populateTableChangeCounts(SystemProcedureExecutionContext context) {
+        Database database = context.getDatabase();
+        List<Table> tables = new ArrayList<Table>();
+        for (Table t : database.getTables()) {
+            if (!CatalogUtil.isTableExportOnly(database, t)) {
+                tables.add(t);
+            }
+        }
+        int[] tableIds = new int[tables.size()];
+        for (int i = 0; i < tableIds.length; i++) {
+            tableIds[i] = tables.get(i).getRelativeIndex();
+        }
+        long[] changeCounts = context.getSiteProcedureConnection().getTableChangeCounts(tableIds);
+        if (changeCounts == null) {
+            return;
+        }
+        for (int i = 0; i < tableIds.length; i++) {
+            Map<Integer, Long> partitionCounts = m_tableChangeCounts.get(tables.get(i).getTypeName());
+            if (partitionCounts == null) {
+                partitionCounts = new HashMap<Integer, Long>();
+                m_tableChangeCounts.put(tables.get(i).getTypeName(), partitionCounts);
+            }
+            partitionCounts.put(context.getPartitionId(), changeCounts[i]);
+        }
+    }
+
+    /**
+     * @return the change count of each table by partition, as of the start of the snapshot
+     */
+    public static Map<String, Map<Integer, Long>> getTableChangeCounts() {
+        Map<String, Map<Integer, Long>> changeCounts = new HashMap<String, Map<Integer, Long>>();
+        for (Map.Entry<String, Map<Integer, Long>> e : m_tableChangeCounts.entrySet()) {
+            changeCounts.put(e.getKey(), new HashMap<Integer, Long>(e.getValue()));
+        }
+        return changeCounts;
+    }
+
     public static Map<String, Map<Integer, Pair<Long, Long>>> getExportSequenceNumbers() {
         HashMap<String, Map<Integer, Pair<Long, Long>>> sequenceNumbers =
             new HashMap<String, Map<Integer, Pair<Long, Long>>>(m_exportSequenceNumbers);
@@ -525,7 +571,7 @@ public class SnapshotSiteProcessor {
         List<BBContainer> outputBuffers = new ArrayList<BBContainer>(tableTasks.size());
 
         for (int ii = 0; ii < tableTasks.size(); ii++) {
-            final BBContainer origin = DBBPool.allocateDirectAndPool(m_snapshotBufferLength);
+            final BBContainer origin = DBBPool.allocateDirectAndPool(m_snapshotBufferLength, DBBPool.MemoryUse.SNAPSHOT);
             outputBuffers.add(createNewBuffer(origin, noSchedule));
         }
 
@@ -16,12 +16,20 @@
  */
 package org.voltdb;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.HdrHistogram_voltpatches.HistogramData;
 import org.cliffc_voltpatches.high_scale_lib.NonBlockingHashMap;
 import org.cliffc_voltpatches.high_scale_lib.NonBlockingHashSet;
 import org.json_voltpatches.JSONObject;
 import org.voltcore.network.Connection;
+import org.voltcore.utils.CompressionStrategySnappy;
 import org.voltdb.TheHashinator.HashinatorConfig;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.client.ClientResponse;
@@ -64,6 +72,10 @@ public class StatsAgent extends OpsAgent
             request.aggregateTables =
             aggregateProcedureOutputStats(request.aggregateTables);
             break;
+        case PROCEDURELATENCY:
+            request.aggregateTables =
+            aggregateProcedureLatencyStats(request.aggregateTables);
+            break;
 
         default:
         }
@@ -180,6 +192,71 @@ public class StatsAgent extends OpsAgent
     }
 
 
+    /**
+     * Produce PROCEDURELATENCY aggregation of the execution time histograms of every
+     * procedure at every site, one row per procedure, slowest 99th percentile first.
+     * The percentiles are in microseconds.
+     */
+    private VoltTable[] aggregateProcedureLatencyStats(VoltTable[] baseStats)
+    {
+        if (baseStats == null || baseStats.length != 1) {
+            return baseStats;
+        }
+
+        long timestamp = 0;
+        Map<String, AbstractHistogram> histograms = new HashMap<String, AbstractHistogram>();
+        baseStats[0].resetRowPosition();
+        while (baseStats[0].advanceRow()) {
+            timestamp = Math.max(timestamp, baseStats[0].getLong("TIMESTAMP"));
+            String pname = baseStats[0].getString("PROCEDURE");
+            AbstractHistogram histogram = AbstractHistogram.fromCompressedBytes(
+                    baseStats[0].getVarbinary("HISTOGRAM"), CompressionStrategySnappy.INSTANCE);
+            AbstractHistogram total = histograms.get(pname);
+            if (total == null) {
+                histograms.put(pname, histogram);
+            }
+            else {
+                total.add(histogram);
+            }
+        }
+
+        List<Map.Entry<String, AbstractHistogram>> procedures =
+                new ArrayList<Map.Entry<String, AbstractHistogram>>(histograms.entrySet());
+        Collections.sort(procedures, new Comparator<Map.Entry<String, AbstractHistogram>>() {
+            @Override
+            public int compare(Map.Entry<String, AbstractHistogram> o1, Map.Entry<String, AbstractHistogram> o2) {
+                long p1 = o1.getValue().getHistogramData().getValueAtPercentile(99.0);
+                long p2 = o2.getValue().getHistogramData().getValueAtPercentile(99.0);
+                if (p1 != p2) {
+                    return p1 > p2 ? -1 : 1;
+                }
+                return o1.getKey().compareTo(o2.getKey());
+            }
+        });
+
+        VoltTable result = new VoltTable(
+                new VoltTable.ColumnInfo("TIMESTAMP", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("PROCEDURE", VoltType.STRING),
+                new VoltTable.ColumnInfo("INVOCATIONS", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("P50", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("P95", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("P99", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("P99_9", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("MAX", VoltType.BIGINT));
+        for (Map.Entry<String, AbstractHistogram> procedure : procedures) {
+            HistogramData data = procedure.getValue().getHistogramData();
+            result.addRow(timestamp,
+                          procedure.getKey(),
+                          data.getTotalCount(),
+                          data.getValueAtPercentile(50.0),
+                          data.getValueAtPercentile(95.0),
+                          data.getValueAtPercentile(99.0),
+                          data.getValueAtPercentile(99.9),
+                          data.getMaxValue());
+        }
+        return new VoltTable[] { result };
+    }
+
     /**
      * Need to release references to catalog related stats sources
      * to avoid hoarding references to the catalog.
@@ -188,6 +265,8 @@ public class StatsAgent extends OpsAgent
         m_procInfo = getProcInfoSupplier();
         registeredStatsSources.put(StatsSelector.PROCEDURE,
                                    new NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>>());
+        registeredStatsSources.put(StatsSelector.PROCEDURELATENCY,
+                                   new NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>>());
     }
 
     @Override
@@ -369,6 +448,15 @@ public class StatsAgent extends OpsAgent
         case CPU:
             stats = collectCpuStats(interval);
             break;
+        case GC:
+            stats = collectGCStats(interval);
+            break;
+        case OFFHEAP:
+            stats = collectOffHeapStats(interval);
+            break;
+        case TTL:
+            stats = collectTTLStats(interval);
+            break;
         case IOSTATS:
             stats = collectIOStats(interval);
             break;
@@ -381,12 +469,18 @@ public class StatsAgent extends OpsAgent
         case INDEX:
             stats = collectIndexStats(interval);
             break;
+        case PLANNODE:
+            stats = collectPlanNodeStats(interval);
+            break;
         case PROCEDURE:
         case PROCEDUREINPUT:
         case PROCEDUREOUTPUT:
         case PROCEDUREPROFILE:
             stats = collectProcedureStats(interval);
             break;
+        case PROCEDURELATENCY:
+            stats = collectProcedureLatencyStats(interval);
+            break;
         case STARVATION:
             stats = collectStarvationStats(interval);
             break;
@@ -536,6 +630,19 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    private VoltTable[] collectTTLStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable tStats = getStatsAggregate(StatsSelector.TTL, interval, now);
+        if (tStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = tStats;
+        }
+        return stats;
+    }
+
     private VoltTable[] collectCpuStats(boolean interval)
     {
         Long now = System.currentTimeMillis();
@@ -549,6 +656,32 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    private VoltTable[] collectGCStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable gStats = getStatsAggregate(StatsSelector.GC, interval, now);
+        if (gStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = gStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectOffHeapStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable oStats = getStatsAggregate(StatsSelector.OFFHEAP, interval, now);
+        if (oStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = oStats;
+        }
+        return stats;
+    }
+
     private VoltTable[] collectIOStats(boolean interval)
     {
         Long now = System.currentTimeMillis();
@@ -601,6 +734,19 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    private VoltTable[] collectPlanNodeStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable pStats = getStatsAggregate(StatsSelector.PLANNODE, interval, now);
+        if (pStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = pStats;
+        }
+        return stats;
+    }
+
     private VoltTable[] collectProcedureStats(boolean interval)
     {
         Long now = System.currentTimeMillis();
@@ -614,6 +760,19 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    private VoltTable[] collectProcedureLatencyStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable pStats = getStatsAggregate(StatsSelector.PROCEDURELATENCY, interval, now);
+        if (pStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = pStats;
+        }
+        return stats;
+    }
+
     private VoltTable[] collectStarvationStats(boolean interval)
     {
         Long now = System.currentTimeMillis();
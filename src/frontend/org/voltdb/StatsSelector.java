@@ -19,6 +19,7 @@ package org.voltdb;
 public enum StatsSelector {
     TABLE,            // invoked as @stat table
     INDEX,            // invoked as @stat index
+    PLANNODE,         // invoked as @stat plannode, the ordinals of the first three are the EE selectors
     PROCEDURE,        // invoked as @stat procedure
     STARVATION,
     INITIATOR,        // invoked as @stat initiator
@@ -34,6 +35,7 @@ public enum StatsSelector {
     SNAPSHOTSTATUS,
     PROCEDUREINPUT,
     PROCEDUREOUTPUT,
+    PROCEDURELATENCY, // percentiles of the execution times of each procedure
 
     /*
      * DRPARTITION and DRNODE are internal names
@@ -50,5 +52,8 @@ public enum StatsSelector {
     TOPO,           // return leader and site info for iv2
     REBALANCE,      // return elastic rebalance progress
     KSAFETY,         // return ksafety coverage information
-    CPU // Return CPU Stats
+    CPU, // Return CPU Stats
+    GC,             // collections and allocation of each garbage collector of the JVM
+    OFFHEAP,        // direct and native memory held by each subsystem
+    TTL  // progress of the expiration of rows of the tables with a TTL
 }
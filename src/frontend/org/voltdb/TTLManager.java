@@ -0,0 +1,256 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.voltcore.logging.Level;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.EstTime;
+import org.voltcore.utils.RateLimitedLogger;
+import org.voltdb.catalog.Table;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.iv2.Cartographer;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Deletes the expired rows of the tables declared with USING TTL.
+ *
+ * Every host drives the partitions whose leader it hosts. For each table and
+ * partition a task invokes @ExpireRows, which deletes one batch of expired
+ * rows in a single partition transaction, and schedules its next run when
+ * the response comes back: right away (but at most MAX_FREQUENCY times per
+ * second) while expired rows remain, a while later once it caught up.
+ * Running the deletes as transactions keeps replicas, the command log and DR
+ * consistent, and lets them interleave with the regular workload one small
+ * batch at a time instead of as one long client-driven purge.
+ */
+public class TTLManager {
+    private static final VoltLogger hostLog = new VoltLogger("HOST");
+    private static final RateLimitedLogger failureLog = new RateLimitedLogger(
+            TimeUnit.MINUTES.toMillis(1), hostLog, Level.WARN);
+
+    // How often to look for new tables with a TTL and newly led partitions
+    static final long SCAN_INTERVAL_MS = 1000;
+    // How long a caught up task waits before looking for expired rows again
+    static final long CAUGHT_UP_INTERVAL_MS = 1000;
+    // How long a task waits after a failure
+    static final long FAILURE_INTERVAL_MS = 10000;
+
+    private final ClientInterface m_ci;
+    private final Cartographer m_cartographer;
+    private final int m_hostId;
+    private final SimpleClientResponseAdapter m_adapter =
+            new SimpleClientResponseAdapter(ClientInterface.TTL_MANAGER_CID, "TTLManagerAdapter");
+    private final Map<String, Task> m_tasks = new ConcurrentHashMap<String, Task>();
+    private final TTLStats m_stats = new TTLStats(this);
+    private ScheduledFuture<?> m_scanFuture;
+    private volatile boolean m_shutdown = false;
+
+    public TTLManager(ClientInterface ci, Cartographer cartographer, int hostId) {
+        m_ci = ci;
+        m_cartographer = cartographer;
+        m_hostId = hostId;
+    }
+
+    public void start() {
+        m_ci.bindAdapter(m_adapter, null);
+        VoltDB.instance().getStatsAgent().registerStatsSource(StatsSelector.TTL, 0, m_stats);
+        m_scanFuture = VoltDB.instance().scheduleWork(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    scan();
+                } catch (Exception e) {
+                    hostLog.warn("Exception while scheduling TTL deletes", e);
+                }
+            }
+        }, SCAN_INTERVAL_MS, SCAN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        m_shutdown = true;
+        if (m_scanFuture != null) {
+            m_scanFuture.cancel(false);
+        }
+    }
+
+    /** Start a task for every table with a TTL and partition led by this host */
+    void scan() {
+        if (m_shutdown || ! canExpire()) {
+            return;
+        }
+        VoltTable keys = TheHashinator.getPartitionKeys(VoltType.INTEGER);
+        for (Table table : VoltDB.instance().getCatalogContext().tables) {
+            if (table.getTtlseconds() == 0) {
+                continue;
+            }
+            for (int i = 0; i < keys.getRowCount(); i++) {
+                int partition = (int) keys.fetchRow(i).getLong(0);
+                if (! leads(partition)) {
+                    continue;
+                }
+                String key = table.getTypeName() + ":" + partition;
+                if (! m_tasks.containsKey(key)) {
+                    Task task = new Task(key, table.getTypeName(), partition);
+                    m_tasks.put(key, task);
+                    task.schedule(0);
+                }
+            }
+        }
+    }
+
+    /** Snapshot of the tasks, for the TTL statistics */
+    List<Task> getTasks() {
+        return new ArrayList<Task>(m_tasks.values());
+    }
+
+    private boolean leads(int partition) {
+        return CoreUtils.getHostIdFromHSId(m_cartographer.getHSIdForSinglePartitionMaster(partition)) == m_hostId;
+    }
+
+    private static boolean canExpire() {
+        VoltDBInterface instance = VoltDB.instance();
+        // A DR replica gets its deletes from the master
+        return instance.getMode() == OperationMode.RUNNING &&
+                instance.getReplicationRole() != ReplicationRole.REPLICA;
+    }
+
+    private static Integer partitionKey(int partition) {
+        // The keys may miss partitions during an elastic rebalance
+        VoltTable keys = TheHashinator.getPartitionKeys(VoltType.INTEGER);
+        for (int i = 0; i < keys.getRowCount(); i++) {
+            VoltTableRow row = keys.fetchRow(i);
+            if (row.getLong(0) == partition) {
+                return (int) row.getLong(1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Expires the rows of one table in one partition, one batch per run.
+     * At most one @ExpireRows is outstanding per task.
+     */
+    class Task implements Runnable, SimpleClientResponseAdapter.Callback {
+        final String m_key;
+        final String m_tableName;
+        final int m_partition;
+        private long m_startNanos;
+        private int m_batchSize;
+        private long m_minIntervalMs;
+
+        // statistics
+        long m_rowsDeleted = 0;
+        long m_batches = 0;
+        long m_failures = 0;
+        boolean m_backlog = false;
+
+        Task(String key, String tableName, int partition) {
+            m_key = key;
+            m_tableName = tableName;
+            m_partition = partition;
+        }
+
+        void schedule(long delayMs) {
+            VoltDB.instance().getSES(false).schedule(this, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            try {
+                expire();
+            } catch (Exception e) {
+                hostLog.warn("Exception while deleting expired rows of " + m_tableName, e);
+                schedule(FAILURE_INTERVAL_MS);
+            }
+        }
+
+        private void expire() {
+            // Stop when the table lost its TTL or the partition moved away;
+            // scan() starts over if they come back.
+            Table table = VoltDB.instance().getCatalogContext().tables.get(m_tableName);
+            if (m_shutdown || table == null || table.getTtlseconds() == 0 || ! leads(m_partition)) {
+                m_tasks.remove(m_key);
+                return;
+            }
+            Integer key = partitionKey(m_partition);
+            if (! canExpire() || key == null) {
+                schedule(SCAN_INTERVAL_MS);
+                return;
+            }
+
+            m_batchSize = table.getTtlbatchsize();
+            m_minIntervalMs = 1000 / table.getTtlmaxfrequency();
+            m_startNanos = System.nanoTime();
+            // Computed here rather than in the transaction so that replicas
+            // and command log replay delete the same rows.
+            long cutoffMillis = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(table.getTtlseconds());
+            TimestampType cutoff = new TimestampType(TimeUnit.MILLISECONDS.toMicros(cutoffMillis));
+
+            StoredProcedureInvocation spi = new StoredProcedureInvocation();
+            spi.setProcName("@ExpireRows");
+            spi.setParams(key, m_tableName, cutoff, m_batchSize);
+            long handle = m_adapter.registerCallback(this);
+            spi.setClientHandle(handle);
+            if (! m_ci.createTransaction(m_adapter.connectionId(), spi, false, true, false,
+                                         m_partition, 0, m_startNanos)) {
+                // no response will come for this handle
+                m_adapter.unregisterCallback(handle);
+                schedule(FAILURE_INTERVAL_MS);
+            }
+        }
+
+        @Override
+        public void handleResponse(ClientResponse response) {
+            long delayMs;
+            if (response.getStatus() == ClientResponse.SUCCESS) {
+                long deleted = response.getResults()[0].asScalarLong();
+                boolean backlog = deleted >= m_batchSize;
+                synchronized (this) {
+                    m_rowsDeleted += deleted;
+                    m_batches++;
+                    m_backlog = backlog;
+                }
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - m_startNanos);
+                if (backlog) {
+                    delayMs = Math.max(0, m_minIntervalMs - elapsedMs);
+                }
+                else {
+                    delayMs = Math.max(m_minIntervalMs, CAUGHT_UP_INTERVAL_MS);
+                }
+            }
+            else {
+                synchronized (this) {
+                    m_failures++;
+                }
+                failureLog.log("Failed to delete expired rows of table " + m_tableName +
+                        " in partition " + m_partition + ": " + response.getStatusString(),
+                        EstTime.currentTimeMillis());
+                delayMs = FAILURE_INTERVAL_MS;
+            }
+            schedule(delayMs);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * One row per table with a TTL and partition led by this host, counting the
+ * rows the TTLManager expired. BACKLOG is 1 while the last batch was full,
+ * that is while expired rows are being deleted as fast as MAX_FREQUENCY allows.
+ */
+public class TTLStats extends StatsSource {
+
+    private final TTLManager m_manager;
+
+    public TTLStats(TTLManager manager) {
+        super(false);
+        m_manager = manager;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("TABLE_NAME", VoltType.STRING));
+        columns.add(new ColumnInfo("PARTITION_ID", VoltType.INTEGER));
+        columns.add(new ColumnInfo("ROWS_DELETED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BATCHES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("FAILURES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BACKLOG", VoltType.TINYINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final TTLManager.Task task = (TTLManager.Task) rowKey;
+        rowValues[columnNameToIndex.get("TABLE_NAME")] = task.m_tableName;
+        rowValues[columnNameToIndex.get("PARTITION_ID")] = task.m_partition;
+        synchronized (task) {
+            rowValues[columnNameToIndex.get("ROWS_DELETED")] = task.m_rowsDeleted;
+            rowValues[columnNameToIndex.get("BATCHES")] = task.m_batches;
+            rowValues[columnNameToIndex.get("FAILURES")] = task.m_failures;
+            rowValues[columnNameToIndex.get("BACKLOG")] = task.m_backlog ? 1 : 0;
+        }
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        return new ArrayList<Object>(m_manager.getTasks()).iterator();
+    }
+}
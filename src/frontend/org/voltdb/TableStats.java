@@ -48,5 +48,7 @@ public class TableStats extends SiteStatsSource {
         columns.add(new ColumnInfo("STRING_DATA_MEMORY", VoltType.INTEGER));
         columns.add(new ColumnInfo("TUPLE_LIMIT", VoltType.INTEGER));
         columns.add(new ColumnInfo("PERCENT_FULL", VoltType.INTEGER));
+        columns.add(new ColumnInfo("VIEW_RECOMPUTES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("VIEW_RECOMPUTE_ROWS", VoltType.BIGINT));
     }
 }
@@ -30,6 +30,7 @@ import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
 import org.json_voltpatches.JSONString;
 import org.json_voltpatches.JSONStringer;
+import org.json_voltpatches.JSONWriter;
 import org.voltdb.client.ClientUtils;
 import org.voltdb.common.Constants;
 import org.voltdb.types.TimestampType;
@@ -1277,42 +1278,52 @@ public final class VoltTable extends VoltTableRow implements JSONString {
     public String toJSONString() {
         JSONStringer js = new JSONStringer();
         try {
+            toJSONWriter(js);
+        }
+        catch (JSONException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to serialized a table to JSON.", e);
+        }
+        return js.toString();
+    }
 
-            js.object();
+    /**
+     * Write the JSON representation of this table, the one returned by
+     * {@link #toJSONString()}, with a JSONWriter. A writer over a stream
+     * sends the rows as they are encoded instead of building a string.
+     * @param js The writer to write the table with.
+     * @throws JSONException on JSON-related error.
+     */
+    public void toJSONWriter(JSONWriter js) throws JSONException {
+        js.object();
 
-            // status code (1 byte)
-            js.key(JSON_STATUS_KEY).value(getStatusCode());
+        // status code (1 byte)
+        js.key(JSON_STATUS_KEY).value(getStatusCode());
 
-            // column schema
-            js.key(JSON_SCHEMA_KEY).array();
+        // column schema
+        js.key(JSON_SCHEMA_KEY).array();
+        for (int i = 0; i < getColumnCount(); i++) {
+            js.object();
+            js.key(JSON_NAME_KEY).value(getColumnName(i));
+            js.key(JSON_TYPE_KEY).value(getColumnType(i).getValue());
+            js.endObject();
+        }
+        js.endArray();
+
+        // row data
+        js.key(JSON_DATA_KEY).array();
+        VoltTableRow row = cloneRow();
+        row.resetRowPosition();
+        while (row.advanceRow()) {
+            js.array();
             for (int i = 0; i < getColumnCount(); i++) {
-                js.object();
-                js.key(JSON_NAME_KEY).value(getColumnName(i));
-                js.key(JSON_TYPE_KEY).value(getColumnType(i).getValue());
-                js.endObject();
+                row.putJSONRep(i, js);
             }
             js.endArray();
-
-            // row data
-            js.key(JSON_DATA_KEY).array();
-            VoltTableRow row = cloneRow();
-            row.resetRowPosition();
-            while (row.advanceRow()) {
-                js.array();
-                for (int i = 0; i < getColumnCount(); i++) {
-                    row.putJSONRep(i, js);
-                }
-                js.endArray();
-            }
-            js.endArray();
-
-            js.endObject();
         }
-        catch (JSONException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Failed to serialized a table to JSON.", e);
-        }
-        return js.toString();
+        js.endArray();
+
+        js.endObject();
     }
 
     /**
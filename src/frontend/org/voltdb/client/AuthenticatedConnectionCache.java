@@ -18,17 +18,14 @@
 package org.voltdb.client;
 
 import java.io.IOException;
-import java.net.InetSocketAddress;
 import java.util.Arrays;
-import java.util.Map;
 import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.voltcore.logging.VoltLogger;
 
-import com.google_voltpatches.common.base.Predicate;
-import com.google_voltpatches.common.collect.FluentIterable;
-
 /**
  * Maintain a set of the last N recently used credentials and
  * their corresponding connections to the localhost VoltDB server.
@@ -39,12 +36,18 @@ import com.google_voltpatches.common.collect.FluentIterable;
  * If the sane M users connect to a Volt server over and over,
  * and M <= N, then this should be as fast an auth as possible.
  *
- * This is probably not threadsafe yet.
+ * Handing out and releasing the client of a cached user takes no
+ * lock, so concurrent requests of the same users do not serialize on
+ * the cache. Each client is shared by all the requests of its user,
+ * which are multiplexed over its connection. Only creating, evicting
+ * and closing clients is synchronized.
  */
 public class AuthenticatedConnectionCache {
 
     private static VoltLogger logger = new VoltLogger("HOST");
     private final static String ADMIN_SUFFIX = ":++__ADMIN__++";
+    // Reference count of a connection that was closed and may not be handed out anymore
+    final static int CLOSED = Integer.MIN_VALUE;
 
     final String m_hostname;
     final String m_adminHostName;
@@ -56,11 +59,38 @@ public class AuthenticatedConnectionCache {
      * Metadata about a connection.
      */
     class Connection {
-        int refCount;
+        final AtomicInteger refCount = new AtomicInteger(1);
+        String key;
         ClientImpl client;
         String user;
         byte[] hashedPassword;
         int passHash;
+
+        // Add a user, unless the connection was closed
+        boolean acquire() {
+            while (true) {
+                int count = refCount.get();
+                if (count < 0) {
+                    return false;
+                }
+                if (refCount.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        // Drop a user, unless the connection was closed while in use, which leaves it closed
+        void release() {
+            while (true) {
+                int count = refCount.get();
+                if (count <= 0) {
+                    return;
+                }
+                if (refCount.compareAndSet(count, count - 1)) {
+                    return;
+                }
+            }
+        }
     }
 
     /**
@@ -82,12 +112,14 @@ public class AuthenticatedConnectionCache {
     }
 
 
-    // The set of active connections.
-    Map<String, Connection> m_connections = new TreeMap<String, Connection>();
+    // The set of active connections, by user name.
+    final ConcurrentMap<String, Connection> m_connections = new ConcurrentHashMap<String, Connection>();
+    // The same connections, by client, to release them.
+    final ConcurrentMap<Client, Connection> m_clientConnections = new ConcurrentHashMap<Client, Connection>();
     // The optional unauthenticated clients which should only work if auth is off
-    ClientImpl m_unauthClient = null;
+    volatile ClientImpl m_unauthClient = null;
     // The optional unauthenticated adming client which should work if auth if off
-    ClientImpl m_adminUnauthClient = null;
+    volatile ClientImpl m_adminUnauthClient = null;
 
     public AuthenticatedConnectionCache(int targetSize, String serverHostname, int serverPort, String adminHostName, int adminPort) {
         assert(serverHostname != null);
@@ -100,129 +132,144 @@ public class AuthenticatedConnectionCache {
         m_targetSize = targetSize;
     }
 
-    public synchronized Client getClient(String userName, String password, byte[] hashedPassword, boolean admin) throws IOException {
-        String userNameWithAdminSuffix = null;
-        if (userName != null && !userName.trim().isEmpty()) {
-            if (userName.endsWith(ADMIN_SUFFIX)) {
-                throw new IOException("User name cannot end with " + ADMIN_SUFFIX);
-            }
-            userNameWithAdminSuffix = userName + ADMIN_SUFFIX;
-        }
+    public Client getClient(String userName, String password, byte[] hashedPassword, boolean admin) throws IOException {
         // UN-AUTHENTICATED
         if ((userName == null) || userName.trim().isEmpty()) {
             if ((hashedPassword != null) && (hashedPassword.length > 0)) {
                 throw new IOException("Username was null but password was not.");
             }
-            if (m_unauthClient == null)
-            {
-                try {
-                    m_unauthClient = (ClientImpl) ClientFactory.createClient();
-                    m_unauthClient.createConnection(m_hostname, m_port);
-                }
-                catch (IOException e) {
-                    try {
-                        m_unauthClient.close();
-                    } catch (InterruptedException ex) {
-                        throw new IOException("Unable to close rejected unauthenticated client connection", ex);
-                    }
-                    m_unauthClient = null;
-                    throw e;
-
-                }
+            ClientImpl client = admin ? m_adminUnauthClient : m_unauthClient;
+            if (client != null) {
+                return client;
             }
-            if (m_adminUnauthClient == null)
-            {
-                try {
-                    m_adminUnauthClient = (ClientImpl) ClientFactory.createClient();
-                    m_adminUnauthClient.createConnection(m_hostname, m_adminPort);
-                }
-                catch (IOException e) {
-                    try {
-                        m_adminUnauthClient.close();
-                    } catch (InterruptedException ex) {
-                        throw new IOException("Unable to close rejected unauthenticated admin client connection", ex);
-                    }
-                    m_adminUnauthClient = null;
-                    throw e;
-
-                }
-            }
-
-            assert(m_unauthClient != null);
-            assert(m_adminUnauthClient != null);
-
-            return admin ? m_adminUnauthClient : m_unauthClient;
+            return createUnauthenticatedClients(admin);
         }
 
         // AUTHENTICATED
+        if (userName.endsWith(ADMIN_SUFFIX)) {
+            throw new IOException("User name cannot end with " + ADMIN_SUFFIX);
+        }
+        String key = admin ? userName + ADMIN_SUFFIX : userName;
         int passHash = 0;
         if (hashedPassword != null) {
             passHash = Arrays.hashCode(hashedPassword);
         }
 
-        Connection conn = m_connections.get(admin ? userNameWithAdminSuffix : userName);
+        Connection conn = m_connections.get(key);
         if (conn != null) {
             if (conn.passHash != passHash) {
                 throw new IOException("Incorrect authorization credentials.");
             }
-            conn.refCount++;
-        }
-        else {
-            conn = new Connection();
-            conn.refCount = 1;
-            conn.passHash = passHash;
-            if (hashedPassword != null)
-            {
-                conn.hashedPassword = Arrays.copyOf(hashedPassword, hashedPassword.length);
+            if (conn.acquire()) {
+                return conn.client;
             }
-            else
-            {
-                conn.hashedPassword = null;
+        }
+        return createClient(key, userName, password, hashedPassword, passHash, admin);
+    }
+
+    private synchronized ClientImpl createUnauthenticatedClients(boolean admin) throws IOException {
+        if (m_unauthClient == null)
+        {
+            ClientImpl client = (ClientImpl) ClientFactory.createClient();
+            try {
+                client.createConnection(m_hostname, m_port);
             }
+            catch (IOException e) {
+                try {
+                    client.close();
+                } catch (InterruptedException ex) {
+                    throw new IOException("Unable to close rejected unauthenticated client connection", ex);
+                }
+                throw e;
 
-            // Add a callback listener for this client, to detect if
-            // a connection gets closed/disconnected.  If this happens,
-            // we need to remove it from the m_conections cache.
-            //detect hash scheme from length of hashed password if sent instead of password.
-            ClientAuthHashScheme scheme = (conn.hashedPassword == null ?
-                    ClientAuthHashScheme.HASH_SHA256 : ClientAuthHashScheme.getByUnencodedLength(hashedPassword.length));
-            ClientConfig config = new ClientConfig(userName, password, true, new StatusListener(conn), scheme);
-
-            conn.user = userName;
-            conn.client = (ClientImpl) ClientFactory.createClient(config);
-            try
-            {
-                conn.client.createConnectionWithHashedCredentials(
-                        m_hostname,
-                        (admin ? m_adminPort : m_port),
-                        userName, hashedPassword
-                        );
             }
-            catch (IOException ioe)
-            {
+            m_unauthClient = client;
+        }
+        if (m_adminUnauthClient == null)
+        {
+            ClientImpl client = (ClientImpl) ClientFactory.createClient();
+            try {
+                client.createConnection(m_hostname, m_adminPort);
+            }
+            catch (IOException e) {
                 try {
-                    conn.client.close();
+                    client.close();
                 } catch (InterruptedException ex) {
-                    throw new IOException(
-                            "Unable to close rejected authenticated "
-                          + (admin ? "admin " : "") + "client connection.", ex
-                          );
+                    throw new IOException("Unable to close rejected unauthenticated admin client connection", ex);
                 }
-                conn = null;
-                throw ioe;
+                throw e;
+
             }
-            m_connections.put(admin ? userNameWithAdminSuffix : userName, conn);
-            attemptToShrinkPoolIfNeeded();
+            m_adminUnauthClient = client;
         }
-        return conn.client;
+
+        assert(m_unauthClient != null);
+        assert(m_adminUnauthClient != null);
+
+        return admin ? m_adminUnauthClient : m_unauthClient;
     }
 
-    private Predicate<InetSocketAddress> onAdminPort = new Predicate<InetSocketAddress>() {
-        @Override
-        public boolean apply(InetSocketAddress input) {
-            return input.getPort() == m_adminPort;
+    private synchronized ClientImpl createClient(String key, String userName, String password,
+            byte[] hashedPassword, int passHash, boolean admin) throws IOException {
+        // Another request may have connected the user in the meantime
+        Connection conn = m_connections.get(key);
+        if (conn != null) {
+            if (conn.passHash != passHash) {
+                throw new IOException("Incorrect authorization credentials.");
+            }
+            if (conn.acquire()) {
+                return conn.client;
+            }
         }
-    };
+
+        conn = new Connection();
+        conn.key = key;
+        conn.passHash = passHash;
+        if (hashedPassword != null)
+        {
+            conn.hashedPassword = Arrays.copyOf(hashedPassword, hashedPassword.length);
+        }
+        else
+        {
+            conn.hashedPassword = null;
+        }
+
+        // Add a callback listener for this client, to detect if
+        // a connection gets closed/disconnected.  If this happens,
+        // we need to remove it from the m_conections cache.
+        //detect hash scheme from length of hashed password if sent instead of password.
+        ClientAuthHashScheme scheme = (conn.hashedPassword == null ?
+                ClientAuthHashScheme.HASH_SHA256 : ClientAuthHashScheme.getByUnencodedLength(hashedPassword.length));
+        ClientConfig config = new ClientConfig(userName, password, true, new StatusListener(conn), scheme);
+
+        conn.user = userName;
+        conn.client = (ClientImpl) ClientFactory.createClient(config);
+        try
+        {
+            conn.client.createConnectionWithHashedCredentials(
+                    m_hostname,
+                    (admin ? m_adminPort : m_port),
+                    userName, hashedPassword
+                    );
+        }
+        catch (IOException ioe)
+        {
+            try {
+                conn.client.close();
+            } catch (InterruptedException ex) {
+                throw new IOException(
+                        "Unable to close rejected authenticated "
+                      + (admin ? "admin " : "") + "client connection.", ex
+                      );
+            }
+            conn = null;
+            throw ioe;
+        }
+        m_connections.put(key, conn);
+        m_clientConnections.put(conn.client, conn);
+        attemptToShrinkPoolIfNeeded();
+        return conn.client;
+    }
 
     /**
      * Dec-ref a client.
@@ -230,39 +277,42 @@ public class AuthenticatedConnectionCache {
      * @param force this is sent true in case we just lost network and so the connection I thought this will not happen
      * in internally connected clients but have seen it in strange/unknown/unreproducible cases.
      */
-    public synchronized void releaseClient(Client client, boolean force) {
-        ClientImpl ci = (ClientImpl) client;
+    public void releaseClient(Client client, boolean force) {
         if (force) {
-            if (client == this.m_unauthClient) {
-                closeClient(this.m_unauthClient);
-                this.m_unauthClient = null;
-                return;
-            }
-            if (client == this.m_adminUnauthClient) {
-                closeClient(this.m_adminUnauthClient);
-                this.m_adminUnauthClient = null;
-                return;
-            }
+            releaseLostClient(client);
+            return;
         }
-        // if no username, this is the unauth client
-        if (ci.getUsername().length() == 0) {
+        // Clients already closed by a forced release or closeAll() have nothing to release,
+        // nor do the unauthenticated ones
+        Connection conn = m_clientConnections.get(client);
+        if (conn == null) {
             return;
         }
-        StringBuilder userNameBuilder = new StringBuilder(ci.getUsername());
-        if (FluentIterable.from(ci.getConnectedHostList()).allMatch(onAdminPort)) {
-            userNameBuilder.append(ADMIN_SUFFIX);
+        conn.release();
+        if (m_connections.size() > m_targetSize) {
+            attemptToShrinkPoolIfNeeded();
         }
+    }
 
-        Connection conn = m_connections.get(userNameBuilder.toString());
-        if (conn == null) {
-            throw new RuntimeException("Released client not in pool.");
+    // Close the client of a lost connection, requests still using it will fail,
+    // and the next ones will connect again.
+    private synchronized void releaseLostClient(Client client) {
+        if (client == this.m_unauthClient) {
+            closeClient(this.m_unauthClient);
+            this.m_unauthClient = null;
+            return;
         }
-        if (force) {
-            conn.refCount = 0;
-        } else {
-            conn.refCount--;
+        if (client == this.m_adminUnauthClient) {
+            closeClient(this.m_adminUnauthClient);
+            this.m_adminUnauthClient = null;
+            return;
+        }
+        Connection conn = m_clientConnections.remove(client);
+        if (conn != null) {
+            conn.refCount.set(CLOSED);
+            m_connections.remove(conn.key, conn);
+            closeClient(conn.client);
         }
-        attemptToShrinkPoolIfNeeded();
     }
 
     private synchronized void closeClient(Client client)
@@ -296,22 +346,26 @@ public class AuthenticatedConnectionCache {
         }
         for (Entry<String, Connection> e : m_connections.entrySet())
         {
+            e.getValue().refCount.set(CLOSED);
             closeClient(e.getValue().client);
         }
         m_connections.clear();
-        m_connections = null;
+        m_clientConnections.clear();
     }
 
     /**
      * If the size of the pool > target size, see if any
      * connections can be closed and removed.
      */
-    private void attemptToShrinkPoolIfNeeded() {
+    private synchronized void attemptToShrinkPoolIfNeeded() {
         while (m_connections.size() > m_targetSize) {
             for (Entry<String, Connection> e : m_connections.entrySet()) {
-                if (e.getValue().refCount <= 0) {
+                Connection conn = e.getValue();
+                // Only an unused connection can be closed, and none may pick it up after
+                if (conn.refCount.compareAndSet(0, CLOSED)) {
                     m_connections.remove(e.getKey());
-                    closeClient(e.getValue().client);
+                    m_clientConnections.remove(conn.client);
+                    closeClient(conn.client);
                     break; // from the for to continue the while
                 }
             }
@@ -322,7 +376,6 @@ public class AuthenticatedConnectionCache {
 
     //Used for testing today.
     public int getSize() {
-        if (m_connections == null) return 0;
         return m_connections.size();
     }
     public Client getUnauthenticatedAdminClient() {
@@ -17,6 +17,7 @@
 
 package org.voltdb.client;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.Subject;
@@ -39,6 +40,7 @@ public class ClientConfig {
     final boolean m_cleartext;
     final ClientStatusListenerExt m_listener;
     boolean m_heavyweight = false;
+    Executor m_callbackExecutor = null;
     int m_maxOutstandingTxns = 3000;
     int m_maxTransactionsPerSecond = Integer.MAX_VALUE;
     boolean m_autoTune = false;
@@ -218,6 +220,24 @@ public class ClientConfig {
         m_heavyweight = heavyweight;
     }
 
+    /**
+     * <p>Decode responses and invoke procedure callbacks on the given executor
+     * instead of the network thread that read them. Large results and slow callbacks
+     * then no longer hold up the responses behind them on the same connection.</p>
+     *
+     * <p>Callbacks of the same connection may then run concurrently, and in a different
+     * order than their responses arrived, so they must be thread safe. A transaction
+     * counts as outstanding until its callback returns, so an executor that falls behind
+     * throttles the callers instead of queueing responses. The executor is not shut down
+     * when the client is closed.</p>
+     *
+     * @param executor The executor to run callbacks on, or null to run them on the
+     * network thread (the default).
+     */
+    public void setCallbackExecutor(Executor executor) {
+        m_callbackExecutor = executor;
+    }
+
     /**
      * <p>Provide a hint indicating how large messages will be once serialized. Ensures
      * efficient message buffer allocation.</p>
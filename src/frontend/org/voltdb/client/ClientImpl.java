@@ -103,6 +103,7 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
                 config.m_connectionResponseTimeoutMS,
                 config.m_useClientAffinity,
                 config.m_subject);
+        m_distributer.setCallbackExecutor(config.m_callbackExecutor);
         m_distributer.addClientStatusListener(m_listener);
         String username = config.m_username;
         if (config.m_subject != null) {
@@ -739,6 +740,15 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
 
     }
 
+    //Hidden methods for hashing the columns of VoltBulkLoader.insertColumns() without boxing
+    public long getPartitionForLong(long value) {
+        return m_distributer.getPartitionForLong(value);
+    }
+
+    public long getPartitionForBytes(byte[] value) {
+        return m_distributer.getPartitionForBytes(value);
+    }
+
     public HashinatorLiteType getHashinatorType() {
         return m_distributer.getHashinatorType();
     }
@@ -34,7 +34,9 @@ import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -98,6 +100,9 @@ class Distributer {
     private final boolean m_useMultipleThreads;
     private final boolean m_useClientAffinity;
 
+    // Runs the decoding of result tables and procedure callbacks, null to run them on the network thread
+    private volatile Executor m_callbackExecutor = null;
+
     private static final class Procedure {
         final static int PARAMETER_NONE = -1;
         private final boolean multiPart;
@@ -115,6 +120,13 @@ class Distributer {
         }
     }
 
+    // Weight of a new response time in the moving average of a connection, 1/4
+    private static final int RESPONSE_TIME_EWMA_SHIFT = 2;
+    // Decay of the moving average of a connection without responses
+    private static final long RESPONSE_TIME_HALF_LIFE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Least response time an error or a timeout counts as, so that a node failing fast doesn't draw reads
+    static final long RESPONSE_TIME_ERROR_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
     private final Map<Integer, NodeConnection> m_partitionMasters = new HashMap<Integer, NodeConnection>();
     private final Map<Integer, NodeConnection[]> m_partitionReplicas = new HashMap<Integer, NodeConnection[]>();
     private final Map<Integer, NodeConnection> m_hostIdToConnection = new HashMap<Integer, NodeConnection>();
@@ -356,6 +368,11 @@ class Distributer {
 
         volatile long m_lastResponseTimeNanos = System.nanoTime();
         boolean m_outstandingPing = false;
+
+        // Moving average of the response times of this connection and when it was last sampled,
+        // for picking the replica of a read. Only sampled on the network thread of the connection.
+        private volatile long m_responseTimeEwmaNanos = 0;
+        private volatile long m_lastResponseSampleNanos = System.nanoTime();
         ClientStatusListenerExt.DisconnectCause m_closeCause = DisconnectCause.CONNECTION_CLOSED;
 
         public NodeConnection(long ids[]) {}
@@ -537,6 +554,9 @@ class Distributer {
                 @Override
                 public void run() {
                     updateStats(procName, roundTripNanos, clusterRoundTrip, false, false, true);
+                    if (!isLongOp(procName)) {
+                        recordResponseTime(roundTripNanos, true, System.nanoTime());
+                    }
                 }
             });
         }
@@ -570,22 +590,65 @@ class Distributer {
             stats.update(roundTripNanos, clusterRoundTrip, abort, failure, timeout);
         }
 
+        /**
+         * Fold a response time into the moving average of the connection
+         * @param roundTripNanos round trip from client queued to client response
+         * @param failed true if the response is an error or a timeout, which counts as
+         * at least {@link #RESPONSE_TIME_ERROR_PENALTY_NANOS}
+         * @param nowNanos time of the response
+         */
+        void recordResponseTime(long roundTripNanos, boolean failed, long nowNanos) {
+            if (failed) {
+                roundTripNanos = Math.max(roundTripNanos, RESPONSE_TIME_ERROR_PENALTY_NANOS);
+            }
+            final long ewma = decayedResponseTimeNanos(nowNanos);
+            m_responseTimeEwmaNanos = (ewma == 0) ? roundTripNanos :
+                ewma + ((roundTripNanos - ewma) >> RESPONSE_TIME_EWMA_SHIFT);
+            m_lastResponseSampleNanos = nowNanos;
+        }
+
+        /*
+         * The moving average halves for every half life without a response, so that a replica
+         * that was slow gets reads again to find out whether it still is
+         */
+        private long decayedResponseTimeNanos(long nowNanos) {
+            final long halfLives = Math.max(0, nowNanos - m_lastResponseSampleNanos) / RESPONSE_TIME_HALF_LIFE_NANOS;
+            return (halfLives >= Long.SIZE - 1) ? 0 : m_responseTimeEwmaNanos >> halfLives;
+        }
+
+        /**
+         * How long a read sent now is expected to take, the lower the better. The average response
+         * time is scaled by the outstanding requests, so a node that stops responding is avoided
+         * as soon as its requests pile up, before any of them time out. The average only decays
+         * while nothing is outstanding.
+         * @param nowNanos current time
+         */
+        long replicaScore(long nowNanos) {
+            final int outstanding = m_callbacksToInvoke.get();
+            final long responseTime = (outstanding == 0) ? decayedResponseTimeNanos(nowNanos) : m_responseTimeEwmaNanos;
+            return (responseTime + 1) * (outstanding + 1);
+        }
+
         @Override
-        public void handleMessage(ByteBuffer buf, Connection c) {
-            long nowNanos = System.nanoTime();
-            ClientResponseImpl response = new ClientResponseImpl();
+        public void handleMessage(final ByteBuffer buf, Connection c) {
+            final long nowNanos = System.nanoTime();
+            final ClientResponseImpl response = new ClientResponseImpl();
+            final Executor callbackExecutor = m_callbackExecutor;
             try {
-                response.initFromBuffer(buf);
+                // With a callback executor the result tables are decoded along with the callback
+                response.initHeaderFromBuffer(buf);
             } catch (IOException e1) {
                 // TODO Auto-generated catch block
                 e1.printStackTrace();
             }
+            final long handle = response.getClientHandle();
+            if (callbackExecutor == null || handle < 0) {
+                response.initResultsFromBuffer(buf);
+            }
 
             // track the timestamp of the most recent read on this connection
             m_lastResponseTimeNanos = nowNanos;
 
-            final long handle = response.getClientHandle();
-
             // handle ping response and get out
             if (handle == PING_HANDLE) {
                 m_outstandingPing = false;
@@ -614,6 +677,9 @@ class Distributer {
             if (stuff == null) {
                 // also ignore internal (topology and procedure) calls
                 if (handle >= 0) {
+                    if (callbackExecutor != null) {
+                        response.initResultsFromBuffer(buf);
+                    }
                     // notify any listeners of the late response
                     for (ClientStatusListenerExt listener : m_listeners) {
                         listener.lateProcedureResponse(
@@ -638,21 +704,58 @@ class Distributer {
                     error = true;
                 }
 
-                int clusterRoundTrip = response.getClusterRoundtrip();
-                m_rateLimiter.transactionResponseReceived(nowNanos, clusterRoundTrip, stuff.ignoreBackpressure);
+                final int clusterRoundTrip = response.getClusterRoundtrip();
                 updateStats(stuff.name, deltaNanos, clusterRoundTrip, abort, error, false);
+                if (!isLongOp(stuff.name)) {
+                    // aborts are answers of the procedure, errors count against the node
+                    recordResponseTime(deltaNanos, error, nowNanos);
+                }
                 response.setClientRoundtrip(deltaNanos);
                 assert(response.getHash() == null); // make sure it didn't sneak into wire protocol
-                try {
-                    cb.clientCallback(response);
-                } catch (Exception e) {
-                    uncaughtException(cb, response, e);
+                if (callbackExecutor == null || handle < 0) {
+                    m_rateLimiter.transactionResponseReceived(nowNanos, clusterRoundTrip, stuff.ignoreBackpressure);
+                    invokeCallback(cb, response);
                 }
+                else {
+                    // The permit is held until the callback is done, so that a slow executor
+                    // pushes back on the callers instead of queueing responses without bound
+                    Runnable dispatch = new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                try {
+                                    response.initResultsFromBuffer(buf);
+                                } catch (RuntimeException e) {
+                                    // The callback is not invoked, drain must not wait for it
+                                    m_callbacksToInvoke.decrementAndGet();
+                                    uncaughtException(cb, response, e);
+                                    return;
+                                }
+                                invokeCallback(cb, response);
+                            } finally {
+                                m_rateLimiter.transactionResponseReceived(nowNanos, clusterRoundTrip, stuff.ignoreBackpressure);
+                            }
+                        }
+                    };
+                    try {
+                        callbackExecutor.execute(dispatch);
+                    } catch (RejectedExecutionException e) {
+                        dispatch.run();
+                    }
+                }
+            }
+        }
 
-                //Drain needs to know when all callbacks have been invoked
-                final int remainingToInvoke = m_callbacksToInvoke.decrementAndGet();
-                assert(remainingToInvoke >= 0);
+        private void invokeCallback(ProcedureCallback cb, ClientResponseImpl response) {
+            try {
+                cb.clientCallback(response);
+            } catch (Exception e) {
+                uncaughtException(cb, response, e);
             }
+
+            //Drain needs to know when all callbacks have been invoked
+            final int remainingToInvoke = m_callbacksToInvoke.decrementAndGet();
+            assert(remainingToInvoke >= 0);
         }
 
         @Override
@@ -815,6 +918,10 @@ class Distributer {
         }
     }
 
+    void setCallbackExecutor(Executor executor) {
+        m_callbackExecutor = executor;
+    }
+
     void drain() throws InterruptedException {
         boolean more;
         long sleep = 500;
@@ -1045,16 +1152,7 @@ class Distributer {
                     if (!procedureInfo.multiPart && procedureInfo.readOnly) {
                         NodeConnection partitionReplicas[] = m_partitionReplicas.get(hashedPartition);
                         if (partitionReplicas != null && partitionReplicas.length > 0) {
-                            cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
-                            if (cxn.hadBackPressure()) {
-                                //See if there is one without backpressure, make sure it's still connected
-                                for (NodeConnection nc : partitionReplicas) {
-                                    if (!nc.hadBackPressure() && nc.m_isConnected) {
-                                        cxn = nc;
-                                        break;
-                                    }
-                                }
-                            }
+                            cxn = chooseReplica(partitionReplicas, nowNanos);
                             if (!cxn.hadBackPressure() || ignoreBackpressure) {
                                 backpressure = false;
                             }
@@ -1135,6 +1233,41 @@ class Distributer {
         return !backpressure;
     }
 
+    /*
+     * Pick the replica to send a read to by the power of two choices: of two replicas picked
+     * at random, the one with the lower score. A replica that is disconnected or has backpressure
+     * is only picked if all of them are.
+     */
+    private static NodeConnection chooseReplica(NodeConnection partitionReplicas[], long nowNanos) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int firstIndex = random.nextInt(partitionReplicas.length);
+        final NodeConnection first = partitionReplicas[firstIndex];
+        if (partitionReplicas.length == 1) {
+            return first;
+        }
+        int secondIndex = random.nextInt(partitionReplicas.length - 1);
+        if (secondIndex >= firstIndex) {
+            secondIndex++;
+        }
+        final NodeConnection second = partitionReplicas[secondIndex];
+
+        final boolean firstUsable = first.m_isConnected && !first.hadBackPressure();
+        final boolean secondUsable = second.m_isConnected && !second.hadBackPressure();
+        if (firstUsable && secondUsable) {
+            return first.replicaScore(nowNanos) <= second.replicaScore(nowNanos) ? first : second;
+        }
+        else if (firstUsable || secondUsable) {
+            return firstUsable ? first : second;
+        }
+        //See if there is one without backpressure, make sure it's still connected
+        for (NodeConnection nc : partitionReplicas) {
+            if (!nc.hadBackPressure() && nc.m_isConnected) {
+                return nc;
+            }
+        }
+        return first;
+    }
+
     /**
      * Shutdown the VoltNetwork allowing the Ports to close and free resources
      * like memory pools
@@ -1361,6 +1494,35 @@ class Distributer {
         return m_hashinator.getHashedPartitionForParameter(typeValue, value);
     }
 
+    /**
+     * Partition of an integer partitioning value, hashed without boxing it.
+     * Used by the columnar path of VoltBulkLoader.
+     *
+     * @param value the TINYINT, SMALLINT, INTEGER or BIGINT value, not a null
+     * @return the partition, or -1 if the hashinator is not initialized
+     */
+    public long getPartitionForLong(long value) {
+        final HashinatorLite hashinator = m_hashinator;
+        if (hashinator == null) {
+            return -1;
+        }
+        return hashinator.hashinateLong(value);
+    }
+
+    /**
+     * Partition of a STRING or VARBINARY partitioning value given as bytes,
+     * UTF-8 encoded for strings. A null value hashes to partition 0.
+     *
+     * @return the partition, or -1 if the hashinator is not initialized
+     */
+    public long getPartitionForBytes(byte[] value) {
+        final HashinatorLite hashinator = m_hashinator;
+        if (hashinator == null) {
+            return -1;
+        }
+        return hashinator.hashinateBytes(value);
+    }
+
     public HashinatorLiteType getHashinatorType() {
         if (m_hashinator == null) {
             return HashinatorLiteType.LEGACY;
@@ -0,0 +1,205 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client.VoltBulkLoader;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Semaphore;
+
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcedureCallback;
+import org.voltdb.types.VoltDecimalHelper;
+
+/**
+ * Batch of the rows added with VoltBulkLoader.insertColumns() for one partition.
+ * Rows are serialized straight into the buffer of a VoltTable, which is sent
+ * as is once it holds a full batch. Up to MAX_IN_FLIGHT_BATCHES batches per
+ * partition are outstanding at a time; further appends wait for a response.
+ */
+class ColumnarPartitionBuffer {
+    // Batches sent and not yet acknowledged, per partition
+    static final int MAX_IN_FLIGHT_BATCHES = 4;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    final VoltBulkLoader m_loader;
+    // Table that retries the rows of failed batches one by one
+    final PerPartitionTable m_partitionTable;
+    final Semaphore m_inFlight = new Semaphore(MAX_IN_FLIGHT_BATCHES);
+    // Serialized table header, the rows follow the row count after it
+    private final byte[] m_header;
+
+    private ByteBuffer m_buffer = null;
+    private int m_bufferSize = INITIAL_BUFFER_SIZE;
+    private int m_rowCount = 0;
+    private Object[] m_rowHandles = null;
+    // Partitioning parameter, the partition column value of the first row
+    private byte[] m_partitionParam = null;
+
+    // Callback for a batch. A failed batch is retried row by row, as the
+    // batches of insertRow() are, to find and report the bad rows.
+    class BatchCallback implements ProcedureCallback {
+        final VoltTable m_batch;
+        final Object[] m_batchRowHandles;
+
+        BatchCallback(VoltTable batch, Object[] rowHandles) {
+            m_batch = batch;
+            m_batchRowHandles = rowHandles;
+        }
+
+        @Override
+        public void clientCallback(ClientResponse response) throws Exception {
+            m_inFlight.release();
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                m_partitionTable.reinsertFailedBatch(m_loader, m_batch, m_batchRowHandles);
+            }
+            else {
+                m_loader.m_outstandingRowCount.addAndGet(-1 * m_batch.getRowCount());
+                m_loader.m_loaderCompletedCnt.addAndGet(m_batch.getRowCount());
+            }
+        }
+    }
+
+    ColumnarPartitionBuffer(VoltBulkLoader loader, PerPartitionTable partitionTable) {
+        m_loader = loader;
+        m_partitionTable = partitionTable;
+        m_header = PrivateVoltTableFactory.getSchemaBytes(new VoltTable(loader.m_colInfo));
+    }
+
+    /**
+     * Serialize one row at the end of the batch, and send the batch if it is full.
+     * @param rowSize Serialized size of the row, without its length prefix
+     * @param strings Encoded STRING and VARBINARY values of the row, by column
+     * @return false when a value can not be serialized, the row is left out
+     */
+    synchronized boolean appendRow(Object[] columns, int row, int rowSize, byte[][] strings,
+            Object rowHandle) throws InterruptedException {
+        if (m_buffer == null) {
+            m_buffer = ByteBuffer.allocate(Math.max(m_bufferSize, m_header.length + 8 + rowSize));
+            m_buffer.put(m_header);
+            // row count, set when the batch is sent
+            m_buffer.putInt(0);
+            m_rowHandles = new Object[m_loader.m_maxBatchSize];
+            m_partitionParam = m_loader.partitionParam(columns, row, strings);
+        }
+        if (m_buffer.remaining() < 4 + rowSize) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(m_buffer.capacity() * 2,
+                                                             m_buffer.position() + 4 + rowSize));
+            m_buffer.flip();
+            bigger.put(m_buffer);
+            m_buffer = bigger;
+            m_bufferSize = bigger.capacity();
+        }
+
+        final int rowStart = m_buffer.position();
+        m_buffer.putInt(rowSize);
+        final VoltType[] types = m_loader.m_columnTypes;
+        for (int col = 0; col < types.length; col++) {
+            switch (types[col]) {
+            case TINYINT:
+                m_buffer.put(((byte[]) columns[col])[row]);
+                break;
+            case SMALLINT:
+                m_buffer.putShort(((short[]) columns[col])[row]);
+                break;
+            case INTEGER:
+                m_buffer.putInt(((int[]) columns[col])[row]);
+                break;
+            case BIGINT:
+            case TIMESTAMP:
+                m_buffer.putLong(((long[]) columns[col])[row]);
+                break;
+            case FLOAT:
+                m_buffer.putDouble(((double[]) columns[col])[row]);
+                break;
+            case STRING:
+            case VARBINARY:
+                if (strings[col] == null) {
+                    m_buffer.putInt(VoltType.NULL_STRING_LENGTH);
+                }
+                else {
+                    m_buffer.putInt(strings[col].length);
+                    m_buffer.put(strings[col]);
+                }
+                break;
+            case DECIMAL:
+                try {
+                    VoltDecimalHelper.serializeBigDecimal(((BigDecimal[]) columns[col])[row], m_buffer);
+                } catch (RuntimeException e) {
+                    m_buffer.position(rowStart);
+                    return false;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported type: " + types[col]);
+            }
+        }
+        assert(m_buffer.position() == rowStart + 4 + rowSize);
+        m_rowHandles[m_rowCount++] = rowHandle;
+
+        if (m_rowCount >= m_loader.m_maxBatchSize) {
+            send();
+        }
+        return true;
+    }
+
+    /**
+     * Send the rows collected so far, if any.
+     */
+    synchronized void flush() throws InterruptedException {
+        send();
+    }
+
+    private void send() throws InterruptedException {
+        if (m_rowCount == 0) {
+            return;
+        }
+        m_buffer.putInt(m_header.length, m_rowCount);
+        m_buffer.flip();
+        VoltTable batch = PrivateVoltTableFactory.createVoltTableFromBuffer(m_buffer, true);
+        BatchCallback callback = new BatchCallback(batch, m_rowHandles);
+        byte[] partitionParam = m_partitionParam;
+        m_buffer = null;
+        m_rowHandles = null;
+        m_partitionParam = null;
+        m_rowCount = 0;
+
+        m_inFlight.acquire();
+        try {
+            if (m_partitionTable.m_isMP) {
+                m_loader.m_clientImpl.callProcedure(callback, m_loader.m_procName,
+                        m_loader.m_tableName, batch);
+            }
+            else {
+                m_loader.m_clientImpl.callProcedure(callback, m_loader.m_procName,
+                        partitionParam, m_loader.m_tableName, batch);
+            }
+        } catch (IOException e) {
+            final ClientResponse r = new ClientResponseImpl(
+                    ClientResponse.CONNECTION_LOST, new VoltTable[0],
+                    "Connection to database was lost");
+            try {
+                callback.clientCallback(r);
+            } catch (Exception ignored) {}
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.voltdb.ClientResponseImpl;
 import org.voltdb.ParameterConverter;
 import org.voltdb.client.HashinatorLite;
 import org.voltdb.VoltTable;
+import org.voltdb.VoltTableRow;
 import org.voltdb.VoltType;
 import org.voltdb.VoltTypeException;
 import org.voltdb.client.ClientImpl;
@@ -185,6 +186,32 @@ public class PerPartitionTable {
         m_es.awaitTermination(365, TimeUnit.DAYS);
     }
 
+    // Queue up the rows of a failed batch added with insertColumns() for individual processing.
+    void reinsertFailedBatch(final VoltBulkLoader loader, final VoltTable batch, final Object[] rowHandles) {
+        m_es.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<VoltBulkLoaderRow> rows = new ArrayList<VoltBulkLoaderRow>(batch.getRowCount());
+                    for (int r = 0; r < batch.getRowCount(); r++) {
+                        VoltTableRow row = batch.fetchRow(r);
+                        Object[] values = new Object[m_columnTypes.length];
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] = row.get(i, m_columnTypes[i]);
+                            if (row.wasNull()) {
+                                values[i] = null;
+                            }
+                        }
+                        rows.add(new VoltBulkLoaderRow(loader, rowHandles[r], values));
+                    }
+                    reinsertFailed(rows);
+                } catch (Exception e) {
+                    loaderLog.error("Failed to re-insert failed batch", e);
+                }
+            }
+        });
+    }
+
     private void reinsertFailed(List<VoltBulkLoaderRow> rows) throws Exception {
         VoltTable tmpTable = new VoltTable(m_columnInfo);
         for (final VoltBulkLoaderRow row : rows) {
@@ -207,13 +234,13 @@ public class PerPartitionTable {
             ProcedureCallback callback = new ProcedureCallback() {
                 @Override
                 public void clientCallback(ClientResponse response) throws Exception {
-                    row.m_loader.m_outstandingRowCount.decrementAndGet();
-                    row.m_loader.m_loaderCompletedCnt.incrementAndGet();
-
-                    //one insert at a time callback
+                    //one insert at a time callback, notify the failure before drain() can return
                     if (response.getStatus() != ClientResponse.SUCCESS) {
                         row.m_loader.m_notificationCallBack.failureCallback(row.m_rowHandle, row.m_rowData, response);
                     }
+
+                    row.m_loader.m_outstandingRowCount.decrementAndGet();
+                    row.m_loader.m_loaderCompletedCnt.incrementAndGet();
                 }
             };
 
@@ -17,6 +17,8 @@
 
 package org.voltdb.client.VoltBulkLoader;
 
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +38,8 @@ import org.voltdb.VoltType;
 import org.voltdb.VoltTypeException;
 import org.voltdb.client.ClientImpl;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.client.HashinatorLite;
+import org.voltdb.common.Constants;
 
 /**
  * VoltBulkLoader is meant to run for long periods of time. Multiple threads can
@@ -67,6 +71,8 @@ public class VoltBulkLoader {
     final BulkLoaderFailureCallBack m_notificationCallBack;
     //Array of PerPartitionTables from which this VoltBulkLoader chooses to put a row in
     PerPartitionTable[] m_partitionTable = null;
+    //Batches of the rows added with insertColumns(), indexed like m_partitionTable
+    final ColumnarPartitionBuffer[] m_columnarBuffers;
     //Index in m_partitionTable of first partition
     final int m_firstPartitionTable;
     //Index in m_partitionTable of last partition
@@ -226,6 +232,11 @@ public class VoltBulkLoader {
                 }
             }
         }
+
+        m_columnarBuffers = new ColumnarPartitionBuffer[m_maxPartitionProcessors];
+        for (int i = m_firstPartitionTable; i <= m_lastPartitionTable; i++) {
+            m_columnarBuffers[i] = new ColumnarPartitionBuffer(this, m_partitionTable[i]);
+        }
     }
 
     /**
@@ -309,6 +320,177 @@ public class VoltBulkLoader {
         m_outstandingRowCount.incrementAndGet();
     }
 
+    /**
+     * <p>Add a block of rows to VoltBulkLoader table, given column by column.</p>
+     *
+     * <p>Unlike insertRow(), the values are not boxed: each row is hashed from its partition
+     * column and serialized straight into the pending batch of its partition, which is sent
+     * once it holds getMaxBatchSize() rows. A few batches per partition may be outstanding at
+     * a time, this call blocks while a partition has too many. The batches are separate from
+     * those of insertRow(), but flush(), drain() and close() cover both.</p>
+     *
+     * <p>Each column is an array holding at least rowCount values, of the type of the column:
+     * byte[] for TINYINT, short[] for SMALLINT, int[] for INTEGER, long[] for BIGINT,
+     * long[] of microseconds since the epoch for TIMESTAMP, double[] for FLOAT, BigDecimal[]
+     * for DECIMAL, String[] or byte[][] of UTF-8 bytes for STRING and byte[][] for VARBINARY.
+     * A NULL is the VoltType NULL_* constant of the type in primitive arrays (Long.MIN_VALUE
+     * for TIMESTAMP), and a null element in the others.</p>
+     *
+     * <p>A row that fails to insert is reported to the BulkLoaderFailureCallBack with its
+     * handle and its values.</p>
+     *
+     * @param rowHandles User supplied objects used to distinguish failed insert attempts, by
+     *  row, or null
+     * @param rowCount Number of rows to add, from the first element of each column
+     * @param columns One array of values per column of the table
+     * @throws java.lang.IllegalArgumentException if a column is missing, has the wrong type or
+     *  is too short
+     * @throws java.lang.InterruptedException
+     */
+    public void insertColumns(Object[] rowHandles, int rowCount, Object... columns) throws InterruptedException {
+        checkColumns(rowHandles, rowCount, columns);
+
+        // STRING and VARBINARY values of the current row, encoded
+        final byte[][] strings = new byte[m_columnCnt][];
+        for (int row = 0; row < rowCount; row++) {
+            int rowSize = 0;
+            for (int col = 0; col < m_columnCnt; col++) {
+                final VoltType type = m_columnTypes[col];
+                if (type == VoltType.STRING || type == VoltType.VARBINARY) {
+                    strings[col] = stringBytes(columns[col], row);
+                    rowSize += 4 + (strings[col] == null ? 0 : strings[col].length);
+                }
+                else {
+                    rowSize += type.getLengthInBytesForFixedTypes();
+                }
+            }
+
+            final int partitionId;
+            if (m_isMP) {
+                partitionId = m_firstPartitionTable;
+            }
+            else if (m_partitionColumnType == VoltType.STRING || m_partitionColumnType == VoltType.VARBINARY) {
+                partitionId = (int) m_clientImpl.getPartitionForBytes(strings[m_partitionedColumnIndex]);
+            }
+            else {
+                final long value = partitionValue(columns, row);
+                // NULLs hash to partition 0, as they do in insertRow()
+                partitionId = value == VoltType.NULL_BIGINT ? 0 : (int) m_clientImpl.getPartitionForLong(value);
+            }
+
+            final Object rowHandle = (rowHandles == null ? null : rowHandles[row]);
+            m_outstandingRowCount.incrementAndGet();
+            if (!m_columnarBuffers[partitionId].appendRow(columns, row, rowSize, strings, rowHandle)) {
+                m_outstandingRowCount.decrementAndGet();
+                generateError(rowHandle, rowValues(columns, row),
+                        "Error: insertColumns received an invalid DECIMAL value for row " + row);
+            }
+        }
+    }
+
+    private void checkColumns(Object[] rowHandles, int rowCount, Object[] columns) {
+        if (columns == null || columns.length != m_columnCnt) {
+            throw new IllegalArgumentException("insertColumns received incorrect number of columns; " +
+                    (columns == null ? 0 : columns.length) + " found, " + m_columnCnt + " expected");
+        }
+        if (rowHandles != null && rowHandles.length < rowCount) {
+            throw new IllegalArgumentException("insertColumns received " + rowHandles.length +
+                    " row handles for " + rowCount + " rows");
+        }
+        for (int col = 0; col < m_columnCnt; col++) {
+            final VoltType type = m_columnTypes[col];
+            final Class<?> arrayClass = columnArrayClass(type);
+            if (!arrayClass.isInstance(columns[col]) &&
+                    !(type == VoltType.STRING && columns[col] instanceof byte[][])) {
+                throw new IllegalArgumentException("insertColumns expects a " + arrayClass.getSimpleName() +
+                        " for column " + m_colNames.get(col) + " of type " + type);
+            }
+            if (Array.getLength(columns[col]) < rowCount) {
+                throw new IllegalArgumentException("insertColumns received " + Array.getLength(columns[col]) +
+                        " values for column " + m_colNames.get(col) + ", " + rowCount + " expected");
+            }
+        }
+    }
+
+    private static Class<?> columnArrayClass(VoltType type) {
+        switch (type) {
+        case TINYINT:
+            return byte[].class;
+        case SMALLINT:
+            return short[].class;
+        case INTEGER:
+            return int[].class;
+        case BIGINT:
+        case TIMESTAMP:
+            return long[].class;
+        case FLOAT:
+            return double[].class;
+        case DECIMAL:
+            return BigDecimal[].class;
+        case STRING:
+            return String[].class;
+        case VARBINARY:
+            return byte[][].class;
+        default:
+            throw new IllegalArgumentException("insertColumns does not support columns of type " + type);
+        }
+    }
+
+    private static byte[] stringBytes(Object column, int row) {
+        if (column instanceof String[]) {
+            final String value = ((String[]) column)[row];
+            return (value == null ? null : value.getBytes(Constants.UTF8ENCODING));
+        }
+        return ((byte[][]) column)[row];
+    }
+
+    /**
+     * @return the integer partition column value of a row, NULL_BIGINT for a NULL
+     */
+    private long partitionValue(Object[] columns, int row) {
+        final Object column = columns[m_partitionedColumnIndex];
+        switch (m_partitionColumnType) {
+        case TINYINT: {
+            final byte value = ((byte[]) column)[row];
+            return (value == VoltType.NULL_TINYINT ? VoltType.NULL_BIGINT : value);
+        }
+        case SMALLINT: {
+            final short value = ((short[]) column)[row];
+            return (value == VoltType.NULL_SMALLINT ? VoltType.NULL_BIGINT : value);
+        }
+        case INTEGER: {
+            final int value = ((int[]) column)[row];
+            return (value == VoltType.NULL_INTEGER ? VoltType.NULL_BIGINT : value);
+        }
+        default:
+            return ((long[]) column)[row];
+        }
+    }
+
+    /**
+     * @return the serialized partitioning parameter of a row, as insertRow() sends it,
+     *  null for a replicated table
+     */
+    byte[] partitionParam(Object[] columns, int row, byte[][] strings) {
+        if (m_isMP) {
+            return null;
+        }
+        if (m_partitionColumnType == VoltType.STRING || m_partitionColumnType == VoltType.VARBINARY) {
+            return strings[m_partitionedColumnIndex];
+        }
+        final long value = partitionValue(columns, row);
+        return (value == VoltType.NULL_BIGINT ? null : HashinatorLite.valueToBytes(value));
+    }
+
+    // Boxed values of a row, for failure callbacks
+    private Object[] rowValues(Object[] columns, int row) {
+        Object[] values = new Object[m_columnCnt];
+        for (int col = 0; col < m_columnCnt; col++) {
+            values[col] = Array.get(columns[col], row);
+        }
+        return values;
+    }
+
     /**
      * Called to asynchronously force the VoltBulkLoader to submit all the partially full batches
      * in all partitions of the table to the Client for insert. To wait for all rows to be processed,
@@ -318,6 +500,7 @@ public class VoltBulkLoader {
     public void flush() throws ExecutionException, InterruptedException {
         for (int i = m_firstPartitionTable; i <= m_lastPartitionTable; i++) {
             m_partitionTable[i].flushAllTableQueues();
+            m_columnarBuffers[i].flush();
         }
     }
 
@@ -336,6 +519,7 @@ public class VoltBulkLoader {
             } catch (ExecutionException e) {
                 loaderLog.error("Failed to drain all buffers, some tuples may not be inserted yet.", e);
             }
+            m_columnarBuffers[i].flush();
         }
 
         // Draining the client doesn't guarantee that all failed rows are re-inserted, need to
@@ -218,7 +218,7 @@ public class AdHocPlannedStatement {
         return core.getPartitioningParamType();
     }
 
-    int getQuestionMarkParameterCount() {
+    public int getQuestionMarkParameterCount() {
         return core.getQuestionMarkParameterCount();
     }
 }
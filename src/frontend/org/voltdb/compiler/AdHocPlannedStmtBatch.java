@@ -194,6 +194,15 @@ public class AdHocPlannedStmtBatch extends AsyncCompilerResult implements Clonea
         return sqlStatements;
     }
 
+    /**
+     * Get the SQL text of the batch, as it was submitted.
+     *
+     * @return SQL batch text
+     */
+    public String getSQLBatchText() {
+        return work.sqlBatchText;
+    }
+
     /**
      * Detect if batch is compatible with single partition optimizations
      * @return true if nothing is replicated and nothing has a collector.
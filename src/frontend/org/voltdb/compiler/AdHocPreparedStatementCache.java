@@ -0,0 +1,84 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.nio.ByteBuffer;
+
+import org.voltdb.ClientInterface.ExplainMode;
+import org.voltdb.common.Constants;
+import org.voltdb.utils.Digester;
+
+import com.google_voltpatches.common.cache.Cache;
+import com.google_voltpatches.common.cache.CacheBuilder;
+
+/**
+ * Plans of the ad hoc statements prepared with @AdHocPrepare, by handle, for
+ * @AdHocExecute to run them with new parameters without a trip through the planner.
+ *
+ * The handle of a statement is a hash of its SQL text, so it is the same on every
+ * node. A handle returned by one node works on any other node that has planned the
+ * statement, either for @AdHocPrepare or for a single statement @AdHoc call, and a
+ * node that does not know the handle tells the client, which then sends the text
+ * with @AdHoc and so teaches the node the handle.
+ * Plans made against an older catalog are planned again on their next execution,
+ * as those of @AdHoc are.
+ */
+public class AdHocPreparedStatementCache {
+    // Start of the status string of an @AdHocExecute of a handle that is not known here
+    public static final String UNKNOWN_HANDLE = "Unknown prepared statement handle";
+    static final int MAX_ENTRIES = 1000;
+
+    private final Cache<Long, AdHocPlannedStmtBatch> m_plans =
+            CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).build();
+
+    public static long handleForSql(String sql) {
+        return ByteBuffer.wrap(Digester.sha1(sql.getBytes(Constants.UTF8ENCODING))).getLong();
+    }
+
+    /**
+     * Keep the plan of a prepared statement, or of a single @AdHoc statement, which
+     * may be the text a client sent for a handle this node did not know. Statements
+     * without parameters are kept as well, their handles are prepared all the same.
+     *
+     * @return true if the plan is kept
+     */
+    public boolean offer(AdHocPlannedStmtBatch plans) {
+        AdHocPlannerWork work = plans.work;
+        if (plans.getPlannedStatementCount() != 1 || work.explainMode != ExplainMode.NONE ||
+                work.userPartitionKey != null) {
+            return false;
+        }
+        if (!work.invocationName.equals("@AdHocPrepare") && !work.invocationName.equals("@AdHocExecute") &&
+                !work.invocationName.equals("@AdHoc")) {
+            return false;
+        }
+        m_plans.put(handleForSql(work.sqlBatchText), plans);
+        return true;
+    }
+
+    /**
+     * @return the plans of the handle, null if it is not known
+     */
+    public AdHocPlannedStmtBatch get(long handle) {
+        return m_plans.getIfPresent(handle);
+    }
+
+    public void clear() {
+        m_plans.invalidateAll();
+    }
+}
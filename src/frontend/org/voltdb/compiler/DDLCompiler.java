@@ -99,6 +99,8 @@ public class DDLCompiler {
     static final int MAX_COLUMNS = 1024; // KEEP THIS < MAX_PARAM_COUNT to enable default CRUD update.
     static final int MAX_ROW_SIZE = 1024 * 1024 * 2;
     static final int MAX_BYTES_PER_UTF8_CHARACTER = 4;
+    static final int DEFAULT_TTL_BATCH_SIZE = 1000;
+    static final int DEFAULT_TTL_MAX_FREQUENCY = 1;
 
     static final String TABLE = "TABLE";
     static final String PROCEDURE = "PROCEDURE";
@@ -131,6 +133,9 @@ public class DDLCompiler {
      * Preserved here to avoid having to re-parse for planning */
     private final Map<Statement, VoltXMLElement> m_limitDeleteStmtToXml = new HashMap<>();
 
+    /** The same for the statements expiring the rows of tables with a TTL */
+    private final Map<Statement, VoltXMLElement> m_ttlStmtToXml = new HashMap<>();
+
     // Resolve classes using a custom loader. Needed for catalog version upgrade.
     final ClassLoader m_classLoader;
 
@@ -1312,6 +1317,7 @@ public class DDLCompiler {
 
         // Need the columnTypes sorted by column index.
         SortedMap<Integer, VoltType> columnTypes = new TreeMap<Integer, VoltType>();
+        VoltXMLElement ttlNode = null;
         for (VoltXMLElement subNode : node.children) {
 
             if (subNode.name.equals("columns")) {
@@ -1358,6 +1364,14 @@ public class DDLCompiler {
                     }
                 }
             }
+
+            if (subNode.name.equals("ttl")) {
+                ttlNode = subNode;
+            }
+        }
+
+        if (ttlNode != null) {
+            addTimeToLiveToCatalog(table, ttlNode);
         }
 
         table.setSignature(CatalogUtil.getSignatureForTable(name, columnTypes));
@@ -1708,7 +1722,13 @@ public class DDLCompiler {
         // set the type of the index based on the index name and column types
         // Currently, only int types can use hash or array indexes
         String indexNameNoCase = name.toLowerCase();
-        if (indexNameNoCase.contains("tree"))
+        if (indexNameNoCase.contains("btree"))
+        {
+            // B+tree, with the same capabilities as the red-black tree
+            index.setType(IndexType.BTREE.getValue());
+            index.setCountable(true);
+        }
+        else if (indexNameNoCase.contains("tree"))
         {
             index.setType(IndexType.BALANCED_TREE.getValue());
             index.setCountable(true);
@@ -1864,6 +1884,113 @@ public class DDLCompiler {
         return Collections.unmodifiableCollection(m_limitDeleteStmtToXml.entrySet());
     }
 
+    /** Accessor */
+    public Collection<Map.Entry<Statement, VoltXMLElement>> getTimeToLiveStmtToXmlEntries() {
+        return Collections.unmodifiableCollection(m_ttlStmtToXml.entrySet());
+    }
+
+    /**
+     * Add the TTL of a table to the catalog, along with the statements that
+     * find and delete a batch of its expired rows. Rows are deleted oldest
+     * first, so the TTL column should lead an ordered index; without one
+     * every batch scans the whole partition.
+     * @param table    The table whose rows expire
+     * @param node     The XML node of the USING TTL clause
+     * @throws VoltCompilerException
+     */
+    private void addTimeToLiveToCatalog(Table table, VoltXMLElement node) throws VoltCompilerException {
+        assert node.name.equals("ttl");
+
+        String tableName = table.getTypeName();
+        String msgPrefix = "Invalid TTL on table " + tableName + ": ";
+        int value = Integer.parseInt(node.attributes.get("value"));
+        String unit = node.attributes.get("unit");
+        long seconds;
+        if (unit.equals("SECONDS")) {
+            seconds = value;
+        }
+        else if (unit.equals("MINUTES")) {
+            seconds = value * 60L;
+        }
+        else if (unit.equals("HOURS")) {
+            seconds = value * 3600L;
+        }
+        else {
+            assert(unit.equals("DAYS"));
+            seconds = value * 86400L;
+        }
+        if (seconds <= 0 || seconds > Integer.MAX_VALUE) {
+            throw m_compiler.new VoltCompilerException(msgPrefix + "the time to live must be between 1 and " +
+                    Integer.MAX_VALUE + " seconds");
+        }
+
+        Column column = columnMap.get(node.attributes.get("column"));
+        if (column == null) {
+            throw m_compiler.new VoltCompilerException(msgPrefix + "column " +
+                    node.attributes.get("column") + " does not exist");
+        }
+        if (column.getType() != VoltType.TIMESTAMP.getValue()) {
+            throw m_compiler.new VoltCompilerException(msgPrefix + "column " + column.getTypeName() +
+                    " must be a TIMESTAMP");
+        }
+
+        int batchSize = DEFAULT_TTL_BATCH_SIZE;
+        if (node.attributes.containsKey("batchsize")) {
+            batchSize = Integer.parseInt(node.attributes.get("batchsize"));
+        }
+        int maxFrequency = DEFAULT_TTL_MAX_FREQUENCY;
+        if (node.attributes.containsKey("maxfrequency")) {
+            maxFrequency = Integer.parseInt(node.attributes.get("maxfrequency"));
+        }
+        if (batchSize <= 0 || maxFrequency <= 0) {
+            throw m_compiler.new VoltCompilerException(msgPrefix + "BATCH_SIZE and MAX_FREQUENCY must be positive");
+        }
+
+        table.setTtlseconds((int) seconds);
+        table.setTtlcolumn(column);
+        table.setTtlbatchsize(batchSize);
+        table.setTtlmaxfrequency(maxFrequency);
+
+        boolean indexed = false;
+        for (Index index : table.getIndexes()) {
+            if (index.getType() != IndexType.HASH_TABLE.getValue() &&
+                    index.getExpressionsjson().isEmpty() &&
+                    index.getPredicatejson().isEmpty()) {
+                for (ColumnRef colRef : index.getColumns()) {
+                    if (colRef.getIndex() == 0 && colRef.getColumn() == column) {
+                        indexed = true;
+                    }
+                }
+            }
+        }
+        if (! indexed) {
+            m_compiler.addWarn("TTL column " + column.getTypeName() + " of table " + tableName +
+                    " is not the first column of an ordered index." +
+                    " Every batch of expired rows will be found by a full table scan.");
+        }
+
+        // The boundary is the timestamp of the last row of the next batch, so that
+        // deleting up to and including it removes at least a batch (more on ties).
+        String columnName = column.getTypeName();
+        addTimeToLiveStmt(table, CatalogUtil.TTL_BOUNDARY_STMT,
+                "SELECT " + columnName + " FROM " + tableName + " WHERE " + columnName + " < ?" +
+                " ORDER BY " + columnName + " LIMIT 1 OFFSET ?;");
+        addTimeToLiveStmt(table, CatalogUtil.TTL_DELETE_STMT,
+                "DELETE FROM " + tableName + " WHERE " + columnName + " <= ?;");
+    }
+
+    private void addTimeToLiveStmt(Table table, String name, String sql) throws VoltCompilerException {
+        Statement catStmt = table.getTtlstmts().add(name);
+        catStmt.setSqltext(sql);
+        try {
+            m_ttlStmtToXml.put(catStmt, m_hsql.getXMLCompiledStatement(sql));
+        }
+        catch (HSQLInterface.HSQLParseException e) {
+            throw m_compiler.new VoltCompilerException("Invalid TTL on table " + table.getTypeName() +
+                    ": " + e.getMessage());
+        }
+    }
+
     /**
      * Add a constraint on a given table to the catalog
      * @param table                The table on which the constraint will be enforced
@@ -1947,7 +2074,9 @@ public class DDLCompiler {
         if (catalog_index != null) {
             // if the constraint name contains index type hints, exercise them (giant hack)
             String constraintNameNoCase = name.toLowerCase();
-            if (constraintNameNoCase.contains("tree"))
+            if (constraintNameNoCase.contains("btree"))
+                catalog_index.setType(IndexType.BTREE.getValue());
+            else if (constraintNameNoCase.contains("tree"))
                 catalog_index.setType(IndexType.BALANCED_TREE.getValue());
             if (constraintNameNoCase.contains("hash"))
                 catalog_index.setType(IndexType.HASH_TABLE.getValue());
@@ -2099,7 +2228,11 @@ public class DDLCompiler {
             List<AbstractExpression> aggregationExprs = new ArrayList<AbstractExpression>();
             boolean hasAggregationExprs = false;
             boolean hasMinOrMaxAgg = false;
+            boolean hasApproxCountDistinctAgg = false;
             ArrayList<AbstractExpression> minMaxAggs = new ArrayList<AbstractExpression>();
+            // The source columns of the MIN / MAX arguments, as long as every group by key
+            // and MIN / MAX argument is a plain column.
+            List<Column> minMaxColumns = (groupbyExprs == null) ? new ArrayList<Column>() : null;
             for (int i = stmt.m_groupByColumns.size() + 1; i < stmt.m_displayColumns.size(); i++) {
                 ParsedColInfo col = stmt.m_displayColumns.get(i);
                 AbstractExpression aggExpr = col.expression.getLeft();
@@ -2111,6 +2244,18 @@ public class DDLCompiler {
                         col.expression.getExpressionType() == ExpressionType.AGGREGATE_MAX) {
                     hasMinOrMaxAgg = true;
                     minMaxAggs.add(aggExpr);
+                    if (minMaxColumns != null) {
+                        if (aggExpr.getExpressionType() == ExpressionType.VALUE_TUPLE) {
+                            String columnName = ((TupleValueExpression)aggExpr).getColumnName();
+                            minMaxColumns.add(srcTable.getColumns().getIgnoreCase(columnName));
+                        }
+                        else {
+                            minMaxColumns = null;
+                        }
+                    }
+                }
+                if (col.expression.getExpressionType() == ExpressionType.AGGREGATE_APPROX_COUNT_DISTINCT) {
+                    hasApproxCountDistinctAgg = true;
                 }
             }
 
@@ -2126,18 +2271,34 @@ public class DDLCompiler {
                 matviewinfo.setAggregationexpressionsjson(aggregationExprsJson);
             }
 
-            if (hasMinOrMaxAgg) {
-                // TODO: deal with minMaxAggs, i.e. if only one min/max agg, try to find the index
-                // with group by cols followed by this agg col; if multiple min/max aggs, decide
-                // what to do (probably the index on group by cols is the best choice)
-                Index found = findBestMatchIndexForMatviewMinOrMax(matviewinfo, srcTable, groupbyExprs);
+            // APPROX_COUNT_DISTINCT uses the same index to rebuild the sketch of a group.
+            if (hasMinOrMaxAgg || hasApproxCountDistinctAgg) {
+                Index found = findBestMatchIndexForMatviewMinOrMax(matviewinfo, srcTable,
+                        groupbyExprs, minMaxColumns);
+                if ( ! isIndexCoveringMinOrMax(found, matviewinfo, minMaxColumns)) {
+                    // Without an index on the group by columns followed by the MIN / MAX
+                    // argument, deleting the current MIN / MAX of a group scans the group
+                    // (or the whole table). Create one so that the next MIN / MAX is a
+                    // single index lookup.
+                    Index created = addMatviewMinOrMaxIndex(matviewinfo, srcTable, minMaxColumns);
+                    if (created != null) {
+                        found = created;
+                    }
+                }
                 if (found != null) {
                     matviewinfo.setIndexforminmax(found.getTypeName());
                 } else {
                     matviewinfo.setIndexforminmax("");
-                    m_compiler.addWarn("No index found to support min() / max() UPDATE and DELETE on Materialized View " +
-                            matviewinfo.getTypeName() +
-                            ", and a sequential scan might be issued when current min / max value is updated / deleted.");
+                    if (hasMinOrMaxAgg) {
+                        m_compiler.addWarn("No index found to support min() / max() UPDATE and DELETE on Materialized View " +
+                                matviewinfo.getTypeName() +
+                                ", and a sequential scan might be issued when current min / max value is updated / deleted.");
+                    }
+                    if (hasApproxCountDistinctAgg) {
+                        m_compiler.addWarn("No index found to support approx_count_distinct() UPDATE and DELETE on Materialized View " +
+                                matviewinfo.getTypeName() +
+                                ", and a sequential scan will be issued when a source row is updated / deleted.");
+                    }
                 }
             } else {
                 matviewinfo.setIndexforminmax("");
@@ -2163,22 +2324,110 @@ public class DDLCompiler {
         }
     }
 
+    // Return true if the index is a tree index on the group by columns IN ORDER followed by
+    // the argument column of one of the MIN / MAX aggregates. The EE finds the next MIN / MAX
+    // of a group in such an index with a single lookup instead of scanning the group.
+    private static boolean isIndexCoveringMinOrMax(Index index, MaterializedViewInfo matviewinfo,
+            List<Column> minMaxColumns)
+    {
+        if (index == null || minMaxColumns == null ||
+                ! IndexType.isScannable(index.getType()) ||
+                ! index.getExpressionsjson().isEmpty()) {
+            return false;
+        }
+        List<ColumnRef> indexedColRefs = CatalogUtil.getSortedCatalogItems(index.getColumns(), "index");
+        List<ColumnRef> groupbyColRefs = CatalogUtil.getSortedCatalogItems(matviewinfo.getGroupbycols(), "index");
+        if (indexedColRefs.size() != groupbyColRefs.size() + 1) {
+            return false;
+        }
+        for (int i = 0; i < groupbyColRefs.size(); ++i) {
+            if (groupbyColRefs.get(i).getColumn().getIndex() != indexedColRefs.get(i).getColumn().getIndex()) {
+                return false;
+            }
+        }
+        Column lastColumn = indexedColRefs.get(groupbyColRefs.size()).getColumn();
+        for (Column minMaxColumn : minMaxColumns) {
+            if (minMaxColumn.getIndex() == lastColumn.getIndex()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Create a non-unique tree index on the source table over the group by columns followed by
+    // the argument column of the first MIN / MAX aggregate. The index is named after the view,
+    // and like other generated indexes it is not part of the canonical DDL.
+    // Return null if the view has no such index (its keys are not plain columns, or the
+    // MIN / MAX argument cannot be an index key).
+    private Index addMatviewMinOrMaxIndex(MaterializedViewInfo matviewinfo, Table srcTable,
+            List<Column> minMaxColumns)
+    {
+        if (minMaxColumns == null || minMaxColumns.isEmpty()) {
+            return null;
+        }
+        Column minMaxColumn = minMaxColumns.get(0);
+        if (minMaxColumn.getType() == VoltType.VARBINARY.getValue()) {
+            return null;
+        }
+        List<ColumnRef> groupbyColRefs = CatalogUtil.getSortedCatalogItems(matviewinfo.getGroupbycols(), "index");
+        for (ColumnRef groupbyColRef : groupbyColRefs) {
+            if (groupbyColRef.getColumn().getIndex() == minMaxColumn.getIndex()) {
+                return null;
+            }
+        }
+
+        String indexName = HSQLInterface.AUTO_GEN_MATVIEW_MINMAX_IDX_PREFIX + matviewinfo.getTypeName();
+        Index index = srcTable.getIndexes().add(indexName);
+        index.setType(IndexType.BALANCED_TREE.getValue());
+        // The lookup of the next MIN / MAX needs no rank
+        index.setCountable(false);
+        index.setUnique(false);
+        index.setAssumeunique(false);
+        int i = 0;
+        StringBuilder columnNames = new StringBuilder();
+        for (ColumnRef groupbyColRef : groupbyColRefs) {
+            ColumnRef cref = index.getColumns().add(groupbyColRef.getColumn().getTypeName());
+            cref.setColumn(groupbyColRef.getColumn());
+            cref.setIndex(i++);
+            columnNames.append(groupbyColRef.getColumn().getTypeName()).append(", ");
+        }
+        ColumnRef cref = index.getColumns().add(minMaxColumn.getTypeName());
+        cref.setColumn(minMaxColumn);
+        cref.setIndex(i);
+        columnNames.append(minMaxColumn.getTypeName());
+
+        // Existing schemas get the index too when they are recompiled, so make it visible
+        m_compiler.addWarn("Created index " + indexName + " on table " + srcTable.getTypeName() +
+                " (" + columnNames + ") to support min() / max() UPDATE and DELETE on Materialized View " +
+                matviewinfo.getTypeName() + ". It takes memory for one index entry per row of " +
+                srcTable.getTypeName() + " and is updated by every insert and delete on it.");
+        return index;
+    }
+
     // if the materialized view has MIN / MAX, try to find an index defined on the source table
     // covering all group by cols / exprs to avoid expensive tablescan.
-    // For now, the only acceptable index is defined exactly on the group by columns IN ORDER.
+    // The best index is a tree index on the group by columns IN ORDER followed by a MIN / MAX
+    // argument column: the next MIN / MAX of a group is then found with a single lookup.
+    // Otherwise, the acceptable index is defined exactly on the group by columns IN ORDER.
     // This allows the same key to be used to do lookups on the grouped table index and the
     // base table index.
     // TODO: More flexible (but usually less optimal*) indexes may be allowed here and supported
     // in the EE in the future including:
     //   -- *indexes on the group keys listed out of order
     //   -- *indexes on the group keys as a prefix before other indexed values.
-    //   -- indexes on the group keys PLUS the MIN/MAX argument value (to eliminate post-filtering)
     private static Index findBestMatchIndexForMatviewMinOrMax(MaterializedViewInfo matviewinfo,
-            Table srcTable, List<AbstractExpression> groupbyExprs)
+            Table srcTable, List<AbstractExpression> groupbyExprs, List<Column> minMaxColumns)
     {
         CatalogMap<Index> allIndexes = srcTable.getIndexes();
         StmtTableScan tableScan = new StmtTargetTableScan(srcTable, srcTable.getTypeName());
 
+        for (Index index : allIndexes) {
+            if (isIndexCoveringMinOrMax(index, matviewinfo, minMaxColumns) &&
+                    isPartialIndexCoveredByMatview(index, matviewinfo, tableScan)) {
+                return index;
+            }
+        }
+
         for (Index index : allIndexes) {
             boolean matchedAll = true;
             // Match based on one of two algorithms depending on whether expressions are all simple columns.
@@ -2227,32 +2476,38 @@ public class DDLCompiler {
                     }
                 }
             }
-            if (matchedAll && !index.getPredicatejson().isEmpty()) {
-                // Additional check for partial indexes to make sure matview WHERE clause
-                // covers the partial index predicate
-                List<AbstractExpression> coveringExprs = new ArrayList<AbstractExpression>();
-                List<AbstractExpression> exactMatchCoveringExprs = new ArrayList<AbstractExpression>();
-                try {
-                    String encodedPredicate = matviewinfo.getPredicate();
-                    if (!encodedPredicate.isEmpty()) {
-                        String predicate = Encoder.hexDecodeToString(encodedPredicate);
-                        AbstractExpression matViewPredicate = AbstractExpression.fromJSONString(predicate, tableScan);
-                        coveringExprs.addAll(ExpressionUtil.uncombineAny(matViewPredicate));
-                    }
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                    assert(false);
-                    return null;
-                }
-                matchedAll = SubPlanAssembler.isPartialIndexPredicateIsCovered(tableScan, coveringExprs, index, exactMatchCoveringExprs);
-            }
-            if (matchedAll) {
+            if (matchedAll && isPartialIndexCoveredByMatview(index, matviewinfo, tableScan)) {
                 return index;
             }
         }
         return null;
     }
 
+    // Additional check for partial indexes to make sure matview WHERE clause
+    // covers the partial index predicate
+    private static boolean isPartialIndexCoveredByMatview(Index index, MaterializedViewInfo matviewinfo,
+            StmtTableScan tableScan)
+    {
+        if (index.getPredicatejson().isEmpty()) {
+            return true;
+        }
+        List<AbstractExpression> coveringExprs = new ArrayList<AbstractExpression>();
+        List<AbstractExpression> exactMatchCoveringExprs = new ArrayList<AbstractExpression>();
+        try {
+            String encodedPredicate = matviewinfo.getPredicate();
+            if (!encodedPredicate.isEmpty()) {
+                String predicate = Encoder.hexDecodeToString(encodedPredicate);
+                AbstractExpression matViewPredicate = AbstractExpression.fromJSONString(predicate, tableScan);
+                coveringExprs.addAll(ExpressionUtil.uncombineAny(matViewPredicate));
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+            assert(false);
+            return false;
+        }
+        return SubPlanAssembler.isPartialIndexPredicateIsCovered(tableScan, coveringExprs, index, exactMatchCoveringExprs);
+    }
+
     /**
      * Build the abstract expression representing the partial index predicate.
      * Verify it satisfies the rules. Throw error messages otherwise.
@@ -2371,8 +2626,9 @@ public class DDLCompiler {
             if ((outcol.expression.getExpressionType() != ExpressionType.AGGREGATE_COUNT) &&
                     (outcol.expression.getExpressionType() != ExpressionType.AGGREGATE_SUM) &&
                     (outcol.expression.getExpressionType() != ExpressionType.AGGREGATE_MIN) &&
-                    (outcol.expression.getExpressionType() != ExpressionType.AGGREGATE_MAX)) {
-                msg += "must have non-group by columns aggregated by sum, count, min or max.";
+                    (outcol.expression.getExpressionType() != ExpressionType.AGGREGATE_MAX) &&
+                    (outcol.expression.getExpressionType() != ExpressionType.AGGREGATE_APPROX_COUNT_DISTINCT)) {
+                msg += "must have non-group by columns aggregated by sum, count, min, max or approx_count_distinct.";
                 throw m_compiler.new VoltCompilerException(msg);
             }
             checkExpressions.add(outcol.expression);
@@ -0,0 +1,227 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hsqldb_voltpatches.HSQLInterface;
+import org.hsqldb_voltpatches.HSQLInterface.HSQLParseException;
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.Database;
+import org.voltdb.planner.CompiledPlan;
+import org.voltdb.planner.StatementPartitioning;
+import org.voltdb.utils.Encoder;
+
+/**
+ * Plans the statements of the procedures of a catalog ahead of their compilation,
+ * on several threads that each have an hsql loaded with the schema of the catalog.
+ *
+ * Nothing is written to the catalog or reported to the compiler here. The procedures
+ * are still compiled one after the other, in order, and each of their statements takes
+ * its plan, or the exception planning it threw, from here instead of planning it then,
+ * so the catalog and the feedback come out as they do when compiling serially.
+ * A statement the procedure compiler asks for differently than it was added here is
+ * just planned again at that point.
+ */
+class ParallelStatementPlanner {
+
+    /** The outcome of planning one statement */
+    static class PlannedStatement {
+        final String sql;
+        final String joinOrder;
+        final DeterminismMode detMode;
+        final StatementPartitioning partitioning;
+        CompiledPlan plan = null;
+        Throwable error = null;
+        long planningNanos = 0;
+
+        PlannedStatement(String sql, String joinOrder, DeterminismMode detMode,
+                StatementPartitioning partitioning) {
+            this.sql = sql;
+            this.joinOrder = joinOrder;
+            this.detMode = detMode;
+            this.partitioning = partitioning;
+        }
+
+        boolean matches(String sql, String joinOrder, DeterminismMode detMode,
+                StatementPartitioning partitioning) {
+            return this.sql.equals(sql) &&
+                    (this.joinOrder == null ? joinOrder == null : this.joinOrder.equals(joinOrder)) &&
+                    this.detMode == detMode &&
+                    this.partitioning.isInferred() == partitioning.isInferred() &&
+                    this.partitioning.wasSpecifiedAsSingle() == partitioning.wasSpecifiedAsSingle();
+        }
+
+        /**
+         * @return the plan, after updating the partitioning of the caller as planning it did
+         * @throws Exception the exception planning the statement threw
+         */
+        CompiledPlan getPlan(StatementPartitioning callerPartitioning) throws Exception {
+            if (error instanceof Error) {
+                throw (Error) error;
+            }
+            if (error != null) {
+                throw (Exception) error;
+            }
+            callerPartitioning.copyPlanningResults(partitioning);
+            return plan;
+        }
+    }
+
+    private final Map<String, PlannedStatement> m_statements = new HashMap<>();
+    private final Map<String, Long> m_planningNanosByProcedure = new HashMap<>();
+
+    private static String key(String procName, String stmtName) {
+        return procName + "." + stmtName;
+    }
+
+    /**
+     * Queue a statement to plan with the given arguments of the planner.
+     */
+    void add(String procName, String stmtName, String sqlText, String joinOrder,
+            DeterminismMode detMode, StatementPartitioning partitioning) {
+        String sql = StatementCompiler.normalizeSqlText(sqlText);
+        m_statements.put(key(procName, stmtName),
+                new PlannedStatement(sql, joinOrder, detMode, (StatementPartitioning) partitioning.clone()));
+    }
+
+    int size() {
+        return m_statements.size();
+    }
+
+    /**
+     * Plan all the queued statements and wait for them.
+     *
+     * @param threadCount number of planning threads, each with its own hsql
+     */
+    void planAll(final Catalog catalog, final Database db, final DatabaseEstimates estimates, int threadCount)
+            throws InterruptedException {
+        final List<Map.Entry<String, PlannedStatement>> work =
+                new ArrayList<Map.Entry<String, PlannedStatement>>(m_statements.entrySet());
+        final String[] ddl = Encoder.decodeBase64AndDecompress(db.getSchema()).split("\n");
+        final AtomicInteger next = new AtomicInteger();
+        threadCount = Math.min(threadCount, work.size());
+        if (threadCount == 0) {
+            return;
+        }
+
+        ExecutorService es = Executors.newFixedThreadPool(threadCount,
+                CoreUtils.getThreadFactory("Statement Planner", CoreUtils.MEDIUM_STACK_SIZE));
+        boolean failed = false;
+        try {
+            List<Future<?>> planners = new ArrayList<Future<?>>();
+            for (int i = 0; i < threadCount; ++i) {
+                planners.add(es.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        HSQLInterface hsql = loadSchema(ddl);
+                        int index;
+                        while ((index = next.getAndIncrement()) < work.size()) {
+                            Map.Entry<String, PlannedStatement> entry = work.get(index);
+                            plan(catalog, db, estimates, hsql, entry.getKey(), entry.getValue());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> planner : planners) {
+                try {
+                    planner.get();
+                } catch (ExecutionException e) {
+                    // statements are planned as they are compiled when there's no telling
+                    // which of them this thread did not get to
+                    failed = true;
+                }
+            }
+        } finally {
+            es.shutdown();
+        }
+        if (failed) {
+            m_statements.clear();
+            return;
+        }
+
+        for (Map.Entry<String, PlannedStatement> entry : work) {
+            String procName = entry.getKey().substring(0, entry.getKey().lastIndexOf('.'));
+            Long nanos = m_planningNanosByProcedure.get(procName);
+            m_planningNanosByProcedure.put(procName,
+                    (nanos == null ? 0 : nanos) + entry.getValue().planningNanos);
+        }
+    }
+
+    private static HSQLInterface loadSchema(String[] ddl) {
+        HSQLInterface hsql = HSQLInterface.loadHsqldb();
+        for (String command : ddl) {
+            String decoded_cmd = Encoder.hexDecodeToString(command).trim();
+            if (decoded_cmd.length() == 0) {
+                continue;
+            }
+            try {
+                hsql.runDDLCommand(decoded_cmd);
+            }
+            catch (HSQLParseException e) {
+                throw new RuntimeException("Error creating hsql: " + e.getMessage() + " in DDL statement: " + decoded_cmd);
+            }
+        }
+        return hsql;
+    }
+
+    private static void plan(Catalog catalog, Database db, DatabaseEstimates estimates, HSQLInterface hsql,
+            String key, PlannedStatement stmt) {
+        int dot = key.lastIndexOf('.');
+        long start = System.nanoTime();
+        try {
+            stmt.plan = StatementCompiler.planStatement(catalog, db, estimates, hsql,
+                    key.substring(0, dot), key.substring(dot + 1), stmt.sql, null,
+                    stmt.joinOrder, stmt.detMode, stmt.partitioning);
+        }
+        catch (Throwable t) {
+            stmt.error = t;
+        }
+        stmt.planningNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * @return the planned statement if it was planned with the same arguments, null otherwise
+     */
+    PlannedStatement take(String procName, String stmtName, String sql, String joinOrder,
+            DeterminismMode detMode, StatementPartitioning partitioning) {
+        PlannedStatement stmt = m_statements.remove(key(procName, stmtName));
+        if (stmt == null || stmt.plan == null && stmt.error == null ||
+                !stmt.matches(sql, joinOrder, detMode, partitioning)) {
+            return null;
+        }
+        return stmt;
+    }
+
+    /**
+     * @return the time spent planning the statements of a procedure ahead of its compilation
+     */
+    long getPlanningNanos(String procName) {
+        Long nanos = m_planningNanosByProcedure.get(procName);
+        return nanos == null ? 0 : nanos;
+    }
+}
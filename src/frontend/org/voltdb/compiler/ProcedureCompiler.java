@@ -89,6 +89,92 @@ public abstract class ProcedureCompiler implements GroovyCodeBlockConstants {
         }
     }
 
+    /**
+     * @return the name of the catalog procedure compiled from the descriptor
+     */
+    static String deriveProcedureName(ProcedureDescriptor procedureDescriptor) {
+        if (procedureDescriptor.m_builtInStmt) {
+            return procedureDescriptor.m_className;
+        }
+        return deriveShortProcedureName(procedureDescriptor.m_className);
+    }
+
+    /**
+     * Queue the statements of a procedure to be planned ahead of its compilation,
+     * with the arguments the compilation will plan them with. Nothing is reported
+     * here, a procedure that fails to introspect is left for its compilation to
+     * plan and report about.
+     */
+    static void addStatementsToPlan(VoltCompiler compiler,
+                                    ParallelStatementPlanner planner,
+                                    ProcedureDescriptor procedureDescriptor)
+    {
+        String shortName = deriveProcedureName(procedureDescriptor);
+        ProcInfoData info = compiler.getProcInfoOverride(shortName);
+        String partitionString = procedureDescriptor.m_partitionString;
+
+        if (procedureDescriptor.m_singleStmt != null) {
+            boolean singlePartition = info != null ? info.singlePartition : partitionString != null;
+            addStatementToPlan(compiler, planner, shortName, VoltDB.ANON_STMT_NAME,
+                    procedureDescriptor.m_singleStmt, procedureDescriptor.m_joinOrder,
+                    DeterminismMode.FASTER, singlePartition);
+            return;
+        }
+
+        Class<?> procClass = procedureDescriptor.m_class;
+        if (procedureDescriptor.m_language != Language.JAVA || procClass == null) {
+            return;
+        }
+        Map<String, SQLStmt> stmts;
+        try {
+            VoltProcedure procInstance = (VoltProcedure) procClass.newInstance();
+            stmts = getValidSQLStmts(null, procClass.getSimpleName(), procClass, procInstance, true);
+        } catch (Exception e) {
+            return;
+        }
+
+        boolean singlePartition;
+        if (info != null) {
+            singlePartition = info.singlePartition;
+        }
+        else if (procClass.getAnnotation(ProcInfo.class) != null) {
+            singlePartition = procClass.getAnnotation(ProcInfo.class).singlePartition();
+        }
+        else {
+            singlePartition = partitionString != null && ! partitionString.trim().isEmpty();
+        }
+
+        boolean readWrite = false;
+        for (SQLStmt stmt : stmts.values()) {
+            if (!QueryType.getFromSQL(stmt.getText()).isReadOnly()) {
+                readWrite = true;
+                break;
+            }
+        }
+        DeterminismMode detMode = readWrite ? DeterminismMode.SAFER : DeterminismMode.FASTER;
+
+        for (Entry<String, SQLStmt> entry : stmts.entrySet()) {
+            addStatementToPlan(compiler, planner, shortName, entry.getKey(),
+                    entry.getValue().getText(), entry.getValue().getJoinOrder(), detMode, singlePartition);
+        }
+    }
+
+    private static void addStatementToPlan(VoltCompiler compiler, ParallelStatementPlanner planner,
+            String procName, String stmtName, String sqlText, String joinOrder,
+            DeterminismMode detMode, boolean singlePartition)
+    {
+        StatementPartitioning partitioning =
+            singlePartition ? StatementPartitioning.forceSP() :
+                              StatementPartitioning.forceMP();
+        // statements from the previous catalog are not planned again
+        String keyPrefix = compiler.getKeyPrefix(partitioning, detMode, joinOrder);
+        if (keyPrefix != null &&
+                compiler.getCachedStatement(keyPrefix, StatementCompiler.normalizeSqlText(sqlText)) != null) {
+            return;
+        }
+        planner.add(procName, stmtName, sqlText, joinOrder, detMode, partitioning);
+    }
+
     public static Map<String, SQLStmt> getValidSQLStmts(VoltCompiler compiler,
                                                         String procName,
                                                         Class<?> procClass,
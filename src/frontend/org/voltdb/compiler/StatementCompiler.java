@@ -91,17 +91,9 @@ public abstract class StatementCompiler {
             DeterminismMode detMode, StatementPartitioning partitioning)
     throws VoltCompiler.VoltCompilerException {
 
-        // Cleanup whitespace newlines for catalog compatibility
-        // and to make statement parsing easier.
-        stmt = stmt.replaceAll("\n", " ");
-        stmt = stmt.trim();
+        stmt = normalizeSqlText(stmt);
         compiler.addInfo("Compiling Statement: " + stmt);
 
-        // put the data in the catalog that we have
-        if (!stmt.endsWith(";")) {
-            stmt += ";";
-        }
-
         // if this key + sql is the same, then a cached stmt can be used
         String keyPrefix = compiler.getKeyPrefix(partitioning, detMode, joinOrder);
 
@@ -172,23 +164,21 @@ public abstract class StatementCompiler {
         String sql = catalogStmt.getSqltext();
         String stmtName = catalogStmt.getTypeName();
         String procName = catalogStmt.getParent().getTypeName();
-        TrivialCostModel costModel = new TrivialCostModel();
 
         CompiledPlan plan = null;
-        QueryPlanner planner = new QueryPlanner(
-                sql, stmtName, procName,  catalog.getClusters().get("cluster"), db,
-                partitioning, hsql, estimates, false, DEFAULT_MAX_JOIN_TABLES,
-                costModel, null, joinOrder, detMode);
+        // use the plan made ahead of time by the parallel planner, if any
+        ParallelStatementPlanner.PlannedStatement planned = null;
+        if (xml == null) {
+            planned = compiler.takePlannedStatement(procName, stmtName, sql, joinOrder, detMode, partitioning);
+        }
         try {
-            if (xml != null) {
-                planner.parseFromXml(xml);
+            if (planned != null) {
+                plan = planned.getPlan(partitioning);
             }
             else {
-                planner.parse();
+                plan = planStatement(catalog, db, estimates, hsql, procName, stmtName, sql, xml,
+                        joinOrder, detMode, partitioning);
             }
-
-            plan = planner.plan();
-            assert(plan != null);
         } catch (PlanningErrorException e) {
             // These are normal expectable errors -- don't normally need a stack-trace.
             String msg = "Failed to plan for statement (" + catalogStmt.getTypeName() + ") " + catalogStmt.getSqltext();
@@ -295,6 +285,43 @@ public abstract class StatementCompiler {
         return false;
     }
 
+    /**
+     * Cleanup whitespace newlines for catalog compatibility
+     * and to make statement parsing easier, and terminate the statement.
+     */
+    static String normalizeSqlText(String stmt) {
+        stmt = stmt.replaceAll("\n", " ");
+        stmt = stmt.trim();
+        if (!stmt.endsWith(";")) {
+            stmt += ";";
+        }
+        return stmt;
+    }
+
+    /**
+     * Plan a statement without touching the catalog or the compiler,
+     * so that it can run on any thread with an hsql of its own.
+     */
+    static CompiledPlan planStatement(Catalog catalog, Database db, DatabaseEstimates estimates,
+            HSQLInterface hsql, String procName, String stmtName, String sql, VoltXMLElement xml,
+            String joinOrder, DeterminismMode detMode, StatementPartitioning partitioning) {
+        TrivialCostModel costModel = new TrivialCostModel();
+        QueryPlanner planner = new QueryPlanner(
+                sql, stmtName, procName,  catalog.getClusters().get("cluster"), db,
+                partitioning, hsql, estimates, false, DEFAULT_MAX_JOIN_TABLES,
+                costModel, null, joinOrder, detMode);
+        if (xml != null) {
+            planner.parseFromXml(xml);
+        }
+        else {
+            planner.parse();
+        }
+
+        CompiledPlan plan = planner.plan();
+        assert(plan != null);
+        return plan;
+    }
+
     static boolean compileFromSqlTextAndUpdateCatalog(VoltCompiler compiler, HSQLInterface hsql,
             Catalog catalog, Database db, DatabaseEstimates estimates,
             Statement catalogStmt, String sqlText, String joinOrder,
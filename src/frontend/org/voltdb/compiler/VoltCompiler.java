@@ -86,6 +86,7 @@ import org.voltdb.compiler.projectfile.ProceduresType;
 import org.voltdb.compiler.projectfile.ProjectType;
 import org.voltdb.compiler.projectfile.RolesType;
 import org.voltdb.compiler.projectfile.SchemasType;
+import org.voltdb.compilereport.ProcedureAnnotation;
 import org.voltdb.compilereport.ReportMaker;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.TupleValueExpression;
@@ -117,9 +118,17 @@ public class VoltCompiler {
     // Also causes explain plans on disk to include cost.
     public final static boolean DEBUG_MODE = System.getProperties().contains("compilerdebug");
 
+    // Number of threads planning the statements of the procedures ahead of their compilation.
+    // With 1, the default, each statement is planned as it is compiled.
+    public final static int DEFAULT_PLANNER_THREADS = Integer.getInteger("compilerplannerthreads", 1);
+
     // was this voltcompiler instantiated in a main(), or as part of VoltDB
     public final boolean standaloneCompiler;
 
+    private int m_plannerThreads = DEFAULT_PLANNER_THREADS;
+    // statements of the procedures being compiled, planned ahead of time when compiling in parallel
+    private ParallelStatementPlanner m_parallelPlanner = null;
+
     // tables that change between the previous compile and this one
     // used for Live-DDL caching of plans
     private final Set<String> m_dirtyTables = new TreeSet<>();
@@ -361,6 +370,15 @@ public class VoltCompiler {
         this(false);
     }
 
+    /**
+     * Plan the statements of the procedures on several threads, each with its own hsql,
+     * before the procedures are compiled. The catalog comes out the same.
+     * @param threads number of planning threads, 1 to plan the statements as they are compiled
+     */
+    public void setPlannerThreads(int threads) {
+        m_plannerThreads = Math.max(1, threads);
+    }
+
     public boolean hasErrors() {
         return m_errors.size() > 0;
     }
@@ -1229,10 +1247,33 @@ public class VoltCompiler {
         m_importLines = voltDdlTracker.m_importLines.toArray(new String[0]);
         addExtraClasses(jarOutput);
 
-        compileRowLimitDeleteStmts(db, hsql, ddlcompiler.getLimitDeleteStmtToXmlEntries());
+        compileTableStmts(db, hsql, ddlcompiler.getLimitDeleteStmtToXmlEntries());
+        compileTimeToLiveStmts(db, hsql, ddlcompiler.getTimeToLiveStmtToXmlEntries());
     }
 
-    private void compileRowLimitDeleteStmts(
+    private void compileTimeToLiveStmts(
+            Database db,
+            HSQLInterface hsql,
+            Collection<Map.Entry<Statement, VoltXMLElement>> ttlStmtXmlEntries)
+            throws VoltCompilerException {
+
+        // Expired rows are deleted by single partition transactions,
+        // one partition at a time.
+        for (Table table : db.getTables()) {
+            if (table.getTtlseconds() > 0 && table.getIsreplicated()) {
+                throw new VoltCompilerException("Invalid TTL on table " + table.getTypeName() +
+                        ": TTL is only supported on partitioned tables");
+            }
+        }
+        compileTableStmts(db, hsql, ttlStmtXmlEntries);
+    }
+
+    /**
+     * Compile the statements that belong to tables rather than procedures:
+     * the DELETE of a LIMIT PARTITION ROWS constraint and the TTL statements.
+     * They run on each partition in turn.
+     */
+    private void compileTableStmts(
             Database db,
             HSQLInterface hsql,
             Collection<Map.Entry<Statement, VoltXMLElement>> deleteStmtXmlEntries)
@@ -1400,6 +1441,24 @@ public class VoltCompiler {
         final List<ProcedureDescriptor> procedures = new ArrayList<>();
         procedures.addAll(allProcs);
 
+        // Plan the statements of all the procedures at once, the compilation
+        // of each procedure below then picks up the plans of its statements
+        m_parallelPlanner = null;
+        if (m_plannerThreads > 1) {
+            m_parallelPlanner = new ParallelStatementPlanner();
+            for (final ProcedureDescriptor procedureDescriptor : procedures) {
+                if (procedureDescriptor.m_singleStmt != null ||
+                        whichProcs != DdlProceduresToLoad.ONLY_SINGLE_STATEMENT_PROCEDURES) {
+                    ProcedureCompiler.addStatementsToPlan(this, m_parallelPlanner, procedureDescriptor);
+                }
+            }
+            try {
+                m_parallelPlanner.planAll(m_catalog, db, m_estimates, m_plannerThreads);
+            } catch (InterruptedException e) {
+                throw new VoltCompilerException("Interrupted while planning statements", e);
+            }
+        }
+
         // Actually parse and handle all the Procedures
         for (final ProcedureDescriptor procedureDescriptor : procedures) {
             final String procedureName = procedureDescriptor.m_className;
@@ -1418,10 +1477,28 @@ public class VoltCompiler {
             else {
                 m_currentFilename = procedureName;
             }
+            long start = System.nanoTime();
             ProcedureCompiler.compile(this, hsql, m_estimates, m_catalog, db, procedureDescriptor, jarOutput);
+            long compileNanos = System.nanoTime() - start;
+
+            // report the time spent on the procedure, planning ahead included
+            String procName = ProcedureCompiler.deriveProcedureName(procedureDescriptor);
+            if (m_parallelPlanner != null) {
+                compileNanos += m_parallelPlanner.getPlanningNanos(procName);
+            }
+            Procedure procedure = db.getProcedures().get(procName);
+            if (procedure != null) {
+                ProcedureAnnotation pa = (ProcedureAnnotation) procedure.getAnnotation();
+                if (pa == null) {
+                    pa = new ProcedureAnnotation();
+                    procedure.setAnnotation(pa);
+                }
+                pa.compileTimeNanos = compileNanos;
+            }
         }
         // done handling files
         m_currentFilename = NO_FILENAME;
+        m_parallelPlanner = null;
 
         // allow gc to reclaim any cache memory here
         m_previousCatalogStmts.clear();
@@ -2458,6 +2535,17 @@ public class VoltCompiler {
         return joinOrderPrefix + String.valueOf(detMode.toChar()) + (partitioned ? "P#" : "R#");
     }
 
+    /**
+     * @return the statement if it has been planned ahead with the same arguments, null otherwise
+     */
+    ParallelStatementPlanner.PlannedStatement takePlannedStatement(String procName, String stmtName,
+            String sql, String joinOrder, DeterminismMode detMode, StatementPartitioning partitioning) {
+        if (m_parallelPlanner == null) {
+            return null;
+        }
+        return m_parallelPlanner.take(procName, stmtName, sql, joinOrder, detMode, partitioning);
+    }
+
     void addStatementToCache(Statement stmt) {
         String key = stmt.getCachekeyprefix() + stmt.getSqltext();
         m_previousCatalogStmts.put(key, stmt);
@@ -35,4 +35,6 @@ public class ProcedureAnnotation {
     public SortedSet<Table> tablesUpdated = new TreeSet<Table>();
     public String scriptImpl = null;
     public boolean classAnnotated = false;
+    // time spent compiling the procedure, including planning its statements
+    public long compileTimeNanos = 0;
 }
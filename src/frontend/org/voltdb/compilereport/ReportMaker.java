@@ -581,11 +581,28 @@ public class ReportMaker {
         }
         sb.append("</td>");
 
+        // get the annotation or ensure it's there
+        ProcedureAnnotation annotation = (ProcedureAnnotation) procedure.getAnnotation();
+        if (annotation == null) {
+            annotation = new ProcedureAnnotation();
+            procedure.setAnnotation(annotation);
+        }
+
+        // column 7: time spent compiling, statement planning included
+        sb.append("<td>");
+        if (annotation.compileTimeNanos > 0) {
+            sb.append(String.format("%.1f ms", annotation.compileTimeNanos / 1000000.0));
+        }
+        else {
+            sb.append("<i>Unknown</i>");
+        }
+        sb.append("</td>");
+
         sb.append("</tr>\n");
 
         // BUILD THE DROPDOWN FOR THE STATEMENT/DETAIL TABLE
 
-        sb.append("<tr class='tablesorter-childRow'><td class='invert' colspan='6' id='p-"+ procedure.getTypeName().toLowerCase() + "--dropdown'>\n");
+        sb.append("<tr class='tablesorter-childRow'><td class='invert' colspan='7' id='p-"+ procedure.getTypeName().toLowerCase() + "--dropdown'>\n");
 
         // output partitioning parameter info
         if (procedure.getSinglepartition()) {
@@ -598,13 +615,6 @@ public class ReportMaker {
                                     pIndex, pColumn, pTable, pTable));
         }
 
-        // get the annotation or ensure it's there
-        ProcedureAnnotation annotation = (ProcedureAnnotation) procedure.getAnnotation();
-        if (annotation == null) {
-            annotation = new ProcedureAnnotation();
-            procedure.setAnnotation(annotation);
-        }
-
         // this needs to be run before the ProcedureAnnotation is used below
         // because it modifies it
         String statementsTable = generateStatementsTable(tables, procedure);
@@ -645,7 +645,7 @@ public class ExportManager
             boolean sync,
             boolean endOfStream) {
         //For validating that the memory is released
-        if (bufferPtr != 0) DBBPool.registerUnsafeMemory(bufferPtr);
+        if (bufferPtr != 0) DBBPool.registerUnsafeMemory(bufferPtr, buffer.capacity(), DBBPool.MemoryUse.EXPORT);
         ExportManager instance = instance();
         try {
             ExportGeneration generation = instance.m_generations.get(exportGeneration);
@@ -23,6 +23,12 @@ import org.voltdb.types.ExpressionType;
 
 public class AggregateExpression extends AbstractExpression {
 
+    /**
+     * Size of the serialized HyperLogLog sketch passed from the partitions to the
+     * coordinator for APPROX_COUNT_DISTINCT. Must agree with the EE's HyperLogLog.
+     */
+    public static final int HYPERLOGLOG_SKETCH_SIZE = 4096;
+
     /** True if this aggregate requires distinct: e.g. count(distinct A) */
     private boolean m_distinct = false;
 
@@ -67,6 +73,8 @@ public class AggregateExpression extends AbstractExpression {
         switch (type) {
         case AGGREGATE_COUNT:
         case AGGREGATE_COUNT_STAR:
+        case AGGREGATE_APPROX_COUNT_DISTINCT:
+        case AGGREGATE_HYPERLOGLOGS_TO_CARD:
             //
             // Always an integer
             //
@@ -82,6 +90,10 @@ public class AggregateExpression extends AbstractExpression {
             m_valueType = m_left.getValueType();
             m_valueSize = m_left.getValueSize();
             break;
+        case AGGREGATE_VALS_TO_HYPERLOGLOG:
+            m_valueType = VoltType.VARBINARY;
+            m_valueSize = HYPERLOGLOG_SKETCH_SIZE;
+            break;
         case AGGREGATE_SUM:
             if (m_left.getValueType() == VoltType.TINYINT ||
                 m_left.getValueType() == VoltType.SMALLINT ||
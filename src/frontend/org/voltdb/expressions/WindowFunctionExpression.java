@@ -0,0 +1,192 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.expressions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.voltdb.VoltType;
+import org.voltdb.types.ExpressionType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * A window function: RANK(), DENSE_RANK() or ROW_NUMBER(), or a running
+ * COUNT, SUM, MIN or MAX (type WINDOW_AGGREGATE) computed
+ * OVER (PARTITION BY ... ORDER BY ...).
+ *
+ * The left child is the aggregate argument, if any. The args are the
+ * PARTITION BY expressions followed by the ORDER BY expressions, so that
+ * the generic expression walks (column resolution, TVE replacement, equality)
+ * cover them.
+ */
+public class WindowFunctionExpression extends AbstractExpression {
+
+    // The aggregate of a WINDOW_AGGREGATE, otherwise the window function type itself.
+    private ExpressionType m_aggregateType;
+    private int m_partitionByCount = 0;
+    private List<SortDirectionType> m_orderByDirections = new ArrayList<SortDirectionType>();
+
+    public WindowFunctionExpression(ExpressionType type, ExpressionType aggregateType) {
+        super(type);
+        m_aggregateType = aggregateType;
+        m_args = new ArrayList<AbstractExpression>();
+    }
+
+    public WindowFunctionExpression() {
+        //
+        // This is needed for serialization
+        //
+        super();
+    }
+
+    public void addPartitionByExpression(AbstractExpression expr) {
+        assert(m_args.size() == m_partitionByCount);
+        m_args.add(expr);
+        m_partitionByCount++;
+    }
+
+    public void addOrderByExpression(AbstractExpression expr, SortDirectionType direction) {
+        m_args.add(expr);
+        m_orderByDirections.add(direction);
+    }
+
+    /**
+     * @return the aggregate of a running aggregate, or the window function type
+     * of RANK, DENSE_RANK and ROW_NUMBER.
+     */
+    public ExpressionType getAggregateType() {
+        return m_aggregateType;
+    }
+
+    public List<AbstractExpression> getPartitionByExpressions() {
+        return m_args.subList(0, m_partitionByCount);
+    }
+
+    public List<AbstractExpression> getOrderByExpressions() {
+        return m_args.subList(m_partitionByCount, m_args.size());
+    }
+
+    public List<SortDirectionType> getOrderByDirections() {
+        return m_orderByDirections;
+    }
+
+    /**
+     * @return true if the other window function is evaluated over the same
+     * window, and so can share its sort and its pass over the rows.
+     */
+    public boolean hasSameWindow(WindowFunctionExpression other) {
+        return m_partitionByCount == other.m_partitionByCount &&
+                m_args.equals(other.m_args) &&
+                m_orderByDirections.equals(other.m_orderByDirections);
+    }
+
+    @Override
+    protected boolean hasEqualAttributes(AbstractExpression obj) {
+        if (obj instanceof WindowFunctionExpression == false) {
+            return false;
+        }
+        WindowFunctionExpression expr = (WindowFunctionExpression) obj;
+        return m_aggregateType == expr.m_aggregateType &&
+                m_partitionByCount == expr.m_partitionByCount &&
+                m_orderByDirections.equals(expr.m_orderByDirections);
+    }
+
+    @Override
+    public int hashCode() {
+        // based on implementation of equals
+        int result = super.hashCode();
+        result += new HashCodeBuilder(17, 31).append(m_aggregateType)
+                .append(m_partitionByCount).append(m_orderByDirections).toHashCode();
+        return result;
+    }
+
+    @Override
+    public Object clone() {
+        WindowFunctionExpression clone = (WindowFunctionExpression) super.clone();
+        clone.m_orderByDirections = new ArrayList<SortDirectionType>(m_orderByDirections);
+        return clone;
+    }
+
+    @Override
+    public void finalizeValueTypes()
+    {
+        finalizeChildValueTypes();
+        switch (m_aggregateType) {
+        case WINDOW_RANK:
+        case WINDOW_DENSE_RANK:
+        case WINDOW_ROW_NUMBER:
+        case AGGREGATE_COUNT:
+        case AGGREGATE_COUNT_STAR:
+            m_valueType = VoltType.BIGINT;
+            m_valueSize = m_valueType.getLengthInBytesForFixedTypes();
+            break;
+        case AGGREGATE_MIN:
+        case AGGREGATE_MAX:
+            m_valueType = m_left.getValueType();
+            m_valueSize = m_left.getValueSize();
+            m_inBytes = m_left.getInBytes();
+            break;
+        case AGGREGATE_SUM:
+            if (m_left.getValueType() == VoltType.TINYINT ||
+                m_left.getValueType() == VoltType.SMALLINT ||
+                m_left.getValueType() == VoltType.INTEGER) {
+                m_valueType = VoltType.BIGINT;
+                m_valueSize = m_valueType.getLengthInBytesForFixedTypes();
+            } else {
+                m_valueType = m_left.getValueType();
+                m_valueSize = m_left.getValueSize();
+            }
+            break;
+        default:
+            throw new RuntimeException("ERROR: Invalid window function type '" +
+                    m_aggregateType + "' for Expression '" + this + "'");
+        }
+    }
+
+    @Override
+    public String explain(String impliedTableName) {
+        StringBuilder sb = new StringBuilder();
+        if (m_aggregateType == ExpressionType.AGGREGATE_COUNT_STAR) {
+            sb.append("COUNT(*)");
+        } else {
+            sb.append(m_aggregateType.symbol()).append("(");
+            if (m_left != null) {
+                sb.append(m_left.explain(impliedTableName));
+            }
+            sb.append(")");
+        }
+        sb.append(" OVER (");
+        String connector = "PARTITION BY ";
+        for (AbstractExpression expr : getPartitionByExpressions()) {
+            sb.append(connector).append(expr.explain(impliedTableName));
+            connector = ", ";
+        }
+        connector = m_partitionByCount > 0 ? " ORDER BY " : "ORDER BY ";
+        int ii = 0;
+        for (AbstractExpression expr : getOrderByExpressions()) {
+            sb.append(connector).append(expr.explain(impliedTableName));
+            if (m_orderByDirections.get(ii++) == SortDirectionType.DESC) {
+                sb.append(" DESC");
+            }
+            connector = ", ";
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+}
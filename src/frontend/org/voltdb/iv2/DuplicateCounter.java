@@ -49,6 +49,8 @@ public class DuplicateCounter
     final List<Long> m_expectedHSIds;
     final long m_txnId;
     private final String m_storedProcName;
+    // when the work was sent to the replicas, if the transaction is sampled by TxnTracer
+    final long m_traceStartNanos;
 
     DuplicateCounter(
             long destinationHSId,
@@ -58,6 +60,7 @@ public class DuplicateCounter
         m_txnId = realTxnId;
         m_expectedHSIds = new ArrayList<Long>(expectedHSIds);
         m_storedProcName = procName;
+        m_traceStartNanos = TxnTracer.isSampled(realTxnId) ? System.nanoTime() : 0;
     }
 
     long getTxnId()
@@ -418,6 +418,12 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
         throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
     }
 
+    @Override
+    public long[] getTableChangeCounts(int[] tableIds)
+    {
+        throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
+    }
+
     @Override
     public TupleStreamStateInfo getDRTupleStreamStateInfo()
     {
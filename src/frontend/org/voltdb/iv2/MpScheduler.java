@@ -218,6 +218,7 @@ public class MpScheduler extends Scheduler
     // aggregated/deduped here at the MPI.
     public void handleIv2InitiateTaskMessage(Iv2InitiateTaskMessage message)
     {
+        final long traceStartNanos = TxnTracer.TXN_TRACE_ENABLED ? System.nanoTime() : 0;
         final String procedureName = message.getStoredProcedureName();
 
         /*
@@ -319,6 +320,9 @@ public class MpScheduler extends Scheduler
         m_nextBuddy = (m_nextBuddy++) % m_buddyHSIds.size();
         m_outstandingTxns.put(task.m_txnState.txnId, task.m_txnState);
         m_pendingTasks.offer(task);
+        if (TxnTracer.isSampled(mpTxnId)) {
+            TxnTracer.recordSpan("MpScheduler.initiate", mpTxnId, traceStartNanos, System.nanoTime());
+        }
     }
 
     /**
@@ -419,6 +423,10 @@ public class MpScheduler extends Scheduler
         if (counter != null) {
             int result = counter.offer(message);
             if (result == DuplicateCounter.DONE) {
+                if (counter.m_traceStartNanos != 0) {
+                    TxnTracer.recordSpan("MpScheduler.everySite", counter.getTxnId(),
+                            counter.m_traceStartNanos, System.nanoTime());
+                }
                 m_duplicateCounters.remove(message.getTxnId());
                 // Only advance the truncation point on committed transactions.  See ENG-4211
                 if (message.shouldCommit()) {
@@ -80,6 +80,9 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     synchronized boolean offer(TransactionTask task)
     {
         Iv2Trace.logTransactionTaskQueueOffer(task);
+        if (TxnTracer.isSampled(task.getTxnId())) {
+            task.m_queueOfferNanos = System.nanoTime();
+        }
         m_backlog.addLast(task);
         taskQueueOffer();
         return true;
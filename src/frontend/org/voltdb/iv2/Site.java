@@ -45,6 +45,7 @@ import org.voltdb.LoadedProcedureSet;
 import org.voltdb.MemoryStats;
 import org.voltdb.ParameterSet;
 import org.voltdb.PartitionDRGateway;
+import org.voltdb.PlanNodeStats;
 import org.voltdb.ProcedureRunner;
 import org.voltdb.SiteProcedureConnection;
 import org.voltdb.SiteSnapshotConnection;
@@ -64,7 +65,6 @@ import org.voltdb.TupleStreamStateInfo;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltProcedure.VoltAbortException;
 import org.voltdb.VoltTable;
-import org.voltdb.catalog.Catalog;
 import org.voltdb.catalog.CatalogMap;
 import org.voltdb.catalog.Cluster;
 import org.voltdb.catalog.Database;
@@ -100,6 +100,16 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     private static final double m_taskLogReplayRatio =
             Double.valueOf(System.getProperty("TASKLOG_REPLAY_RATIO", "0.6"));
 
+    // How old the cached table and index statistics of the EE may get before a tick
+    // refreshes them. Readers of the statistics (@Statistics, /metrics) only ever see
+    // the cached copy, so this bounds what they cost the site thread. The first tick
+    // after a catalog update refreshes them whatever their age.
+    private static final long m_eeStatsMaxStalenessMs =
+            Long.getLong("EE_STATS_MAX_STALENESS_MS", 5000);
+
+    // Whether the EE counts what the executor of every plan node does, for @Statistics PLANNODE.
+    private static final boolean m_eePlanNodeProfiling = Boolean.getBoolean("EE_PLANNODE_PROFILING");
+
     // Set to false trigger shutdown.
     volatile boolean m_shouldContinue = true;
 
@@ -144,7 +154,10 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     // Stats
     final TableStats m_tableStats;
     final IndexStats m_indexStats;
+    final PlanNodeStats m_planNodeStats;
     final MemoryStats m_memStats;
+    // reused to read the memory counters of the EE every tick
+    private final long[] m_tableMemoryCounters = new long[ExecutionEngine.TABLE_MEMORY_COUNTER_COUNT];
 
     // Each execution site manages snapshot using a SnapshotSiteProcessor
     private SnapshotSiteProcessor m_snapshotter;
@@ -169,11 +182,11 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     // initialize EEs in the right thread.
     private static class StartupConfig
     {
-        final Catalog m_serializableCatalog;
+        final CatalogContext m_catalogContext;
         final long m_timestamp;
-        StartupConfig(final Catalog catalog, final long timestamp)
+        StartupConfig(final CatalogContext catalogContext, final long timestamp)
         {
-            m_serializableCatalog = catalog;
+            m_catalogContext = catalogContext;
             m_timestamp = timestamp;
         }
     }
@@ -216,6 +229,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     long m_spHandleForSnapshotDigest = 0;
     long m_currentTxnId = Long.MIN_VALUE;
     long m_lastTxnTime = System.currentTimeMillis();
+    // When the statistics of the EE were last cached.
+    long m_lastStatsTime = 0;
 
     /*
      * The version of the hashinator currently in use at the site will be consistent
@@ -417,7 +432,7 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         m_rejoinState = startAction.doesJoin() ? kStateRejoining : kStateRunning;
         m_snapshotPriority = snapshotPriority;
         // need this later when running in the final thread.
-        m_startupConfig = new StartupConfig(context.catalog, context.m_uniqueId);
+        m_startupConfig = new StartupConfig(context, context.m_uniqueId);
         m_lastCommittedSpHandle = TxnEgo.makeZero(partitionId).getTxnId();
         m_spHandleForSnapshotDigest = m_lastCommittedSpHandle;
         m_currentTxnId = Long.MIN_VALUE;
@@ -437,11 +452,16 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             agent.registerStatsSource(StatsSelector.INDEX,
                                       m_siteId,
                                       m_indexStats);
+            m_planNodeStats = new PlanNodeStats(m_siteId);
+            agent.registerStatsSource(StatsSelector.PLANNODE,
+                                      m_siteId,
+                                      m_planNodeStats);
             m_memStats = memStats;
         } else {
             // MPI doesn't need to track these stats
             m_tableStats = null;
             m_indexStats = null;
+            m_planNodeStats = null;
             m_memStats = null;
         }
     }
@@ -515,9 +535,10 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                             hashinatorConfig,
                             m_mpDrGateway != null);
             }
-            eeTemp.loadCatalog(m_startupConfig.m_timestamp, m_startupConfig.m_serializableCatalog.serialize());
+            eeTemp.loadCatalog(m_startupConfig.m_timestamp, m_startupConfig.m_catalogContext.getCatalogBinary());
             eeTemp.setTimeoutLatency(m_context.cluster.getDeployment().get("deployment").
                             getSystemsettings().get("systemsettings").getQuerytimeout());
+            eeTemp.setPlanNodeProfiling(m_eePlanNodeProfiling);
         }
         // just print error info an bail if we run into an error here
         catch (final Exception ex) {
@@ -537,7 +558,7 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             PosixJNAAffinity.INSTANCE.setAffinity(m_coreBindIds);
         }
         initialize();
-        m_startupConfig = null; // release the serializableCatalog.
+        m_startupConfig = null; // release the startup catalog context.
         //Maintain a minimum ratio of task log (unrestricted) to live (restricted) transactions
         final MinimumRatioMaintainer mrm = new MinimumRatioMaintainer(m_taskLogReplayRatio);
         try {
@@ -545,11 +566,23 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 if (m_rejoinState == kStateRunning) {
                     // Normal operation blocks the site thread on the sitetasker queue.
                     SiteTasker task = m_scheduler.take();
+                    long traceStartNanos = 0;
                     if (task instanceof TransactionTask) {
-                        m_currentTxnId = ((TransactionTask)task).getTxnId();
+                        final TransactionTask txnTask = (TransactionTask)task;
+                        m_currentTxnId = txnTask.getTxnId();
                         m_lastTxnTime = EstTime.currentTimeMillis();
+                        if (txnTask.m_queueOfferNanos != 0) {
+                            // time spent queued behind other transactions, then running here
+                            traceStartNanos = System.nanoTime();
+                            TxnTracer.recordSpan("TransactionTaskQueue", txnTask.getTxnId(),
+                                    txnTask.m_queueOfferNanos, traceStartNanos);
+                        }
                     }
                     task.run(getSiteProcedureConnection());
+                    if (traceStartNanos != 0) {
+                        TxnTracer.recordSpan(task.getClass().getSimpleName(),
+                                ((TransactionTask)task).getTxnId(), traceStartNanos, System.nanoTime());
+                    }
                 } else if (m_rejoinState == kStateReplayingRejoin) {
                     // Rejoin operation poll and try to do some catchup work. Tasks
                     // are responsible for logging any rejoin work they might have.
@@ -914,6 +947,12 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         return m_ee.getUSOForExportTable(signature);
     }
 
+    @Override
+    public long[] getTableChangeCounts(int[] tableIds)
+    {
+        return m_ee.getTableChangeCounts(tableIds);
+    }
+
     @Override
     public TupleStreamStateInfo getDRTupleStreamStateInfo()
     {
@@ -954,7 +993,29 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         long time = System.currentTimeMillis();
 
         m_ee.tick(time, m_lastCommittedSpHandle);
-        statsTick(time);
+        memoryStatsTick();
+        if (time - m_lastStatsTime >= m_eeStatsMaxStalenessMs) {
+            m_lastStatsTime = time;
+            statsTick(time);
+        }
+    }
+
+    /**
+     * Update the rolled up memory statistics from the running totals the EE keeps,
+     * which costs the same however many tables there are.
+     */
+    private void memoryStatsTick()
+    {
+        if (m_memStats != null) {
+            m_ee.getTableMemoryStats(m_tableMemoryCounters);
+            m_memStats.eeUpdateMemStats(m_siteId,
+                    m_tableMemoryCounters[ExecutionEngine.TABLE_MEMORY_TUPLE_COUNT],
+                    (int) (m_tableMemoryCounters[ExecutionEngine.TABLE_MEMORY_TUPLE_DATA] / 1024),
+                    (int) (m_tableMemoryCounters[ExecutionEngine.TABLE_MEMORY_TUPLE_ALLOCATED] / 1024),
+                    (int) (m_tableMemoryCounters[ExecutionEngine.TABLE_MEMORY_INDEX] / 1024),
+                    (int) (m_tableMemoryCounters[ExecutionEngine.TABLE_MEMORY_STRING] / 1024),
+                    m_ee.getThreadLocalPoolAllocations());
+        }
     }
 
     /**
@@ -976,34 +1037,12 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 tableIds[i++] = table.getRelativeIndex();
             }
 
-            // data to aggregate
-            long tupleCount = 0;
-            int tupleDataMem = 0;
-            int tupleAllocatedMem = 0;
-            int indexMem = 0;
-            int stringMem = 0;
-
             // update table stats
             final VoltTable[] s1 =
                 m_ee.getStats(StatsSelector.TABLE, tableIds, false, time);
             if ((s1 != null) && (s1.length > 0)) {
                 VoltTable stats = s1[0];
                 assert(stats != null);
-
-                // rollup the table memory stats for this site
-                while (stats.advanceRow()) {
-                    //Assert column index matches name for ENG-4092
-                    assert(stats.getColumnName(7).equals("TUPLE_COUNT"));
-                    tupleCount += stats.getLong(7);
-                    assert(stats.getColumnName(8).equals("TUPLE_ALLOCATED_MEMORY"));
-                    tupleAllocatedMem += (int) stats.getLong(8);
-                    assert(stats.getColumnName(9).equals("TUPLE_DATA_MEMORY"));
-                    tupleDataMem += (int) stats.getLong(9);
-                    assert(stats.getColumnName(10).equals("STRING_DATA_MEMORY"));
-                    stringMem += (int) stats.getLong(10);
-                }
-                stats.resetRowPosition();
-
                 m_tableStats.setStatsTable(stats);
             }
             else {
@@ -1018,15 +1057,6 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             if ((s2 != null) && (s2.length > 0)) {
                 VoltTable stats = s2[0];
                 assert(stats != null);
-
-                // rollup the index memory stats for this site
-                while (stats.advanceRow()) {
-                    //Assert column index matches name for ENG-4092
-                    assert(stats.getColumnName(11).equals("MEMORY_ESTIMATE"));
-                    indexMem += stats.getLong(11);
-                }
-                stats.resetRowPosition();
-
                 m_indexStats.setStatsTable(stats);
             }
             else {
@@ -1035,15 +1065,16 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 m_indexStats.resetStatsTable();
             }
 
-            // update the rolled up memory statistics
-            if (m_memStats != null) {
-                m_memStats.eeUpdateMemStats(m_siteId,
-                                            tupleCount,
-                                            tupleDataMem,
-                                            tupleAllocatedMem,
-                                            indexMem,
-                                            stringMem,
-                                            m_ee.getThreadLocalPoolAllocations());
+            // update plan node stats, the EE has none unless it counts them
+            if (m_eePlanNodeProfiling) {
+                final VoltTable[] s3 =
+                    m_ee.getStats(StatsSelector.PLANNODE, new int[0], false, time);
+                if ((s3 != null) && (s3.length > 0)) {
+                    m_planNodeStats.setEEStats(s3[0]);
+                }
+                else {
+                    m_planNodeStats.resetStatsTable();
+                }
             }
         }
     }
@@ -1213,6 +1244,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         //so export data for the old generation is pushed to Java.
         m_ee.quiesce(m_lastCommittedSpHandle);
         m_ee.updateCatalog(m_context.m_uniqueId, diffCmds);
+        // the tables may have changed, refresh their statistics on the next tick
+        m_lastStatsTime = 0;
 
         return true;
     }
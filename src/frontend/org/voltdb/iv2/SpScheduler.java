@@ -425,6 +425,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                     "should never receive multi-partition initiations.");
         }
 
+        final long traceStartNanos = TxnTracer.TXN_TRACE_ENABLED ? System.nanoTime() : 0;
         final String procedureName = message.getStoredProcedureName();
         long newSpHandle;
         long uniqueId = Long.MIN_VALUE;
@@ -549,6 +550,9 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         }
         Iv2Trace.logIv2InitiateTaskMessage(message, m_mailbox.getHSId(), msg.getTxnId(), newSpHandle);
         doLocalInitiateOffer(msg);
+        if (TxnTracer.isSampled(msg.getTxnId())) {
+            TxnTracer.recordSpan("SpScheduler.initiate", msg.getTxnId(), traceStartNanos, System.nanoTime());
+        }
         return;
     }
 
@@ -691,6 +695,10 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (counter != null) {
             int result = counter.offer(message);
             if (result == DuplicateCounter.DONE) {
+                if (counter.m_traceStartNanos != 0) {
+                    TxnTracer.recordSpan("SpScheduler.replication", counter.getTxnId(),
+                            counter.m_traceStartNanos, System.nanoTime());
+                }
                 m_duplicateCounters.remove(dcKey);
                 m_repairLogTruncationHandle = spHandle;
                 m_mailbox.send(counter.m_destinationId, counter.getLastResponse());
@@ -58,6 +58,9 @@ public class TransactionTaskQueue
     synchronized boolean offer(TransactionTask task)
     {
         Iv2Trace.logTransactionTaskQueueOffer(task);
+        if (TxnTracer.isSampled(task.getTxnId())) {
+            task.m_queueOfferNanos = System.nanoTime();
+        }
         TransactionState txnState = task.getTransactionState();
         if (!txnState.isReadOnly()) {
             m_maxTaskedSpHandle = Math.max(m_maxTaskedSpHandle, txnState.m_spHandle);
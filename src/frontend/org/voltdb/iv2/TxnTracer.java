@@ -0,0 +1,156 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONStringer;
+
+/**
+ * Timeline of where sampled transactions spend their time on this host, from the
+ * ClientInterface through the schedulers and task queues to the site and the EE.
+ *
+ * A transaction is sampled or not by its txnId alone, so that every component on
+ * every host agrees without passing anything along. Each thread records the spans
+ * of the sampled transactions into a ring buffer of its own, which is read, without
+ * stopping the writer, when the timeline is exported in the Chrome trace format.
+ * Tracing is off unless TXN_TRACE_SAMPLE_INTERVAL is set, tracing one transaction
+ * out of that many.
+ */
+public class TxnTracer
+{
+    public static final int SAMPLE_INTERVAL = Integer.getInteger("TXN_TRACE_SAMPLE_INTERVAL", 0);
+    public static final boolean TXN_TRACE_ENABLED = SAMPLE_INTERVAL > 0;
+    private static final int RING_SIZE = Integer.getInteger("TXN_TRACE_RING_SIZE", 8192);
+
+    /**
+     * The spans recorded by one thread, the oldest overwritten first.
+     * Only the owning thread writes, publishing each span by advancing m_count.
+     */
+    private static class SpanRing
+    {
+        final long m_threadId;
+        final String m_threadName;
+        final String m_names[] = new String[RING_SIZE];
+        final long m_txnIds[] = new long[RING_SIZE];
+        final long m_startNanos[] = new long[RING_SIZE];
+        final long m_endNanos[] = new long[RING_SIZE];
+        volatile long m_count = 0;
+
+        SpanRing(Thread thread)
+        {
+            m_threadId = thread.getId();
+            m_threadName = thread.getName();
+        }
+
+        void record(String name, long txnId, long startNanos, long endNanos)
+        {
+            final long count = m_count;
+            final int index = (int) (count % RING_SIZE);
+            m_names[index] = name;
+            m_txnIds[index] = txnId;
+            m_startNanos[index] = startNanos;
+            m_endNanos[index] = endNanos;
+            m_count = count + 1;
+        }
+    }
+
+    private static final List<SpanRing> s_rings = new CopyOnWriteArrayList<SpanRing>();
+
+    private static final ThreadLocal<SpanRing> s_ring = new ThreadLocal<SpanRing>() {
+        @Override
+        protected SpanRing initialValue()
+        {
+            SpanRing ring = new SpanRing(Thread.currentThread());
+            s_rings.add(ring);
+            return ring;
+        }
+    };
+
+    /**
+     * @return true if the spans of this transaction are recorded
+     */
+    public static boolean isSampled(long txnId)
+    {
+        if (!TXN_TRACE_ENABLED || txnId == Long.MIN_VALUE) {
+            return false;
+        }
+        // spread the sequence and partition bits of the txnId
+        long hash = txnId * 0x9E3779B97F4A7C15L;
+        return ((hash >>> 33) % SAMPLE_INTERVAL) == 0;
+    }
+
+    /**
+     * Record a span of a sampled transaction on the calling thread.
+     */
+    public static void recordSpan(String name, long txnId, long startNanos, long endNanos)
+    {
+        s_ring.get().record(name, txnId, startNanos, endNanos);
+    }
+
+    /**
+     * @return the spans recorded on this host as a Chrome trace (chrome://tracing) JSON document
+     */
+    public static String toChromeTraceJson(int hostId) throws JSONException
+    {
+        JSONStringer js = new JSONStringer();
+        js.object();
+        js.key("displayTimeUnit").value("ns");
+        js.key("traceEvents").array();
+        for (SpanRing ring : s_rings) {
+            js.object();
+            js.key("name").value("thread_name");
+            js.key("ph").value("M");
+            js.key("pid").value(hostId);
+            js.key("tid").value(ring.m_threadId);
+            js.key("args").object().key("name").value(ring.m_threadName).endObject();
+            js.endObject();
+
+            final long count = ring.m_count;
+            for (long ii = Math.max(0, count - RING_SIZE); ii < count; ii++) {
+                final int index = (int) (ii % RING_SIZE);
+                final String name = ring.m_names[index];
+                final long txnId = ring.m_txnIds[index];
+                final long startNanos = ring.m_startNanos[index];
+                final long endNanos = ring.m_endNanos[index];
+                if (name == null || endNanos < startNanos) {
+                    continue;
+                }
+                js.object();
+                js.key("name").value(name);
+                js.key("cat").value("txn");
+                js.key("ph").value("X");
+                js.key("pid").value(hostId);
+                js.key("tid").value(ring.m_threadId);
+                js.key("ts").value(TimeUnit.NANOSECONDS.toMicros(startNanos));
+                js.key("dur").value(TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos));
+                js.key("args").object();
+                js.key("txnId").value(txnId);
+                js.key("txn").value(TxnEgo.txnIdToString(txnId));
+                js.endObject();
+                js.endObject();
+            }
+        }
+        js.endArray();
+        js.endObject();
+        return js.toString();
+    }
+}
@@ -355,6 +355,37 @@ public class JDBC4ClientConnection implements Closeable {
         }
     }
 
+    /**
+     * Executes a procedure asynchronously with a timeout, then calls the provided user callback
+     * with the server response upon completion.
+     *
+     * @param callback
+     *            the user-specified callback to call with the server response upon execution
+     *            completion.
+     * @param procedure
+     *            the name of the procedure to call.
+     * @param timeout
+     *            the timeout in seconds, 0 for the client's default timeout.
+     * @param parameters
+     *            the list of parameters to pass to the procedure.
+     * @return the result of the submission false if the client connection was terminated and unable
+     *         to post the request to the server, true otherwise.
+     */
+    public boolean executeAsyncWithTimeout(ProcedureCallback callback, String procedure, long timeout,
+            Object... parameters)
+            throws NoConnectionsException, IOException
+    {
+        ClientImpl currentClient = this.getClient();
+        try {
+            return currentClient.callProcedureWithTimeout(new TrackingCallback(this, procedure, callback),
+                    procedure, timeout, TimeUnit.SECONDS, parameters);
+        }
+        catch (NoConnectionsException e) {
+            this.dropClient(currentClient);
+            throw e;
+        }
+    }
+
     /**
      * Executes a procedure asynchronously, returning a Future that can be used by the caller to
      * wait upon completion before processing the server response.
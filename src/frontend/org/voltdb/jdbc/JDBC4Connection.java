@@ -32,8 +32,11 @@ import java.sql.SQLXML;
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Struct;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.Executor;
 
 import org.voltdb.client.ClientStats;
@@ -43,6 +46,14 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
 {
     public static final String COMMIT_THROW_EXCEPTION = "jdbc.committhrowexception";
     public static final String ROLLBACK_THROW_EXCEPTION = "jdbc.rollbackthrowexception";
+    // Send the statements of a batch without waiting for each other's response
+    public static final String PIPELINE_BATCH = "jdbc.pipelinebatch";
+    // Send the rows of a prepared INSERT batch in one load per partition
+    public static final String GROUP_BATCH = "jdbc.groupbatch";
+    // Plan prepared statements once on the server and execute them by handle
+    public static final String SERVER_PREPARE = "jdbc.serverprepare";
+    // Read the ordered results of forward only statements with a fetch size page by page
+    public static final String PAGED_RESULTS = "jdbc.pagedresults";
 
     protected final JDBC4ClientConnection NativeConnection;
     protected final String User;
@@ -63,6 +74,60 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
             throw SQLError.get(SQLError.CONNECTION_CLOSED);
     }
 
+    boolean isBatchPipelined()
+    {
+        return props.getProperty(PIPELINE_BATCH, "false").equalsIgnoreCase("true");
+    }
+
+    boolean isBatchGrouped()
+    {
+        return props.getProperty(GROUP_BATCH, "false").equalsIgnoreCase("true");
+    }
+
+    boolean isServerPrepared()
+    {
+        return props.getProperty(SERVER_PREPARE, "false").equalsIgnoreCase("true");
+    }
+
+    boolean isResultPaged()
+    {
+        return props.getProperty(PAGED_RESULTS, "false").equalsIgnoreCase("true");
+    }
+
+    // Whether the column alone makes up a unique tree index of the table and can not be null,
+    // so that its values order the rows of the table without ties.
+    boolean isOrderedUniqueKey(String table, String column) throws SQLException
+    {
+        DatabaseMetaData metaData = getMetaData();
+        Map<String, Integer> indexColumns = new HashMap<String, Integer>();
+        Set<String> keyIndexes = new HashSet<String>();
+        ResultSet indexes = metaData.getIndexInfo(null, null, table, true, false);
+        while (indexes.next()) {
+            String index = indexes.getString("INDEX_NAME");
+            Integer count = indexColumns.get(index);
+            indexColumns.put(index, count == null ? 1 : count + 1);
+            // Hash indexes have no sort order
+            if (column.equals(indexes.getString("COLUMN_NAME")) && indexes.getString("ASC_OR_DESC") != null) {
+                keyIndexes.add(index);
+            }
+        }
+        boolean singleColumn = false;
+        for (String index : keyIndexes) {
+            singleColumn |= indexColumns.get(index) == 1;
+        }
+        if (!singleColumn) {
+            return false;
+        }
+        ResultSet columns = metaData.getColumns(null, null, table, null);
+        while (columns.next()) {
+            // The table name is a pattern, where _ matches any character
+            if (table.equals(columns.getString("TABLE_NAME")) && column.equals(columns.getString("COLUMN_NAME"))) {
+                return "NO".equals(columns.getString("IS_NULLABLE"));
+            }
+        }
+        return false;
+    }
+
     // Clears all warnings reported for this Connection object.
     @Override
     public void clearWarnings() throws SQLException
@@ -202,7 +267,7 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
         checkClosed();
         // Reject options that don't coincide with normal VoltDB behavior.
         checkCreateStatementSupported(resultSetType, resultSetConcurrency);
-        return createStatement();
+        return new JDBC4Statement(this, resultSetType);
     }
 
     // Creates a Statement object that will generate ResultSet objects with the given type, concurrency, and holdability.
@@ -212,7 +277,7 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
         checkClosed();
         // Reject options that don't coincide with normal VoltDB behavior.
         checkCreateStatementSupported(resultSetType, resultSetConcurrency, resultSetHoldability);
-        return createStatement();
+        return new JDBC4Statement(this, resultSetType);
     }
 
     // Factory method for creating Struct objects.
@@ -380,10 +445,10 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
     @Override
     public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException
     {
-        if (resultSetType == ResultSet.TYPE_SCROLL_INSENSITIVE && resultSetConcurrency == ResultSet.CONCUR_READ_ONLY)
-            return prepareStatement(sql);
         checkClosed();
-        throw SQLError.noSupport();
+        // Reject options that don't coincide with normal VoltDB behavior.
+        checkCreateStatementSupported(resultSetType, resultSetConcurrency);
+        return new JDBC4PreparedStatement(this, sql, resultSetType);
     }
 
     // Creates a PreparedStatement object that will generate ResultSet objects with the given type, concurrency, and holdability.
@@ -0,0 +1,228 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.jdbc;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.voltdb.VoltTable;
+import org.voltdb.client.ClientImpl;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcCallException;
+import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
+import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
+
+/**
+ * Batch of a prepared INSERT INTO table [(columns)] VALUES (?, ...) statement,
+ * for the jdbc.groupbatch connection property. The rows are handed to a
+ * VoltBulkLoader, which sends the rows of each partition together in one
+ * load call instead of one @AdHoc call per row. A failed load is retried
+ * row by row, so that the update count of each row is still exact.
+ */
+class JDBC4GroupedInsert
+{
+    private static final Pattern INSERT = Pattern.compile(
+            "^\\s*INSERT\\s+INTO\\s+(\\w+)\\s*(?:\\(([\\w\\s,]*)\\))?\\s*" +
+            "VALUES\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)\\s*;$",
+            Pattern.CASE_INSENSITIVE);
+    // Rows per load call
+    static final int BATCH_SIZE = 200;
+
+    private final String m_sql;
+    private final String m_table;
+    // Parameter holding the value of each table column
+    private final int[] m_parameterIndexes;
+    // Failed rows of the current batch, by index
+    private final Map<Integer, ClientResponse> m_failures = new ConcurrentHashMap<Integer, ClientResponse>();
+    private ClientImpl m_client = null;
+    private VoltBulkLoader m_loader = null;
+
+    private JDBC4GroupedInsert(String sql, String table, int[] parameterIndexes)
+    {
+        m_sql = sql;
+        m_table = table;
+        m_parameterIndexes = parameterIndexes;
+    }
+
+    /**
+     * Look up whether the statement is an INSERT of all the columns of a table,
+     * with a parameter for each, whose batches can be grouped.
+     *
+     * @return null when the batches of the statement can not be grouped
+     */
+    static JDBC4GroupedInsert forStatement(JDBC4ClientConnection connection, String sql, int parameterCount)
+            throws SQLException
+    {
+        Matcher matcher = INSERT.matcher(sql);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String table = matcher.group(1).toUpperCase();
+
+        List<String> tableColumns = new ArrayList<String>();
+        try {
+            VoltTable columns = connection.execute("@SystemCatalog", 0, "COLUMNS").getResults()[0];
+            while (columns.advanceRow()) {
+                if (columns.getString("TABLE_NAME").equals(table)) {
+                    int position = (int) columns.getLong("ORDINAL_POSITION");
+                    while (tableColumns.size() < position) {
+                        tableColumns.add(null);
+                    }
+                    tableColumns.set(position - 1, columns.getString("COLUMN_NAME"));
+                }
+            }
+        }
+        catch (ProcCallException e) {
+            throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
+        }
+        catch (IOException e) {
+            throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
+        }
+        if (tableColumns.isEmpty() || tableColumns.size() != parameterCount) {
+            return null;
+        }
+
+        int[] parameterIndexes = new int[parameterCount];
+        if (matcher.group(2) == null) {
+            for (int i = 0; i < parameterCount; i++) {
+                parameterIndexes[i] = i;
+            }
+        }
+        else {
+            String[] names = matcher.group(2).trim().split("\\s*,\\s*");
+            if (names.length != parameterCount) {
+                return null;
+            }
+            boolean[] covered = new boolean[parameterCount];
+            for (int i = 0; i < names.length; i++) {
+                int column = tableColumns.indexOf(names[i].toUpperCase());
+                if (column < 0 || covered[column]) {
+                    return null;
+                }
+                covered[column] = true;
+                parameterIndexes[column] = i;
+            }
+        }
+        return new JDBC4GroupedInsert(sql, table, parameterIndexes);
+    }
+
+    String getSql()
+    {
+        return m_sql;
+    }
+
+    /**
+     * Load the rows and wait for all of them to be inserted or to fail.
+     *
+     * @param rows parameters of each row
+     * @param updateCounts 1 or Statement.EXECUTE_FAILED for each row
+     * @return the error of the first failed row, null if all rows were inserted
+     */
+    SQLException execute(JDBC4ClientConnection connection, List<Object[]> rows, int[] updateCounts)
+            throws SQLException
+    {
+        getLoader(connection);
+        m_failures.clear();
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                Object[] parameters = rows.get(i);
+                Object[] values = new Object[m_parameterIndexes.length];
+                for (int column = 0; column < values.length; column++) {
+                    values[column] = parameters[m_parameterIndexes[column]];
+                }
+                m_loader.insertRow(i, values);
+            }
+            m_loader.drain();
+        }
+        catch (InterruptedException e) {
+            throw SQLError.get(e);
+        }
+
+        SQLException error = null;
+        for (int i = 0; i < rows.size(); i++) {
+            ClientResponse failure = m_failures.get(i);
+            if (failure == null) {
+                updateCounts[i] = 1;
+            }
+            else {
+                updateCounts[i] = Statement.EXECUTE_FAILED;
+                if (error == null) {
+                    error = JDBC4Statement.VoltSQL.getResponseException(failure, null, failure.getStatusString());
+                }
+            }
+        }
+        return error;
+    }
+
+    // The loader is tied to a client, make a new one if the connection reconnected.
+    private void getLoader(JDBC4ClientConnection connection) throws SQLException
+    {
+        ClientImpl client;
+        try {
+            client = connection.getClient();
+        }
+        catch (IOException e) {
+            throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
+        }
+        if (m_loader != null && m_client == client) {
+            return;
+        }
+        try {
+            close();
+        }
+        catch (SQLException ignore) {
+            // The loader of a lost client has nothing left to do
+        }
+        try {
+            m_loader = client.getNewBulkLoader(m_table, BATCH_SIZE, new BulkLoaderFailureCallBack() {
+                @Override
+                public void failureCallback(Object rowHandle, Object[] fieldList, ClientResponse response) {
+                    m_failures.put((Integer) rowHandle, response);
+                }
+            });
+        }
+        catch (Exception e) {
+            throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
+        }
+        m_client = client;
+    }
+
+    void close() throws SQLException
+    {
+        if (m_loader == null) {
+            return;
+        }
+        try {
+            m_loader.close();
+        }
+        catch (Exception e) {
+            throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
+        }
+        finally {
+            m_loader = null;
+            m_client = null;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.jdbc;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.voltdb.VoltTable;
+import org.voltdb.jdbc.JDBC4Statement.VoltSQL;
+
+// Forward only result set of a SELECT ... ORDER BY query, for statements created with
+// TYPE_FORWARD_ONLY and given a fetch size on connections with jdbc.pagedresults set.
+// Rather than the whole result, which has to fit in a single response on both ends, it
+// holds one page of fetch size rows, and next() fetches the following page once it moves
+// past the end of the current one. The query has to be ordered by a unique NOT NULL column
+// with a tree index, and each page is the rows after the last key of the previous one,
+// WHERE key > ? ORDER BY key LIMIT ?, so that no row is seen twice and every page starts
+// at its key in the index. Each page is its own transaction, so rows written while the
+// result set is read may or may not be seen.
+class JDBC4PagedResultSet extends JDBC4ResultSet {
+    private final VoltSQL query;
+    private final VoltSQL.PageKey key;
+    // Index of the key in the result columns
+    private final int keyColumn;
+    private final JDBC4ClientConnection connection;
+    private final int timeout;
+    private final int pageSize;
+    // Row limit of the statement, 0 for none
+    private final int maxRows;
+    // Rows fetched so far
+    private int fetchedRows;
+    // Rows in the pages before the current one
+    private int pageStart = 0;
+    private boolean lastPage;
+    private boolean beforeFirst = true;
+    private boolean afterLast = false;
+
+    private JDBC4PagedResultSet(Statement sourceStatement, VoltSQL query, VoltSQL.PageKey key, int keyColumn,
+            JDBC4ClientConnection connection, int timeout, int pageSize, int maxRows, VoltTable firstPage, int limit)
+            throws SQLException {
+        super(sourceStatement, firstPage);
+        this.query = query;
+        this.key = key;
+        this.keyColumn = keyColumn;
+        this.connection = connection;
+        this.timeout = timeout;
+        this.pageSize = pageSize;
+        this.maxRows = maxRows;
+        this.fetchedRows = firstPage.getRowCount();
+        this.lastPage = firstPage.getRowCount() < limit || (maxRows > 0 && fetchedRows >= maxRows);
+    }
+
+    // Run the query for its first page. Returns null when the result is more than a page
+    // but the key is not one of its columns, and so the query has to be run whole.
+    static JDBC4PagedResultSet open(Statement sourceStatement, VoltSQL query, VoltSQL.PageKey key,
+            JDBC4ClientConnection connection, int timeout, int pageSize, int maxRows) throws SQLException {
+        int limit = (maxRows > 0 ? Math.min(pageSize, maxRows) : pageSize);
+        VoltTable firstPage = query.getPageQuery(key, null, limit).execute(connection, timeout)[0];
+        int keyColumn = -1;
+        for (int i = 0; i < firstPage.getColumnCount(); i++) {
+            if (key.column.equalsIgnoreCase(firstPage.getColumnName(i))) {
+                keyColumn = i;
+                break;
+            }
+        }
+        if (keyColumn < 0 && firstPage.getRowCount() >= limit) {
+            return null;
+        }
+        return new JDBC4PagedResultSet(sourceStatement, query, key, keyColumn, connection, timeout, pageSize,
+                maxRows, firstPage, limit);
+    }
+
+    VoltTable getCurrentPage() {
+        return table;
+    }
+
+    private void fetchPage() throws SQLException {
+        int limit = (maxRows > 0 ? Math.min(pageSize, maxRows - fetchedRows) : pageSize);
+        Object lastKey = table.fetchRow(table.getRowCount() - 1).get(keyColumn, table.getColumnType(keyColumn));
+        VoltTable page = query.getPageQuery(key, lastKey, limit).execute(connection, timeout)[0];
+        pageStart += table.getRowCount();
+        table = page;
+        fetchedRows += page.getRowCount();
+        lastPage = page.getRowCount() < limit || (maxRows > 0 && fetchedRows >= maxRows);
+    }
+
+    // Moves the cursor forward one row, fetching the next page at the end of this one.
+    @Override
+    public boolean next() throws SQLException {
+        checkClosed();
+        if (afterLast) {
+            return false;
+        }
+        beforeFirst = false;
+        try {
+            while (!table.advanceRow()) {
+                if (lastPage) {
+                    afterLast = true;
+                    return false;
+                }
+                fetchPage();
+            }
+            return true;
+        } catch (SQLException x) {
+            throw x;
+        } catch (Exception x) {
+            throw SQLError.get(x);
+        }
+    }
+
+    // Retrieves the current row number, counting the rows of the previous pages.
+    @Override
+    public int getRow() throws SQLException {
+        checkClosed();
+        if (beforeFirst || afterLast) {
+            return 0;
+        }
+        return pageStart + table.getActiveRowIndex() + 1;
+    }
+
+    @Override
+    public boolean isBeforeFirst() throws SQLException {
+        checkClosed();
+        return beforeFirst && table.getRowCount() > 0;
+    }
+
+    @Override
+    public boolean isAfterLast() throws SQLException {
+        checkClosed();
+        return afterLast && pageStart + table.getRowCount() > 0;
+    }
+
+    @Override
+    public boolean isFirst() throws SQLException {
+        checkClosed();
+        return !beforeFirst && !afterLast && pageStart == 0 && table.getActiveRowIndex() == 0;
+    }
+
+    // Would need the next page, which is optional for forward only result sets.
+    @Override
+    public boolean isLast() throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public boolean absolute(int row) throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public void afterLast() throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public void beforeFirst() throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public boolean first() throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public boolean last() throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public boolean previous() throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public boolean relative(int rows) throws SQLException {
+        checkClosed();
+        throw SQLError.noSupport();
+    }
+
+    @Override
+    public int getType() throws SQLException {
+        return TYPE_FORWARD_ONLY;
+    }
+}
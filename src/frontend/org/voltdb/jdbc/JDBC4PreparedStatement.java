@@ -45,9 +45,22 @@ public class JDBC4PreparedStatement extends JDBC4Statement implements java.sql.P
     private final VoltSQL Query;
     private Object[] parameters;
     private final JDBC4ParameterMetaData parameterMetaData;
+    // Set up at the first grouped executeBatch(), null if the statement is not a groupable INSERT
+    private JDBC4GroupedInsert groupedInsert = null;
+    private boolean groupedInsertChecked = false;
+    // Handle of the plan made by @AdHocPrepare at the first execution, null if the
+    // statement is sent as text
+    private Long preparedHandle = null;
+    private boolean preparedHandleChecked = false;
+
     JDBC4PreparedStatement(JDBC4Connection connection, String sql) throws SQLException
     {
-        super(connection);
+        this(connection, sql, ResultSet.TYPE_SCROLL_INSENSITIVE);
+    }
+
+    JDBC4PreparedStatement(JDBC4Connection connection, String sql, int resultSetType) throws SQLException
+    {
+        super(connection, resultSetType);
         VoltSQL query = VoltSQL.parseSQL(sql);
         this.Query = query;
         this.parameters = this.Query.getParameterArray();
@@ -94,6 +107,45 @@ public class JDBC4PreparedStatement extends JDBC4Statement implements java.sql.P
         this.parameters = this.Query.getParameterArray();
     }
 
+    @Override
+    protected JDBC4GroupedInsert getGroupedInsert() throws SQLException
+    {
+        if (!this.groupedInsertChecked) {
+            if (this.Query.isOfType(VoltSQL.TYPE_UPDATE)) {
+                this.groupedInsert = JDBC4GroupedInsert.forStatement(this.sourceConnection.NativeConnection,
+                        this.Query.toSqlString(), this.Query.getParameterCount());
+            }
+            this.groupedInsertChecked = true;
+        }
+        return this.groupedInsert;
+    }
+
+    @Override
+    public void close() throws SQLException
+    {
+        if (this.groupedInsert != null) {
+            this.groupedInsert.close();
+            this.groupedInsert = null;
+        }
+        super.close();
+    }
+
+    // The query with the current parameters, run by the handle of its plan on the server
+    // for connections with jdbc.serverprepare set.
+    private VoltSQL getExecutableQuery() throws SQLException
+    {
+        VoltSQL query = this.Query.getExecutableQuery(this.parameters);
+        if (this.Query.isOfType(VoltSQL.TYPE_EXEC) || !this.sourceConnection.isServerPrepared()) {
+            return query;
+        }
+        if (!this.preparedHandleChecked) {
+            this.preparedHandle = VoltSQL.prepare(this.sourceConnection.NativeConnection,
+                    this.Query.toSqlString(), getQueryTimeout());
+            this.preparedHandleChecked = true;
+        }
+        return (this.preparedHandle == null ? query : query.withPreparedHandle(this.preparedHandle));
+    }
+
     // Clears the current parameter values immediately.
     @Override
     public void clearParameters() throws SQLException
@@ -107,7 +159,7 @@ public class JDBC4PreparedStatement extends JDBC4Statement implements java.sql.P
     public boolean execute() throws SQLException
     {
         checkClosed();
-        boolean result = this.execute(this.Query.getExecutableQuery(this.parameters));
+        boolean result = this.execute(getExecutableQuery());
         this.parameters = this.Query.getParameterArray();
         return result;
     }
@@ -120,7 +172,7 @@ public class JDBC4PreparedStatement extends JDBC4Statement implements java.sql.P
         if (!this.Query.isOfType(VoltSQL.TYPE_EXEC,VoltSQL.TYPE_SELECT)) {
             throw SQLError.get(SQLError.ILLEGAL_STATEMENT, this.Query.toSqlString());
         }
-        ResultSet result = this.executeQuery(this.Query.getExecutableQuery(this.parameters));
+        ResultSet result = this.executeQuery(getExecutableQuery());
         this.parameters = this.Query.getParameterArray();
         return result;
     }
@@ -133,7 +185,7 @@ public class JDBC4PreparedStatement extends JDBC4Statement implements java.sql.P
         if (!this.Query.isOfType(VoltSQL.TYPE_EXEC,VoltSQL.TYPE_UPDATE)) {
             throw SQLError.get(SQLError.ILLEGAL_STATEMENT, this.Query.toSqlString());
         }
-        int result = this.executeUpdate(this.Query.getExecutableQuery(this.parameters));
+        int result = this.executeUpdate(getExecutableQuery());
         this.parameters = this.Query.getParameterArray();
         return result;
     }
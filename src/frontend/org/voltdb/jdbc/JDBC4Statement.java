@@ -28,12 +28,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.client.ProcedureCallback;
 import org.voltdb.parser.JDBCParser;
 import org.voltdb.parser.SQLLexer;
 import org.voltdb.parser.JDBCParser.ParsedCall;
@@ -43,17 +49,35 @@ public class JDBC4Statement implements java.sql.Statement
 
     //Timeout for statement. This is used for execute* methods. batch add dont have timeout.
     private int m_timeout = 0;
+    // Wait for a pipelined batch without a query timeout, the client's own default procedure timeout
+    private static final long DEFAULT_BATCH_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    // The client expires timed out calls once a second, their callbacks may come that much later
+    private static final long BATCH_TIMEOUT_SLACK_MILLIS = 2000;
     static class VoltSQL
     {
         public static final byte TYPE_SELECT = 1;
         public static final byte TYPE_UPDATE = 2;
         public static final byte TYPE_EXEC = 3;
 
+        // A SELECT from a single table ordered by one column, with its table, WHERE condition,
+        // ORDER BY, order column and direction
+        private static final Pattern PAGEABLE = Pattern.compile(
+                "\\s*SELECT\\s.+?\\sFROM\\s+(\\w+)(?:\\s+WHERE\\s+(.+?))?\\s+(ORDER\\s+BY)\\s+(\\w+)(?:\\s+(ASC|DESC))?\\s*;",
+                Pattern.DOTALL);
+        // Queries that are not paged, their result already has a limit, may not be cut or is
+        // not ordered by the rows of a single table
+        private static final Pattern UNPAGEABLE =
+                Pattern.compile("\\b(LIMIT|OFFSET|UNION|INTERSECT|EXCEPT|JOIN|GROUP|HAVING|DISTINCT|SELECT\\s.*\\bSELECT)\\b", Pattern.DOTALL);
+        // Status string of an @AdHocExecute of a handle the server does not know
+        private static final String UNKNOWN_HANDLE = "Unknown prepared statement handle";
+
         private final String[] sql;
         private final int parameterCount;
         private final byte type;
         private final byte queryType;   // Type of query EXEC'd by @AdHoc
         private final Object[] parameters;
+        // Handle of the statement planned by @AdHocPrepare, null to send the SQL text
+        private Long preparedHandle = null;
 
         private VoltSQL(String[] sql, int parameterCount, byte type)
         {
@@ -116,6 +140,12 @@ public class JDBC4Statement implements java.sql.Statement
             try
             {
                 if (this.type == TYPE_EXEC) {
+                    if (this.preparedHandle != null) {
+                        VoltTable[] results = executePrepared(connection, timeout);
+                        if (results != null) {
+                            return results;
+                        }
+                    }
                     return connection.execute(this.sql[0], timeout, this.parameters).getResults();
                 } else {
                     return connection.execute("@AdHoc", timeout, this.sql[0]).getResults();
@@ -125,24 +155,7 @@ public class JDBC4Statement implements java.sql.Statement
             {
                 ClientResponse response = e.getClientResponse();
                 if (response != null) {
-                    // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
-                    // for connection problems.
-                    switch (response.getStatus()) {
-                    case ClientResponse.CONNECTION_LOST:
-                        throw SQLError.get(e, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", e.getMessage());
-                    case ClientResponse.CONNECTION_TIMEOUT:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", e.getMessage());
-                    case ClientResponse.SERVER_UNAVAILABLE:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", e.getMessage());
-                    case ClientResponse.USER_ABORT:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "USER_ABORT", e.getMessage());
-                    case ClientResponse.UNEXPECTED_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", e.getMessage());
-                    case ClientResponse.GRACEFUL_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", e.getMessage());
-                    default:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), e.getMessage());
-                    }
+                    throw getResponseException(response, e, e.getMessage());
                 } else {
                     throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
                 }
@@ -153,6 +166,205 @@ public class JDBC4Statement implements java.sql.Statement
             }
         }
 
+        // Run the statement by its handle, null if the server does not know the handle
+        // and the SQL text has to be sent instead.
+        private VoltTable[] executePrepared(JDBC4ClientConnection connection, long timeout)
+                throws ProcCallException, IOException
+        {
+            Object[] params = new Object[this.parameters.length];
+            params[0] = this.preparedHandle;
+            System.arraycopy(this.parameters, 1, params, 1, this.parameters.length - 1);
+            try {
+                return connection.execute("@AdHocExecute", timeout, params).getResults();
+            }
+            catch(ProcCallException e)
+            {
+                ClientResponse response = e.getClientResponse();
+                if (response != null && response.getStatus() == ClientResponse.GRACEFUL_FAILURE &&
+                        response.getStatusString() != null &&
+                        response.getStatusString().startsWith(UNKNOWN_HANDLE)) {
+                    return null;
+                }
+                throw e;
+            }
+        }
+
+        // Plan the SQL text on the server with @AdHocPrepare, returns the handle to execute
+        // it with, or null if it could not be prepared and has to be sent as text.
+        static Long prepare(JDBC4ClientConnection connection, String sql, long timeout) throws SQLException
+        {
+            try
+            {
+                VoltTable handle = connection.execute("@AdHocPrepare", timeout, sql).getResults()[0];
+                return handle.asScalarLong();
+            }
+            catch(ProcCallException e)
+            {
+                // Such as DDL, or a server without @AdHocPrepare
+                return null;
+            }
+            catch(IOException e)
+            {
+                throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
+            }
+        }
+
+        // The same @AdHoc statement, to be run by the handle of its prepared plan.
+        VoltSQL withPreparedHandle(long handle)
+        {
+            VoltSQL query = new VoltSQL(this.sql, this.parameterCount, this.type, this.queryType, this.parameters);
+            query.preparedHandle = handle;
+            return query;
+        }
+
+        // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
+        // for connection problems.
+        static SQLException getResponseException(ClientResponse response, Exception cause, String message)
+        {
+            switch (response.getStatus()) {
+            case ClientResponse.CONNECTION_LOST:
+                return SQLError.get(cause, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", message);
+            case ClientResponse.CONNECTION_TIMEOUT:
+                return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", message);
+            case ClientResponse.SERVER_UNAVAILABLE:
+                return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", message);
+            case ClientResponse.USER_ABORT:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "USER_ABORT", message);
+            case ClientResponse.UNEXPECTED_FAILURE:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", message);
+            case ClientResponse.GRACEFUL_FAILURE:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", message);
+            default:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), message);
+            }
+        }
+
+        // Send the statement without waiting for its response, for pipelined batches.
+        protected boolean executeAsync(JDBC4ClientConnection connection, long timeout, ProcedureCallback callback)
+                throws SQLException
+        {
+            try
+            {
+                if (this.type == TYPE_EXEC) {
+                    return connection.executeAsyncWithTimeout(callback, this.sql[0], timeout, this.parameters);
+                } else {
+                    return connection.executeAsyncWithTimeout(callback, "@AdHoc", timeout, this.sql[0]);
+                }
+            }
+            catch(IOException e)
+            {
+                throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
+            }
+        }
+
+        // Parameters of a prepared @AdHoc statement of the given SQL text, null for any other statement.
+        Object[] getAdHocParameters(String sql)
+        {
+            if (this.type != TYPE_EXEC || !this.sql[0].equals("@AdHoc") ||
+                    this.parameters == null || !sql.equals(this.parameters[0])) {
+                return null;
+            }
+            return Arrays.copyOfRange(this.parameters, 1, this.parameters.length);
+        }
+
+        // Key of a query whose result can be read in pages, the column the rows are ordered by
+        // and where to add the condition on it in the SQL text.
+        static class PageKey
+        {
+            final String table;
+            final String column;
+            final boolean descending;
+            // Start and end of the WHERE condition, -1 for none
+            final int whereStart;
+            final int whereEnd;
+            // End of the table name, and start of the ORDER BY
+            final int tableEnd;
+            final int orderByStart;
+
+            private PageKey(Matcher m)
+            {
+                this.table = m.group(1);
+                this.column = m.group(4);
+                this.descending = "DESC".equals(m.group(5));
+                this.whereStart = m.start(2);
+                this.whereEnd = m.end(2);
+                this.tableEnd = m.end(1);
+                this.orderByStart = m.start(3);
+            }
+        }
+
+        private String getSelectText()
+        {
+            return (this.type == TYPE_EXEC ? (String) this.parameters[0] : this.sql[0]);
+        }
+
+        private Object[] getSelectParameters()
+        {
+            return (this.type == TYPE_EXEC ? Arrays.copyOfRange(this.parameters, 1, this.parameters.length) : new Object[0]);
+        }
+
+        // The key of a SELECT from a single table ordered by one of its columns, without LIMIT
+        // or OFFSET, null for any other query. Whether the column is unique is left to the caller.
+        public PageKey getPageKey()
+        {
+            if (!isQueryOfType(TYPE_SELECT)) {
+                return null;
+            }
+            if (this.type == TYPE_EXEC && (!this.sql[0].equals("@AdHoc") || this.parameters == null)) {
+                return null;
+            }
+            // Blank out string literals, keeping the positions of the rest of the text
+            char[] text = getSelectText().toUpperCase().toCharArray();
+            boolean literal = false;
+            for (int i = 0; i < text.length; i++) {
+                if (text[i] == '\'') {
+                    literal = !literal;
+                } else if (literal) {
+                    text[i] = ' ';
+                }
+            }
+            String masked = new String(text);
+            if (masked.length() != getSelectText().length() ||
+                    masked.indexOf(';') != masked.length() - 1 || UNPAGEABLE.matcher(masked).find()) {
+                return null;
+            }
+            Matcher m = PAGEABLE.matcher(masked);
+            return (m.matches() ? new PageKey(m) : null);
+        }
+
+        // The query for up to limit rows of the result that come after the given key value, or
+        // the first rows for a null key value, as an @AdHoc call.
+        public VoltSQL getPageQuery(PageKey key, Object after, int limit)
+        {
+            String text = getSelectText();
+            Object[] params = getSelectParameters();
+            StringBuilder page = new StringBuilder();
+            int paramCount = params.length;
+            if (after == null) {
+                page.append(text, 0, text.length() - 1);
+            } else {
+                if (key.whereStart >= 0) {
+                    page.append(text, 0, key.whereStart).append('(')
+                        .append(text, key.whereStart, key.whereEnd).append(") AND ");
+                } else {
+                    page.append(text, 0, key.tableEnd).append(" WHERE ");
+                }
+                // The parameters of the query all come before the ORDER BY
+                page.append(key.column).append(key.descending ? " < ? " : " > ? ")
+                    .append(text, key.orderByStart, text.length() - 1);
+                paramCount++;
+            }
+            page.append(" LIMIT ?;");
+            Object[] paramsOut = new Object[paramCount + 2];
+            paramsOut[0] = page.toString();
+            System.arraycopy(params, 0, paramsOut, 1, params.length);
+            if (after != null) {
+                paramsOut[paramCount] = after;
+            }
+            paramsOut[paramCount + 1] = limit;
+            return new VoltSQL(new String[] {"@AdHoc"}, paramCount + 1, TYPE_EXEC, TYPE_SELECT, paramsOut);
+        }
+
         public static boolean isUpdateResult(VoltTable table)
         {
             return ((table.getColumnName(0).length() == 0 || table.getColumnName(0).equals("modified_tuples"))&& table.getRowCount() == 1 && table.getColumnCount() == 1 && table.getColumnType(0) == VoltType.BIGINT);
@@ -234,6 +446,8 @@ public class JDBC4Statement implements java.sql.Statement
     private int maxRows = VoltTable.MAX_SERIALIZED_TABLE_LENGTH/2; // Not exactly true, but best type of estimate we can give...
     protected JDBC4Connection sourceConnection;
     private boolean isPoolable = false;
+    // TYPE_FORWARD_ONLY statements with a fetch size read the results of ordered queries in pages
+    private final int resultSetType;
 
     protected VoltTable[] tableResults = null;
     protected int tableResultIndex = -1;
@@ -242,8 +456,14 @@ public class JDBC4Statement implements java.sql.Statement
     protected JDBC4ResultSet result = null;
 
     public JDBC4Statement(JDBC4Connection connection)
+    {
+        this(connection, ResultSet.TYPE_SCROLL_INSENSITIVE);
+    }
+
+    JDBC4Statement(JDBC4Connection connection, int resultSetType)
     {
         sourceConnection = connection;
+        this.resultSetType = resultSetType;
     }
 
     protected void checkClosed() throws SQLException
@@ -292,6 +512,33 @@ public class JDBC4Statement implements java.sql.Statement
         this.result = createTrimmedResultSet(this.tableResults[this.tableResultIndex]);
     }
 
+    // Make the result a paged result set, when the connection, the statement and the query
+    // allow it. Otherwise the query is left to be run for its whole result.
+    private boolean executePaged(VoltSQL query) throws SQLException
+    {
+        if (!this.sourceConnection.isResultPaged() ||
+                this.resultSetType != ResultSet.TYPE_FORWARD_ONLY || this.fetchSize <= 0) {
+            return false;
+        }
+        VoltSQL.PageKey key = query.getPageKey();
+        if (key == null || !this.sourceConnection.isOrderedUniqueKey(key.table, key.column)) {
+            return false;
+        }
+        JDBC4PagedResultSet paged = JDBC4PagedResultSet.open(this, query, key,
+                this.sourceConnection.NativeConnection, this.m_timeout, this.fetchSize, this.maxRows);
+        if (paged == null) {
+            return false;
+        }
+        this.tableResults = new VoltTable[] { paged.getCurrentPage() };
+        this.tableResultIndex = 0;
+        this.lastUpdateCount = -1;
+        if (this.result != null) {
+            this.result.close();
+        }
+        this.result = paged;
+        return true;
+    }
+
     private void closeAllOpenResults() throws SQLException
     {
         if (this.openResults != null)
@@ -367,7 +614,9 @@ public class JDBC4Statement implements java.sql.Statement
         checkClosed();
         if (query.isQueryOfType(VoltSQL.TYPE_SELECT,VoltSQL.TYPE_EXEC))
         {
-            setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout), -1);
+            if (!executePaged(query)) {
+                setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout), -1);
+            }
             return true;
         }
         else
@@ -420,6 +669,17 @@ public class JDBC4Statement implements java.sql.Statement
             return new int[0];
         }
 
+        if (sourceConnection.isBatchGrouped()) {
+            JDBC4GroupedInsert insert = getGroupedInsert();
+            List<Object[]> rows = (insert == null ? null : getBatchRows(insert.getSql()));
+            if (rows != null) {
+                return executeGroupedBatch(insert, rows);
+            }
+        }
+        if (sourceConnection.isBatchPipelined()) {
+            return executePipelinedBatch();
+        }
+
         int[] updateCounts = new int[batch.size()];
         // keep a running total of update counts
         int runningUpdateCount = 0;
@@ -447,9 +707,148 @@ public class JDBC4Statement implements java.sql.Statement
         return updateCounts;
     }
 
+    // INSERT whose batches can be grouped by partition, null for statements of any other kind.
+    protected JDBC4GroupedInsert getGroupedInsert() throws SQLException
+    {
+        return null;
+    }
+
+    // Parameters of each statement of the batch, null unless all of them are the prepared sql.
+    private List<Object[]> getBatchRows(String sql)
+    {
+        List<Object[]> rows = new ArrayList<Object[]>(batch.size());
+        for (VoltSQL query : batch) {
+            Object[] parameters = query.getAdHocParameters(sql);
+            if (parameters == null) {
+                return null;
+            }
+            rows.add(parameters);
+        }
+        return rows;
+    }
+
+    // Load the rows of a batch of prepared INSERT statements together, partition by partition.
+    private int[] executeGroupedBatch(JDBC4GroupedInsert insert, List<Object[]> rows) throws SQLException
+    {
+        int[] updateCounts = new int[batch.size()];
+        SQLException error = insert.execute(sourceConnection.NativeConnection, rows, updateCounts);
+        return completeBatch(updateCounts, error);
+    }
+
+    // Send all the statements of the batch before waiting for the first response.
+    private int[] executePipelinedBatch() throws SQLException
+    {
+        final int[] updateCounts = new int[batch.size()];
+        final SQLException[] errors = new SQLException[batch.size()];
+        final boolean[] responded = new boolean[batch.size()];
+        final CountDownLatch pending = new CountDownLatch(batch.size());
+
+        for (int i = 0; i < batch.size(); i++) {
+            final int index = i;
+            ProcedureCallback callback = new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse response)
+                {
+                    int updateCount = EXECUTE_FAILED;
+                    SQLException error = null;
+                    try {
+                        if (response.getStatus() == ClientResponse.SUCCESS) {
+                            updateCount = (int) response.getResults()[0].fetchRow(0).getLong(0);
+                        } else {
+                            error = VoltSQL.getResponseException(response, null, response.getStatusString());
+                        }
+                    }
+                    catch (RuntimeException x) {
+                        // Such as a response without a count table
+                        error = SQLError.get(x);
+                    }
+                    finally {
+                        synchronized (responded) {
+                            // Left alone once the batch has timed out and returned
+                            if (!responded[index]) {
+                                responded[index] = true;
+                                updateCounts[index] = updateCount;
+                                errors[index] = error;
+                            }
+                        }
+                        pending.countDown();
+                    }
+                }
+            };
+            SQLException failure = null;
+            try {
+                if (!batch.get(i).executeAsync(sourceConnection.NativeConnection, this.m_timeout, callback)) {
+                    failure = SQLError.get(SQLError.CONNECTION_CLOSED);
+                }
+            }
+            catch (SQLException x) {
+                failure = x;
+            }
+            if (failure != null) {
+                // The statements left will not get through either
+                synchronized (responded) {
+                    for (int j = i; j < batch.size(); j++) {
+                        responded[j] = true;
+                        updateCounts[j] = EXECUTE_FAILED;
+                        errors[j] = failure;
+                        pending.countDown();
+                    }
+                }
+                break;
+            }
+        }
+
+        // Each statement times out on its own, the wait only covers responses that never come
+        long timeoutMillis = (this.m_timeout > 0 ? TimeUnit.SECONDS.toMillis(this.m_timeout) : DEFAULT_BATCH_TIMEOUT_MILLIS);
+        boolean completed;
+        try {
+            completed = pending.await(timeoutMillis + BATCH_TIMEOUT_SLACK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException x) {
+            throw SQLError.get(x);
+        }
+
+        SQLException error = null;
+        synchronized (responded) {
+            if (!completed) {
+                SQLException timeout = SQLError.get(SQLError.GENERAL_ERROR,
+                        "No response to the batch statement after " + timeoutMillis + " ms");
+                for (int i = 0; i < responded.length; i++) {
+                    if (!responded[i]) {
+                        responded[i] = true;
+                        updateCounts[i] = EXECUTE_FAILED;
+                        errors[i] = timeout;
+                    }
+                }
+            }
+            for (int i = 0; i < errors.length && error == null; i++) {
+                error = errors[i];
+            }
+        }
+        return completeBatch(updateCounts, error);
+    }
+
+    // Report the update counts of a batch whose statements were all sent, even after a failure.
+    private int[] completeBatch(int[] updateCounts, SQLException error) throws SQLException
+    {
+        int runningUpdateCount = 0;
+        for (int updateCount : updateCounts) {
+            if (updateCount != EXECUTE_FAILED) {
+                runningUpdateCount += updateCount;
+            }
+        }
+        this.lastUpdateCount = runningUpdateCount;
+        if (error != null) {
+            throw new BatchUpdateException(updateCounts, error);
+        }
+        return updateCounts;
+    }
+
     protected ResultSet executeQuery(VoltSQL query) throws SQLException
     {
-        setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout), -1);
+        if (!executePaged(query)) {
+            setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout), -1);
+        }
         return this.result;
     }
 
@@ -640,7 +1039,7 @@ public class JDBC4Statement implements java.sql.Statement
     public int getResultSetType() throws SQLException
     {
         checkClosed();
-        return ResultSet.TYPE_SCROLL_INSENSITIVE;
+        return this.resultSetType;
     }
 
     // Retrieves the current result as an update count; if the result is a ResultSet object or there are no more results, -1 is returned.
@@ -505,8 +505,11 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         loadCatalog(timestamp, getStringBytes(serializedCatalog));
     }
 
-    /** Pass the catalog to the engine */
-    abstract protected void loadCatalog(final long timestamp, final byte[] catalogBytes) throws EEException;
+    /**
+     * Pass the catalog to the engine, either the commands of Catalog.serialize()
+     * as UTF-8 or the binary form of Catalog.serializeBinary()
+     */
+    abstract public void loadCatalog(final long timestamp, final byte[] catalogBytes) throws EEException;
 
     /** Pass diffs to apply to the EE's catalog to update it */
     abstract public void updateCatalog(final long timestamp, final String diffCommands) throws EEException;
@@ -611,11 +614,33 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             boolean interval,
             Long now);
 
+    /** Indexes of the counters filled in by {@link #getTableMemoryStats(long[])} */
+    public static final int TABLE_MEMORY_TUPLE_COUNT = 0;
+    public static final int TABLE_MEMORY_TUPLE_ALLOCATED = 1;
+    public static final int TABLE_MEMORY_TUPLE_DATA = 2;
+    public static final int TABLE_MEMORY_STRING = 3;
+    public static final int TABLE_MEMORY_INDEX = 4;
+    public static final int TABLE_MEMORY_COUNTER_COUNT = 5;
+
+    /**
+     * Retrieve the running totals of the memory held by the tables and indexes of the site,
+     * in bytes but for the tuple count. Unlike the TABLE and INDEX statistics this doesn't
+     * visit every table, and it allocates nothing.
+     * @param counters Filled in at the TABLE_MEMORY_ indexes, at least TABLE_MEMORY_COUNTER_COUNT long
+     */
+    public abstract void getTableMemoryStats(long[] counters);
+
     /**
      * Instruct the EE to start/stop its profiler.
      */
     public abstract void toggleProfiler(int toggle);
 
+    /**
+     * Instruct the EE to count what the executors of every plan node do,
+     * for the PLANNODE statistics.
+     */
+    public abstract void setPlanNodeProfiling(boolean enabled);
+
     /**
      * Release all undo actions up to and including the specified undo token
      * @param undoToken The undo token.
@@ -641,6 +666,14 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     public abstract long[] getUSOForExportTable(String tableSignature);
 
+    /**
+     * Get the change count of persistent tables, which grows with every insert,
+     * update and delete, for incremental snapshots to tell unchanged tables.
+     * @param tableIds the catalog ids of the tables
+     * @return the count of each table, -1 for ids without a persistent table
+     */
+    public abstract long[] getTableChangeCounts(int[] tableIds);
+
     /**
      * Calculate a hash code for a table.
      * @param pointer Pointer to an engine instance
@@ -860,6 +893,19 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected native int nativeToggleProfiler(long pointer, int mode);
 
+    /**
+     * Write the memory counters of the tables and indexes of the site to the result buffer.
+     * @param pointer the VoltDBEngine pointer
+     */
+    protected native void nativeGetTableMemoryStats(long pointer);
+
+    /**
+     * Turns the profile counters of the plan node executors on or off.
+     * @param pointer the VoltDBEngine pointer
+     * @param enabled true to count what every executor does
+     */
+    protected native void nativeSetPlanNodeProfiling(long pointer, boolean enabled);
+
     /**
      * Use the EE's hashinator to compute the partition to which the
      * value provided in the input parameter buffer maps.  This is
@@ -983,6 +1029,15 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     public native long[] nativeGetUSOForExportTable(long pointer, byte mTableSignature[]);
 
+    /**
+     * Get the change counts of persistent tables.
+     *
+     * @param pointer Pointer to an engine instance
+     * @param tableIds The catalog ids of the tables
+     * @return The change count of each table, -1 for ids without a persistent table.
+     */
+    public native long[] nativeGetTableChangeCounts(long pointer, int tableIds[]);
+
     /**
      * This code only does anything useful on MACOSX.
      * On LINUX, procfs is read to get RSS
@@ -24,6 +24,7 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -124,7 +125,8 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         GetUSOs(25),
         updateHashinator(27),
         executeTask(28),
-        applyBinaryLog(29);
+        applyBinaryLog(29),
+        GetTableChangeCounts(30);
         Commands(final int id) {
             m_id = id;
         }
@@ -613,7 +615,8 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
         // voltdbipc assumes host byte order everywhere
         // Arbitrarily set to 20MB when 10MB crashed for an arbitrarily scaled unit test.
-        m_dataNetworkOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 20);
+        m_dataNetworkOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 20,
+                org.voltcore.utils.DBBPool.MemoryUse.EE);
         m_dataNetwork = m_dataNetworkOrigin.b();
         m_dataNetwork.position(4);
         m_data = m_dataNetwork.slice();
@@ -689,9 +692,9 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         updateHashinator(hashinatorConfig);
     }
 
-    /** write the catalog as a UTF-8 byte string via connection */
+    /** write the catalog, commands or binary, via connection */
     @Override
-    protected void loadCatalog(final long timestamp, final byte[] catalogBytes) throws EEException {
+    public void loadCatalog(final long timestamp, final byte[] catalogBytes) throws EEException {
         int result = ExecutionEngine.ERRORCODE_ERROR;
         m_data.clear();
 
@@ -930,6 +933,19 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         return;
     }
 
+    /**
+     * Unsupported implementation of setPlanNodeProfiling
+     */
+    @Override
+    public void setPlanNodeProfiling(final boolean enabled) {
+        return;
+    }
+
+    @Override
+    public void getTableMemoryStats(final long[] counters) {
+        Arrays.fill(counters, 0, TABLE_MEMORY_COUNTER_COUNT, 0);
+    }
+
 
     @Override
     public byte[] loadTable(final int tableId, final VoltTable table, final long txnId,
@@ -1319,6 +1335,33 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
     }
 
+    @Override
+    public long[] getTableChangeCounts(int[] tableIds) {
+        try {
+            m_data.clear();
+            m_data.putInt(Commands.GetTableChangeCounts.m_id);
+            m_data.putInt(tableIds.length);
+            for (int tableId : tableIds) {
+                m_data.putInt(tableId);
+            }
+            m_data.flip();
+            m_connection.write();
+
+            ByteBuffer results = ByteBuffer.allocate(8 * tableIds.length);
+            while (results.remaining() > 0)
+                m_connection.m_socketChannel.read(results);
+            results.flip();
+
+            long[] retval = new long[tableIds.length];
+            for (int i = 0; i < retval.length; i++) {
+                retval[i] = results.getLong();
+            }
+            return retval;
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public long[] getUSOForExportTable(String tableSignature) {
         long[] retval = null;
@@ -34,6 +34,7 @@ import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
 import org.voltdb.exceptions.EEException;
 import org.voltdb.exceptions.SerializableException;
+import org.voltdb.iv2.TxnTracer;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
 
@@ -94,7 +95,8 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      * that rely on being able to serialize large results sets will get the same amount of storage
      * when using the IPC backend.
      **/
-    private final BBContainer deserializerBufferOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 10);
+    private final BBContainer deserializerBufferOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 10,
+            DBBPool.MemoryUse.EE);
     private FastDeserializer deserializer =
         new FastDeserializer(deserializerBufferOrigin.b());
 
@@ -104,7 +106,8 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      */
     private ByteBuffer fallbackBuffer = null;
 
-    private final BBContainer exceptionBufferOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 5);
+    private final BBContainer exceptionBufferOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 5,
+            DBBPool.MemoryUse.EE);
     private ByteBuffer exceptionBuffer = exceptionBufferOrigin.b();
 
     /**
@@ -159,7 +162,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
             psetBuffer = null;
         }
 
-        psetBufferC = DBBPool.allocateDirect(size);
+        psetBufferC = DBBPool.allocateDirect(size, DBBPool.MemoryUse.EE);
         psetBuffer = psetBufferC.b();
 
         int errorCode = nativeSetBuffers(pointer, psetBuffer,
@@ -222,7 +225,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      *  catalog.
      */
     @Override
-    protected void loadCatalog(long timestamp, final byte[] catalogBytes) throws EEException {
+    public void loadCatalog(long timestamp, final byte[] catalogBytes) throws EEException {
         LOG.trace("Loading Application Catalog...");
         int errorCode = 0;
         errorCode = nativeLoadCatalog(pointer, timestamp, catalogBytes);
@@ -303,6 +306,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         // Execute the plan, passing a raw pointer to the byte buffers for input and output
         //Clear is destructive, do it before the native call
         deserializer.clear();
+        final long traceStartNanos = TxnTracer.isSampled(txnId) ? System.nanoTime() : 0;
         final int errorCode =
             nativeExecutePlanFragments(
                     pointer,
@@ -314,6 +318,9 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                     lastCommittedSpHandle,
                     uniqueId,
                     undoToken);
+        if (traceStartNanos != 0) {
+            TxnTracer.recordSpan("EE.executePlanFragments", txnId, traceStartNanos, System.nanoTime());
+        }
 
         try {
             checkErrorCode(errorCode);
@@ -464,12 +471,28 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         }
     }
 
+    @Override
+    public void getTableMemoryStats(final long[] counters) {
+        //Clear is destructive, do it before the native call
+        deserializer.clear();
+        nativeGetTableMemoryStats(pointer);
+        ByteBuffer buf = deserializer.buffer();
+        for (int ii = 0; ii < TABLE_MEMORY_COUNTER_COUNT; ii++) {
+            counters[ii] = buf.getLong();
+        }
+    }
+
     @Override
     public void toggleProfiler(final int toggle) {
         nativeToggleProfiler(pointer, toggle);
         return;
     }
 
+    @Override
+    public void setPlanNodeProfiling(final boolean enabled) {
+        nativeSetPlanNodeProfiling(pointer, enabled);
+    }
+
     @Override
     public boolean releaseUndoToken(final long undoToken) {
         return nativeReleaseUndoToken(pointer, undoToken);
@@ -556,6 +579,11 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         return nativeGetUSOForExportTable(pointer, getStringBytes(tableSignature));
     }
 
+    @Override
+    public long[] getTableChangeCounts(int[] tableIds) {
+        return nativeGetTableChangeCounts(pointer, tableIds);
+    }
+
     @Override
     public void processRecoveryMessage( ByteBuffer buffer, long bufferPointer) {
         nativeProcessRecoveryMessage( pointer, bufferPointer, buffer.position(), buffer.remaining());
@@ -20,6 +20,7 @@ package org.voltdb.jni;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -164,6 +165,15 @@ public class MockExecutionEngine extends ExecutionEngine {
         return;
     }
 
+    @Override
+    public void setPlanNodeProfiling(final boolean enabled) {
+    }
+
+    @Override
+    public void getTableMemoryStats(final long[] counters) {
+        Arrays.fill(counters, 0, TABLE_MEMORY_COUNTER_COUNT, 0);
+    }
+
     @Override
     public boolean undoUndoToken(final long undoToken) {
         return false;
@@ -200,6 +210,11 @@ public class MockExecutionEngine extends ExecutionEngine {
         return null;
     }
 
+    @Override
+    public long[] getTableChangeCounts(int[] tableIds) {
+        return null;
+    }
+
     @Override
     public void processRecoveryMessage( java.nio.ByteBuffer buffer, long pointer) {
     }
@@ -42,6 +42,7 @@ import org.voltdb.expressions.FunctionExpression;
 import org.voltdb.expressions.ParameterValueExpression;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.expressions.VectorValueExpression;
+import org.voltdb.expressions.WindowFunctionExpression;
 import org.voltdb.planner.parseinfo.BranchNode;
 import org.voltdb.planner.parseinfo.JoinNode;
 import org.voltdb.planner.parseinfo.StmtSubqueryScan;
@@ -53,6 +54,7 @@ import org.voltdb.plannodes.LimitPlanNode;
 import org.voltdb.plannodes.SchemaColumn;
 import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
+import org.voltdb.types.SortDirectionType;
 
 public abstract class AbstractParsedStmt {
 
@@ -283,6 +285,9 @@ public abstract class AbstractParsedStmt {
         else if (elementName.equals("function")) {
             retval = parseFunctionExpression(root);
         }
+        else if (elementName.equals("windowfunction")) {
+            retval = parseWindowFunctionExpression(root);
+        }
         else if (elementName.equals("asterisk")) {
             return null;
         }
@@ -528,6 +533,65 @@ public abstract class AbstractParsedStmt {
     }
 
 
+    /**
+     * Parse a window function: RANK(), DENSE_RANK(), ROW_NUMBER() or one of
+     * the aggregates COUNT, SUM, MIN and MAX, applied OVER a window.
+     * @param exprNode
+     * @return a new WindowFunctionExpression
+     */
+    private AbstractExpression parseWindowFunctionExpression(VoltXMLElement exprNode)
+    {
+        String optype = exprNode.attributes.get("optype");
+        ExpressionType windowType = ExpressionType.get("window_" + optype);
+        ExpressionType aggregateType = windowType;
+        if (windowType == ExpressionType.INVALID) {
+            windowType = ExpressionType.WINDOW_AGGREGATE;
+            aggregateType = ExpressionType.get("aggregate_" + optype);
+            if (aggregateType == ExpressionType.INVALID) {
+                throw new PlanningErrorException("Unsupported window function type '" + optype + "'");
+            }
+        }
+
+        AbstractExpression argument = null;
+        VoltXMLElement partitionByNode = null;
+        VoltXMLElement orderByNode = null;
+        for (VoltXMLElement child : exprNode.children) {
+            if (child.name.equals("partitionbylist")) {
+                partitionByNode = child;
+            }
+            else if (child.name.equals("orderbylist")) {
+                orderByNode = child;
+            }
+            else {
+                assert(argument == null);
+                argument = parseExpressionTree(child);
+            }
+        }
+        if (windowType == ExpressionType.WINDOW_AGGREGATE && argument == null) {
+            assert(aggregateType == ExpressionType.AGGREGATE_COUNT);
+            aggregateType = ExpressionType.AGGREGATE_COUNT_STAR;
+        }
+
+        WindowFunctionExpression expr = new WindowFunctionExpression(windowType, aggregateType);
+        expr.setLeft(argument);
+        if (partitionByNode != null) {
+            for (VoltXMLElement child : partitionByNode.children) {
+                expr.addPartitionByExpression(parseExpressionTree(child));
+            }
+        }
+        if (orderByNode != null) {
+            for (VoltXMLElement child : orderByNode.children) {
+                assert(child.children.size() == 1);
+                String desc = child.attributes.get("desc");
+                SortDirectionType direction =
+                        (desc != null && Boolean.parseBoolean(desc)) ? SortDirectionType.DESC
+                                                                     : SortDirectionType.ASC;
+                expr.addOrderByExpression(parseExpressionTree(child.children.get(0)), direction);
+            }
+        }
+        return expr;
+    }
+
     /**
      *
      * @param paramsById
@@ -822,6 +886,10 @@ public abstract class AbstractParsedStmt {
             assert(condExpr == null);
             condExpr = parseExpressionTree(childNode.children.get(0));
             assert(condExpr != null);
+            if (condExpr.hasAnySubexpressionOfClass(WindowFunctionExpression.class)) {
+                throw new PlanningErrorException(
+                        "Window functions are not allowed in the WHERE or ON clauses.");
+            }
             ExpressionUtil.finalizeValueTypes(condExpr);
         }
         return condExpr;
@@ -1067,6 +1135,17 @@ public abstract class AbstractParsedStmt {
         return null;
     }
 
+    /**
+     * The ordering that an index scan should provide, if any.
+     * This is the ORDER BY unless some other operation needs sorted input.
+     */
+    public List<ParsedColInfo> indexOrderColumns() {
+        if ( ! hasOrderByColumns()) {
+            return null;
+        }
+        return orderByColumns();
+    }
+
     /**
      * Return true if a SQL statement contains a subquery of any kind
      * @return TRUE is this statement contains a subquery
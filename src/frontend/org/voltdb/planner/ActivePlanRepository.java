@@ -93,6 +93,18 @@ public abstract class ActivePlanRepository {
         return frag.stmtText;
     }
 
+    /**
+     * Get the statement text for a fragment identified by its site-local id,
+     * null if the fragment is not known or was loaded without its text (ad hoc)
+     */
+    public static String getStmtTextForFragmentId(long fragmentId) {
+        FragInfo frag = null;
+        synchronized (FragInfo.class) {
+            frag = m_plansById.get(fragmentId);
+        }
+        return frag == null ? null : frag.stmtText;
+    }
+
     /**
      * Get the site-local fragment id for a given plan identified by 20-byte sha-1 hash
      * If the plan isn't known to this SPC, load it up. Otherwise addref it.
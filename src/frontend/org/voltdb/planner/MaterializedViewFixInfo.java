@@ -206,6 +206,12 @@ public class MaterializedViewFixInfo {
                     reAggType == ExpressionType.AGGREGATE_COUNT) {
                 reAggType = ExpressionType.AGGREGATE_SUM;
             }
+            else if (reAggType == ExpressionType.AGGREGATE_APPROX_COUNT_DISTINCT) {
+                // The estimates of the partitions for the same group can not be combined.
+                throw new PlanningErrorException("Materialized view " + mvTableName +
+                        " has an approx_count_distinct() column and can not be queried across partitions" +
+                        " unless it is grouped by the partition column of its source table.");
+            }
             mvColumnReAggType.put(mvCol.getName(), reAggType);
         }
 
@@ -126,7 +126,8 @@ public class ParsedColInfo implements Cloneable {
 
             if ((child.name.equals("operation") == false) &&
                     (child.name.equals("aggregation") == false) &&
-                    (child.name.equals("function") == false)) {
+                    (child.name.equals("function") == false) &&
+                    (child.name.equals("windowfunction") == false)) {
                throw new RuntimeException("ORDER BY parsed with strange child node type: " + child.name);
            }
         }
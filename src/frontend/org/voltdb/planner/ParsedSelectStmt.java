@@ -40,6 +40,7 @@ import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.OperatorExpression;
 import org.voltdb.expressions.ParameterValueExpression;
 import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.expressions.WindowFunctionExpression;
 import org.voltdb.planner.parseinfo.BranchNode;
 import org.voltdb.planner.parseinfo.JoinNode;
 import org.voltdb.planner.parseinfo.StmtTableScan;
@@ -49,6 +50,7 @@ import org.voltdb.plannodes.NodeSchema;
 import org.voltdb.plannodes.SchemaColumn;
 import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
+import org.voltdb.types.SortDirectionType;
 
 public class ParsedSelectStmt extends AbstractParsedStmt {
 
@@ -98,6 +100,15 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
     private boolean m_hasAggregateExpression = false;
     private boolean m_hasAverage = false;
 
+    // The window functions of the statement, which all share one window.
+    private final ArrayList<WindowFunctionExpression> m_windowFunctions = new ArrayList<>();
+    // The window's PARTITION BY expressions, as ascending sort columns
+    private final ArrayList<ParsedColInfo> m_windowPartitionByColumns = new ArrayList<>();
+    // The sort order of the window's input: PARTITION BY, then ORDER BY
+    private final ArrayList<ParsedColInfo> m_windowSortColumns = new ArrayList<>();
+    // The temp table columns holding the window function values
+    private final ArrayList<SchemaColumn> m_windowOutputColumns = new ArrayList<>();
+
     public MaterializedViewFixInfo m_mvFixInfo = new MaterializedViewFixInfo();
 
     private boolean m_hasLargeNumberOfTableJoins = false;
@@ -170,6 +181,8 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
         // Make it null to prevent others adding elements to it when parsing the tree
         m_aggregationList = null;
 
+        prepareWindowFunctions();
+
         if (needComplexAggregation()) {
             fillUpAggResultColumns();
         } else {
@@ -400,6 +413,20 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
             ExpressionUtil.finalizeValueTypes(m_having);
         }
 
+        // Window functions are computed into temp table columns below the projection.
+        Map <AbstractExpression, Integer> windowIndexMap = new HashMap <AbstractExpression,Integer>();
+        Map <Integer, ParsedColInfo> windowIndexToColumnMap = new HashMap <Integer, ParsedColInfo>();
+        for (int ii = 0; ii < m_windowFunctions.size(); ii++) {
+            SchemaColumn windowCol = m_windowOutputColumns.get(ii);
+            ParsedColInfo col = new ParsedColInfo();
+            col.tableName = windowCol.getTableName();
+            col.tableAlias = windowCol.getTableAlias();
+            col.columnName = windowCol.getColumnName();
+            col.alias = windowCol.getColumnAlias();
+            windowIndexMap.put(m_windowFunctions.get(ii), ii);
+            windowIndexToColumnMap.put(ii, col);
+        }
+
         // Replace TVE for display columns
         m_projectSchema = new NodeSchema();
         for (ParsedColInfo col : m_displayColumns) {
@@ -407,6 +434,9 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
             if (hasComplexAgg()) {
                 expr = col.expression.replaceWithTVE(aggTableIndexMap, indexToColumnMap);
             }
+            if (hasWindowFunctions()) {
+                expr = expr.replaceWithTVE(windowIndexMap, windowIndexToColumnMap);
+            }
             SchemaColumn schema_col = new SchemaColumn(col.tableName, col.tableAlias, col.columnName, col.alias, expr);
             m_projectSchema.addColumn(schema_col);
         }
@@ -414,6 +444,87 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
         // DISTINCT group by expressions are already TVEs when set
 
         placeTVEsForOrderby(aggTableIndexMap, indexToColumnMap);
+
+        if (hasWindowFunctions()) {
+            for (ParsedColInfo orderCol : m_orderColumns) {
+                orderCol.expression = orderCol.expression.replaceWithTVE(windowIndexMap, windowIndexToColumnMap);
+            }
+        }
+    }
+
+    /**
+     * Collect the window functions of the display and ORDER BY columns and check
+     * that they can be evaluated together in one pass over sorted input:
+     * they must all use the same window, and the query can not otherwise group its rows.
+     */
+    private void prepareWindowFunctions() {
+        List<ParsedColInfo> candidates = new ArrayList<ParsedColInfo>(m_displayColumns);
+        candidates.addAll(m_orderColumns);
+        for (ParsedColInfo col : candidates) {
+            for (AbstractExpression expr : col.expression.findAllSubexpressionsOfClass(WindowFunctionExpression.class)) {
+                if ( ! m_windowFunctions.contains(expr)) {
+                    m_windowFunctions.add((WindowFunctionExpression) expr);
+                }
+            }
+        }
+        if (m_windowFunctions.isEmpty()) {
+            return;
+        }
+
+        if (isGrouped() || m_distinct || hasAggregateExpression() || m_having != null) {
+            throw new PlanningErrorException(
+                    "Window functions are not supported in queries with GROUP BY, DISTINCT, HAVING or aggregate functions.");
+        }
+        WindowFunctionExpression window = m_windowFunctions.get(0);
+        for (WindowFunctionExpression function : m_windowFunctions) {
+            if (function.findAllSubexpressionsOfClass(WindowFunctionExpression.class).size() > 1) {
+                throw new PlanningErrorException("Window functions can not be nested.");
+            }
+            if ( ! window.hasSameWindow(function)) {
+                throw new PlanningErrorException(
+                        "All the window functions of a query must have the same PARTITION BY and ORDER BY.");
+            }
+        }
+
+        for (AbstractExpression expr : window.getPartitionByExpressions()) {
+            ParsedColInfo col = windowSortColumn(expr, SortDirectionType.ASC);
+            m_windowPartitionByColumns.add(col);
+            m_windowSortColumns.add(col);
+        }
+        List<SortDirectionType> directions = window.getOrderByDirections();
+        List<AbstractExpression> orderBys = window.getOrderByExpressions();
+        for (int ii = 0; ii < orderBys.size(); ii++) {
+            m_windowSortColumns.add(windowSortColumn(orderBys.get(ii), directions.get(ii)));
+        }
+
+        for (int ii = 0; ii < m_windowFunctions.size(); ii++) {
+            WindowFunctionExpression function = m_windowFunctions.get(ii);
+            ExpressionUtil.finalizeValueTypes(function);
+            String alias = "$$_WINDOW_" + ii;
+            TupleValueExpression tve = new TupleValueExpression(
+                    "VOLT_TEMP_TABLE", "VOLT_TEMP_TABLE", "", alias, ii);
+            tve.setTypeSizeBytes(function.getValueType(), function.getValueSize(), function.getInBytes());
+            m_windowOutputColumns.add(new SchemaColumn("VOLT_TEMP_TABLE", "VOLT_TEMP_TABLE", "", alias, tve));
+        }
+    }
+
+    private static ParsedColInfo windowSortColumn(AbstractExpression expr, SortDirectionType direction) {
+        ParsedColInfo col = new ParsedColInfo();
+        col.expression = expr;
+        col.ascending = (direction != SortDirectionType.DESC);
+        if (expr instanceof TupleValueExpression) {
+            TupleValueExpression tve = (TupleValueExpression) expr;
+            col.tableName = tve.getTableName();
+            col.tableAlias = tve.getTableAlias();
+            col.columnName = tve.getColumnName();
+            col.alias = tve.getColumnAlias();
+        }
+        else {
+            col.tableName = "VOLT_TEMP_TABLE";
+            col.tableAlias = "VOLT_TEMP_TABLE";
+            col.columnName = "";
+        }
+        return col;
     }
 
     /**
@@ -1314,6 +1425,58 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
         return Collections.unmodifiableList(m_orderColumns);
     }
 
+    /**
+     * When there are window functions, index scans should provide the
+     * window's sort order rather than the ORDER BY's, which is applied later.
+     */
+    @Override
+    public List<ParsedColInfo> indexOrderColumns() {
+        if (hasWindowFunctions()) {
+            return Collections.unmodifiableList(m_windowSortColumns);
+        }
+        return super.indexOrderColumns();
+    }
+
+    public boolean hasWindowFunctions() {
+        return ! m_windowFunctions.isEmpty();
+    }
+
+    public List<WindowFunctionExpression> windowFunctions() {
+        return Collections.unmodifiableList(m_windowFunctions);
+    }
+
+    /** The temp table columns holding the values of the windowFunctions() */
+    public List<SchemaColumn> windowOutputColumns() {
+        return Collections.unmodifiableList(m_windowOutputColumns);
+    }
+
+    public ArrayList<ParsedColInfo> windowPartitionByColumns() {
+        return m_windowPartitionByColumns;
+    }
+
+    public List<ParsedColInfo> windowSortColumns() {
+        return Collections.unmodifiableList(m_windowSortColumns);
+    }
+
+    /**
+     * Return true if the rows sorted for the window functions are already
+     * in the ORDER BY order, because the ORDER BY is a prefix of the window's sort.
+     */
+    public boolean isOrderByCoveredByWindowSort() {
+        if ( ! hasWindowFunctions() || m_orderColumns.size() > m_windowSortColumns.size()) {
+            return false;
+        }
+        for (int ii = 0; ii < m_orderColumns.size(); ii++) {
+            ParsedColInfo orderCol = m_orderColumns.get(ii);
+            ParsedColInfo windowCol = m_windowSortColumns.get(ii);
+            if (orderCol.ascending != windowCol.ascending ||
+                    ! orderCol.expression.equals(windowCol.expression)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private boolean hasLimit() {
         return m_limit != -1 || m_limitParameterId != -1;
     }
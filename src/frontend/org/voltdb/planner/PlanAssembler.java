@@ -42,6 +42,7 @@ import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.OperatorExpression;
 import org.voltdb.expressions.TupleAddressExpression;
 import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.expressions.WindowFunctionExpression;
 import org.voltdb.planner.microoptimizations.MicroOptimizationRunner;
 import org.voltdb.planner.parseinfo.BranchNode;
 import org.voltdb.planner.parseinfo.JoinNode;
@@ -68,6 +69,7 @@ import org.voltdb.plannodes.SendPlanNode;
 import org.voltdb.plannodes.SeqScanPlanNode;
 import org.voltdb.plannodes.UnionPlanNode;
 import org.voltdb.plannodes.UpdatePlanNode;
+import org.voltdb.plannodes.WindowFunctionPlanNode;
 import org.voltdb.types.ExpressionType;
 import org.voltdb.types.IndexType;
 import org.voltdb.types.JoinType;
@@ -789,6 +791,10 @@ public class PlanAssembler {
             root = handleAggregationOperators(root);
         }
 
+        if (m_parsedSelect.hasWindowFunctions()) {
+            root = handleWindowFunctions(root);
+        }
+
         if (m_parsedSelect.hasOrderByColumns()) {
             root = handleOrderBy(m_parsedSelect, root);
             if (m_parsedSelect.isComplexOrderBy() && root instanceof OrderByPlanNode) {
@@ -1387,6 +1393,13 @@ public class PlanAssembler {
             return false;
         }
 
+        // Skip the explicit ORDER BY plan step if the input of the window functions
+        // was already sorted in the equivalent order.
+        if (root instanceof WindowFunctionPlanNode &&
+                ((ParsedSelectStmt) parsedStmt).isOrderByCoveredByWindowSort()) {
+            return false;
+        }
+
         SortDirectionType sortDirection = SortDirectionType.INVALID;
         // Skip the explicit ORDER BY plan step if an IndexScan is already providing the equivalent ordering.
         // Note that even tree index scans that produce values in their own "key order" only report
@@ -1436,6 +1449,59 @@ public class PlanAssembler {
         return orderByNode;
     }
 
+    /**
+     * Add the window function evaluation to the plan and return the new root.
+     * When every window partition is contained in a single data partition,
+     * that is when the PARTITION BY includes the partitioning column, the
+     * window functions are evaluated in the distributed fragment.
+     * @param root top of the original plan
+     * @return new plan's root node
+     */
+    private AbstractPlanNode handleWindowFunctions(AbstractPlanNode root) {
+        if (root instanceof ReceivePlanNode &&
+                ! m_parsedSelect.m_mvFixInfo.needed() &&
+                isPartitionColumnInGroupbyList(m_parsedSelect.windowPartitionByColumns())) {
+            AbstractPlanNode sendNode = root.getChild(0);
+            AbstractPlanNode distributedPlan = sendNode.getChild(0);
+            distributedPlan.clearParents();
+            sendNode.clearChildren();
+            sendNode.addAndLinkChild(buildWindowFunctionPlan(distributedPlan));
+            return root;
+        }
+        return buildWindowFunctionPlan(root);
+    }
+
+    /**
+     * Sort the input on the window's PARTITION BY and ORDER BY expressions,
+     * unless the access path already provides that order, and evaluate
+     * all the window functions in one pass over the sorted rows.
+     */
+    private AbstractPlanNode buildWindowFunctionPlan(AbstractPlanNode root) {
+        SortDirectionType sortDirection = SortDirectionType.INVALID;
+        if (root instanceof IndexScanPlanNode) {
+            sortDirection = ((IndexScanPlanNode)root).getSortDirection();
+        }
+        else if (root instanceof AbstractJoinPlanNode) {
+            sortDirection = ((AbstractJoinPlanNode)root).getSortDirection();
+        }
+        if (sortDirection == SortDirectionType.INVALID &&
+                ! m_parsedSelect.windowSortColumns().isEmpty()) {
+            OrderByPlanNode orderByNode = buildOrderByPlanNode(m_parsedSelect.windowSortColumns());
+            orderByNode.addAndLinkChild(root);
+            root = orderByNode;
+        }
+
+        WindowFunctionPlanNode windowNode = new WindowFunctionPlanNode();
+        List<WindowFunctionExpression> functions = m_parsedSelect.windowFunctions();
+        List<SchemaColumn> outputColumns = m_parsedSelect.windowOutputColumns();
+        windowNode.setWindow(functions.get(0));
+        for (int ii = 0; ii < functions.size(); ii++) {
+            windowNode.addWindowFunction(functions.get(ii), outputColumns.get(ii));
+        }
+        windowNode.addAndLinkChild(root);
+        return windowNode;
+    }
+
     /**
      * Add a limit, pushed-down if possible, and return the new root.
      * @param root top of the original plan
@@ -1850,8 +1916,16 @@ public class PlanAssembler {
                          * the same as the output schema of the pushed-down
                          * aggregate node.
                          */
+                        /*
+                         * For approx_count_distinct(), the pushed-down aggregate
+                         * node builds a HyperLogLog sketch per group instead and
+                         * the coordinator merges the sketches, see
+                         * splitApproxCountDistinct. Until then, both nodes carry
+                         * the original aggregate type.
+                         */
                         else if (agg_expression_type != ExpressionType.AGGREGATE_MIN &&
-                                 agg_expression_type != ExpressionType.AGGREGATE_MAX) {
+                                 agg_expression_type != ExpressionType.AGGREGATE_MAX &&
+                                 agg_expression_type != ExpressionType.AGGREGATE_APPROX_COUNT_DISTINCT) {
                             /*
                              * Unsupported aggregate for push-down (AVG for example).
                              */
@@ -1938,7 +2012,7 @@ public class PlanAssembler {
         boolean foundAllGroupByCoveredIndex = false;
 
         for (Index index : allIndexes) {
-            if ( ! IndexType.isScannable(index.getType())) {
+            if ( ! IndexType.isScannable(index.getType()) || CatalogUtil.isMatviewMinOrMaxIndex(index)) {
                 continue;
             }
             if (! index.getPredicatejson().isEmpty()) {
@@ -2127,6 +2201,8 @@ public class PlanAssembler {
             // Without including partition column in GROUP BY clause,
             // there has to be a top GROUP BY plan node on coordinator
 
+            splitApproxCountDistinct(distNode, coordNode);
+
             // Put the send/receive pair back into place
             accessPlanTemp.getChild(0).addAndLinkChild(distNode);
             root = accessPlanTemp;
@@ -2147,6 +2223,22 @@ public class PlanAssembler {
         return root;
     }
 
+    /**
+     * An estimated distinct count can not be re-aggregated, so a pushed-down
+     * approx_count_distinct() sends the HyperLogLog sketch of each group to the
+     * coordinator, which merges the sketches of all the partitions before
+     * estimating the distinct count of the group.
+     */
+    private static void splitApproxCountDistinct(AggregatePlanNode distNode,
+                                                 AggregatePlanNode coordNode) {
+        for (int i = 0; i < distNode.getAggregateTypesSize(); i++) {
+            if (distNode.getAggregateType(i) == ExpressionType.AGGREGATE_APPROX_COUNT_DISTINCT) {
+                distNode.updateAggregate(i, ExpressionType.AGGREGATE_VALS_TO_HYPERLOGLOG);
+                coordNode.updateAggregate(i, ExpressionType.AGGREGATE_HYPERLOGLOGS_TO_CARD);
+            }
+        }
+    }
+
     private AbstractPlanNode processComplexAggProjectionNode(
             ParsedSelectStmt selectStmt, AbstractPlanNode root) {
         if (! selectStmt.hasComplexAgg()) {
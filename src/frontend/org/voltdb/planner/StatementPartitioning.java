@@ -191,6 +191,26 @@ public class StatementPartitioning implements Cloneable{
         return new StatementPartitioning(m_inferPartitioning, m_forceSP);
     }
 
+    /**
+     * Take on what the planner found out about the partitioning of a statement
+     * planned with a clone of this object, e.g. on another thread.
+     * @param planned the clone the statement was planned with
+     */
+    public void copyPlanningResults(StatementPartitioning planned) {
+        assert(m_inferPartitioning == planned.m_inferPartitioning);
+        assert(m_forceSP == planned.m_forceSP);
+        m_partitionColForDML = planned.m_partitionColForDML;
+        m_inferredValue = planned.m_inferredValue;
+        m_inferredParameterIndex = planned.m_inferredParameterIndex;
+        m_inferredExpression.clear();
+        m_inferredExpression.addAll(planned.m_inferredExpression);
+        m_countOfPartitionedTables = planned.m_countOfPartitionedTables;
+        m_countOfIndependentlyPartitionedTables = planned.m_countOfIndependentlyPartitionedTables;
+        m_isDML = planned.m_isDML;
+        m_fullColumnName = planned.m_fullColumnName;
+        m_joinValid = planned.m_joinValid;
+    }
+
     /**
      * accessor
      */
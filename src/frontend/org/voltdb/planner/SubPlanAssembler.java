@@ -883,18 +883,18 @@ public abstract class SubPlanAssembler {
             AccessPath retval, int[] orderSpoilers,
             List<AbstractExpression> bindingsForOrder)
     {
-        if (!m_parsedStmt.hasOrderByColumns()
-                || m_parsedStmt.orderByColumns().isEmpty()) {
+        List<ParsedColInfo> orderBys = m_parsedStmt.indexOrderColumns();
+        if (orderBys == null || orderBys.isEmpty()) {
             return 0;
         }
         int nSpoilers = 0;
-        int countOrderBys = m_parsedStmt.orderByColumns().size();
+        int countOrderBys = orderBys.size();
         // There need to be enough indexed expressions to provide full sort coverage.
         if (countOrderBys > 0 && countOrderBys <= keyComponentCount) {
-            boolean ascending = m_parsedStmt.orderByColumns().get(0).ascending;
+            boolean ascending = orderBys.get(0).ascending;
             retval.sortDirection = ascending ? SortDirectionType.ASC : SortDirectionType.DESC;
             int jj = 0;
-            for (ParsedColInfo colInfo : m_parsedStmt.orderByColumns()) {
+            for (ParsedColInfo colInfo : orderBys) {
                 // This retry loop allows catching special cases that don't perfectly match the
                 // ORDER BY columns but may still be usable for ordering.
                 for ( ; jj < keyComponentCount; ++jj) {
@@ -25,8 +25,10 @@ import org.voltdb.planner.CompiledPlan;
 public class MicroOptimizationRunner {
 
     // list all of the micro optimizations here
-    static ArrayList<MicroOptimization> optimizations = new ArrayList<MicroOptimization>();
-    static {
+    // The optimizations keep state while they are applied, so every plan
+    // gets its own instances for statements to be planned concurrently.
+    static ArrayList<MicroOptimization> newOptimizations() {
+        ArrayList<MicroOptimization> optimizations = new ArrayList<MicroOptimization>();
         // The orders here is important
         optimizations.add(new PushdownLimits());
         optimizations.add(new ReplaceWithIndexCounter());
@@ -34,10 +36,12 @@ public class MicroOptimizationRunner {
 
         // Inline aggregation has to be applied after Index counter and Index Limit with MIN/MAX.
         optimizations.add(new InlineAggregation());
+        return optimizations;
     }
 
     public static void applyAll(CompiledPlan plan, AbstractParsedStmt parsedStmt)
     {
+        ArrayList<MicroOptimization> optimizations = newOptimizations();
         for (int i = 0; i < optimizations.size(); i++) {
             MicroOptimization opt = optimizations.get(i);
             opt.apply(plan, parsedStmt);
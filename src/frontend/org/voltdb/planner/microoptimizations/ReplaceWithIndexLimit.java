@@ -320,7 +320,7 @@ public class ReplaceWithIndexLimit extends MicroOptimization {
     private boolean checkIndex(Index index, AbstractExpression aggExpr,
             List<AbstractExpression> filterExprs, List<AbstractExpression> bindingExprs, String fromTableAlias) {
 
-        if (!IndexType.isScannable(index.getType())) {
+        if (!IndexType.isScannable(index.getType()) || CatalogUtil.isMatviewMinOrMaxIndex(index)) {
             return false;
         }
 
@@ -96,6 +96,9 @@ public class StmtTargetTableScan extends StmtTableScan {
         if (m_indexes == null) {
             m_indexes = new ArrayList<Index>();
             for (Index index : m_table.getIndexes()) {
+                if (CatalogUtil.isMatviewMinOrMaxIndex(index)) {
+                    continue;
+                }
                 m_indexes.add(index);
             }
         }
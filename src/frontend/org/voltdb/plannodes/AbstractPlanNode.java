@@ -48,9 +48,15 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
 
     /**
      * Internal PlanNodeId counter. Note that this member is static, which means
-     * all PlanNodes will have a unique id
+     * all PlanNodes will have a unique id. There is one counter per thread so
+     * that statements may be planned concurrently.
      */
-    private static int NEXT_PLAN_NODE_ID = 1;
+    private static final ThreadLocal<int[]> NEXT_PLAN_NODE_ID = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[] { 1 };
+        }
+    };
 
     // Keep this flag turned off in production or when testing user-accessible EXPLAIN output or when
     // using EXPLAIN output to validate plans.
@@ -69,7 +75,7 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
      * Reset between plans
      */
     public static final void resetPlanNodeIds() {
-        NEXT_PLAN_NODE_ID = 1;
+        NEXT_PLAN_NODE_ID.get()[0] = 1;
     }
 
     public enum Members {
@@ -114,7 +120,7 @@ public abstract class AbstractPlanNode implements JSONString, Comparable<Abstrac
      * Instantiates a new plan node.
      */
     protected AbstractPlanNode() {
-        m_id = NEXT_PLAN_NODE_ID++;
+        m_id = NEXT_PLAN_NODE_ID.get()[0]++;
     }
 
     public void overrideId(int newId) {
@@ -24,8 +24,10 @@ import org.json_voltpatches.JSONArray;
 import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
 import org.json_voltpatches.JSONStringer;
+import org.voltdb.VoltType;
 import org.voltdb.catalog.Database;
 import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.AggregateExpression;
 import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.types.ExpressionType;
@@ -159,6 +161,10 @@ public class AggregatePlanNode extends AbstractPlanNode {
         return m_aggregateTypes.size();
     }
 
+    public ExpressionType getAggregateType(int index) {
+        return m_aggregateTypes.get(index);
+    }
+
     public List<AbstractExpression> getGroupByExpressions() {
         return m_groupByExpressions;
     }
@@ -292,6 +298,31 @@ public class AggregatePlanNode extends AbstractPlanNode {
         }
     }
 
+    /**
+     * Change the type of an aggregate that is already in this plan node, as when
+     * APPROX_COUNT_DISTINCT is split into its partition and coordinator halves.
+     * The output column of the aggregate is retyped to match.
+     * @param index  The position of the aggregate in this node
+     * @param aggType  The new aggregate type
+     */
+    public void updateAggregate(int index, ExpressionType aggType)
+    {
+        m_aggregateTypes.set(index, aggType);
+        AbstractExpression aggInputExpr = m_aggregateExpressions.get(index);
+        if (aggType == ExpressionType.AGGREGATE_HYPERLOGLOGS_TO_CARD) {
+            // The input is the sketch produced by the partitions.
+            aggInputExpr.setValueType(VoltType.VARBINARY);
+            aggInputExpr.setValueSize(AggregateExpression.HYPERLOGLOG_SKETCH_SIZE);
+        }
+        AggregateExpression aggExpr = new AggregateExpression(aggType);
+        aggExpr.setLeft(aggInputExpr);
+        aggExpr.finalizeValueTypes();
+        AbstractExpression outputExpr =
+                m_outputSchema.getColumns().get(m_aggregateOutputColumns.get(index)).getExpression();
+        outputExpr.setValueType(aggExpr.getValueType());
+        outputExpr.setValueSize(aggExpr.getValueSize());
+    }
+
     public void addGroupByExpression(AbstractExpression expr)
     {
         if (expr == null) {
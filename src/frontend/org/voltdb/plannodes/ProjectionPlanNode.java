@@ -126,7 +126,8 @@ public class ProjectionPlanNode extends AbstractPlanNode {
                 col.getExpression().getExpressionType() == ExpressionType.AGGREGATE_COUNT_STAR ||
                 col.getExpression().getExpressionType() == ExpressionType.AGGREGATE_MIN ||
                 col.getExpression().getExpressionType() == ExpressionType.AGGREGATE_MAX ||
-                col.getExpression().getExpressionType() == ExpressionType.AGGREGATE_AVG)
+                col.getExpression().getExpressionType() == ExpressionType.AGGREGATE_AVG ||
+                col.getExpression().getExpressionType() == ExpressionType.AGGREGATE_APPROX_COUNT_DISTINCT)
             {
                 NodeSchema input_schema = m_children.get(0).getOutputSchema();
                 SchemaColumn agg_col = input_schema.find(col.getTableName(),
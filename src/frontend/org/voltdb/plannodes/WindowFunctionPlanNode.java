@@ -0,0 +1,278 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Database;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.ExpressionUtil;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.expressions.WindowFunctionExpression;
+import org.voltdb.types.ExpressionType;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * Evaluates the window functions of a query, which all share one window,
+ * in a single pass over input that is already sorted on the PARTITION BY
+ * expressions followed by the ORDER BY expressions of the window.
+ *
+ * The output rows are the input rows, in the same order, with one column
+ * appended for each window function.
+ */
+public class WindowFunctionPlanNode extends AbstractPlanNode {
+
+    public enum Members {
+        PARTITIONBY_EXPRESSIONS,
+        ORDERBY_EXPRESSIONS,
+        ORDERBY_DIRECTIONS,
+        WINDOW_FUNCTIONS,
+        WINDOW_FUNCTION_TYPE,
+        WINDOW_FUNCTION_EXPRESSION;
+    }
+
+    private List<AbstractExpression> m_partitionByExpressions = new ArrayList<AbstractExpression>();
+    private List<AbstractExpression> m_orderByExpressions = new ArrayList<AbstractExpression>();
+    private List<SortDirectionType> m_orderByDirections = new ArrayList<SortDirectionType>();
+
+    // RANK, DENSE_RANK and ROW_NUMBER use their own window type, the running
+    // aggregates their aggregate type.
+    private List<ExpressionType> m_functionTypes = new ArrayList<ExpressionType>();
+    // The aggregate inputs, null for the ranking functions and COUNT(*)
+    private List<AbstractExpression> m_functionExpressions = new ArrayList<AbstractExpression>();
+    // The output column of each function, appended to the input columns
+    private List<SchemaColumn> m_functionOutputColumns = new ArrayList<SchemaColumn>();
+
+    public WindowFunctionPlanNode() {
+        super();
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.WINDOWFUNCTION;
+    }
+
+    @Override
+    public void validate() throws Exception {
+        super.validate();
+
+        if (m_orderByExpressions.size() != m_orderByDirections.size()) {
+            throw new Exception("ERROR: PlanNode '" + toString() + "' has " +
+                                "'" + m_orderByExpressions.size() + "' order by expressions but " +
+                                "'" + m_orderByDirections.size() + "' order by directions");
+        }
+        if (m_functionTypes.isEmpty() ||
+            m_functionTypes.size() != m_functionExpressions.size() ||
+            m_functionTypes.size() != m_functionOutputColumns.size()) {
+            throw new Exception("ERROR: Mismatched number of window function attributes for PlanNode '" +
+                                toString() + "'");
+        }
+    }
+
+    /**
+     * Set up the window shared by all the window functions of this node.
+     */
+    public void setWindow(WindowFunctionExpression window) {
+        for (AbstractExpression expr : window.getPartitionByExpressions()) {
+            m_partitionByExpressions.add((AbstractExpression) expr.clone());
+        }
+        for (AbstractExpression expr : window.getOrderByExpressions()) {
+            m_orderByExpressions.add((AbstractExpression) expr.clone());
+        }
+        m_orderByDirections.addAll(window.getOrderByDirections());
+    }
+
+    /**
+     * Add a window function computed into the given output column.
+     * @param function  The window function
+     * @param outputColumn  The column holding the function's value, which the
+     *        parents of this node reference with a TVE
+     */
+    public void addWindowFunction(WindowFunctionExpression function, SchemaColumn outputColumn) {
+        m_functionTypes.add(function.getAggregateType());
+        AbstractExpression input = function.getLeft();
+        m_functionExpressions.add(input == null ? null : (AbstractExpression) input.clone());
+        m_functionOutputColumns.add(outputColumn);
+    }
+
+    public List<AbstractExpression> getPartitionByExpressions() {
+        return m_partitionByExpressions;
+    }
+
+    public List<AbstractExpression> getOrderByExpressions() {
+        return m_orderByExpressions;
+    }
+
+    public List<SortDirectionType> getOrderByDirections() {
+        return m_orderByDirections;
+    }
+
+    public List<ExpressionType> getWindowFunctionTypes() {
+        return m_functionTypes;
+    }
+
+    @Override
+    public void generateOutputSchema(Database db)
+    {
+        assert(m_children.size() == 1);
+        m_children.get(0).generateOutputSchema(db);
+        m_outputSchema = m_children.get(0).getOutputSchema().copyAndReplaceWithTVE();
+        for (SchemaColumn col : m_functionOutputColumns) {
+            m_outputSchema.addColumn(col.clone());
+        }
+        m_hasSignificantOutputSchema = true;
+    }
+
+    @Override
+    public void resolveColumnIndexes()
+    {
+        assert(m_children.size() == 1);
+        m_children.get(0).resolveColumnIndexes();
+        NodeSchema input_schema = m_children.get(0).getOutputSchema();
+
+        // The input columns pass through in their input order, followed by
+        // the window function columns.
+        m_outputSchema = input_schema.copyAndReplaceWithTVE();
+        for (SchemaColumn col : m_functionOutputColumns) {
+            m_outputSchema.addColumn(col.clone());
+        }
+        int index = 0;
+        for (SchemaColumn col : m_outputSchema.getColumns()) {
+            ((TupleValueExpression) col.getExpression()).setColumnIndex(index++);
+        }
+
+        List<TupleValueExpression> input_tves = new ArrayList<TupleValueExpression>();
+        for (AbstractExpression expr : m_partitionByExpressions) {
+            input_tves.addAll(ExpressionUtil.getTupleValueExpressions(expr));
+        }
+        for (AbstractExpression expr : m_orderByExpressions) {
+            input_tves.addAll(ExpressionUtil.getTupleValueExpressions(expr));
+        }
+        for (AbstractExpression expr : m_functionExpressions) {
+            input_tves.addAll(ExpressionUtil.getTupleValueExpressions(expr));
+        }
+        for (TupleValueExpression tve : input_tves) {
+            int tveIndex = tve.resolveColumnIndexesUsingSchema(input_schema);
+            tve.setColumnIndex(tveIndex);
+        }
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        super.toJSONString(stringer);
+
+        stringer.key(Members.PARTITIONBY_EXPRESSIONS.name()).array();
+        for (AbstractExpression expr : m_partitionByExpressions) {
+            stringer.object();
+            expr.toJSONString(stringer);
+            stringer.endObject();
+        }
+        stringer.endArray();
+
+        stringer.key(Members.ORDERBY_EXPRESSIONS.name()).array();
+        for (AbstractExpression expr : m_orderByExpressions) {
+            stringer.object();
+            expr.toJSONString(stringer);
+            stringer.endObject();
+        }
+        stringer.endArray();
+
+        stringer.key(Members.ORDERBY_DIRECTIONS.name()).array();
+        for (SortDirectionType direction : m_orderByDirections) {
+            stringer.value(direction.toString());
+        }
+        stringer.endArray();
+
+        stringer.key(Members.WINDOW_FUNCTIONS.name()).array();
+        for (int ii = 0; ii < m_functionTypes.size(); ii++) {
+            stringer.object();
+            stringer.key(Members.WINDOW_FUNCTION_TYPE.name()).value(m_functionTypes.get(ii).name());
+            AbstractExpression expr = m_functionExpressions.get(ii);
+            if (expr != null) {
+                stringer.key(Members.WINDOW_FUNCTION_EXPRESSION.name());
+                stringer.object();
+                expr.toJSONString(stringer);
+                stringer.endObject();
+            }
+            stringer.endObject();
+        }
+        stringer.endArray();
+    }
+
+    @Override
+    public void loadFromJSONObject( JSONObject jobj, Database db ) throws JSONException {
+        helpLoadFromJSONObject(jobj, db);
+        AbstractExpression.loadFromJSONArrayChild(m_partitionByExpressions, jobj,
+                                                  Members.PARTITIONBY_EXPRESSIONS.name(), null);
+        AbstractExpression.loadFromJSONArrayChild(m_orderByExpressions, jobj,
+                                                  Members.ORDERBY_EXPRESSIONS.name(), null);
+        JSONArray directions = jobj.getJSONArray(Members.ORDERBY_DIRECTIONS.name());
+        for (int ii = 0; ii < directions.length(); ii++) {
+            m_orderByDirections.add(SortDirectionType.get(directions.getString(ii)));
+        }
+        JSONArray functions = jobj.getJSONArray(Members.WINDOW_FUNCTIONS.name());
+        int inputColumnCount = m_outputSchema.size() - functions.length();
+        for (int ii = 0; ii < functions.length(); ii++) {
+            JSONObject function = functions.getJSONObject(ii);
+            m_functionTypes.add(ExpressionType.get(function.getString(Members.WINDOW_FUNCTION_TYPE.name())));
+            m_functionExpressions.add(
+                    AbstractExpression.fromJSONChild(function, Members.WINDOW_FUNCTION_EXPRESSION.name()));
+            m_functionOutputColumns.add(m_outputSchema.getColumns().get(inputColumnCount + ii));
+        }
+    }
+
+    @Override
+    protected String explainPlanForNode(String indent) {
+        StringBuilder sb = new StringBuilder("WINDOW FUNCTION ops: ");
+        String optionalTableName = "*NO MATCH -- USE ALL TABLE NAMES*";
+        String connector = "";
+        for (int ii = 0; ii < m_functionTypes.size(); ii++) {
+            ExpressionType type = m_functionTypes.get(ii);
+            sb.append(connector).append(type.symbol());
+            if (type != ExpressionType.AGGREGATE_COUNT_STAR) {
+                sb.append("(");
+                AbstractExpression expr = m_functionExpressions.get(ii);
+                if (expr != null) {
+                    sb.append(expr.explain(optionalTableName));
+                }
+                sb.append(")");
+            }
+            connector = ", ";
+        }
+        connector = " PARTITION BY ";
+        for (AbstractExpression expr : m_partitionByExpressions) {
+            sb.append(connector).append(expr.explain(optionalTableName));
+            connector = ", ";
+        }
+        connector = " ORDER BY ";
+        for (int ii = 0; ii < m_orderByExpressions.size(); ii++) {
+            sb.append(connector).append(m_orderByExpressions.get(ii).explain(optionalTableName));
+            if (m_orderByDirections.get(ii) == SortDirectionType.DESC) {
+                sb.append(" DESC");
+            }
+            connector = ", ";
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,122 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs;
+
+import java.util.List;
+import java.util.Map;
+
+import org.voltdb.DependencyPair;
+import org.voltdb.ParameterSet;
+import org.voltdb.ProcInfo;
+import org.voltdb.SQLStmt;
+import org.voltdb.SystemProcedureExecutionContext;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.catalog.Statement;
+import org.voltdb.catalog.Table;
+import org.voltdb.types.TimestampType;
+import org.voltdb.utils.CatalogUtil;
+
+/**
+ * Delete one batch of the expired rows of a table declared with USING TTL
+ * from a single partition. The TTLManager calls this for every partition it
+ * leads; the cutoff is computed by the caller so that replicas and command
+ * log replay delete exactly the same rows.
+ */
+@ProcInfo(
+    partitionInfo = "DUMMY: 0", // partitioning is done special for this class
+    singlePartition = true
+)
+public class ExpireRows extends VoltSystemProcedure
+{
+    @Override
+    public void init() {}
+
+    /**
+     * This single-partition sysproc has no special fragments
+     */
+    @Override
+    public DependencyPair executePlanFragment(
+            Map<Integer, List<VoltTable>> dependencies, long fragmentId,
+            ParameterSet params, SystemProcedureExecutionContext context) {
+        return null;
+    }
+
+    /**
+     * These parameters, with the exception of ctx, map to user provided values.
+     *
+     * @param ctx Internal. Not a user-supplied parameter.
+     * @param partitionParam A partition key of the target partition
+     * @param tableName Name of the table with a TTL.
+     * @param cutoff Rows whose TTL column is older than this have expired.
+     * @param batchSize Delete about this many rows, more only when the
+     *        TTL column of the last ones ties.
+     * @return The number of rows deleted. Fewer than batchSize means that
+     *         no expired rows are left.
+     * @throws VoltAbortException
+     */
+    public long run(SystemProcedureExecutionContext ctx,
+                    int partitionParam,
+                    String tableName, TimestampType cutoff, int batchSize)
+            throws VoltAbortException {
+
+        Table catTable = ctx.getDatabase().getTables().getIgnoreCase(tableName);
+        if (catTable == null) {
+            throw new VoltAbortException("Table not present in catalog.");
+        }
+        if (catTable.getTtlseconds() == 0) {
+            throw new VoltAbortException(String.format("Table %s has no TTL.", tableName));
+        }
+        if (batchSize <= 0) {
+            throw new VoltAbortException("The batch size must be positive.");
+        }
+
+        // Find the TTL value of the last row of the batch, walking the TTL
+        // column index up to it, and delete up to and including it.
+        SQLStmt boundaryStmt = getStmt(catTable, CatalogUtil.TTL_BOUNDARY_STMT);
+        voltQueueSQL(boundaryStmt, cutoff, batchSize - 1);
+        VoltTable boundary = voltExecuteSQL()[0];
+
+        TimestampType last;
+        if (boundary.advanceRow()) {
+            last = boundary.getTimestampAsTimestamp(0);
+        }
+        else {
+            // fewer expired rows than a batch: delete them all
+            last = new TimestampType(cutoff.getTime() - 1);
+        }
+
+        SQLStmt deleteStmt = getStmt(catTable, CatalogUtil.TTL_DELETE_STMT);
+        voltQueueSQL(deleteStmt, last);
+        return voltExecuteSQL(true)[0].asScalarLong();
+    }
+
+    private SQLStmt getStmt(Table catTable, String name) {
+        Statement catStmt = catTable.getTtlstmts().get(name);
+        if (catStmt == null) {
+            throw new VoltAbortException(
+                    String.format("Unable to find TTL statement %s for table %s",
+                            name, catTable.getTypeName()));
+        }
+
+        // create a SQLStmt instance on the fly (unusual to do)
+        SQLStmt stmt = new SQLStmt(catStmt.getSqltext());
+        m_runner.initSQLStmt(stmt, catStmt);
+        return stmt;
+    }
+}
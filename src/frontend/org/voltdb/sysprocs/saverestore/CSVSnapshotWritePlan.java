@@ -186,7 +186,7 @@ public class CSVSnapshotWritePlan extends SnapshotWritePlan
             {
                 NativeSnapshotWritePlan.createFileBasedCompletionTasks(file_path, file_nonce,
                         txnId, partitionTransactionIds, remoteDCLastIds, context, exportSequenceNumbers, drTupleStreamInfo, null, timestamp,
-                        context.getNumberOfPartitions());
+                        context.getNumberOfPartitions(), Collections.<String, Long>emptyMap());
 
                 for (SnapshotTableTask task : replicatedSnapshotTasks) {
                     final SnapshotDataTarget target = createDataTargetForTable(file_path, file_nonce,
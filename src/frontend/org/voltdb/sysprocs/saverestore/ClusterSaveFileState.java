@@ -18,10 +18,13 @@
 package org.voltdb.sysprocs.saverestore;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.VoltTableRow;
@@ -52,11 +55,10 @@ public class ClusterSaveFileState
     }
 
     private TableSaveFileState constructTableState(
-            VoltTableRow row)
+            VoltTableRow row, long txnId)
     {
         TableSaveFileState table_state = null;
         String table_name = row.getString("TABLE");
-        long txnId = row.getLong("TXNID");
         if (row.getString("IS_REPLICATED").equals("TRUE"))
         {
             table_state = new ReplicatedTableSaveFileState(table_name, txnId);
@@ -73,25 +75,59 @@ public class ClusterSaveFileState
         return table_state;
     }
 
-    public ClusterSaveFileState(VoltTable saveFileState)
+    /**
+     * @param digests  the digests of the snapshot, which list the tables an incremental
+     *                 snapshot carried over from earlier snapshots
+     */
+    public ClusterSaveFileState(VoltTable saveFileState, Collection<JSONObject> digests)
+        throws IOException
+    {
+        this(saveFileState, carriedTableTxnIds(digests));
+    }
+
+    private static Map<String, Set<Long>> carriedTableTxnIds(Collection<JSONObject> digests)
+        throws IOException
+    {
+        Map<String, Set<Long>> carriedTableTxnIds = new HashMap<String, Set<Long>>();
+        try {
+            for (JSONObject digest : digests) {
+                SnapshotUtil.addCarriedTableTxnIds(digest, carriedTableTxnIds);
+            }
+        } catch (JSONException e) {
+            throw new IOException("Unable to read the carried tables of the snapshot digest", e);
+        }
+        return carriedTableTxnIds;
+    }
+
+    /**
+     * @param carriedTableTxnIds  transaction IDs of the files of the tables carried
+     *                            over from earlier snapshots by an incremental snapshot,
+     *                            from the snapshot digests
+     */
+    public ClusterSaveFileState(VoltTable saveFileState, Map<String, Set<Long>> carriedTableTxnIds)
         throws IOException
     {
         // Checks cluster/database name consistency between rows.
         ConsistencyChecker checker = new ConsistencyChecker();
 
-        m_tableStateMap = new HashMap<String, TableSaveFileState>();
+        // The snapshot is the newest of the files, older ones were carried over
         long txnId = -1;
         while (saveFileState.advanceRow())
+        {
+            txnId = Math.max(txnId, saveFileState.getLong("TXNID"));
+        }
+        saveFileState.resetRowPosition();
+
+        m_tableStateMap = new HashMap<String, TableSaveFileState>();
+        while (saveFileState.advanceRow())
         {
             checker.checkRow(saveFileState); // throws if inconsistent
             String table_name = saveFileState.getString("TABLE");
 
             // Check if the transaction IDs match
-            if (txnId == -1)
-            {
-                txnId = saveFileState.getLong("TXNID");
-            }
-            else if (txnId != saveFileState.getLong("TXNID"))
+            long fileTxnId = saveFileState.getLong("TXNID");
+            Set<Long> carriedTxnIds = carriedTableTxnIds.get(table_name);
+            if (txnId != fileTxnId && (carriedTxnIds == null || !carriedTxnIds.contains(fileTxnId)))
             {
                 String error = "Table: " + table_name + " has inconsistent" +
                         " transaction ID ";
@@ -101,7 +137,7 @@ public class ClusterSaveFileState
             TableSaveFileState table_state = null;
             if (!(getSavedTableNames().contains(table_name)))
             {
-                table_state = constructTableState(saveFileState);
+                table_state = constructTableState(saveFileState, txnId);
                 m_tableStateMap.put(table_name, table_state);
             }
             table_state = getTableState(table_name);
@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.json_voltpatches.JSONObject;
@@ -31,6 +32,7 @@ import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.InstanceId;
 import org.voltcore.utils.Pair;
 import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.LinkedSnapshotDataTarget;
 import org.voltdb.SnapshotDataFilter;
 import org.voltdb.SnapshotDataTarget;
 import org.voltdb.SnapshotFormat;
@@ -55,9 +57,53 @@ import com.google_voltpatches.common.collect.Maps;
  * responsibility for writing them is spread round-robin across the sites on a
  * node.  Partitioned tables are written to the same target per table by every
  * site on a node.
+ *
+ * An incremental snapshot, requested with "incremental": true, does not write
+ * the tables that have not changed on any site of a node since the last native
+ * snapshot of the node wrote them. Their files are carried over from that
+ * snapshot instead, see {@link LinkedSnapshotDataTarget}, and listed in the
+ * digest of the node.
  */
 public class NativeSnapshotWritePlan extends SnapshotWritePlan
 {
+    /**
+     * The file of a table written, or carried over, by the last native snapshot
+     * of the table on this host, which the next incremental snapshot can carry
+     * over while the change counts of the table stay the same.
+     */
+    static class BaseTableFile
+    {
+        final File m_file;
+        final long m_length;
+        // Transaction id in the header of the file
+        final long m_txnId;
+        final long m_catalogCRC;
+        final int m_partitionCount;
+        // Change count of the table at each site of the host
+        final Map<Integer, Long> m_changeCounts;
+
+        BaseTableFile(File file, long txnId, long catalogCRC, int partitionCount,
+                Map<Integer, Long> changeCounts)
+        {
+            m_file = file;
+            m_length = file.length();
+            m_txnId = txnId;
+            m_catalogCRC = catalogCRC;
+            m_partitionCount = partitionCount;
+            m_changeCounts = changeCounts;
+        }
+
+        boolean isUnchanged(long catalogCRC, int partitionCount, Map<Integer, Long> changeCounts)
+        {
+            return m_catalogCRC == catalogCRC && m_partitionCount == partitionCount &&
+                    m_changeCounts.equals(changeCounts) &&
+                    m_file.isFile() && m_file.length() == m_length;
+        }
+    }
+
+    private static final Map<String, BaseTableFile> m_baseTableFiles =
+            new ConcurrentHashMap<String, BaseTableFile>();
+
     @Override
     public Callable<Boolean> createSetup(String file_path,
                                             String file_nonce,
@@ -116,11 +162,32 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                     SnapshotFormat.NATIVE,
                     tableArray);
 
+        final boolean incremental = jsData != null && jsData.optBoolean("incremental", false);
+        final long catalogCRC = context.getCatalogCRC();
+        final int partitionCount = context.getNumberOfPartitions();
+        final Map<String, Map<Integer, Long>> changeCounts =
+                getLocalChangeCounts(tracker.getPartitionsForHost(context.getHostId()));
+        final Map<Table, BaseTableFile> carriedTables = new HashMap<Table, BaseTableFile>();
+
         final ArrayList<SnapshotTableTask> partitionedSnapshotTasks =
             new ArrayList<SnapshotTableTask>();
         final ArrayList<SnapshotTableTask> replicatedSnapshotTasks =
             new ArrayList<SnapshotTableTask>();
         for (final Table table : tableArray) {
+            final BaseTableFile base = m_baseTableFiles.get(table.getTypeName());
+            final Map<Integer, Long> tableChangeCounts = changeCounts.get(table.getTypeName());
+            if (incremental && base != null && tableChangeCounts != null &&
+                    base.isUnchanged(catalogCRC, partitionCount, tableChangeCounts)) {
+                SNAP_LOG.debug("CARRYING OVER UNCHANGED TABLE " + table.getTypeName() + " FROM " + base.m_file);
+                carriedTables.put(table, base);
+                result.addRow(context.getHostId(),
+                        CoreUtils.getHostnameOrAddress(),
+                        table.getTypeName(),
+                        "SUCCESS",
+                        "");
+                continue;
+            }
+
             final SnapshotTableTask task =
                     new SnapshotTableTask(
                             table,
@@ -143,7 +210,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                     "");
         }
 
-        if (tableArray.length > 0 && replicatedSnapshotTasks.isEmpty() && partitionedSnapshotTasks.isEmpty()) {
+        if (tableArray.length > 0 && replicatedSnapshotTasks.isEmpty() && partitionedSnapshotTasks.isEmpty() &&
+                carriedTables.isEmpty()) {
             SnapshotRegistry.discardSnapshot(m_snapshotRecord);
         }
 
@@ -157,7 +225,30 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                 remoteDCLastIds, context,
                 exportSequenceNumbers, drTupleStreamInfo, tracker, hashinatorData, timestamp,
                 newPartitionCount, tableArray, m_snapshotRecord, partitionedSnapshotTasks,
-                replicatedSnapshotTasks);
+                replicatedSnapshotTasks, carriedTables, changeCounts);
+    }
+
+    /**
+     * @return the change counts of the tables at the sites of this host, by table,
+     * for the tables whose count is known at all of them
+     */
+    private static Map<String, Map<Integer, Long>> getLocalChangeCounts(List<Integer> localPartitions)
+    {
+        final Map<String, Map<Integer, Long>> localCounts = new HashMap<String, Map<Integer, Long>>();
+        for (Map.Entry<String, Map<Integer, Long>> e : SnapshotSiteProcessor.getTableChangeCounts().entrySet()) {
+            final Map<Integer, Long> counts = new HashMap<Integer, Long>();
+            for (Integer partition : localPartitions) {
+                final Long count = e.getValue().get(partition);
+                if (count == null || count < 0) {
+                    break;
+                }
+                counts.put(partition, count);
+            }
+            if (!counts.isEmpty() && counts.size() == localPartitions.size()) {
+                localCounts.put(e.getKey(), counts);
+            }
+        }
+        return localCounts;
     }
 
     private Callable<Boolean> createDeferredSetup(final String file_path,
@@ -175,22 +266,45 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                                                   final Table[] tables,
                                                   final SnapshotRegistry.Snapshot snapshotRecord,
                                                   final ArrayList<SnapshotTableTask> partitionedSnapshotTasks,
-                                                  final ArrayList<SnapshotTableTask> replicatedSnapshotTasks)
+                                                  final ArrayList<SnapshotTableTask> replicatedSnapshotTasks,
+                                                  final Map<Table, BaseTableFile> carriedTables,
+                                                  final Map<String, Map<Integer, Long>> changeCounts)
     {
         return new Callable<Boolean>() {
             private final HashMap<Integer, SnapshotDataTarget> m_createdTargets = Maps.newHashMap();
+            // File and header transaction id of the target of each table
+            private final Map<String, Pair<File, Long>> m_tableFiles = Maps.newHashMap();
+            private final Map<String, SnapshotDataTarget> m_tableTargets = Maps.newHashMap();
 
             @Override
             public Boolean call() throws Exception
             {
                 final AtomicInteger numTables = new AtomicInteger(tables.length);
 
+                final Map<String, Long> carriedTableTxnIds = new HashMap<String, Long>();
+                for (Map.Entry<Table, BaseTableFile> e : carriedTables.entrySet()) {
+                    carriedTableTxnIds.put(e.getKey().getTypeName(), e.getValue().m_txnId);
+                }
                 NativeSnapshotWritePlan.createFileBasedCompletionTasks(file_path, file_nonce,
                         txnId, partitionTransactionIds, remoteDCLastIds, context, exportSequenceNumbers,
                         drTupleStreamInfo,
                         hashinatorData,
                         timestamp,
-                        newPartitionCount);
+                        newPartitionCount,
+                        carriedTableTxnIds);
+
+                for (Map.Entry<Table, BaseTableFile> e : carriedTables.entrySet()) {
+                    final Table table = e.getKey();
+                    final File file = SnapshotUtil.constructFileForTable(table, file_path, file_nonce,
+                            SnapshotFormat.NATIVE, context.getHostId());
+                    final LinkedSnapshotDataTarget target = new LinkedSnapshotDataTarget(e.getValue().m_file, file);
+                    target.link();
+                    target.setOnCloseHandler(
+                            new TargetStatsClosure(target, table.getTypeName(), numTables, snapshotRecord));
+                    m_targets.add(target);
+                    m_tableFiles.put(table.getTypeName(), Pair.of(file, e.getValue().m_txnId));
+                    m_tableTargets.put(table.getTypeName(), target);
+                }
 
                 for (SnapshotTableTask task : replicatedSnapshotTasks) {
                     SnapshotDataTarget target = getSnapshotDataTarget(numTables, task);
@@ -211,6 +325,26 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                     }
                 });
 
+                // The files of the tables become the base of the next incremental snapshot
+                // once they are all written
+                SnapshotSiteProcessor.m_tasksOnSnapshotCompletion.offer(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        for (Map.Entry<String, Pair<File, Long>> e : m_tableFiles.entrySet()) {
+                            final Map<Integer, Long> tableChangeCounts = changeCounts.get(e.getKey());
+                            if (tableChangeCounts == null ||
+                                    m_tableTargets.get(e.getKey()).getLastWriteException() != null) {
+                                m_baseTableFiles.remove(e.getKey());
+                                continue;
+                            }
+                            m_baseTableFiles.put(e.getKey(), new BaseTableFile(e.getValue().getFirst(),
+                                    e.getValue().getSecond(), context.getCatalogCRC(),
+                                    context.getNumberOfPartitions(), tableChangeCounts));
+                        }
+                    }
+                });
+
                 return true;
             }
 
@@ -224,6 +358,11 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                             context.getDatabase().getTypeName(), context.getNumberOfPartitions(),
                             tracker, timestamp, numTables, snapshotRecord);
                     m_createdTargets.put(task.m_table.getRelativeIndex(), target);
+                    m_tableFiles.put(task.m_table.getTypeName(), Pair.of(
+                            SnapshotUtil.constructFileForTable(task.m_table, file_path, file_nonce,
+                                    SnapshotFormat.NATIVE, context.getHostId()),
+                            txnId));
+                    m_tableTargets.put(task.m_table.getTypeName(), target);
                 }
                 return target;
             }
@@ -280,7 +419,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
             Map<String, Map<Integer, Pair<Long, Long>>> exportSequenceNumbers,
             Map<Integer, Pair<Long, Long>> drTupleStreamInfo,
             HashinatorSnapshotData hashinatorData,
-            long timestamp, int newPartitionCount) throws IOException
+            long timestamp, int newPartitionCount,
+            Map<String, Long> carriedTableTxnIds) throws IOException
     {
         final List<Table> tables = SnapshotUtil.getTablesToSave(context.getDatabase());
         InstanceId instId = VoltDB.instance().getHostMessenger().getInstanceId();
@@ -299,7 +439,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                 instId,
                 timestamp,
                 clusterCreateTime,
-                newPartitionCount);
+                newPartitionCount,
+                carriedTableTxnIds);
         if (completionTask != null) {
             SnapshotSiteProcessor.m_tasksOnSnapshotCompletion.offer(completionTask);
         }
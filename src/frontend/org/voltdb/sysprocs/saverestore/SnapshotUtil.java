@@ -37,6 +37,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -124,6 +125,30 @@ public class SnapshotUtil {
         return new VoltTable(partitionResultsColumns);
     }
 
+    /**
+     * Add the transaction IDs of the files of the tables that an incremental
+     * snapshot carried over from earlier snapshots, as listed in its digest,
+     * to the map of table name to transaction IDs.
+     */
+    public static void addCarriedTableTxnIds(JSONObject digest, Map<String, Set<Long>> carriedTableTxnIds)
+        throws JSONException
+    {
+        JSONObject carriedTables = digest.optJSONObject("carriedTables");
+        if (carriedTables == null) {
+            return;
+        }
+        Iterator<String> carriedIter = carriedTables.keys();
+        while (carriedIter.hasNext()) {
+            String table = carriedIter.next();
+            Set<Long> txnIds = carriedTableTxnIds.get(table);
+            if (txnIds == null) {
+                txnIds = new TreeSet<Long>();
+                carriedTableTxnIds.put(table, txnIds);
+            }
+            txnIds.add(carriedTables.getLong(table));
+        }
+    }
+
     /**
      * Create a digest for a snapshot
      * @param txnId   transaction ID when snapshot was initiated
@@ -132,6 +157,8 @@ public class SnapshotUtil {
      * @param tables   List of tables present in this snapshot
      * @param hostId   Host ID where this is happening
      * @param exportSequenceNumbers  ???
+     * @param carriedTableTxnIds  Transaction ID in the files of the tables carried over unchanged
+     *                            from an earlier snapshot by an incremental snapshot
      * @throws IOException
      */
     public static Runnable writeSnapshotDigest(
@@ -148,7 +175,8 @@ public class SnapshotUtil {
         InstanceId instanceId,
         long timestamp,
         long clusterCreateTime,
-        int newPartitionCount)
+        int newPartitionCount,
+        Map<String, Long> carriedTableTxnIds)
     throws IOException
     {
         final File f = new VoltFile(path, constructDigestFilenameForNonce(nonce, hostId));
@@ -174,6 +202,11 @@ public class SnapshotUtil {
                     stringer.value(tables.get(ii).getTypeName());
                 }
                 stringer.endArray();
+                stringer.key("carriedTables").object();
+                for (Map.Entry<String, Long> entry : carriedTableTxnIds.entrySet()) {
+                    stringer.key(entry.getKey()).value(entry.getValue());
+                }
+                stringer.endObject();
                 stringer.key("exportSequenceNumbers").array();
                 for (Map.Entry<String, Map<Integer, Pair<Long, Long>>> entry : exportSequenceNumbers.entrySet()) {
                     stringer.object();
@@ -636,9 +669,19 @@ public class SnapshotUtil {
             m_txnId = txnId;
         }
 
+        /**
+         * The files of the tables that an incremental snapshot carried over keep the
+         * transaction ID of the snapshot that wrote them, so the ID of the snapshot is
+         * the one of its digests, or the newest one of its files without a digest.
+         */
+        public void setTableFileTxnId(long txnId)
+        {
+            m_tableFileTxnId = Math.max(m_tableFileTxnId, txnId);
+        }
+
         public long getTxnId()
         {
-            return m_txnId;
+            return m_txnId != Long.MIN_VALUE ? m_txnId : m_tableFileTxnId;
         }
 
         public String getNonce()
@@ -650,11 +693,14 @@ public class SnapshotUtil {
         public File m_hashConfig = null;
         public final List<Set<String>> m_digestTables = new ArrayList<Set<String>>();
         public final Map<String, TableFiles> m_tableFiles = new TreeMap<String, TableFiles>();
+        // Transaction IDs of the files carried over from earlier snapshots, by table
+        public final Map<String, Set<Long>> m_carriedTableTxnIds = new TreeMap<String, Set<Long>>();
         public File m_catalogFile = null;
 
         private final String m_nonce;
         private InstanceId m_instanceId = null;
         private long m_txnId;
+        private long m_tableFileTxnId = Long.MIN_VALUE;
     }
 
     /**
@@ -671,6 +717,7 @@ public class SnapshotUtil {
         public final List<Set<Integer>> m_validPartitionIds = new ArrayList<Set<Integer>>();
         public final List<Set<Integer>> m_corruptParititionIds = new ArrayList<Set<Integer>>();
         public final List<Integer> m_totalPartitionCounts = new ArrayList<Integer>();
+        public final List<Long> m_txnIds = new ArrayList<Long>();
     }
 
     /**
@@ -838,6 +885,7 @@ public class SnapshotUtil {
                     }
                     named_s.m_digestTables.add(tableSet);
                     named_s.m_digests.add(f);
+                    addCarriedTableTxnIds(digest, named_s.m_carriedTableTxnIds);
                 } else if (f.getName().endsWith(".jar")) {
                     String nonce = parseNonceFromSnapshotFilename(f.getName());
                     Snapshot named_s = namedSnapshots.get(nonce);
@@ -878,7 +926,7 @@ public class SnapshotUtil {
                         partitionIds.removeAll(saveFile.getCorruptedPartitionIds());
                         String nonce = parseNonceFromSnapshotFilename(f.getName());
                         Snapshot named_s = namedSnapshots.get(nonce);
-                        named_s.setTxnId(saveFile.getTxnId());
+                        named_s.setTableFileTxnId(saveFile.getTxnId());
                         TableFiles namedTableFiles = named_s.m_tableFiles.get(saveFile.getTableName());
                         if (namedTableFiles == null) {
                             namedTableFiles = new TableFiles(saveFile.isReplicated());
@@ -889,6 +937,7 @@ public class SnapshotUtil {
                         namedTableFiles.m_validPartitionIds.add(partitionIds);
                         namedTableFiles.m_corruptParititionIds.add(saveFile.getCorruptedPartitionIds());
                         namedTableFiles.m_totalPartitionCounts.add(saveFile.getTotalPartitions());
+                        namedTableFiles.m_txnIds.add(saveFile.getTxnId());
                     } finally {
                         saveFile.close();
                     }
@@ -1120,11 +1169,28 @@ public class SnapshotUtil {
                     validPartitionIdString = validPartitionIdString + partitionId;
                 }
 
+                /*
+                 * A file from another snapshot is only valid if a digest says it was carried over
+                 */
+                String carriedString = "";
+                long fileTxnId = tableFiles.m_txnIds.get(ii);
+                if (fileTxnId != snapshotTxnId) {
+                    Set<Long> carriedTxnIds = snapshot.m_carriedTableTxnIds.get(entry.getKey());
+                    if (carriedTxnIds != null && carriedTxnIds.contains(fileTxnId)) {
+                        carriedString = " Carried over from TxnId: " + fileTxnId;
+                    } else {
+                        snapshotConsistent = false;
+                        pw.println(indentString + tableFiles.m_files.get(ii).getPath() +
+                                " has TxnId " + fileTxnId + " of another snapshot");
+                        continue;
+                    }
+                }
+
                 if (corruptPartitionIdString.isEmpty()) {
                     consistentTablesSeen.add(entry.getKey());
                     pw.println(indentString + tableFiles.m_files.get(ii).getPath() +
                             " Completed: " + tableFiles.m_completed.get(ii) + " Partitions: " +
-                            validPartitionIdString);
+                            validPartitionIdString + carriedString);
                 } else {
                     pw.println(indentString + tableFiles.m_files.get(ii).getPath() +
                             " Completed: " + tableFiles.m_completed.get(ii) +
@@ -532,7 +532,8 @@ public class TableSaveFile
         private void readChunksV2() {
             //For reading the compressed input.
             final BBContainer fileInputBufferC =
-                    DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
+                    DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE),
+                            DBBPool.MemoryUse.SNAPSHOT);
             final ByteBuffer fileInputBuffer = fileInputBufferC.b();
             long sinceLastFAdvise = Long.MAX_VALUE;
             long positionAtLastFAdvise = 0;
@@ -783,7 +784,8 @@ public class TableSaveFile
         private void readChunks() {
             //For reading the compressed input.
             BBContainer fileInputBufferC =
-                    DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
+                    DBBPool.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE),
+                            DBBPool.MemoryUse.SNAPSHOT);
             ByteBuffer fileInputBuffer = fileInputBufferC.b();
             while (m_hasMoreChunks) {
                 /*
@@ -1045,7 +1047,7 @@ public class TableSaveFile
         private Container getOutputBuffer(final int nextChunkPartitionId) {
             BBContainer c = m_buffers.poll();
             if (c == null) {
-                final BBContainer originContainer = DBBPool.allocateDirect(DEFAULT_CHUNKSIZE);
+                final BBContainer originContainer = DBBPool.allocateDirect(DEFAULT_CHUNKSIZE, DBBPool.MemoryUse.SNAPSHOT);
                 final ByteBuffer b = originContainer.b();
                 final Container retcont = new Container(b, originContainer, nextChunkPartitionId);
                 return retcont;
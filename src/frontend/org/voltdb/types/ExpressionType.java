@@ -34,6 +34,7 @@ import org.voltdb.expressions.ParameterValueExpression;
 import org.voltdb.expressions.TupleAddressExpression;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.expressions.VectorValueExpression;
+import org.voltdb.expressions.WindowFunctionExpression;
 
 /**
  *
@@ -107,6 +108,19 @@ public enum ExpressionType {
     AGGREGATE_MIN                 (AggregateExpression.class, 43, "MIN"),
     AGGREGATE_MAX                 (AggregateExpression.class, 44, "MAX"),
     AGGREGATE_AVG                 (AggregateExpression.class, 45, "AVG"),
+    AGGREGATE_APPROX_COUNT_DISTINCT(AggregateExpression.class, 46, "APPROX_COUNT_DISTINCT"),
+    // The partition and coordinator halves of a distributed APPROX_COUNT_DISTINCT
+    AGGREGATE_VALS_TO_HYPERLOGLOG (AggregateExpression.class, 47, "VALS_TO_HYPERLOGLOG"),
+    AGGREGATE_HYPERLOGLOGS_TO_CARD(AggregateExpression.class, 48, "HYPERLOGLOGS_TO_CARD"),
+
+    // ----------------------------
+    // Window Function
+    // ----------------------------
+    WINDOW_RANK                   (WindowFunctionExpression.class, 70, "RANK"),
+    WINDOW_DENSE_RANK             (WindowFunctionExpression.class, 71, "DENSE_RANK"),
+    WINDOW_ROW_NUMBER             (WindowFunctionExpression.class, 72, "ROW_NUMBER"),
+    // A COUNT, SUM, MIN or MAX computed over a window
+    WINDOW_AGGREGATE              (WindowFunctionExpression.class, 73, "<window aggregate>"),
 
     // ----------------------------
     // Function
@@ -42,6 +42,7 @@ import org.voltdb.plannodes.SeqScanPlanNode;
 import org.voltdb.plannodes.TableCountPlanNode;
 import org.voltdb.plannodes.UnionPlanNode;
 import org.voltdb.plannodes.UpdatePlanNode;
+import org.voltdb.plannodes.WindowFunctionPlanNode;
 
 /**
  *
@@ -87,7 +88,8 @@ public enum PlanNodeType {
     PROJECTION      (54, ProjectionPlanNode.class),
     MATERIALIZE     (55, MaterializePlanNode.class),
     LIMIT           (56, LimitPlanNode.class),
-    PARTIALAGGREGATE(57, PartialAggregatePlanNode.class)
+    PARTIALAGGREGATE(57, PartialAggregatePlanNode.class),
+    WINDOWFUNCTION  (58, WindowFunctionPlanNode.class)
 
     ;
 
@@ -49,6 +49,11 @@ public class CSVBulkDataLoader implements CSVDataLoader {
         m_loader.flush();
     }
 
+    @Override
+    public void drain() throws InterruptedException {
+        m_loader.drain();
+    }
+
     public class CsvFailureCallback implements BulkLoaderFailureCallBack {
         @Override
         public void failureCallback(Object rowHandle, Object[] fieldList, ClientResponse response) {
@@ -64,4 +64,9 @@ public interface CSVDataLoader {
      * Flush use this only when you think you are done and want to push everything before close/quit.
      */
     public void flush() throws ExecutionException, InterruptedException;
+
+    /**
+     * Wait until all the rows inserted so far have been acknowledged or have failed.
+     */
+    public void drain() throws Exception;
 }
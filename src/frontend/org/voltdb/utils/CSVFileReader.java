@@ -32,7 +32,8 @@ import org.voltdb.common.Constants;
 /**
  *
  * This is a single thread reader which feeds the lines after validating syntax
- * to CSVDataLoader.
+ * to CSVDataLoader. It reads either the whole input, or one range of the file
+ * for CSVParallelFileReader.
  *
  */
 class CSVFileReader implements Runnable {
@@ -58,6 +59,11 @@ class CSVFileReader implements Runnable {
     private final BulkLoaderErrorHandler m_errHandler;
     private final VoltType[] m_columnTypes;
     private final int m_columnCount;
+    private final ICsvListReader m_reader;
+    // Number of file lines before the range read by this reader
+    private final long m_lineOffset;
+    // Whether this reader reads the whole input and owns the loader
+    private final boolean m_wholeFile;
 
     static {
         m_blankStrings.put(VoltType.TINYINT, "0");
@@ -78,35 +84,66 @@ class CSVFileReader implements Runnable {
     }
 
     public CSVFileReader(CSVDataLoader loader, BulkLoaderErrorHandler errorHandler)    {
+        this(loader, errorHandler, m_listReader, 0, true);
+    }
+
+    CSVFileReader(CSVDataLoader loader, BulkLoaderErrorHandler errorHandler, ICsvListReader reader,
+            long lineOffset, boolean wholeFile) {
         m_loader = loader;
         m_errHandler = errorHandler;
         m_columnTypes = m_loader.getColumnTypes();
         m_columnCount = m_columnTypes.length;
+        m_reader = reader;
+        m_lineOffset = lineOffset;
+        m_wholeFile = wholeFile;
     }
 
     @Override
     public void run() {
+        readLines();
+        if (!m_wholeFile) {
+            // CSVParallelFileReader closes the loader once all ranges are read
+            return;
+        }
+
+        //Now wait for processors to see endOfData and count down. After that drain to finish all callbacks
+        try {
+            m_log.debug("Waiting for CSVDataLoader to finish.");
+            m_loader.close();
+            m_log.debug("CSVDataLoader Done.");
+        } catch (Exception ex) {
+            m_log.warn("Stopped processing because of connection error. "
+                    + "A report will be generated with what we processed so far. Error: " + ex);
+        }
+    }
+
+    private void readLines() {
         List<String> lineList;
+        long lineCount = 0;
 
-        while ((m_config.limitrows-- > 0)) {
+        // Ranges are only read in parallel without --limitrows
+        while (!m_wholeFile || m_config.limitrows-- > 0) {
             if (m_errHandler.hasReachedErrorLimit()) {
                 break;
             }
 
             try {
-                //Initial setting of m_totalLineCount
-                if (m_listReader.getLineNumber() == 0) {
-                    m_totalLineCount.set(m_config.skip);
+                //Initial setting of lineCount, the ranges start after the skipped lines
+                if (m_reader.getLineNumber() == 0) {
+                    lineCount = Math.max(m_lineOffset, m_config.skip);
                 } else {
-                    m_totalLineCount.set(m_listReader.getLineNumber());
+                    lineCount = m_lineOffset + m_reader.getLineNumber();
+                }
+                if (m_wholeFile) {
+                    m_totalLineCount.set(lineCount);
                 }
                 long st = System.nanoTime();
-                lineList = m_listReader.read();
+                lineList = m_reader.read();
                 long end = System.nanoTime();
                 m_parsingTime += (end - st);
                 if (lineList == null) {
-                    if (m_totalLineCount.get() > m_listReader.getLineNumber()) {
-                        m_totalLineCount.set(m_listReader.getLineNumber());
+                    if (m_wholeFile && m_totalLineCount.get() > m_reader.getLineNumber()) {
+                        m_totalLineCount.set(m_reader.getLineNumber());
                     }
                     break;
                 }
@@ -120,8 +157,7 @@ class CSVFileReader implements Runnable {
                 String lineCheckResult;
                 if ((lineCheckResult = checkparams_trimspace(lineValues)) != null) {
                     final RowWithMetaData metaData
-                            = new RowWithMetaData(m_listReader.getUntokenizedRow(),
-                                    m_totalLineCount.get() + 1);
+                            = new RowWithMetaData(m_reader.getUntokenizedRow(), lineCount + 1);
                     if (m_errHandler.handleError(metaData, null, lineCheckResult)) {
                         break;
                     }
@@ -129,15 +165,14 @@ class CSVFileReader implements Runnable {
                 }
 
                 RowWithMetaData lineData
-                        = new RowWithMetaData(m_listReader.getUntokenizedRow(),
-                                m_listReader.getLineNumber());
+                        = new RowWithMetaData(m_reader.getUntokenizedRow(),
+                                m_lineOffset + m_reader.getLineNumber());
                 m_loader.insertRow(lineData, lineValues);
             } catch (SuperCsvException e) {
                 //Catch rows that can not be read by superCSV m_listReader.
                 // e.g. items without quotes when strictquotes is enabled.
                 final RowWithMetaData metaData
-                        = new RowWithMetaData(m_listReader.getUntokenizedRow(),
-                                m_totalLineCount.get() + 1);
+                        = new RowWithMetaData(m_reader.getUntokenizedRow(), lineCount + 1);
                 if (m_errHandler.handleError(metaData, null, e.getMessage())) {
                     break;
                 }
@@ -149,16 +184,6 @@ class CSVFileReader implements Runnable {
                 break;
             }
         }
-
-        //Now wait for processors to see endOfData and count down. After that drain to finish all callbacks
-        try {
-            m_log.debug("Waiting for CSVDataLoader to finish.");
-            m_loader.close();
-            m_log.debug("CSVDataLoader Done.");
-        } catch (Exception ex) {
-            m_log.warn("Stopped processing because of connection error. "
-                    + "A report will be generated with what we processed so far. Error: " + ex);
-        }
     }
 
     private String checkparams_trimspace(String[] lineValues) {
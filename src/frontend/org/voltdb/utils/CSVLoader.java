@@ -24,6 +24,8 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Comparator;
+import java.util.PriorityQueue;
 import java.util.TimeZone;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -123,6 +125,16 @@ public class CSVLoader implements BulkLoaderErrorHandler {
     //Errors we keep track only upto maxerrors
     private final LinkedBlockingQueue<ErrorInfoItem> m_errorInfo = new LinkedBlockingQueue<ErrorInfoItem>(ERROR_INFO_QUEUE_SIZE);
     private volatile long m_errorCount = 0;
+    // When the file is read in parallel the errors come out of order, they are held
+    // back (at most maxerrors of them) and written out by line number at the end.
+    private boolean m_sortErrors = false;
+    private final PriorityQueue<ErrorInfoItem> m_sortedErrorInfo = new PriorityQueue<ErrorInfoItem>(11,
+            new Comparator<ErrorInfoItem>() {
+                @Override
+                public int compare(ErrorInfoItem o1, ErrorInfoItem o2) {
+                    return Long.compare(o1.lineNumber, o2.lineNumber);
+                }
+            });
 
     private class ErrorInfoFlushProcessor extends Thread {
         @Override
@@ -132,16 +144,22 @@ public class CSVLoader implements BulkLoaderErrorHandler {
                     ErrorInfoItem currItem;
                     currItem = m_errorInfo.take();
 
-                    if (currItem.lineNumber == -1)
+                    if (currItem.lineNumber == -1) {
+                        while (!m_sortedErrorInfo.isEmpty()) {
+                            writeErrorInfo(m_sortedErrorInfo.poll());
+                        }
                         return;
+                    }
 
                     if (currItem.errorInfo.length != 2) {
                         System.out.println("internal error, information is not enough");
                     }
-                    out_invaliderowfile.write(currItem.errorInfo[0] + "\n");
-                    String message = "Invalid input on line " + currItem.lineNumber + ". " + currItem.errorInfo[1];
-                    m_log.error(message);
-                    out_logfile.write(message + "\n  Content: " + currItem.errorInfo[0] + "\n");
+                    if (m_sortErrors) {
+                        m_sortedErrorInfo.add(currItem);
+                    }
+                    else {
+                        writeErrorInfo(currItem);
+                    }
 
                     m_errorCount++;
 
@@ -154,6 +172,13 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
             }
         }
+
+        private void writeErrorInfo(ErrorInfoItem currItem) throws IOException {
+            out_invaliderowfile.write(currItem.errorInfo[0] + "\n");
+            String message = "Invalid input on line " + currItem.lineNumber + ". " + currItem.errorInfo[1];
+            m_log.error(message);
+            out_logfile.write(message + "\n  Content: " + currItem.errorInfo[0] + "\n");
+        }
     }
 
     private ErrorInfoFlushProcessor m_errorinfoProcessor = null;
@@ -283,6 +308,9 @@ public class CSVLoader implements BulkLoaderErrorHandler {
         @Option(shortOpt = "n", desc = "Custom null string, overrides all other Null pattern matching")
         String customNullString = "";
 
+        @Option(desc = "number of threads parsing the CSV file, ignored for standard input and with --limitrows (default: 1)")
+        int parallelism = 1;
+
         /**
          * Batch size for processing batched operations.
          */
@@ -320,6 +348,9 @@ public class CSVLoader implements BulkLoaderErrorHandler {
             if (batch < 0) {
                 exitWithMessageAndUsage("batch size number must be >= 0");
             }
+            if (parallelism < 1) {
+                exitWithMessageAndUsage("parallelism must be >= 1");
+            }
             if(!customNullString.isEmpty() && !blank.equals("error")){
                 blank = "empty";
             }
@@ -419,7 +450,9 @@ public class CSVLoader implements BulkLoaderErrorHandler {
             long rowsQueued;
             final CSVLoader errHandler = new CSVLoader();
             final CSVDataLoader dataLoader;
+            final boolean parallel = CSVParallelFileReader.canReadInParallel(config);
 
+            errHandler.m_sortErrors = parallel;
             errHandler.launchErrorFlushProcessor();
 
 
@@ -431,8 +464,16 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
             CSVFileReader.initializeReader(cfg, csvClient, listReader);
 
-            CSVFileReader csvReader = new CSVFileReader(dataLoader, errHandler);
-            Thread readerThread = new Thread(csvReader);
+            CSVFileReader csvReader = null;
+            CSVParallelFileReader parallelReader = null;
+            Thread readerThread;
+            if (parallel) {
+                parallelReader = new CSVParallelFileReader(dataLoader, errHandler, csvPreference, config);
+                readerThread = new Thread(parallelReader);
+            } else {
+                csvReader = new CSVFileReader(dataLoader, errHandler);
+                readerThread = new Thread(csvReader);
+            }
             readerThread.setName("CSVFileReader");
             readerThread.setDaemon(true);
 
@@ -446,7 +487,7 @@ public class CSVLoader implements BulkLoaderErrorHandler {
 
             errHandler.waitForErrorFlushComplete();
 
-            readerTime = (csvReader.m_parsingTime) / 1000000;
+            readerTime = (parallel ? parallelReader.m_parsingTime : csvReader.m_parsingTime) / 1000000;
             insertCount = dataLoader.getProcessedRows();
             ackCount = insertCount - dataLoader.getFailedRows();
             rowsQueued = CSVFileReader.m_totalRowCount.get();
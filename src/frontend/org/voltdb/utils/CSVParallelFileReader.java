@@ -0,0 +1,290 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.supercsv.io.CsvListReader;
+import org.supercsv.prefs.CsvPreference;
+import org.supercsv_voltpatches.tokenizer.Tokenizer;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
+
+import com.google_voltpatches.common.collect.ImmutableSet;
+
+/**
+ * Reads a CSV file with several threads, for csvloader --parallelism.
+ *
+ * The file is memory-mapped and cut into ranges at record boundaries. Each range is
+ * tokenized, checked and handed to the loader by its own CSVFileReader, so parsing
+ * and partition hashing are spread over the cores instead of bound to one. The
+ * boundaries come from a sequential scan which only follows quotes and escapes the
+ * way the tokenizer does, so that quoted values spanning lines are never cut, and
+ * counts the lines before each range to keep the line numbers of errors exact.
+ */
+class CSVParallelFileReader implements Runnable {
+    private static final VoltLogger m_log = new VoltLogger("CSVLOADER");
+
+    // Charsets in which the quote, escape and newline bytes can not be part of another character
+    private static final ImmutableSet<String> ASCII_COMPATIBLE_CHARSETS =
+            ImmutableSet.of("UTF-8", "US-ASCII", "ISO-8859-1");
+    // Largest range, ranges are mapped at once
+    static final long MAX_RANGE_SIZE = 1024 * 1024 * 1024;
+
+    private final CSVDataLoader m_loader;
+    private final BulkLoaderErrorHandler m_errHandler;
+    private final CsvPreference m_preference;
+    private final CSVLoader.CSVConfig m_config;
+    // Parsing time of the slowest range
+    long m_parsingTime = 0;
+
+    /**
+     * A range of the file, starting on a record.
+     */
+    static class Range {
+        final long m_start;
+        final long m_end;
+        // Number of lines before the range
+        final long m_lineOffset;
+
+        Range(long start, long end, long lineOffset) {
+            m_start = start;
+            m_end = end;
+            m_lineOffset = lineOffset;
+        }
+    }
+
+    CSVParallelFileReader(CSVDataLoader loader, BulkLoaderErrorHandler errHandler,
+            CsvPreference preference, CSVLoader.CSVConfig config) {
+        m_loader = loader;
+        m_errHandler = errHandler;
+        m_preference = preference;
+        m_config = config;
+    }
+
+    /**
+     * Reading in parallel needs a file, which is read whole, and single byte
+     * quote, escape and separator characters.
+     */
+    static boolean canReadInParallel(CSVLoader.CSVConfig config) {
+        return config.parallelism > 1 && !config.file.isEmpty() &&
+                config.limitrows == Integer.MAX_VALUE &&
+                config.separator < 0x80 && config.quotechar < 0x80 && config.escape < 0x80 &&
+                config.quotechar != config.escape &&
+                ASCII_COMPATIBLE_CHARSETS.contains(Charset.defaultCharset().name());
+    }
+
+    @Override
+    public void run() {
+        RandomAccessFile file = null;
+        ExecutorService es = null;
+        try {
+            file = new RandomAccessFile(m_config.file, "r");
+            final FileChannel channel = file.getChannel();
+            final List<Range> ranges = split(channel, m_config.parallelism, (byte) m_config.quotechar,
+                    (byte) m_config.escape, m_config.skip);
+
+            es = CoreUtils.getListeningExecutorService("CSVFileReader", m_config.parallelism);
+            List<CSVFileReader> readers = new ArrayList<CSVFileReader>();
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < ranges.size() - 1; i++) {
+                final Range range = ranges.get(i);
+                final MappedByteBuffer buf =
+                        channel.map(FileChannel.MapMode.READ_ONLY, range.m_start, range.m_end - range.m_start);
+                // Only the first range starts with the lines to skip
+                final Tokenizer tokenizer = new Tokenizer(
+                        new BufferedReader(new InputStreamReader(new MappedRangeInputStream(buf))),
+                        m_preference, m_config.strictquotes, m_config.escape, m_config.columnsizelimit,
+                        i == 0 ? m_config.skip : 0);
+                final CSVFileReader reader = new CSVFileReader(m_loader, m_errHandler,
+                        new CsvListReader(tokenizer, m_preference), range.m_lineOffset, false);
+                readers.add(reader);
+                futures.add(es.submit(reader));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            for (CSVFileReader reader : readers) {
+                m_parsingTime = Math.max(m_parsingTime, reader.m_parsingTime);
+            }
+            // The last entry only holds the number of lines of the file
+            CSVFileReader.m_totalLineCount.set(ranges.get(ranges.size() - 1).m_lineOffset);
+        } catch (Exception e) {
+            m_log.error("Failed to read CSV file " + m_config.file + ": " + e);
+        } finally {
+            if (es != null) {
+                es.shutdown();
+                try {
+                    es.awaitTermination(365, TimeUnit.DAYS);
+                } catch (InterruptedException ignore) {}
+            }
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ignore) {}
+            }
+        }
+
+        //Now wait for processors to see endOfData and count down. After that drain to finish all callbacks
+        try {
+            m_log.debug("Waiting for CSVDataLoader to finish.");
+            m_loader.close();
+            m_log.debug("CSVDataLoader Done.");
+        } catch (Exception ex) {
+            m_log.warn("Stopped processing because of connection error. "
+                    + "A report will be generated with what we processed so far. Error: " + ex);
+        }
+    }
+
+    /**
+     * Cut the file into about count ranges, none larger than MAX_RANGE_SIZE unless a
+     * single record is, each starting right after a newline that ends a record.
+     *
+     * @return the ranges in file order, followed by an empty range at the end of the
+     *  file whose line offset is the number of lines of the file
+     */
+    static List<Range> split(FileChannel channel, int count, byte quote, byte escape, long skip)
+            throws IOException {
+        final long size = channel.size();
+        final long rangeSize = Math.max(1, Math.min(MAX_RANGE_SIZE, (size + count - 1) / count));
+        final List<Range> ranges = new ArrayList<Range>();
+
+        long start = 0;
+        long startLine = 0;
+        long lines = 0;
+        boolean inQuote = false;
+        // A quote in a quoted value, which is an escaped quote if another one follows
+        boolean quotePending = false;
+        // An escape outside quotes, the next character is taken as is
+        boolean escapePending = false;
+        boolean afterCR = false;
+        byte last = '\n';
+
+        for (long chunkStart = 0; chunkStart < size; chunkStart += MAX_RANGE_SIZE) {
+            final MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart,
+                    Math.min(MAX_RANGE_SIZE, size - chunkStart));
+            final int limit = buf.limit();
+            for (int i = 0; i < limit; i++) {
+                final byte b = buf.get(i);
+                last = b;
+                if (b == '\n' || b == '\r') {
+                    // \r\n is one line terminator
+                    if (!(b == '\n' && afterCR)) {
+                        lines++;
+                    }
+                    afterCR = (b == '\r');
+                    if (quotePending) {
+                        quotePending = false;
+                        inQuote = false;
+                    }
+                    escapePending = false;
+                    if (b == '\n' && !inQuote && lines >= skip && chunkStart + i + 1 - start >= rangeSize) {
+                        ranges.add(new Range(start, chunkStart + i + 1, startLine));
+                        start = chunkStart + i + 1;
+                        startLine = lines;
+                    }
+                    continue;
+                }
+                afterCR = false;
+                if (lines < skip) {
+                    // The tokenizer does not parse the lines it skips
+                    continue;
+                }
+                if (inQuote) {
+                    if (quotePending) {
+                        quotePending = false;
+                        if (b == quote) {
+                            continue;
+                        }
+                        inQuote = false;
+                    }
+                    else {
+                        if (b == quote) {
+                            quotePending = true;
+                        }
+                        continue;
+                    }
+                }
+                if (escapePending) {
+                    escapePending = false;
+                    if (b != 'N') {
+                        continue;
+                    }
+                }
+                if (b == escape) {
+                    escapePending = true;
+                }
+                else if (b == quote) {
+                    inQuote = true;
+                }
+            }
+        }
+
+        if (start < size) {
+            ranges.add(new Range(start, size, startLine));
+        }
+        // An unterminated last line counts as a line
+        if (size > 0 && last != '\n' && last != '\r') {
+            lines++;
+        }
+        ranges.add(new Range(size, size, lines));
+        return ranges;
+    }
+
+    /**
+     * Stream over a mapped range of the file.
+     */
+    private static class MappedRangeInputStream extends InputStream {
+        private final MappedByteBuffer m_buf;
+
+        MappedRangeInputStream(MappedByteBuffer buf) {
+            m_buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return m_buf.hasRemaining() ? (m_buf.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!m_buf.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, m_buf.remaining());
+            m_buf.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return m_buf.remaining();
+        }
+    }
+}
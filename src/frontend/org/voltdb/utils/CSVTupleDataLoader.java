@@ -150,6 +150,12 @@ public class CSVTupleDataLoader implements CSVDataLoader {
         }
     }
 
+    @Override
+    public void drain() throws InterruptedException, NoConnectionsException
+    {
+        m_client.drain();
+    }
+
     @Override
     public void close() throws InterruptedException, NoConnectionsException
     {
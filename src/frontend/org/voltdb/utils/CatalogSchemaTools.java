@@ -295,6 +295,12 @@ public abstract class CatalogSchemaTools {
             table_sb.append("\n) AS \n");
             table_sb.append(spacer + viewQuery + ";\n");
         }
+        else if (catalog_tbl.getTtlseconds() > 0) {
+            table_sb.append("\n) USING TTL " + catalog_tbl.getTtlseconds() + " SECONDS ON COLUMN " +
+                    catalog_tbl.getTtlcolumn().getTypeName() +
+                    " BATCH_SIZE " + catalog_tbl.getTtlbatchsize() +
+                    " MAX_FREQUENCY " + catalog_tbl.getTtlmaxfrequency() + ";\n");
+        }
         else {
             table_sb.append("\n);\n");
         }
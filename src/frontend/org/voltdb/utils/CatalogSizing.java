@@ -276,6 +276,12 @@ public abstract class CatalogSizing {
             isize.widthMin += 48;
             isize.widthMax += 48;
         }
+        else if (index.getType() == IndexType.BTREE.getValue()) {
+            // B+tree entries are the key and an 8 byte tuple pointer, in
+            // leaves that are two thirds full on average.
+            isize.widthMin += isize.widthMin / 2 + 12;
+            isize.widthMax += isize.widthMax / 2 + 12;
+        }
         else {
             // Tree indexes have a 40 byte overhead per row.
             isize.widthMin += 40;
@@ -59,6 +59,7 @@ import org.apache.zookeeper_voltpatches.CreateMode;
 import org.apache.zookeeper_voltpatches.KeeperException;
 import org.apache.zookeeper_voltpatches.ZooDefs.Ids;
 import org.apache.zookeeper_voltpatches.ZooKeeper;
+import org.hsqldb_voltpatches.HSQLInterface;
 import org.json_voltpatches.JSONException;
 import org.mindrot.BCrypt;
 import org.voltcore.logging.Level;
@@ -139,6 +140,10 @@ public abstract class CatalogUtil {
     public static final String SIGNATURE_TABLE_NAME_SEPARATOR = "|";
     public static final String SIGNATURE_DELIMITER = ",";
 
+    // Names of the statements of a table with a TTL, see DDLCompiler
+    public static final String TTL_BOUNDARY_STMT = "ttl_boundary";
+    public static final String TTL_DELETE_STMT = "ttl_delete";
+
     private static JAXBContext m_jc;
     private static Schema m_schema;
     static {
@@ -447,6 +452,16 @@ public abstract class CatalogUtil {
         return false;
     }
 
+    /**
+     * Return true if the index was generated to maintain the MIN / MAX columns of a
+     * materialized view. Such indexes are not considered by the planner, so that
+     * defining a view does not change the plans of queries on its source table.
+     */
+    public static boolean isMatviewMinOrMaxIndex(Index index)
+    {
+        return index.getTypeName().startsWith(HSQLInterface.AUTO_GEN_MATVIEW_MINMAX_IDX_PREFIX);
+    }
+
     /**
      * Check if a catalog compiled with the given version of VoltDB is
      * compatible with the current version of VoltDB.
@@ -96,7 +96,7 @@ public class FixedDBBPool {
             public BBContainer take() throws InterruptedException {
                 final Semaphore permits = m_permits.get(bufLenInBytes);
                 permits.acquire();
-                final BBContainer origin = DBBPool.allocateDirectAndPool(bufLenInBytes);
+                final BBContainer origin = DBBPool.allocateDirectAndPool(bufLenInBytes, DBBPool.MemoryUse.SNAPSHOT);
                 return new BBContainer(origin.b()) {
                     @Override
                     public void discard() {
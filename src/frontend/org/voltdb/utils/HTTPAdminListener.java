@@ -57,6 +57,7 @@ import org.voltcore.logging.VoltLogger;
 import org.voltdb.AuthenticationResult;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.HTTPClientInterface;
+import org.voltdb.PrometheusExporter;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
 import org.voltdb.client.Client;
@@ -66,6 +67,7 @@ import org.voltdb.compiler.deploymentfile.DeploymentType;
 import org.voltdb.compiler.deploymentfile.UsersType;
 import org.voltdb.compiler.deploymentfile.UsersType.User;
 import org.voltdb.compilereport.ReportMaker;
+import org.voltdb.iv2.TxnTracer;
 
 import com.google_voltpatches.common.base.Charsets;
 import com.google_voltpatches.common.io.Resources;
@@ -327,6 +329,69 @@ public class HTTPAdminListener {
         }
     }
 
+    // /metrics handler
+    class MetricsRequestHandler extends VoltRequestHandler {
+        // GET on /metrics, the statistics of this host in the Prometheus text format.
+        @Override
+        public void handle(String target,
+                           Request baseRequest,
+                           HttpServletRequest request,
+                           HttpServletResponse response)
+                           throws IOException, ServletException {
+            AuthenticationResult authResult = null;
+            try {
+                response.setContentType(PrometheusExporter.CONTENT_TYPE);
+                authResult = authenticate(baseRequest);
+                if (!authResult.isAuthenticated()) {
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    response.getWriter().println(authResult.m_message);
+                } else {
+                    response.setStatus(HttpServletResponse.SC_OK);
+                    PrometheusExporter exporter = new PrometheusExporter(VoltDB.instance().getStatsAgent());
+                    response.getWriter().write(exporter.getMetrics());
+                }
+                baseRequest.setHandled(true);
+            } catch (Exception ex) {
+              logger.info("Not servicing url: " + baseRequest.getRequestURI() + " Details: "+ ex.getMessage(), ex);
+            } finally {
+                httpClientInterface.releaseClient(authResult, false);
+            }
+        }
+    }
+
+    // /trace handler
+    class TraceRequestHandler extends VoltRequestHandler {
+
+        // GET on /trace, the sampled transaction spans of this host as a Chrome trace.
+        @Override
+        public void handle(String target,
+                           Request baseRequest,
+                           HttpServletRequest request,
+                           HttpServletResponse response)
+                           throws IOException, ServletException {
+            AuthenticationResult authResult = null;
+            try {
+                response.setContentType("application/json;charset=utf-8");
+                response.setStatus(HttpServletResponse.SC_OK);
+                authResult = authenticate(baseRequest);
+                if (!authResult.isAuthenticated()) {
+                    response.getWriter().print(buildClientResponse(null, ClientResponse.UNEXPECTED_FAILURE, authResult.m_message));
+                } else if (!authResult.m_authUser.hasPermission(Permission.ADMIN)) {
+                    response.getWriter().print(buildClientResponse(null, ClientResponse.UNEXPECTED_FAILURE, "Permission denied"));
+                } else {
+                    // save as a file to load in chrome://tracing
+                    response.setHeader("Content-Disposition", "attachment; filename=\"txntrace.json\"");
+                    response.getWriter().write(TxnTracer.toChromeTraceJson(VoltDB.instance().getHostMessenger().getHostId()));
+                }
+                baseRequest.setHandled(true);
+            } catch (Exception ex) {
+              logger.info("Not servicing url: " + baseRequest.getRequestURI() + " Details: "+ ex.getMessage(), ex);
+            } finally {
+                httpClientInterface.releaseClient(authResult, false);
+            }
+        }
+    }
+
     //This is for password on User in the deployment to not to be reported.
     abstract class IgnorePasswordMixIn {
         @JsonIgnore abstract String getPassword();
@@ -860,6 +925,14 @@ public class HTTPAdminListener {
             ContextHandler profileRequestHandler = new ContextHandler("/profile");
             profileRequestHandler.setHandler(new UserProfileHandler());
 
+            ///metrics
+            ContextHandler metricsRequestHandler = new ContextHandler("/metrics");
+            metricsRequestHandler.setHandler(new MetricsRequestHandler());
+
+            ///trace
+            ContextHandler traceRequestHandler = new ContextHandler("/trace");
+            traceRequestHandler.setHandler(new TraceRequestHandler());
+
             ContextHandlerCollection handlers = new ContextHandlerCollection();
             handlers.setHandlers(new Handler[] {
                     apiRequestHandler,
@@ -867,6 +940,8 @@ public class HTTPAdminListener {
                     ddlRequestHandler,
                     deploymentRequestHandler,
                     profileRequestHandler,
+                    metricsRequestHandler,
+                    traceRequestHandler,
                     dbMonitorHandler
             });
 
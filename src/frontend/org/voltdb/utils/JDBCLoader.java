@@ -21,6 +21,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -147,9 +149,9 @@ public class JDBCLoader implements BulkLoaderErrorHandler {
         }
 
         String rowContent = "Unknown row content";
-        String [] row = (String[])metaData.rawLine;
-        if (row != null && row.length == 1 && row[0] != null && !row[0].trim().isEmpty()) {
-            rowContent = row[0];
+        String row = (metaData.rawLine != null) ? metaData.rawLine.toString() : null;
+        if (row != null && !row.trim().isEmpty()) {
+            rowContent = row;
         }
 
         String infoStr = (response != null) ? response.getStatusString() : error;
@@ -223,6 +225,12 @@ public class JDBCLoader implements BulkLoaderErrorHandler {
 
         @Option(desc = "Fetch Size for JDBC request (default: 100)")
         int fetchsize = 100;
+
+        @Option(desc = "Number of concurrent JDBC readers, each reading a range of --splitcolumn (default: 1)")
+        int parallelism = 1;
+
+        @Option(desc = "Integer column of the JDBC table whose value ranges are read in parallel")
+        String splitcolumn = "";
         /**
          * Batch size for processing batched operations.
          */
@@ -263,6 +271,12 @@ public class JDBCLoader implements BulkLoaderErrorHandler {
             if (batch < 0) {
                 exitWithMessageAndUsage("batch size number must be >= 0");
             }
+            if (parallelism < 1) {
+                exitWithMessageAndUsage("parallelism must be >= 1");
+            }
+            if (parallelism > 1 && splitcolumn.trim().isEmpty()) {
+                exitWithMessageAndUsage("splitcolumn is required to read with parallelism");
+            }
             if ((procedure != null) && (procedure.trim().length() > 0)) {
                 useSuppliedProcedure = true;
             }
@@ -344,14 +358,31 @@ public class JDBCLoader implements BulkLoaderErrorHandler {
             //Created Source reader
             JDBCStatementReader.initializeReader(cfg, csvClient);
 
-            JDBCStatementReader jdbcReader = new JDBCStatementReader(dataLoader, errHandler);
-            Thread readerThread = new Thread(jdbcReader);
-            readerThread.setName("JDBCSourceReader");
-            readerThread.setDaemon(true);
+            List<JDBCStatementReader> jdbcReaders = JDBCStatementReader.createReaders(dataLoader, errHandler);
+            List<Thread> readerThreads = new ArrayList<Thread>();
+            for (JDBCStatementReader jdbcReader : jdbcReaders) {
+                Thread readerThread = new Thread(jdbcReader);
+                readerThread.setName("JDBCSourceReader-" + readerThreads.size());
+                readerThread.setDaemon(true);
+                readerThreads.add(readerThread);
+            }
 
-            //Wait for reader to finish.
-            readerThread.start();
-            readerThread.join();
+            //Wait for readers to finish.
+            for (Thread readerThread : readerThreads) {
+                readerThread.start();
+            }
+            for (Thread readerThread : readerThreads) {
+                readerThread.join();
+            }
+            if (jdbcReaders.size() > 1) {
+                // A single reader closes the loader itself
+                try {
+                    dataLoader.close();
+                } catch (Exception ex) {
+                    m_log.warn("Stopped processing because of connection error. "
+                            + "A report will be generated with what we processed so far. Error: " + ex);
+                }
+            }
 
             insertTimeEnd = System.currentTimeMillis();
 
@@ -359,7 +390,10 @@ public class JDBCLoader implements BulkLoaderErrorHandler {
 
             errHandler.waitForErrorFlushComplete();
 
-            readerTime = (jdbcReader.m_parsingTime) / 1000000;
+            readerTime = 0;
+            for (JDBCStatementReader jdbcReader : jdbcReaders) {
+                readerTime = Math.max(readerTime, jdbcReader.m_parsingTime / 1000000);
+            }
             insertCount = dataLoader.getProcessedRows();
             ackCount = insertCount - dataLoader.getFailedRows();
 
@@ -16,9 +16,9 @@
  */
 package org.voltdb.utils;
 
-import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
@@ -27,8 +27,9 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -50,6 +51,10 @@ import com.google_voltpatches.common.reflect.TypeToken;
  * This is a single thread reader which feeds the lines after validating syntax
  * to CSVDataLoader.
  *
+ * With --parallelism, several readers each read a range of the values of the
+ * --splitcolumn integer column, on their own source connection, and feed the
+ * same loader, which hands the rows of each partition to its own batches.
+ *
  */
 class JDBCStatementReader extends SusceptibleRunnable {
 
@@ -61,6 +66,12 @@ class JDBCStatementReader extends SusceptibleRunnable {
     private static final VoltLogger m_log = new VoltLogger("JDBCLOADER");
     private final CSVDataLoader m_loader;
     private final BulkLoaderErrorHandler m_errHandler;
+    // Condition on the split column selecting the rows of this reader, null for all rows
+    private final String m_condition;
+    // Values of the parameters of the condition
+    private final long[] m_bounds;
+    // Whether this reader reads the whole table and owns the loader
+    private final boolean m_wholeTable;
 
     public static void initializeReader(JDBCLoader.JDBCLoaderConfig config, Client csvClient) {
         m_config = config;
@@ -68,15 +79,86 @@ class JDBCStatementReader extends SusceptibleRunnable {
     }
 
     public JDBCStatementReader(CSVDataLoader loader, BulkLoaderErrorHandler errorHandler) {
+        this(loader, errorHandler, null, new long[0], true);
+    }
+
+    JDBCStatementReader(CSVDataLoader loader, BulkLoaderErrorHandler errorHandler,
+            String condition, long[] bounds, boolean wholeTable) {
         m_loader = loader;
         m_errHandler = errorHandler;
+        m_condition = condition;
+        m_bounds = bounds;
+        m_wholeTable = wholeTable;
+    }
+
+    /**
+     * Create the readers of the source table, one per range of the split column
+     * values when reading in parallel. Rows with a NULL split column value are read
+     * with the first range.
+     */
+    static List<JDBCStatementReader> createReaders(CSVDataLoader loader, BulkLoaderErrorHandler errorHandler)
+            throws SQLException {
+        List<JDBCStatementReader> readers = new ArrayList<JDBCStatementReader>();
+        if (m_config.parallelism <= 1) {
+            readers.add(new JDBCStatementReader(loader, errorHandler));
+            return readers;
+        }
+
+        final String column = m_config.splitcolumn;
+        BigInteger min = null;
+        BigInteger max = null;
+        Connection conn = DriverManager.getConnection(m_config.jdbcurl, m_config.jdbcuser, m_config.jdbcpassword);
+        try {
+            ResultSet rslt = conn.createStatement().executeQuery(
+                    "select min(" + column + "), max(" + column + ") from " + m_config.jdbctable);
+            if (rslt.next()) {
+                long value = rslt.getLong(1);
+                if (!rslt.wasNull()) {
+                    min = BigInteger.valueOf(value);
+                    max = BigInteger.valueOf(rslt.getLong(2));
+                }
+            }
+            rslt.close();
+        } finally {
+            conn.close();
+        }
+        if (min == null) {
+            // No values to split
+            readers.add(new JDBCStatementReader(loader, errorHandler));
+            return readers;
+        }
+
+        final BigInteger span = max.subtract(min).add(BigInteger.ONE);
+        final int count = (int) Math.min(m_config.parallelism, span.min(BigInteger.valueOf(Integer.MAX_VALUE)).longValue());
+        if (count == 1) {
+            readers.add(new JDBCStatementReader(loader, errorHandler));
+            return readers;
+        }
+        // Start of each range, rounded up so that the last range is the smallest
+        final BigInteger step = span.add(BigInteger.valueOf(count - 1)).divide(BigInteger.valueOf(count));
+        long[] starts = new long[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = min.add(step.multiply(BigInteger.valueOf(i))).longValue();
+        }
+        readers.add(new JDBCStatementReader(loader, errorHandler,
+                column + " < ? or " + column + " is null", new long[] {starts[1]}, false));
+        for (int i = 1; i < count - 1; i++) {
+            readers.add(new JDBCStatementReader(loader, errorHandler,
+                    column + " >= ? and " + column + " < ?", new long[] {starts[i], starts[i + 1]}, false));
+        }
+        readers.add(new JDBCStatementReader(loader, errorHandler,
+                column + " >= ?", new long[] {starts[count - 1]}, false));
+        return readers;
     }
 
     private void forceClose(Connection conn, PreparedStatement stmt, ResultSet rslt) {
         if (rslt != null) try {rslt.close();} catch (Exception ignoreIt) {}
         if (stmt != null) try {stmt.close();} catch (Exception ignoreIt) {}
         if (conn != null) try {conn.close();} catch (Exception ignoreIt) {}
-        try {m_loader.close();} catch (Exception ignoreIt) {}
+        if (m_wholeTable) {
+            // Otherwise JDBCLoader closes the loader once all the readers are done
+            try {m_loader.close();} catch (Exception ignoreIt) {}
+        }
     }
 
     @Override
@@ -90,7 +172,6 @@ class JDBCStatementReader extends SusceptibleRunnable {
 
         ImporterType.Acceptor [] acceptors = null;
         Object[] columnValues = null;
-        String[] stringValues = null;
 
         try {
             conn = DriverManager.getConnection(m_config.jdbcurl, m_config.jdbcuser, m_config.jdbcpassword);
@@ -100,10 +181,14 @@ class JDBCStatementReader extends SusceptibleRunnable {
                 resultSetType = ResultSet.TYPE_SCROLL_INSENSITIVE;
             }
             stmt = conn.prepareStatement(
-                    "select * from " + m_config.jdbctable,
+                    "select * from " + m_config.jdbctable +
+                    (m_condition == null ? "" : " where " + m_condition),
                     resultSetType,
                     ResultSet.CONCUR_READ_ONLY
                     );
+            for (int i = 0; i < m_bounds.length; i++) {
+                stmt.setLong(i + 1, m_bounds[i]);
+            }
             stmt.setFetchSize(m_config.fetchsize);
             rslt = stmt.executeQuery();
             ResultSetMetaData mdata = rslt.getMetaData();
@@ -134,32 +219,20 @@ class JDBCStatementReader extends SusceptibleRunnable {
             Throwables.propagate(ex);
         }
 
-        StringWriter sw = new StringWriter(16384);
-        PrintWriter pw = new PrintWriter(sw,true);
-        CSVWriter csw = new CSVWriter(pw);
-        StringBuffer sb = sw.getBuffer();
-
-        stringValues = new String[columnCount];
-
         try {
             while (rslt.next()) {
                 long rownum = m_totalRowCount.incrementAndGet();
 
-                Arrays.fill(stringValues, "NULL");
                 columnValues = new Object[columnCount];
 
-                lineData = new RowWithMetaData(new String[1], rownum);
+                // The row is only formatted as CSV text if it turns out to be invalid
+                lineData = new RowWithMetaData(new SourceRow(columnValues, acceptors), rownum);
 
                 try {
                     for (int i = 0; i < columnCount; ++i) {
                         columnValues[i] = acceptors[i].convert();
-                        stringValues[i] = acceptors[i].format(columnValues[i]);
                     }
 
-                    csw.writeNext(stringValues);
-                    ((String[])lineData.rawLine)[0] = sb.toString();
-                    sb.setLength(0);
-
                     m_loader.insertRow(lineData, columnValues);
 
                 } catch (SQLException ex) {
@@ -174,6 +247,34 @@ class JDBCStatementReader extends SusceptibleRunnable {
         m_log.debug("JSBCLoader Done.");
     }
 
+    /**
+     * Values of a source row, formatted as a CSV line when it is reported.
+     */
+    static class SourceRow {
+        private final Object[] m_values;
+        private final ImporterType.Acceptor[] m_acceptors;
+
+        SourceRow(Object[] values, ImporterType.Acceptor[] acceptors) {
+            m_values = values;
+            m_acceptors = acceptors;
+        }
+
+        @Override
+        public String toString() {
+            String[] stringValues = new String[m_values.length];
+            // Errors are reported from the loader threads, and date formats are not thread safe
+            synchronized (m_acceptors) {
+                for (int i = 0; i < m_values.length; ++i) {
+                    stringValues[i] = m_acceptors[i].format(m_values[i]);
+                }
+            }
+            StringWriter sw = new StringWriter();
+            CSVWriter csw = new CSVWriter(sw);
+            csw.writeNext(stringValues);
+            return sw.toString();
+        }
+    }
+
     public static String getExceptionAndCauseMessages(Throwable ex) {
         if (ex == null) return "";
         StringBuilder sb = new StringBuilder(8192).append(ex.getMessage());
@@ -17,32 +17,68 @@
 package org.voltdb.utils;
 
 import au.com.bytecode.opencsv_voltpatches.CSVParser;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import kafka.consumer.ConsumerConfig;
 import kafka.consumer.ConsumerIterator;
 import kafka.consumer.KafkaStream;
 import kafka.javaapi.consumer.ConsumerConnector;
 import kafka.message.MessageAndMetadata;
 
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.util.Utf8;
+import org.apache.zookeeper_voltpatches.ZooKeeper;
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONObject;
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
+import org.voltcore.zk.ZKUtil;
 import org.voltdb.CLIConfig;
+import org.voltdb.VoltTable;
 import org.voltdb.client.Client;
 import org.voltdb.client.ClientConfig;
 import org.voltdb.client.ClientFactory;
 import org.voltdb.client.ClientImpl;
 import org.voltdb.client.ClientResponse;
 
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Metric;
+import com.yammer.metrics.core.MetricName;
+
 /**
  * KafkaConsumer loads data from kafka into voltdb
- * Only csv formatted data is supported at this time.
- * VARBINARY columns are not supported
+ * Messages are csv rows, json arrays or objects, or avro records. A json or avro
+ * message may hold several rows. VARBINARY columns are not supported in csv messages.
+ *
+ * There is one consumer stream per partition of the topic unless --consumers says
+ * otherwise. Offsets are not committed as messages are read but every commit
+ * interval, once all the rows read so far have been acknowledged by the loader,
+ * so that a restart resumes after the last acknowledged rows. Consumers wait while
+ * the loader drains for a commit, so the interval is a minute by default, the same
+ * as the Kafka auto commit interval, and a restart may load up to that much again.
  */
 public class KafkaLoader {
 
@@ -53,6 +89,16 @@ public class KafkaLoader {
     private Client m_client = null;
     private KafkaConsumerConnector m_consumer = null;
     private ExecutorService m_es = null;
+    private ScheduledExecutorService m_committer = null;
+    // Consumers hold the read lock from taking a message to handing its rows to the
+    // loader, the committer takes the write lock to commit offsets of loaded rows only
+    private final ReadWriteLock m_commitLock = new ReentrantReadWriteLock();
+    // Column names of the table, for json objects
+    private List<String> m_columnNames = null;
+    private long m_lastLagReport = 0;
+    static final long LAG_REPORT_INTERVAL_MS = 60 * 1000;
+    // Consumers when the partitions of the topic can not be counted
+    static final int DEFAULT_CONSUMERS = 3;
 
     public KafkaLoader(KafkaConfig config) {
         m_config = config;
@@ -60,7 +106,12 @@ public class KafkaLoader {
 
     //Close the consumer after this app will exit.
     public void closeConsumer() throws InterruptedException {
+        if (m_committer != null) {
+            // Not waited for, this may run on a loader callback that a commit in progress waits for
+            m_committer.shutdown();
+        }
         if (m_consumer != null) {
+            // Offsets of the rows not acknowledged yet are not committed, they are read again next time
             m_consumer.stop();
             m_consumer = null;
         }
@@ -75,6 +126,8 @@ public class KafkaLoader {
      */
     public void close() {
         try {
+            stopCommitter();
+            commitLoadedOffsets();
             closeConsumer();
             m_loader.close();
             if (m_client != null) {
@@ -101,9 +154,23 @@ public class KafkaLoader {
             m_loader = new CSVBulkDataLoader((ClientImpl) m_client, m_config.table, m_config.batch, new KafkaBulkLoaderCallback());
         }
         m_loader.setFlushInterval(m_config.flush, m_config.flush);
+        if (m_config.format.equals("json") && !m_config.useSuppliedProcedure) {
+            m_columnNames = getColumnNames(m_client, m_config.table);
+        }
         m_consumer = new KafkaConsumerConnector(m_config.zookeeper, m_config.useSuppliedProcedure ? m_config.procedure : m_config.table);
         try {
             m_es = getConsumerExecutor(m_consumer, m_loader);
+            m_committer = Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("KafkaOffsetCommitter"));
+            m_committer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        commitLoadedOffsets();
+                    } catch (Exception ex) {
+                        m_log.error("Failed to commit Kafka offsets", ex);
+                    }
+                }
+            }, m_config.commitinterval, m_config.commitinterval, TimeUnit.SECONDS);
             if (m_config.useSuppliedProcedure) {
                 m_log.info("Kafka Consumer from topic: " + m_config.topic + " Started using procedure: " + m_config.procedure);
             } else {
@@ -152,6 +219,18 @@ public class KafkaLoader {
         @Option(shortOpt = "f", desc = "Periodic Flush Interval in seconds. (default: 10)")
         int flush = 10;
 
+        @Option(desc = "number of consumer threads (default: one per partition of the topic)")
+        int consumers = 0;
+
+        @Option(desc = "format of the messages: csv, json or avro (default: csv)")
+        String format = "csv";
+
+        @Option(desc = "avro schema file of the messages, for the avro format")
+        String avroschema = "";
+
+        @Option(desc = "interval in seconds at which offsets of the loaded messages are committed (default: 60)")
+        int commitinterval = 60;
+
         /**
          * Batch size for processing batched operations.
          */
@@ -175,6 +254,19 @@ public class KafkaLoader {
             if (flush <= 0) {
                 exitWithMessageAndUsage("Periodic Flush Interval must be > 0");
             }
+            if (consumers < 0) {
+                exitWithMessageAndUsage("consumers must be >= 0");
+            }
+            if (commitinterval <= 0) {
+                exitWithMessageAndUsage("commit interval must be > 0");
+            }
+            format = format.toLowerCase();
+            if (!format.equals("csv") && !format.equals("json") && !format.equals("avro")) {
+                exitWithMessageAndUsage("format must be csv, json or avro");
+            }
+            if (format.equals("avro") && avroschema.trim().isEmpty()) {
+                exitWithMessageAndUsage("avro schema file required for the avro format");
+            }
             if (topic.length() <= 0) {
                 exitWithMessageAndUsage("Topic must be specified.");
             }
@@ -218,7 +310,20 @@ public class KafkaLoader {
 
         @Override
         public boolean handleError(RowWithMetaData metaData, ClientResponse response, String error) {
-            if (response != null) {
+            if (response == null && error != null) {
+                // A row that could not be decoded or sent
+                m_log.error("Failed to Insert Row: " + metaData.rawLine + ": " + error);
+                long fc = m_failedCount.incrementAndGet();
+                if (m_config.maxerrors > 0 && fc > m_config.maxerrors) {
+                    try {
+                        m_log.error("Kafkaloader will exit.");
+                        closeConsumer();
+                        return true;
+                    } catch (InterruptedException ex) {
+                    }
+                }
+            }
+            else if (response != null) {
                 byte status = response.getStatus();
                 if (status != ClientResponse.SUCCESS) {
                     m_log.error("Failed to Insert Row: " + metaData.rawLine);
@@ -258,8 +363,8 @@ public class KafkaLoader {
             props.put("group.id", groupId);
             props.put("zookeeper.session.timeout.ms", "400");
             props.put("zookeeper.sync.time.ms", "200");
-            props.put("auto.commit.interval.ms", "1000");
-            props.put("auto.commit.enable", "true");
+            // Offsets are committed once the rows are loaded
+            props.put("auto.commit.enable", "false");
             props.put("auto.offset.reset", "smallest");
             props.put("rebalance.backoff.ms", "10000");
 
@@ -269,14 +374,250 @@ public class KafkaLoader {
         }
 
         public void stop() {
+            m_consumer.shutdown();
+        }
+    }
+
+    private void stopCommitter() throws InterruptedException {
+        if (m_committer != null) {
+            m_committer.shutdown();
+            m_committer.awaitTermination(365, TimeUnit.DAYS);
+            m_committer = null;
+        }
+    }
+
+    /**
+     * Commit the offsets of the messages read so far, once their rows are acknowledged.
+     * Consumers wait while the loader drains, so the commit covers loaded rows only.
+     */
+    private void commitLoadedOffsets() throws Exception {
+        final KafkaConsumerConnector consumer = m_consumer;
+        if (consumer == null) {
+            return;
+        }
+        m_commitLock.writeLock().lock();
+        try {
+            m_loader.drain();
+            consumer.m_consumer.commitOffsets();
+        } finally {
+            m_commitLock.writeLock().unlock();
+        }
+        long now = System.currentTimeMillis();
+        if (now - m_lastLagReport >= LAG_REPORT_INTERVAL_MS) {
+            m_lastLagReport = now;
+            Map<Integer, Long> lag = getConsumerLag(m_config.topic);
+            long total = 0;
+            long max = 0;
+            for (long partitionLag : lag.values()) {
+                total += partitionLag;
+                max = Math.max(max, partitionLag);
+            }
+            m_log.info("Kafka topic " + m_config.topic + " loaded " + m_loader.getProcessedRows() +
+                    " rows, lag " + total + " messages over " + lag.size() + " partitions, at most " +
+                    max + " in one partition");
+        }
+    }
+
+    /**
+     * Messages left to read in each partition of the topic, from the lag the consumer
+     * fetchers report.
+     */
+    public static Map<Integer, Long> getConsumerLag(String topic) {
+        final String suffix = "-ConsumerLag";
+        Map<Integer, Long> lag = new TreeMap<Integer, Long>();
+        for (Map.Entry<MetricName, Metric> e : Metrics.defaultRegistry().allMetrics().entrySet()) {
+            // Named clientId-broker-topic-partition-ConsumerLag
+            String name = e.getKey().getName();
+            if (!name.endsWith(suffix) || !(e.getValue() instanceof Gauge)) {
+                continue;
+            }
+            String prefix = name.substring(0, name.length() - suffix.length());
+            int dash = prefix.lastIndexOf('-');
+            if (dash < 0 || !prefix.substring(0, dash).endsWith("-" + topic)) {
+                continue;
+            }
+            try {
+                int partition = Integer.parseInt(prefix.substring(dash + 1));
+                Object value = ((Gauge<?>) e.getValue()).value();
+                if (value instanceof Number) {
+                    Long current = lag.get(partition);
+                    lag.put(partition, Math.max(current == null ? 0 : current, ((Number) value).longValue()));
+                }
+            } catch (NumberFormatException ignore) {}
+        }
+        return lag;
+    }
+
+    /**
+     * Turns a message into rows for the loader. Not thread safe, each consumer has its own.
+     */
+    static abstract class MessageDecoder {
+        abstract void insertRows(byte[] message, long offset, CSVDataLoader loader,
+                BulkLoaderErrorHandler errHandler) throws InterruptedException;
+    }
+
+    /**
+     * One csv row per message. Quoted values may hold line breaks, so the message is
+     * parsed whole rather than line by line.
+     */
+    static class CSVMessageDecoder extends MessageDecoder {
+        private final CSVParser m_csvParser = new CSVParser();
+
+        @Override
+        void insertRows(byte[] message, long offset, CSVDataLoader loader,
+                BulkLoaderErrorHandler errHandler) throws InterruptedException {
+            String smsg = new String(message, Charset.defaultCharset());
+            RowWithMetaData metaData = new RowWithMetaData(smsg, offset);
+            String[] values;
             try {
-                //Let offset get pushed to zk....so sleep for auto.commit.interval.ms
-                Thread.sleep(1100);
-            } catch (InterruptedException ex) { }
-            finally {
-                m_consumer.commitOffsets();
-                m_consumer.shutdown();
+                values = m_csvParser.parseLine(smsg);
+            } catch (Exception ex) {
+                errHandler.handleError(metaData, null, ex.toString());
+                return;
             }
+            loader.insertRow(metaData, values);
+        }
+    }
+
+    /**
+     * A row is an array of the column values, or an object of the values by column
+     * name when loading a table. A message holds a row or an array of rows.
+     */
+    static class JSONMessageDecoder extends MessageDecoder {
+        private final List<String> m_columnNames;
+
+        JSONMessageDecoder(List<String> columnNames) {
+            m_columnNames = columnNames;
+        }
+
+        @Override
+        void insertRows(byte[] message, long offset, CSVDataLoader loader,
+                BulkLoaderErrorHandler errHandler) throws InterruptedException {
+            String smsg = new String(message, Charset.forName("UTF-8")).trim();
+            List<Object> rows = new ArrayList<Object>();
+            try {
+                if (smsg.startsWith("[")) {
+                    JSONArray array = new JSONArray(smsg);
+                    if (array.length() > 0 && (array.get(0) instanceof JSONArray || array.get(0) instanceof JSONObject)) {
+                        for (int i = 0; i < array.length(); i++) {
+                            rows.add(array.get(i));
+                        }
+                    } else {
+                        rows.add(array);
+                    }
+                } else {
+                    rows.add(new JSONObject(smsg));
+                }
+            } catch (Exception ex) {
+                errHandler.handleError(new RowWithMetaData(smsg, offset), null, ex.toString());
+                return;
+            }
+            for (Object row : rows) {
+                RowWithMetaData metaData = new RowWithMetaData(row, offset);
+                Object[] values;
+                try {
+                    values = toValues(row);
+                } catch (Exception ex) {
+                    errHandler.handleError(metaData, null, ex.toString());
+                    continue;
+                }
+                loader.insertRow(metaData, values);
+            }
+        }
+
+        private Object[] toValues(Object row) throws Exception {
+            if (row instanceof JSONArray) {
+                JSONArray array = (JSONArray) row;
+                Object[] values = new Object[array.length()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = toValue(array.get(i));
+                }
+                return values;
+            }
+            if (!(row instanceof JSONObject)) {
+                throw new IllegalArgumentException("Row is not a json array or object");
+            }
+            if (m_columnNames == null) {
+                throw new IllegalArgumentException("Rows of a procedure must be json arrays");
+            }
+            JSONObject object = (JSONObject) row;
+            Map<String, Object> byName = new HashMap<String, Object>();
+            Iterator<?> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                byName.put(key.toUpperCase(), object.get(key));
+            }
+            Object[] values = new Object[m_columnNames.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = toValue(byName.get(m_columnNames.get(i)));
+            }
+            return values;
+        }
+
+        private static Object toValue(Object value) {
+            if (value == null || value == JSONObject.NULL) {
+                return null;
+            }
+            if (value instanceof JSONArray || value instanceof JSONObject) {
+                return value.toString();
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Binary encoded avro records, whose fields are the column values in order.
+     * A message holds one record or several back to back.
+     */
+    static class AvroMessageDecoder extends MessageDecoder {
+        private final GenericDatumReader<GenericRecord> m_reader;
+        private BinaryDecoder m_decoder = null;
+
+        AvroMessageDecoder(Schema schema) {
+            m_reader = new GenericDatumReader<GenericRecord>(schema);
+        }
+
+        @Override
+        void insertRows(byte[] message, long offset, CSVDataLoader loader,
+                BulkLoaderErrorHandler errHandler) throws InterruptedException {
+            m_decoder = DecoderFactory.get().binaryDecoder(message, m_decoder);
+            int index = 0;
+            try {
+                while (!m_decoder.isEnd()) {
+                    GenericRecord record = m_reader.read(null, m_decoder);
+                    index++;
+                    Object[] values = new Object[record.getSchema().getFields().size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = toValue(record.get(i));
+                    }
+                    loader.insertRow(new RowWithMetaData(record, offset), values);
+                }
+            } catch (InterruptedException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                // The rest of the message can not be found once a record is unreadable
+                errHandler.handleError(new RowWithMetaData("avro record " + (index + 1) + " of the message", offset),
+                        null, ex.toString());
+            }
+        }
+
+        private static Object toValue(Object value) {
+            if (value instanceof Utf8 || value instanceof GenericData.EnumSymbol) {
+                return value.toString();
+            }
+            if (value instanceof ByteBuffer) {
+                ByteBuffer buf = ((ByteBuffer) value).duplicate();
+                byte[] bytes = new byte[buf.remaining()];
+                buf.get(bytes);
+                return bytes;
+            }
+            if (value instanceof GenericFixed) {
+                return ((GenericFixed) value).bytes();
+            }
+            if (value instanceof GenericRecord) {
+                return value.toString();
+            }
+            return value;
         }
     }
 
@@ -284,52 +625,122 @@ public class KafkaLoader {
 
         private final KafkaStream m_stream;
         private final CSVDataLoader m_loader;
-        private final CSVParser m_csvParser;
+        private final MessageDecoder m_decoder;
+        private final BulkLoaderErrorHandler m_errHandler;
+        private final ReadWriteLock m_commitLock;
 
-        public KafkaConsumer(KafkaStream a_stream, CSVDataLoader loader) {
+        KafkaConsumer(KafkaStream a_stream, CSVDataLoader loader, MessageDecoder decoder,
+                BulkLoaderErrorHandler errHandler, ReadWriteLock commitLock) {
             m_stream = a_stream;
             m_loader = loader;
-            m_csvParser = new CSVParser();
+            m_decoder = decoder;
+            m_errHandler = errHandler;
+            m_commitLock = commitLock;
         }
 
         @Override
         public void run() {
             ConsumerIterator<byte[], byte[]> it = m_stream.iterator();
             while (it.hasNext()) {
-                MessageAndMetadata<byte[], byte[]> md = it.next();
-                byte msg[] = md.message();
-                long offset = md.offset();
-                String smsg = new String(msg);
+                // The offset to commit moves on with next(), so the rows of the message
+                // have to be with the loader before a commit can go ahead
+                m_commitLock.readLock().lock();
                 try {
-                    m_loader.insertRow(new RowWithMetaData(smsg, offset), m_csvParser.parseLine(smsg));
+                    MessageAndMetadata<byte[], byte[]> md = it.next();
+                    m_decoder.insertRows(md.message(), md.offset(), m_loader, m_errHandler);
                 } catch (Exception ex) {
                     m_log.error("Consumer stopped", ex);
                     System.exit(1);
+                } finally {
+                    m_commitLock.readLock().unlock();
                 }
             }
         }
 
     }
 
+    private MessageDecoder getDecoder(Schema avroSchema) {
+        if (m_config.format.equals("json")) {
+            return new JSONMessageDecoder(m_columnNames);
+        } else if (m_config.format.equals("avro")) {
+            return new AvroMessageDecoder(avroSchema);
+        }
+        return new CSVMessageDecoder();
+    }
+
     private ExecutorService getConsumerExecutor(KafkaConsumerConnector consumer,
             CSVDataLoader loader) throws Exception {
 
+        int consumers = m_config.consumers;
+        if (consumers == 0) {
+            consumers = getPartitionCount(m_config.zookeeper, m_config.topic);
+        }
+        Schema avroSchema = null;
+        if (m_config.format.equals("avro")) {
+            avroSchema = new Schema.Parser().parse(new File(m_config.avroschema));
+        }
         Map<String, Integer> topicCountMap = new HashMap<>();
-        //Get this from config or arg. Use 3 threads default.
-        ExecutorService executor = Executors.newFixedThreadPool(3);
-        topicCountMap.put(m_config.topic, 3);
+        ExecutorService executor = Executors.newFixedThreadPool(consumers, CoreUtils.getThreadFactory("KafkaConsumer"));
+        topicCountMap.put(m_config.topic, consumers);
         Map<String, List<KafkaStream<byte[], byte[]>>> consumerMap = consumer.m_consumer.createMessageStreams(topicCountMap);
         List<KafkaStream<byte[], byte[]>> streams = consumerMap.get(m_config.topic);
 
         // now launch all the threads for partitions.
+        KafkaBulkLoaderCallback errHandler = new KafkaBulkLoaderCallback();
         for (final KafkaStream stream : streams) {
-            KafkaConsumer bconsumer = new KafkaConsumer(stream, loader);
+            KafkaConsumer bconsumer = new KafkaConsumer(stream, loader, getDecoder(avroSchema), errHandler, m_commitLock);
             executor.submit(bconsumer);
         }
+        m_log.info("Kafka topic " + m_config.topic + " is read by " + consumers + " consumers");
 
         return executor;
     }
 
+    /**
+     * Number of partitions of the topic, from the registry of the brokers in the Kafka
+     * zookeeper, so that each partition gets its own consumer stream.
+     */
+    static int getPartitionCount(String zookeeper, String topic) {
+        ZooKeeper zk = null;
+        try {
+            zk = ZKUtil.getClient(zookeeper, 10000, new HashSet<Long>());
+            if (zk != null) {
+                List<String> partitions = zk.getChildren("/brokers/topics/" + topic + "/partitions", false);
+                if (!partitions.isEmpty()) {
+                    return partitions.size();
+                }
+            }
+        } catch (Exception ex) {
+            m_log.warn("Failed to read the partitions of Kafka topic " + topic + ": " + ex);
+        } finally {
+            if (zk != null) {
+                try {
+                    zk.close();
+                } catch (InterruptedException ignore) {}
+            }
+        }
+        m_log.warn("Using " + DEFAULT_CONSUMERS + " consumers for Kafka topic " + topic);
+        return DEFAULT_CONSUMERS;
+    }
+
+    /**
+     * Column names of the table in order, upper case.
+     */
+    static List<String> getColumnNames(Client client, String table) throws Exception {
+        List<String> columns = new ArrayList<String>();
+        VoltTable info = client.callProcedure("@SystemCatalog", "COLUMNS").getResults()[0];
+        while (info.advanceRow()) {
+            if (info.getString("TABLE_NAME").equalsIgnoreCase(table)) {
+                int position = (int) info.getLong("ORDINAL_POSITION");
+                while (columns.size() < position) {
+                    columns.add(null);
+                }
+                columns.set(position - 1, info.getString("COLUMN_NAME").toUpperCase());
+            }
+        }
+        return columns;
+    }
+
     /**
      * Get connection to servers in cluster.
      *
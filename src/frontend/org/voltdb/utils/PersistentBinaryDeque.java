@@ -57,7 +57,8 @@ public class PersistentBinaryDeque implements BinaryDeque {
     public static class UnsafeOutputContainerFactory implements OutputContainerFactory {
         @Override
         public BBContainer getContainer(int minimumSize) {
-              final BBContainer origin = DBBPool.allocateUnsafeByteBuffer(minimumSize);
+              // only export polls with unsafe containers
+              final BBContainer origin = DBBPool.allocateUnsafeByteBuffer(minimumSize, DBBPool.MemoryUse.EXPORT);
               final BBContainer retcont = new BBContainer(origin.b()) {
                   private boolean discarded = false;
 
@@ -134,6 +134,9 @@ public class Expression {
         aggregateFunctionSet.add(OpTypes.STDDEV_SAMP);
         aggregateFunctionSet.add(OpTypes.VAR_POP);
         aggregateFunctionSet.add(OpTypes.VAR_SAMP);
+        // A VoltDB extension to support the approx_count_distinct aggregate
+        aggregateFunctionSet.add(OpTypes.APPROX_COUNT_DISTINCT);
+        // End of VoltDB extension
     }
 
     static final OrderedIntHashSet columnExpressionSet =
@@ -166,6 +169,9 @@ public class Expression {
         subqueryAggregateExpressionSet.add(OpTypes.STDDEV_SAMP);
         subqueryAggregateExpressionSet.add(OpTypes.VAR_POP);
         subqueryAggregateExpressionSet.add(OpTypes.VAR_SAMP);
+        // A VoltDB extension to support the approx_count_distinct aggregate
+        subqueryAggregateExpressionSet.add(OpTypes.APPROX_COUNT_DISTINCT);
+        // End of VoltDB extension
 
         //
         subqueryAggregateExpressionSet.add(OpTypes.TABLE_SUBQUERY);
@@ -558,6 +564,9 @@ public class Expression {
             case OpTypes.STDDEV_SAMP :
             case OpTypes.VAR_POP :
             case OpTypes.VAR_SAMP :
+            // A VoltDB extension to support the approx_count_distinct aggregate
+            case OpTypes.APPROX_COUNT_DISTINCT :
+            // End of VoltDB extension
                 return false;
         }
 
@@ -606,6 +615,9 @@ public class Expression {
             case OpTypes.STDDEV_SAMP :
             case OpTypes.VAR_POP :
             case OpTypes.VAR_SAMP :
+            // A VoltDB extension to support the approx_count_distinct aggregate
+            case OpTypes.APPROX_COUNT_DISTINCT :
+            // End of VoltDB extension
                 return false;
         }
 
@@ -1529,6 +1541,12 @@ public class Expression {
         prototypes.put(OpTypes.STDDEV_SAMP,   (new VoltXMLElement("aggregation")).withValue("optype", "stddevsamp"));
         prototypes.put(OpTypes.VAR_POP,       (new VoltXMLElement("aggregation")).withValue("optype", "varpop"));
         prototypes.put(OpTypes.VAR_SAMP,      (new VoltXMLElement("aggregation")).withValue("optype", "varsamp"));
+        // A VoltDB extension to support the approx_count_distinct aggregate
+        prototypes.put(OpTypes.APPROX_COUNT_DISTINCT, (new VoltXMLElement("aggregation")).withValue("optype", "approx_count_distinct"));
+        // End of VoltDB extension
+        // A VoltDB extension to support window functions
+        prototypes.put(OpTypes.WINDOWED,      new VoltXMLElement("windowfunction"));
+        // End of VoltDB extension
         // other operations
         prototypes.put(OpTypes.CAST,          (new VoltXMLElement("operation")).withValue("optype", "cast"));
         prototypes.put(OpTypes.ZONE_MODIFIER, null); // ???
@@ -1724,6 +1742,9 @@ public class Expression {
             }
             return exp;
 
+        case OpTypes.WINDOWED:
+            return ((ExpressionWindowed)this).voltAnnotateWindowedXML(exp);
+
         case OpTypes.CAST:
             if (dataType == null) {
                 throw new org.hsqldb_voltpatches.HSQLInterface.HSQLParseException(
@@ -130,6 +130,13 @@ public class ExpressionAggregate extends Expression {
                 sb.append(left).append(')');
                 break;
 
+            // A VoltDB extension to support the approx_count_distinct aggregate
+            case OpTypes.APPROX_COUNT_DISTINCT :
+                sb.append(' ').append(Tokens.T_APPROX_COUNT_DISTINCT).append('(');
+                sb.append(left).append(')');
+                break;
+            // End of VoltDB extension
+
             default :
                 throw Error.runtimeError(ErrorCode.U_S0500, "Expression");
         }
@@ -192,6 +199,12 @@ public class ExpressionAggregate extends Expression {
             case OpTypes.VAR_SAMP :
                 sb.append(Tokens.T_VAR_SAMP).append(' ');
                 break;
+
+            // A VoltDB extension to support the approx_count_distinct aggregate
+            case OpTypes.APPROX_COUNT_DISTINCT :
+                sb.append(Tokens.T_APPROX_COUNT_DISTINCT).append(' ');
+                break;
+            // End of VoltDB extension
         }
 
         if (nodes[LEFT] != null) {
@@ -272,8 +285,15 @@ public class ExpressionAggregate extends Expression {
     public Object getAggregatedValue(Session session, Object currValue) {
 
         if (currValue == null) {
+            /* disable 2 lines ...
             return opType == OpTypes.COUNT ? ValuePool.INTEGER_0
                                            : null;
+            ... disabled 2 lines */
+            // A VoltDB extension to support the approx_count_distinct aggregate
+            return (opType == OpTypes.COUNT ||
+                    opType == OpTypes.APPROX_COUNT_DISTINCT) ? ValuePool.INTEGER_0
+                                                             : null;
+            // End of VoltDB extension
         }
 
         return ((SetFunction) currValue).getValue();
@@ -0,0 +1,246 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.hsqldb_voltpatches;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hsqldb_voltpatches.lib.HsqlArrayList;
+import org.hsqldb_voltpatches.types.Type;
+
+/**
+ * A window function: RANK(), DENSE_RANK() or ROW_NUMBER(), or one of the
+ * aggregates COUNT, SUM, MIN and MAX, applied OVER a window of
+ * (PARTITION BY ... ORDER BY ...).
+ *
+ * The nodes are the aggregate argument (null for COUNT(*) and the ranking
+ * functions), then the PARTITION BY expressions, then the ORDER BY
+ * ExpressionOrderBy nodes, so that the usual column resolution applies to
+ * all of them. HSQL only parses these; VoltDB does the evaluation.
+ */
+public class ExpressionWindowed extends Expression {
+
+    // Tokens.RANK, Tokens.DENSE_RANK, Tokens.ROW_NUMBER or
+    // OpTypes.COUNT, OpTypes.SUM, OpTypes.MIN, OpTypes.MAX
+    private final int windowFunction;
+    private final boolean isAggregateFunction;
+    private final int partitionCount;
+
+    ExpressionWindowed(int function, boolean isAggregate,
+                       Expression argument, HsqlArrayList partitionBy,
+                       HsqlArrayList orderBy) {
+
+        super(OpTypes.WINDOWED);
+
+        windowFunction      = function;
+        isAggregateFunction = isAggregate;
+        partitionCount      = partitionBy.size();
+        nodes = new Expression[1 + partitionBy.size() + orderBy.size()];
+        nodes[LEFT] = argument;
+
+        int index = 1;
+
+        for (int i = 0; i < partitionBy.size(); i++) {
+            nodes[index++] = (Expression) partitionBy.get(i);
+        }
+
+        for (int i = 0; i < orderBy.size(); i++) {
+            nodes[index++] = (Expression) orderBy.get(i);
+        }
+    }
+
+    public void resolveTypes(Session session, Expression parent) {
+
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] != null) {
+                nodes[i].resolveTypes(session, this);
+
+                if (nodes[i].isParam) {
+                    throw Error.error(ErrorCode.X_42567);
+                }
+            }
+        }
+
+        if ( ! isAggregateFunction || windowFunction == OpTypes.COUNT) {
+            dataType = Type.SQL_BIGINT;
+        } else {
+            dataType = SetFunction.getType(windowFunction,
+                                           nodes[LEFT].dataType);
+        }
+    }
+
+    public Object getValue(Session session) {
+        throw Error.error(ErrorCode.X_0A000, Tokens.T_OVER);
+    }
+
+    public boolean equals(Expression other) {
+
+        if (other == this) {
+            return true;
+        }
+
+        if ( ! (other instanceof ExpressionWindowed)) {
+            return false;
+        }
+
+        ExpressionWindowed window = (ExpressionWindowed) other;
+
+        return windowFunction == window.windowFunction
+               && isAggregateFunction == window.isAggregateFunction
+               && partitionCount == window.partitionCount
+               && equals(nodes, other.nodes);
+    }
+
+    public String getSQL() {
+
+        StringBuffer sb = new StringBuffer(64);
+
+        sb.append(getFunctionName()).append('(');
+
+        if (isAggregateFunction) {
+            sb.append(nodes[LEFT] == null ? "*"
+                                          : nodes[LEFT].getSQL());
+        }
+
+        sb.append(") ").append(Tokens.T_OVER).append(" (");
+
+        if (partitionCount > 0) {
+            sb.append(Tokens.T_PARTITION).append(' ').append(Tokens.T_BY);
+
+            for (int i = 1; i <= partitionCount; i++) {
+                sb.append(i == 1 ? " "
+                                 : ", ");
+                sb.append(nodes[i].getSQL());
+            }
+        }
+
+        if (nodes.length > partitionCount + 1) {
+            if (partitionCount > 0) {
+                sb.append(' ');
+            }
+
+            sb.append(Tokens.T_ORDER).append(' ').append(Tokens.T_BY);
+
+            for (int i = partitionCount + 1; i < nodes.length; i++) {
+                ExpressionOrderBy order = (ExpressionOrderBy) nodes[i];
+
+                sb.append(i == partitionCount + 1 ? " "
+                                                  : ", ");
+                sb.append(order.getLeftNode().getSQL());
+
+                if (order.isDescending()) {
+                    sb.append(' ').append(Tokens.T_DESC);
+                }
+            }
+        }
+
+        sb.append(')');
+
+        return sb.toString();
+    }
+
+    protected String describe(Session session, int blanks) {
+
+        StringBuffer sb = new StringBuffer(64);
+
+        sb.append('\n');
+
+        for (int i = 0; i < blanks; i++) {
+            sb.append(' ');
+        }
+
+        sb.append(getFunctionName()).append(' ').append(Tokens.T_OVER);
+
+        if (nodes[LEFT] != null) {
+            sb.append(" arg1=[");
+            sb.append(nodes[LEFT].describe(session, blanks + 1));
+            sb.append(']');
+        }
+
+        return sb.toString();
+    }
+
+    private String getFunctionName() {
+
+        if ( ! isAggregateFunction) {
+            switch (windowFunction) {
+
+                case Tokens.RANK :
+                    return Tokens.T_RANK;
+
+                case Tokens.DENSE_RANK :
+                    return Tokens.T_DENSE_RANK;
+
+                case Tokens.ROW_NUMBER :
+                    return Tokens.T_ROW_NUMBER;
+            }
+        }
+
+        switch (windowFunction) {
+
+            case OpTypes.COUNT :
+                return Tokens.T_COUNT;
+
+            case OpTypes.SUM :
+                return Tokens.T_SUM;
+
+            case OpTypes.MIN :
+                return Tokens.T_MIN;
+
+            case OpTypes.MAX :
+                return Tokens.T_MAX;
+
+            default :
+                throw Error.runtimeError(ErrorCode.U_S0500,
+                                         "ExpressionWindowed");
+        }
+    }
+
+    /**
+     * Add the function name and group the PARTITION BY and ORDER BY children
+     * of the VoltXML, which are otherwise only told apart by position.
+     */
+    VoltXMLElement voltAnnotateWindowedXML(VoltXMLElement exp) {
+
+        exp.attributes.put("optype", getFunctionName().toLowerCase());
+
+        VoltXMLElement partitionBy = new VoltXMLElement("partitionbylist");
+        VoltXMLElement orderBy     = new VoltXMLElement("orderbylist");
+        int            first       = nodes[LEFT] == null ? 0
+                                                         : 1;
+        List<VoltXMLElement> children =
+            new ArrayList<VoltXMLElement>(exp.children);
+
+        exp.children.clear();
+
+        for (int i = 0; i < children.size(); i++) {
+            if (i < first) {
+                exp.children.add(children.get(i));
+            } else if (i < first + partitionCount) {
+                partitionBy.children.add(children.get(i));
+            } else {
+                orderBy.children.add(children.get(i));
+            }
+        }
+
+        exp.children.add(partitionBy);
+        exp.children.add(orderBy);
+
+        return exp;
+    }
+}
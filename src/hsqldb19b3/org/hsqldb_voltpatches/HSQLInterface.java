@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hsqldb_voltpatches.VoltXMLElement.VoltXMLDiff;
 import org.hsqldb_voltpatches.index.Index;
@@ -55,6 +56,7 @@ public class HSQLInterface {
     static public String AUTO_GEN_CONSTRAINT_PREFIX = AUTO_GEN_IDX_PREFIX + "CT_";
     static public String AUTO_GEN_PRIMARY_KEY_PREFIX = AUTO_GEN_IDX_PREFIX + "PK_";
     static public String AUTO_GEN_CONSTRAINT_WRAPPER_PREFIX = AUTO_GEN_PREFIX + "CONSTRAINT_IDX_";
+    static public String AUTO_GEN_MATVIEW_MINMAX_IDX_PREFIX = AUTO_GEN_PREFIX + "MATVIEW_MINMAX_";
 
     /**
      * The spacer to use for nested XML elements
@@ -98,7 +100,8 @@ public class HSQLInterface {
     Map<String, VoltXMLElement> lastSchema = new TreeMap<>();
     // empty schema for cloning and for null diffs
     final VoltXMLElement emptySchema = new VoltXMLElement(XML_SCHEMA_NAME);
-    static int instanceId = 0;
+    // instances may be loaded concurrently, each needs a database of its own
+    static final AtomicInteger instanceId = new AtomicInteger();
 
     private HSQLInterface(Session sessionProxy) {
         emptySchema.attributes.put("name", XML_SCHEMA_NAME);
@@ -121,8 +124,7 @@ public class HSQLInterface {
      */
     public static HSQLInterface loadHsqldb() {
         Session sessionProxy = null;
-        String name = "hsqldbinstance-" + String.valueOf(instanceId) + "-" + String.valueOf(System.currentTimeMillis());
-        instanceId++;
+        String name = "hsqldbinstance-" + String.valueOf(instanceId.getAndIncrement()) + "-" + String.valueOf(System.currentTimeMillis());
 
         HsqlProperties props = new HsqlProperties();
         try {
@@ -92,6 +92,8 @@ public interface OpTypes {
         STDDEV_SAMP          = 79,
         VAR_POP              = 80,
         VAR_SAMP             = 81,
+        APPROX_COUNT_DISTINCT = 82,   // For VoltDB
+        WINDOWED             = 83,    // For VoltDB
         CAST                 = 91,    // other operations
         ZONE_MODIFIER        = 92,
         CASEWHEN             = 93,
@@ -1152,6 +1152,12 @@ public class ParserDDL extends ParserRoutine {
             readThis(Tokens.ROWS);
         }
 
+        // A VoltDB extension to support TTL
+        if (token.tokenType == Tokens.USING) {
+            readTimeToLive(table);
+        }
+        // End of VoltDB extension
+
         Object[] args = new Object[] {
             table, tempConstraints, null
         };
@@ -5121,6 +5127,80 @@ public class ParserDDL extends ParserRoutine {
         }
     }
 
+    /**
+     * Responsible for handling the Volt TTL clause that may follow the column
+     * list of CREATE TABLE:
+     *
+     * USING TTL value [SECONDS | MINUTES | HOURS | DAYS] ON COLUMN column
+     *     [BATCH_SIZE rows] [MAX_FREQUENCY batches]
+     *
+     * The values are only checked for syntax here; VoltDB validates them.
+     *
+     * @param table the table being created
+     */
+    void readTimeToLive(Table table) {
+        readThis(Tokens.USING);
+        readThisWord("TTL");
+
+        table.ttlValue = readInteger();
+        table.ttlUnit  = "SECONDS";
+
+        if (token.tokenType != Tokens.ON) {
+            String unit = token.tokenString;
+
+            if (unit.endsWith("S")) {
+                unit = unit.substring(0, unit.length() - 1);
+            }
+
+            if (!unit.equals(Tokens.T_SECOND) && !unit.equals(Tokens.T_MINUTE)
+                    && !unit.equals(Tokens.T_HOUR)
+                    && !unit.equals(Tokens.T_DAY)) {
+                throw unexpectedToken();
+            }
+
+            table.ttlUnit = unit + "S";
+
+            read();
+        }
+
+        readThis(Tokens.ON);
+        readThis(Tokens.COLUMN);
+        checkIsSchemaObjectName();
+
+        if (table.findColumn(token.tokenString) < 0) {
+            throw Error.error(ErrorCode.X_42501, token.tokenString);
+        }
+
+        table.ttlColumnName = token.tokenString;
+
+        read();
+
+        if (readIfThisWord("BATCH_SIZE")) {
+            table.ttlBatchSize = readInteger();
+        }
+
+        if (readIfThisWord("MAX_FREQUENCY")) {
+            table.ttlMaxFrequency = readInteger();
+        }
+    }
+
+    /** Read a non-reserved word that has no token of its own */
+    private void readThisWord(String word) {
+        if (!readIfThisWord(word)) {
+            throw unexpectedTokenRequire(word);
+        }
+    }
+
+    private boolean readIfThisWord(String word) {
+        if (token.isDelimitedIdentifier || !word.equals(token.tokenString)) {
+            return false;
+        }
+
+        read();
+
+        return true;
+    }
+
     /// A VoltDB extension to the parsing behavior of the "readColumnList/readColumnNames" functions,
     /// adding support for indexed expressions.
     private java.util.List<Expression> XreadExpressions(java.util.List<Boolean> ascDesc) {
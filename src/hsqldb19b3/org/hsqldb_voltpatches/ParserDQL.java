@@ -1486,9 +1486,110 @@ public class ParserDQL extends ParserBase {
 
         readThis(Tokens.CLOSEBRACKET);
 
+        // A VoltDB extension to support window functions
+        if (token.tokenType == Tokens.OVER) {
+            return readWindowSpecification(tokenT, (ExpressionAggregate) e);
+        }
+        // End of VoltDB extension
         return e;
     }
 
+    // A VoltDB extension to support window functions
+    /**
+     * Read RANK(), DENSE_RANK() or ROW_NUMBER(), which must have an OVER clause.
+     */
+    private Expression readRankFunction() {
+
+        int tokenT = token.tokenType;
+
+        read();
+        readThis(Tokens.OPENBRACKET);
+        readThis(Tokens.CLOSEBRACKET);
+
+        if (token.tokenType != Tokens.OVER) {
+            throw unexpectedToken();
+        }
+
+        return readWindowSpecification(tokenT, null);
+    }
+
+    /**
+     * Read OVER ( [PARTITION BY ...] [ORDER BY ...] ) following a ranking
+     * function, or following the aggregate it turns into a running aggregate.
+     */
+    private Expression readWindowSpecification(int tokenT,
+            ExpressionAggregate aggregate) {
+
+        Expression argument = null;
+        int        function = tokenT;
+
+        if (aggregate != null) {
+            function = aggregate.opType;
+
+            switch (function) {
+
+                case OpTypes.COUNT :
+                case OpTypes.SUM :
+                case OpTypes.MIN :
+                case OpTypes.MAX :
+                    break;
+
+                default :
+                    throw unexpectedToken();
+            }
+
+            if (aggregate.isDistinctAggregate) {
+                throw Error.error(ErrorCode.X_42582, Tokens.T_DISTINCT);
+            }
+
+            argument = aggregate.getLeftNode();
+
+            if (argument.getType() == OpTypes.ASTERISK) {
+                argument = null;
+            }
+        }
+
+        readThis(Tokens.OVER);
+        readThis(Tokens.OPENBRACKET);
+
+        HsqlArrayList partitionBy = new HsqlArrayList();
+        HsqlArrayList orderBy     = new HsqlArrayList();
+
+        if (token.tokenType == Tokens.PARTITION) {
+            read();
+            readThis(Tokens.BY);
+
+            while (true) {
+                partitionBy.add(XreadValueExpression());
+
+                if (token.tokenType == Tokens.COMMA) {
+                    read();
+
+                    continue;
+                }
+
+                break;
+            }
+        }
+
+        if (token.tokenType == Tokens.ORDER) {
+            read();
+            readThis(Tokens.BY);
+
+            SortAndSlice sortAndSlice = XreadOrderBy();
+
+            for (int i = 0; i < sortAndSlice.exprList.size(); i++) {
+                orderBy.add(sortAndSlice.exprList.get(i));
+            }
+        }
+
+        readThis(Tokens.CLOSEBRACKET);
+
+        return new ExpressionWindowed(function, aggregate != null, argument,
+                                      partitionBy, orderBy);
+    }
+    // End of VoltDB extension
+
     private Expression readAggregateExpression(int tokenT) {
 
         int     type     = ParserDQL.getExpressionType(tokenT);
@@ -1532,6 +1633,21 @@ public class ParserDQL extends ParserBase {
                 }
                 break;
 
+            // A VoltDB extension to support the approx_count_distinct aggregate
+            case OpTypes.APPROX_COUNT_DISTINCT :
+                if (all || distinct) {
+                    throw Error.error(ErrorCode.X_42582, all ? Tokens.T_ALL
+                                                             : Tokens
+                                                             .T_DISTINCT);
+                }
+                if (e.getType() == OpTypes.ASTERISK) {
+                    throw unexpectedToken();
+                }
+                // HSQL counts the distinct values exactly.
+                distinct = true;
+                break;
+            // End of VoltDB extension
+
             default :
                 if (e.getType() == OpTypes.ASTERISK) {
                     throw unexpectedToken();
@@ -1879,6 +1995,31 @@ public class ParserDQL extends ParserBase {
             case Tokens.VAR_SAMP :
                 return readAggregate();
 
+            // A VoltDB extension to support window functions
+            case Tokens.RANK :
+            case Tokens.DENSE_RANK :
+            case Tokens.ROW_NUMBER :
+                return readRankFunction();
+            // End of VoltDB extension
+
+            // A VoltDB extension to support the approx_count_distinct aggregate
+            case Tokens.APPROX_COUNT_DISTINCT : {
+                // not a reserved word: only a function call when followed by "("
+                int aggregatePosition = getPosition();
+
+                read();
+
+                boolean isAggregate = token.tokenType == Tokens.OPENBRACKET;
+
+                rewind(aggregatePosition);
+
+                if (isAggregate) {
+                    return readAggregate();
+                }
+                break;
+            }
+            // End of VoltDB extension
+
             case Tokens.NEXT :
                 return readSequenceExpression();
 
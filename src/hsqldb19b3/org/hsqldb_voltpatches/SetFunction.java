@@ -120,6 +120,9 @@ public class SetFunction implements Serializable {
         switch (setType) {
 
             case OpTypes.COUNT :
+            // A VoltDB extension to support the approx_count_distinct aggregate
+            case OpTypes.APPROX_COUNT_DISTINCT :
+            // End of VoltDB extension
                 return;
 
             case OpTypes.AVG :
@@ -238,6 +241,12 @@ public class SetFunction implements Serializable {
 
     Object getValue() {
 
+        // A VoltDB extension to support the approx_count_distinct aggregate
+        // (counted exactly, as COUNT(DISTINCT ...), by HSQL)
+        if (setType == OpTypes.APPROX_COUNT_DISTINCT) {
+            return ValuePool.getInt(count);
+        }
+        // End of VoltDB extension
         if (setType == OpTypes.COUNT) {
             return ValuePool.getInt(count);
         }
@@ -370,6 +379,11 @@ public class SetFunction implements Serializable {
      */
     static Type getType(int setType, Type type) {
 
+        // A VoltDB extension to support the approx_count_distinct aggregate
+        if (setType == OpTypes.APPROX_COUNT_DISTINCT) {
+            return Type.SQL_INTEGER;
+        }
+        // End of VoltDB extension
         if (setType == OpTypes.COUNT) {
             return Type.SQL_INTEGER;
         }
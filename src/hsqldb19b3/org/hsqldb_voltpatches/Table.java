@@ -151,6 +151,14 @@ public class Table extends TableBase implements SchemaObject {
     protected int[] defaultColumnMap;          // fred - holding 0,1,2,3,...
     private boolean hasDefaultValues;          //fredt - shortcut for above
 
+    // A VoltDB extension to support TTL
+    int     ttlValue;                          // as written in USING TTL
+    String  ttlUnit;                           // SECONDS, MINUTES, HOURS or DAYS
+    String  ttlColumnName;                     // null when rows never expire
+    Integer ttlBatchSize;                      // null for the VoltDB default
+    Integer ttlMaxFrequency;                   // null for the VoltDB default
+    // End of VoltDB extension
+
     //
     public Table(Database database, HsqlName name, int type) {
 
@@ -997,6 +1005,14 @@ public class Table extends TableBase implements SchemaObject {
             tn.persistenceScope = persistenceScope;
         }
 
+        // A VoltDB extension to support TTL
+        tn.ttlValue        = ttlValue;
+        tn.ttlUnit         = ttlUnit;
+        tn.ttlColumnName   = ttlColumnName;
+        tn.ttlBatchSize    = ttlBatchSize;
+        tn.ttlMaxFrequency = ttlMaxFrequency;
+        // End of VoltDB extension
+
         for (int i = 0; i < getColumnCount(); i++) {
             ColumnSchema col = (ColumnSchema) columnList.get(i);
 
@@ -2744,6 +2760,23 @@ public class Table extends TableBase implements SchemaObject {
             constraints.children.add(constraintChild);
         }
 
+        if (ttlColumnName != null) {
+            VoltXMLElement ttl = new VoltXMLElement("ttl");
+            // Hacky, need a "name" for the diffing stuff to work correctly
+            // See VoltXMLElement.java for further explanation of TEH HORROR
+            ttl.attributes.put("name", "ttl");
+            ttl.attributes.put("value", Integer.toString(ttlValue));
+            ttl.attributes.put("unit", ttlUnit);
+            ttl.attributes.put("column", ttlColumnName);
+            if (ttlBatchSize != null) {
+                ttl.attributes.put("batchsize", ttlBatchSize.toString());
+            }
+            if (ttlMaxFrequency != null) {
+                ttl.attributes.put("maxfrequency", ttlMaxFrequency.toString());
+            }
+            table.children.add(ttl);
+        }
+
         return table;
     }
 
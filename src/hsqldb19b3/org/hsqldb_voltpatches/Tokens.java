@@ -627,6 +627,9 @@ public class Tokens {
     // other tokens
     static final String        T_ADD                 = "ADD";
     static final String        T_ALIAS               = "ALIAS";
+    // A VoltDB extension to support the approx_count_distinct aggregate
+    static final String        T_APPROX_COUNT_DISTINCT = "APPROX_COUNT_DISTINCT"; // For VoltDB
+    // End of VoltDB extension
     static final String        T_AUTOCOMMIT          = "AUTOCOMMIT";
     static final String        T_BACKUP              = "BACKUP";
     public static final String T_BIT                 = "BIT";
@@ -1359,6 +1362,9 @@ public class Tokens {
 
     // other token values used as switch cases
     static final int        ALIAS                 = 551;
+    // A VoltDB extension to support the approx_count_distinct aggregate
+    static final int        APPROX_COUNT_DISTINCT = 1003; // For VoltDB
+    // End of VoltDB extension
     static final int        AUTOCOMMIT            = 552;
     static final int        BIT                   = 553;
     static final int        BIT_LENGTH            = 554;
@@ -1950,6 +1956,9 @@ public class Tokens {
         commandSet.put(T_ACTION, ACTION);
         commandSet.put(T_AFTER, AFTER);
         commandSet.put(T_ALIAS, ALIAS);
+        // A VoltDB extension to support the approx_count_distinct aggregate
+        commandSet.put(T_APPROX_COUNT_DISTINCT, APPROX_COUNT_DISTINCT); // For VoltDB
+        // End of VoltDB extension
         commandSet.put(T_ALWAYS, ALWAYS);
         commandSet.put(T_ASC, ASC);
         commandSet.put(T_AUTOCOMMIT, AUTOCOMMIT);
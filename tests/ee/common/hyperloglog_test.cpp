@@ -0,0 +1,159 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "harness.h"
+#include "common/HyperLogLog.h"
+#include "common/NValue.hpp"
+#include "common/Pool.hpp"
+#include "common/SQLException.h"
+#include "common/ThreadLocalPool.h"
+#include "common/ValueFactory.hpp"
+
+#include <cmath>
+#include <sstream>
+
+using namespace voltdb;
+
+class HyperLogLogTest : public Test {
+public:
+    HyperLogLogTest() {}
+
+    // The estimate should be within 5% (about three standard errors) of the truth.
+    void checkEstimate(int64_t expected, int64_t actual)
+    {
+        double error = std::fabs(static_cast<double>(actual - expected));
+        EXPECT_TRUE(error <= 0.05 * expected + 1);
+    }
+
+private:
+    ThreadLocalPool m_pool;
+};
+
+TEST_F(HyperLogLogTest, EmptyAndSmall) {
+    HyperLogLog sketch;
+    EXPECT_EQ(0, sketch.estimate());
+    EXPECT_TRUE(sketch.add(ValueFactory::getBigIntValue(42)));
+    EXPECT_EQ(1, sketch.estimate());
+    // Adding the same value again changes nothing.
+    EXPECT_FALSE(sketch.add(ValueFactory::getBigIntValue(42)));
+    EXPECT_EQ(1, sketch.estimate());
+    sketch.clear();
+    EXPECT_EQ(0, sketch.estimate());
+}
+
+TEST_F(HyperLogLogTest, Accuracy) {
+    const int64_t counts[] = { 10, 100, 1000, 10000, 100000, 1000000 };
+    for (int i = 0; i < sizeof(counts) / sizeof(counts[0]); ++i) {
+        HyperLogLog sketch;
+        for (int64_t value = 0; value < counts[i]; ++value) {
+            sketch.add(ValueFactory::getBigIntValue(value * 7919));
+        }
+        checkEstimate(counts[i], sketch.estimate());
+    }
+}
+
+TEST_F(HyperLogLogTest, Duplicates) {
+    HyperLogLog once;
+    HyperLogLog many;
+    for (int64_t value = 0; value < 5000; ++value) {
+        once.add(ValueFactory::getBigIntValue(value));
+        for (int repeat = 0; repeat < 3; ++repeat) {
+            many.add(ValueFactory::getBigIntValue(value));
+        }
+    }
+    EXPECT_EQ(once.estimate(), many.estimate());
+}
+
+TEST_F(HyperLogLogTest, Merge) {
+    // Two overlapping halves merge into exactly the sketch of the whole.
+    HyperLogLog whole;
+    HyperLogLog first;
+    HyperLogLog second;
+    for (int64_t value = 0; value < 20000; ++value) {
+        NValue nvalue = ValueFactory::getBigIntValue(value);
+        whole.add(nvalue);
+        if (value < 12000) {
+            first.add(nvalue);
+        }
+        if (value >= 8000) {
+            second.add(nvalue);
+        }
+    }
+    HyperLogLog merged;
+    merged.merge(first);
+    merged.merge(second);
+    EXPECT_EQ(whole.estimate(), merged.estimate());
+    EXPECT_EQ(0, ::memcmp(whole.data(), merged.data(), HyperLogLog::SERIALIZED_SIZE));
+}
+
+TEST_F(HyperLogLogTest, SerializedMerge) {
+    Pool pool;
+    HyperLogLog partition;
+    for (int64_t value = 0; value < 3000; ++value) {
+        partition.add(ValueFactory::getBigIntValue(value));
+    }
+    NValue serialized = ValueFactory::getBinaryValue(
+            reinterpret_cast<const unsigned char*>(partition.data()),
+            HyperLogLog::SERIALIZED_SIZE, &pool);
+    HyperLogLog coordinator;
+    coordinator.merge(serialized);
+    EXPECT_EQ(partition.estimate(), coordinator.estimate());
+
+    // Anything but a sketch is rejected.
+    NValue bogus = ValueFactory::getBinaryValue(
+            reinterpret_cast<const unsigned char*>(partition.data()), 16, &pool);
+    bool thrown = false;
+    try {
+        coordinator.merge(bogus);
+    }
+    catch (const SQLException&) {
+        thrown = true;
+    }
+    EXPECT_TRUE(thrown);
+}
+
+TEST_F(HyperLogLogTest, EqualValuesHashEqually) {
+    EXPECT_EQ(HyperLogLog::hashValue(ValueFactory::getTinyIntValue(5)),
+              HyperLogLog::hashValue(ValueFactory::getBigIntValue(5)));
+    EXPECT_EQ(HyperLogLog::hashValue(ValueFactory::getDoubleValue(0.0)),
+              HyperLogLog::hashValue(ValueFactory::getDoubleValue(-0.0)));
+    EXPECT_TRUE(HyperLogLog::hashValue(ValueFactory::getBigIntValue(5)) !=
+                HyperLogLog::hashValue(ValueFactory::getBigIntValue(6)));
+
+    NValue hello = ValueFactory::getStringValue("hello");
+    NValue helloAgain = ValueFactory::getStringValue("hello");
+    NValue world = ValueFactory::getStringValue("world");
+    EXPECT_EQ(HyperLogLog::hashValue(hello), HyperLogLog::hashValue(helloAgain));
+    EXPECT_TRUE(HyperLogLog::hashValue(hello) != HyperLogLog::hashValue(world));
+    hello.free();
+    helloAgain.free();
+    world.free();
+
+    HyperLogLog sketch;
+    for (int i = 0; i < 2000; ++i) {
+        std::ostringstream value;
+        value << "device-" << i;
+        NValue device = ValueFactory::getStringValue(value.str());
+        sketch.add(device);
+        device.free();
+    }
+    checkEstimate(2000, sketch.estimate());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,250 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "harness.h"
+#include "common/common.h"
+#include "common/NValue.hpp"
+#include "common/TupleBatch.h"
+#include "common/ValueFactory.hpp"
+#include "common/tabletuple.h"
+#include "expressions/batchfilter.h"
+#include "expressions/expressions.h"
+#include "storage/temptable.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+
+#include <cmath>
+#include <limits>
+
+using namespace voltdb;
+
+#define TUPLES 3000
+
+/*
+ * Checks that BatchFilter selects exactly the tuples for which
+ * AbstractExpression::eval() is true, for typed and fallback conjuncts.
+ */
+class BatchFilterTest : public Test {
+public:
+    BatchFilterTest() : m_table(NULL)
+    {
+        std::vector<std::string> columnNames;
+        std::vector<ValueType> columnTypes;
+        std::vector<int32_t> columnLengths;
+        std::vector<bool> columnAllowNull;
+        addColumn("tiny", VALUE_TYPE_TINYINT, columnNames, columnTypes, columnLengths, columnAllowNull);
+        addColumn("small", VALUE_TYPE_SMALLINT, columnNames, columnTypes, columnLengths, columnAllowNull);
+        addColumn("int", VALUE_TYPE_INTEGER, columnNames, columnTypes, columnLengths, columnAllowNull);
+        addColumn("big", VALUE_TYPE_BIGINT, columnNames, columnTypes, columnLengths, columnAllowNull);
+        addColumn("dbl", VALUE_TYPE_DOUBLE, columnNames, columnTypes, columnLengths, columnAllowNull);
+        addColumn("dec", VALUE_TYPE_DECIMAL, columnNames, columnTypes, columnLengths, columnAllowNull);
+        TupleSchema* schema = TupleSchema::createTupleSchemaForTest(columnTypes, columnLengths, columnAllowNull);
+        m_table = TableFactory::getTempTable(1000, "batch_table", schema, columnNames, NULL);
+
+        for (int64_t i = 0; i < TUPLES; ++i) {
+            TableTuple& tuple = m_table->tempTuple();
+            // Every 11th row is all NULL.
+            if (i % 11 == 0) {
+                for (int col = 0; col < 6; ++col) {
+                    tuple.setNValue(col, NValue::getNullValue(columnTypes[col]));
+                }
+            }
+            else {
+                tuple.setNValue(0, ValueFactory::getTinyIntValue(static_cast<int8_t>(i % 100 - 50)));
+                tuple.setNValue(1, ValueFactory::getSmallIntValue(static_cast<int16_t>(i % 1000)));
+                tuple.setNValue(2, ValueFactory::getIntegerValue(static_cast<int32_t>(i * 7 % 501)));
+                tuple.setNValue(3, ValueFactory::getBigIntValue(i * 1000003));
+                double dbl = (i % 97 == 0) ? std::numeric_limits<double>::quiet_NaN() : (i % 13) * 0.5;
+                tuple.setNValue(4, ValueFactory::getDoubleValue(dbl));
+                tuple.setNValue(5, ValueFactory::getDecimalValueFromString("1.5"));
+            }
+            m_table->insertTuple(tuple);
+        }
+    }
+
+    ~BatchFilterTest()
+    {
+        delete m_table;
+    }
+
+    // Compare the batch filter against eval() over the whole table.
+    void checkFilter(AbstractExpression* predicate, int expectedTypedConjuncts)
+    {
+        BatchFilter filter(predicate);
+        filter.bind(m_table->schema());
+        EXPECT_EQ(expectedTypedConjuncts, filter.typedConjunctCount());
+
+        TableTuple tuple(m_table->schema());
+        TableTuple scratch(m_table->schema());
+        TableIterator iterator = m_table->iterator();
+        TupleBatch batch;
+        int expectedCount = 0;
+        int actualCount = 0;
+        bool more = true;
+        while (more) {
+            batch.reset();
+            std::vector<bool> expected;
+            while (batch.size() < TupleBatch::MAX_SIZE && (more = iterator.next(tuple))) {
+                batch.append(tuple);
+                expected.push_back(predicate->eval(&tuple, NULL).isTrue());
+            }
+            filter.apply(batch, scratch);
+
+            std::vector<bool> actual(expected.size(), false);
+            for (int i = 0; i < batch.selectedCount(); ++i) {
+                actual[batch.selection()[i]] = true;
+                // the selection keeps the original scan order
+                if (i > 0) {
+                    EXPECT_TRUE(batch.selection()[i - 1] < batch.selection()[i]);
+                }
+            }
+            for (int i = 0; i < expected.size(); ++i) {
+                EXPECT_EQ(expected[i], actual[i]);
+                expectedCount += expected[i] ? 1 : 0;
+                actualCount += actual[i] ? 1 : 0;
+            }
+        }
+        EXPECT_EQ(expectedCount, actualCount);
+        delete predicate;
+    }
+
+    static AbstractExpression* compare(ExpressionType type, AbstractExpression* left, AbstractExpression* right)
+    {
+        switch (type) {
+        case EXPRESSION_TYPE_COMPARE_EQUAL:
+            return new ComparisonExpression<CmpEq>(type, left, right);
+        case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+            return new ComparisonExpression<CmpNe>(type, left, right);
+        case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+            return new ComparisonExpression<CmpLt>(type, left, right);
+        case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+            return new ComparisonExpression<CmpGt>(type, left, right);
+        case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+            return new ComparisonExpression<CmpLte>(type, left, right);
+        case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+            return new ComparisonExpression<CmpGte>(type, left, right);
+        default:
+            return NULL;
+        }
+    }
+
+    static AbstractExpression* column(int index)
+    {
+        return new TupleValueExpression(0, index);
+    }
+
+    static AbstractExpression* constant(NValue value)
+    {
+        return new ConstantValueExpression(value);
+    }
+
+    static AbstractExpression* andOf(AbstractExpression* left, AbstractExpression* right)
+    {
+        return new ConjunctionExpression<ConjunctionAnd>(EXPRESSION_TYPE_CONJUNCTION_AND, left, right);
+    }
+
+private:
+    static void addColumn(const char* name, ValueType type,
+                          std::vector<std::string>& names,
+                          std::vector<ValueType>& types,
+                          std::vector<int32_t>& lengths,
+                          std::vector<bool>& allowNull)
+    {
+        names.push_back(name);
+        types.push_back(type);
+        lengths.push_back(NValue::getTupleStorageSize(type));
+        allowNull.push_back(true);
+    }
+
+protected:
+    TempTable* m_table;
+};
+
+static const ExpressionType comparisons[] = {
+    EXPRESSION_TYPE_COMPARE_EQUAL,
+    EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+    EXPRESSION_TYPE_COMPARE_LESSTHAN,
+    EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+    EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO,
+    EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO
+};
+
+TEST_F(BatchFilterTest, IntegerColumns) {
+    for (int op = 0; op < 6; ++op) {
+        checkFilter(compare(comparisons[op], column(0), constant(ValueFactory::getTinyIntValue(3))), 1);
+        checkFilter(compare(comparisons[op], column(1), constant(ValueFactory::getBigIntValue(500))), 1);
+        checkFilter(compare(comparisons[op], column(2), constant(ValueFactory::getIntegerValue(250))), 1);
+        checkFilter(compare(comparisons[op], column(3), constant(ValueFactory::getBigIntValue(1000003 * 1500))), 1);
+        // integer column against a double operand
+        checkFilter(compare(comparisons[op], column(2), constant(ValueFactory::getDoubleValue(250.5))), 1);
+    }
+}
+
+TEST_F(BatchFilterTest, DoubleColumn) {
+    for (int op = 0; op < 6; ++op) {
+        checkFilter(compare(comparisons[op], column(4), constant(ValueFactory::getDoubleValue(3.0))), 1);
+        checkFilter(compare(comparisons[op], column(4), constant(ValueFactory::getIntegerValue(4))), 1);
+        checkFilter(compare(comparisons[op], column(4),
+                            constant(ValueFactory::getDoubleValue(std::numeric_limits<double>::quiet_NaN()))), 1);
+    }
+}
+
+TEST_F(BatchFilterTest, ReversedOperands) {
+    for (int op = 0; op < 6; ++op) {
+        checkFilter(compare(comparisons[op], constant(ValueFactory::getIntegerValue(250)), column(2)), 1);
+    }
+}
+
+TEST_F(BatchFilterTest, NullOperand) {
+    checkFilter(compare(EXPRESSION_TYPE_COMPARE_NOTEQUAL, column(3),
+                        constant(NValue::getNullValue(VALUE_TYPE_BIGINT))), 1);
+}
+
+TEST_F(BatchFilterTest, Conjunctions) {
+    // int > 100 AND dbl < 4.0 AND small <> 17
+    checkFilter(andOf(compare(EXPRESSION_TYPE_COMPARE_GREATERTHAN, column(2), constant(ValueFactory::getIntegerValue(100))),
+                      andOf(compare(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(4), constant(ValueFactory::getDoubleValue(4.0))),
+                            compare(EXPRESSION_TYPE_COMPARE_NOTEQUAL, column(1), constant(ValueFactory::getIntegerValue(17))))),
+                3);
+    // A column to column comparison is evaluated per tuple.
+    checkFilter(andOf(compare(EXPRESSION_TYPE_COMPARE_GREATERTHAN, column(2), column(1)),
+                      compare(EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO, column(0), constant(ValueFactory::getIntegerValue(10)))),
+                1);
+    // A DECIMAL operand is evaluated per tuple.
+    checkFilter(andOf(compare(EXPRESSION_TYPE_COMPARE_EQUAL, column(5), constant(ValueFactory::getDecimalValueFromString("1.5"))),
+                      compare(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO, column(2), constant(ValueFactory::getDecimalValueFromString("99.5")))),
+                0);
+}
+
+TEST_F(BatchFilterTest, Parameters) {
+    NValue param = ValueFactory::getBigIntValue(10);
+    ParameterValueExpression* paramExpr = new ParameterValueExpression(0, &param);
+    AbstractExpression* predicate = compare(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(0), paramExpr);
+    BatchFilter filter(predicate);
+
+    // Rebinding picks up the new parameter value and type.
+    filter.bind(m_table->schema());
+    EXPECT_EQ(1, filter.typedConjunctCount());
+    param = ValueFactory::getDecimalValueFromString("10.0");
+    filter.bind(m_table->schema());
+    EXPECT_EQ(0, filter.typedConjunctCount());
+    delete predicate;
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
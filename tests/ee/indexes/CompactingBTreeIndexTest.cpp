@@ -0,0 +1,283 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "common/common.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/ThreadLocalPool.h"
+#include "common/tabletuple.h"
+#include "expressions/tuplevalueexpression.h"
+#include "indexes/tableindex.h"
+#include "indexes/tableindexfactory.h"
+#include <algorithm>
+#include <cstdio>
+#include <cstring>
+#include <string>
+#include <vector>
+
+using namespace std;
+using namespace voltdb;
+
+/*
+ * Drives the B+tree through the index classes. The index is on a VARCHAR
+ * expression, so its keys are GenericPersistentKeys that own a copy of the
+ * string, which the tree has to move around as its nodes split, merge and
+ * compact.
+ */
+class CompactingBTreeIndexTest : public Test {
+public:
+    static const int ROWS = 400;
+
+    CompactingBTreeIndexTest() : m_index(NULL) {
+        vector<ValueType> columnTypes;
+        vector<int32_t> columnLengths;
+        vector<bool> columnAllowNull(2, false);
+        columnTypes.push_back(VALUE_TYPE_BIGINT);
+        columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+        columnTypes.push_back(VALUE_TYPE_VARCHAR);
+        columnLengths.push_back(10);
+        m_schema = TupleSchema::createTupleSchemaForTest(columnTypes, columnLengths, columnAllowNull);
+
+        TableTuple tuple(m_schema);
+        m_data = new char[ROWS * tuple.tupleLength()];
+        memset(m_data, 0, ROWS * tuple.tupleLength());
+    }
+
+    ~CompactingBTreeIndexTest() {
+        delete m_index;
+        delete[] m_data;
+        TupleSchema::freeTupleSchema(m_schema);
+    }
+
+    void createIndex(bool unique, bool countable) {
+        vector<int32_t> columnIndices(1, 1);
+        // the index takes the expression over
+        TupleValueExpression *expression = new TupleValueExpression(0, 1);
+        expression->setValueType(VALUE_TYPE_VARCHAR);
+        vector<AbstractExpression*> expressions(1, expression);
+        TableIndexScheme scheme("btree_index", BTREE_INDEX, columnIndices, expressions,
+                                unique, countable, m_schema);
+        m_index = TableIndexFactory::getInstance(scheme);
+        ASSERT_TRUE(m_index->keyUsesNonInlinedMemory());
+    }
+
+    static string keyName(int key) {
+        char buffer[16];
+        snprintf(buffer, sizeof(buffer), "k%04d", key);
+        return string(buffer);
+    }
+
+    TableTuple row(int id) {
+        TableTuple tuple(m_schema);
+        tuple.move(m_data + id * tuple.tupleLength());
+        return tuple;
+    }
+
+    void setRow(int id, int key) {
+        TableTuple tuple = row(id);
+        tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+        NValue name = ValueFactory::getStringValue(keyName(key));
+        tuple.setNValue(1, name);
+        name.free();
+    }
+
+    // A search key on the named key
+    struct SearchKey {
+        SearchKey(const TableIndex *index, int key) :
+            m_tuple(index->getKeySchema()),
+            m_storage(new char[m_tuple.tupleLength()]),
+            m_name(ValueFactory::getStringValue(keyName(key)))
+        {
+            memset(m_storage, 0, m_tuple.tupleLength());
+            m_tuple.move(m_storage);
+            m_tuple.setNValue(0, m_name);
+        }
+
+        ~SearchKey() {
+            m_name.free();
+            delete[] m_storage;
+        }
+
+        TableTuple m_tuple;
+        char *m_storage;
+        NValue m_name;
+    };
+
+    int64_t idOf(const TableTuple &tuple) {
+        return ValuePeeker::peekAsBigInt(tuple.getNValue(0));
+    }
+
+    string nameOf(const TableTuple &tuple) {
+        return ValuePeeker::peekStringCopy_withoutNull(tuple.getNValue(1));
+    }
+
+    // Scan the whole index in key order, checking that it is sorted and its size
+    void verifyScan(int expectedSize) {
+        IndexCursor cursor(m_index->getTupleSchema());
+        m_index->moveToEnd(true, cursor);
+        TableTuple tuple;
+        string previous;
+        int count = 0;
+        while ( ! (tuple = m_index->nextValue(cursor)).isNullTuple()) {
+            string name = nameOf(tuple);
+            ASSERT_TRUE(previous <= name);
+            previous = name;
+            count++;
+        }
+        ASSERT_EQ(expectedSize, count);
+        ASSERT_EQ(expectedSize, static_cast<int>(m_index->getSize()));
+    }
+
+    ThreadLocalPool m_pool;
+    TupleSchema *m_schema;
+    char *m_data;
+    TableIndex *m_index;
+};
+
+TEST_F(CompactingBTreeIndexTest, UniqueWithRank) {
+    createIndex(true, true);
+    EXPECT_EQ(string("CompactingBTreeUniqueIndex"), m_index->getTypeName());
+
+    // insert in a shuffled order so that the leaves split all over
+    vector<int> order;
+    for (int ii = 0; ii < ROWS; ii++) {
+        order.push_back(ii);
+    }
+    srand(7);
+    random_shuffle(order.begin(), order.end());
+    for (int ii = 0; ii < ROWS; ii++) {
+        setRow(order[ii], order[ii]);
+        TableTuple tuple = row(order[ii]);
+        ASSERT_TRUE(m_index->addEntry(&tuple));
+    }
+    verifyScan(ROWS);
+
+    // a duplicate key is refused
+    TableTuple first = row(0);
+    ASSERT_FALSE(m_index->addEntry(&first));
+
+    IndexCursor cursor(m_index->getTupleSchema());
+    for (int ii = 0; ii < ROWS; ii += 37) {
+        SearchKey key(m_index, ii);
+        ASSERT_TRUE(m_index->moveToKey(&key.m_tuple, cursor));
+        TableTuple found = m_index->nextValueAtKey(cursor);
+        ASSERT_EQ(ii, idOf(found));
+        ASSERT_EQ(ii + 1, m_index->getCounterGET(&key.m_tuple, false, cursor));
+        ASSERT_EQ(ii + 1, m_index->getCounterLET(&key.m_tuple, false, cursor));
+    }
+
+    // delete every other row, the keys compact into the remaining nodes
+    for (int ii = 0; ii < ROWS; ii += 2) {
+        TableTuple tuple = row(ii);
+        ASSERT_TRUE(m_index->deleteEntry(&tuple));
+        ASSERT_FALSE(m_index->exists(&tuple));
+    }
+    verifyScan(ROWS / 2);
+    for (int ii = 1; ii < ROWS; ii += 2) {
+        SearchKey key(m_index, ii);
+        ASSERT_TRUE(m_index->moveToKey(&key.m_tuple, cursor));
+        ASSERT_EQ(ii, idOf(m_index->nextValueAtKey(cursor)));
+        // the odd keys before it are all that is left
+        ASSERT_EQ(ii / 2 + 1, m_index->getCounterGET(&key.m_tuple, false, cursor));
+    }
+    {
+        // a deleted key ranks as the key after it and before it
+        SearchKey key(m_index, 10);
+        ASSERT_FALSE(m_index->moveToKey(&key.m_tuple, cursor));
+        ASSERT_EQ(6, m_index->getCounterGET(&key.m_tuple, false, cursor));
+        ASSERT_EQ(5, m_index->getCounterLET(&key.m_tuple, false, cursor));
+    }
+
+    // a replacement under the same key points the entry to the new tuple
+    TableTuple from = row(1);
+    TableTuple to = row(0);
+    setRow(0, 1);
+    ASSERT_TRUE(m_index->replaceEntryNoKeyChange(to, from));
+    {
+        SearchKey key(m_index, 1);
+        ASSERT_TRUE(m_index->moveToKey(&key.m_tuple, cursor));
+        ASSERT_EQ(0, idOf(m_index->nextValueAtKey(cursor)));
+    }
+    verifyScan(ROWS / 2);
+}
+
+TEST_F(CompactingBTreeIndexTest, MultiMapWithRank) {
+    createIndex(false, true);
+    EXPECT_EQ(string("CompactingBTreeMultiMapIndex"), m_index->getTypeName());
+
+    // four rows per key
+    const int PER_KEY = 4;
+    const int KEYS = ROWS / PER_KEY;
+    for (int ii = ROWS - 1; ii >= 0; ii--) {
+        setRow(ii, ii % KEYS);
+        TableTuple tuple = row(ii);
+        ASSERT_TRUE(m_index->addEntry(&tuple));
+    }
+    verifyScan(ROWS);
+
+    IndexCursor cursor(m_index->getTupleSchema());
+    for (int key = 0; key < KEYS; key += 9) {
+        SearchKey search(m_index, key);
+        ASSERT_TRUE(m_index->moveToKey(&search.m_tuple, cursor));
+        int found = 0;
+        TableTuple tuple;
+        while ( ! (tuple = m_index->nextValueAtKey(cursor)).isNullTuple()) {
+            ASSERT_EQ(key, idOf(tuple) % KEYS);
+            found++;
+        }
+        ASSERT_EQ(PER_KEY, found);
+        ASSERT_EQ(key * PER_KEY + 1, m_index->getCounterGET(&search.m_tuple, false, cursor));
+        ASSERT_EQ(key * PER_KEY + PER_KEY, m_index->getCounterGET(&search.m_tuple, true, cursor));
+        ASSERT_EQ(key * PER_KEY + PER_KEY, m_index->getCounterLET(&search.m_tuple, true, cursor));
+    }
+
+    // delete all but one row of every other key
+    int remaining = ROWS;
+    for (int ii = 0; ii < ROWS; ii++) {
+        if ((ii % KEYS) % 2 == 0 && ii >= KEYS) {
+            TableTuple tuple = row(ii);
+            ASSERT_TRUE(m_index->deleteEntry(&tuple));
+            ASSERT_FALSE(m_index->exists(&tuple));
+            remaining--;
+        }
+    }
+    verifyScan(remaining);
+    for (int key = 0; key < KEYS; key++) {
+        SearchKey search(m_index, key);
+        ASSERT_TRUE(m_index->moveToKey(&search.m_tuple, cursor));
+        int found = 0;
+        while ( ! m_index->nextValueAtKey(cursor).isNullTuple()) {
+            found++;
+        }
+        ASSERT_EQ(key % 2 == 0 ? 1 : PER_KEY, found);
+        // every even key before it has one row left, every odd key four
+        int64_t before = (key + 1) / 2 + (key / 2) * PER_KEY;
+        ASSERT_EQ(before + 1, m_index->getCounterGET(&search.m_tuple, false, cursor));
+    }
+}
+
+int main()
+{
+    return TestSuite::globalInstance()->runAll();
+}
@@ -341,6 +341,41 @@ TEST_F(PersistentTableMemStatsTest, DeleteAndUndoTest) {
     //delete [] tuple.address();
 }
 
+TEST_F(PersistentTableMemStatsTest, SiteCountersTest) {
+    initTable();
+    const TableMemoryCounters *counters = ExecutorContext::getTableMemoryCounters();
+    ASSERT_TRUE(counters != NULL);
+    ASSERT_EQ(0, counters->tupleCount);
+    ASSERT_EQ(m_table->primaryKeyIndex()->getMemoryEstimate(), counters->indexMemory);
+
+    tableutil::addRandomTuples(m_table, 10);
+
+    TableTuple tuple(m_tableSchema);
+    tableutil::getRandomTuple(m_table, tuple);
+    m_engine->setUndoToken(INT64_MIN + 2);
+    // this next line is a testing hack until engine data is
+    // de-duplicated with executorcontext data
+    m_engine->updateExecutorContextUndoQuantumForTest();
+    m_table->deleteTuple(tuple, true);
+    m_engine->releaseUndoToken(INT64_MIN + 2);
+
+    ASSERT_EQ(9, counters->tupleCount);
+    ASSERT_EQ(m_table->activeTupleCount(), counters->tupleCount);
+    ASSERT_EQ(m_table->allocatedTupleMemory(), counters->tupleAllocatedMemory);
+    ASSERT_EQ(m_table->occupiedTupleMemory(), counters->tupleDataMemory);
+    ASSERT_EQ(m_table->nonInlinedMemorySize(), counters->stringMemory);
+    ASSERT_EQ(m_table->primaryKeyIndex()->getMemoryEstimate(), counters->indexMemory);
+
+    // what is left of a table goes with it
+    delete m_table;
+    m_table = NULL;
+    ASSERT_EQ(0, counters->tupleCount);
+    ASSERT_EQ(0, counters->tupleAllocatedMemory);
+    ASSERT_EQ(0, counters->tupleDataMemory);
+    ASSERT_EQ(0, counters->stringMemory);
+    ASSERT_EQ(0, counters->indexMemory);
+}
+
 int main() {
     return TestSuite::globalInstance()->runAll();
 }
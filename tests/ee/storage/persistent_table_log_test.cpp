@@ -351,6 +351,25 @@ TEST_F(PersistentTableLogTest, InsertDupsThenUndoWorksTest) {
     ASSERT_EQ(0, m_table->activeTupleCount());
 }
 
+TEST_F(PersistentTableLogTest, ChangeCountTest) {
+    initTable(false);
+    ASSERT_EQ(0, m_table->changeCount());
+    tableutil::addDuplicateRandomTuples(m_table, 10);
+    ASSERT_EQ(10, m_table->changeCount());
+
+    voltdb::TableTuple tuple(m_tableSchema);
+    tableutil::getRandomTuple(m_table, tuple);
+    m_engine->setUndoToken(INT64_MIN + 2);
+    m_engine->updateExecutorContextUndoQuantumForTest();
+    m_table->deleteTuple(tuple, true);
+    ASSERT_EQ(11, m_table->changeCount());
+
+    // Undo changes the table back, which counts as a change too
+    m_engine->undoUndoToken(INT64_MIN + 2);
+    ASSERT_EQ(10, m_table->activeTupleCount());
+    ASSERT_EQ(12, m_table->changeCount());
+}
+
 TEST_F(PersistentTableLogTest, FindBlockTest) {
     initTable();
     const int blockSize = m_table->getTableAllocationSize();
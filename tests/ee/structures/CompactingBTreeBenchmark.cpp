@@ -0,0 +1,131 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <vector>
+#include <algorithm>
+#include <cstdlib>
+#include <cstdio>
+#include <sys/time.h>
+#include "harness.h"
+#include "structures/CompactingMap.h"
+#include "structures/CompactingBTree.h"
+#include "common/FixUnusedAssertHack.h"
+
+/*
+ * Times CompactingBTree against CompactingMap on a million random int keys.
+ * It takes too long for the unit tests, so it is only built and run with
+ * EETESTSUITE=benchmarks.
+ */
+
+using namespace voltdb;
+using namespace std;
+
+class IntComparator {
+public:
+    inline int operator()(const int &lhs, const int &rhs) const {
+        if (lhs > rhs) return 1;
+        else if (lhs < rhs) return -1;
+        else return 0;
+    }
+};
+
+typedef NormalKeyValuePair<int, int> IntPair;
+typedef CompactingBTree<IntPair, IntComparator, true> RankedBTree;
+typedef CompactingMap<IntPair, IntComparator, true> RankedMap;
+
+static double now() {
+    timeval tp;
+    gettimeofday(&tp, NULL);
+    return static_cast<double>(tp.tv_sec) * 1000.0 + static_cast<double>(tp.tv_usec) / 1000.0;
+}
+
+class CompactingBTreeBenchmark : public Test {
+};
+
+TEST_F(CompactingBTreeBenchmark, InsertFindScanErase) {
+    const int ENTRIES = 1000000;
+
+    std::vector<int> keys;
+    for (int i = 0; i < ENTRIES; i++) {
+        keys.push_back(i);
+    }
+    srand(3);
+    std::random_shuffle(keys.begin(), keys.end());
+
+    RankedMap map(true, IntComparator());
+    RankedBTree volt(true, IntComparator());
+    double mapTimes[4];
+    double treeTimes[4];
+    int64_t mapSum = 0;
+    int64_t treeSum = 0;
+
+    double t = now();
+    for (int i = 0; i < ENTRIES; i++) {
+        map.insert(std::pair<int, int>(keys[i], i));
+    }
+    mapTimes[0] = now() - t; t = now();
+    for (int i = 0; i < ENTRIES; i++) {
+        mapSum += map.find(keys[i]).value();
+    }
+    mapTimes[1] = now() - t; t = now();
+    for (RankedMap::iterator iter = map.begin(); ! iter.isEnd(); iter.moveNext()) {
+        mapSum += iter.value();
+    }
+    mapTimes[2] = now() - t; t = now();
+    for (int i = 0; i < ENTRIES; i++) {
+        map.erase(keys[i]);
+    }
+    mapTimes[3] = now() - t;
+
+    t = now();
+    for (int i = 0; i < ENTRIES; i++) {
+        volt.insert(std::pair<int, int>(keys[i], i));
+    }
+    treeTimes[0] = now() - t; t = now();
+    for (int i = 0; i < ENTRIES; i++) {
+        treeSum += volt.find(keys[i]).value();
+    }
+    treeTimes[1] = now() - t; t = now();
+    for (RankedBTree::iterator iter = volt.begin(); ! iter.isEnd(); iter.moveNext()) {
+        treeSum += iter.value();
+    }
+    treeTimes[2] = now() - t; t = now();
+    for (int i = 0; i < ENTRIES; i++) {
+        volt.erase(keys[i]);
+    }
+    treeTimes[3] = now() - t;
+
+    ASSERT_EQ(mapSum, treeSum);
+    ASSERT_EQ(0, volt.size());
+
+    const char *phases[] = { "insert", "find", "scan", "erase" };
+    for (int i = 0; i < 4; i++) {
+        printf("%d entries, %-6s: CompactingMap %8.1f ms, CompactingBTree %8.1f ms\n",
+               ENTRIES, phases[i], mapTimes[i], treeTimes[i]);
+    }
+    fflush(stdout);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,258 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <iostream>
+#include <map>
+#include <cstdlib>
+#include <cstdio>
+#include "harness.h"
+#include "structures/CompactingMap.h"
+#include "structures/CompactingBTree.h"
+#include "common/FixUnusedAssertHack.h"
+
+using namespace voltdb;
+using namespace std;
+
+class IntComparator {
+public:
+    inline int operator()(const int &lhs, const int &rhs) const {
+        if (lhs > rhs) return 1;
+        else if (lhs < rhs) return -1;
+        else return 0;
+    }
+};
+
+typedef NormalKeyValuePair<int, int> IntPair;
+typedef CompactingBTree<IntPair, IntComparator, false> BTree;
+typedef CompactingBTree<IntPair, IntComparator, true> RankedBTree;
+typedef CompactingMap<IntPair, IntComparator, true> RankedMap;
+
+class CompactingBTreeTest : public Test {
+public:
+    CompactingBTreeTest() {
+    }
+
+    ~CompactingBTreeTest() {
+    }
+
+    /*
+     * Compare every entry, in both directions, with the STL container.
+     */
+    template<typename Tree>
+    void verifyContents(Tree &volt, std::multimap<int, int> &stl) {
+        ASSERT_TRUE(volt.verify());
+        ASSERT_TRUE(volt.verifyRank());
+        ASSERT_EQ(static_cast<int64_t>(stl.size()), volt.size());
+
+        typename Tree::iterator volti = volt.begin();
+        for (std::multimap<int, int>::iterator stli = stl.begin(); stli != stl.end(); ++stli) {
+            ASSERT_TRUE(!volti.isEnd());
+            ASSERT_EQ(stli->first, volti.key());
+            volti.moveNext();
+        }
+        ASSERT_TRUE(volti.isEnd());
+
+        volti = volt.rbegin();
+        for (std::multimap<int, int>::reverse_iterator stli = stl.rbegin(); stli != stl.rend(); ++stli) {
+            ASSERT_TRUE(!volti.isEnd());
+            ASSERT_EQ(stli->first, volti.key());
+            volti.movePrev();
+        }
+        ASSERT_TRUE(volti.isEnd());
+    }
+};
+
+TEST_F(CompactingBTreeTest, Trivial) {
+    BTree volt(true, IntComparator());
+    ASSERT_TRUE(volt.verify());
+    ASSERT_TRUE(volt.begin().isEnd());
+    ASSERT_TRUE(volt.rbegin().isEnd());
+    ASSERT_TRUE(volt.find(1).isEnd());
+    ASSERT_TRUE(volt.lowerBound(1).isEnd());
+    ASSERT_TRUE(!volt.erase(1));
+
+    ASSERT_TRUE(volt.insert(std::pair<int, int>(1, 10)));
+    ASSERT_TRUE(!volt.insert(std::pair<int, int>(1, 11)));
+    ASSERT_TRUE(volt.insert(std::pair<int, int>(2, 20)));
+    ASSERT_TRUE(volt.verify());
+    ASSERT_EQ(2, volt.size());
+
+    BTree::iterator iter = volt.find(1);
+    ASSERT_TRUE(!iter.isEnd());
+    ASSERT_EQ(10, iter.value());
+    iter.setValue(12);
+    ASSERT_EQ(12, volt.find(1).value());
+
+    ASSERT_TRUE(volt.erase(1));
+    ASSERT_TRUE(volt.find(1).isEnd());
+    ASSERT_TRUE(volt.erase(2));
+    ASSERT_EQ(0, volt.size());
+    ASSERT_TRUE(volt.begin().isEnd());
+    ASSERT_TRUE(volt.verify());
+}
+
+TEST_F(CompactingBTreeTest, RandomUnique) {
+    const int ITERATIONS = 100000;
+    const int BIGGEST_VAL = 5000;
+
+    std::multimap<int, int> stl;
+    RankedBTree volt(true, IntComparator());
+
+    srand(0);
+    for (int i = 0; i < ITERATIONS; i++) {
+        if ((i % 10000) == 0) {
+            verifyContents(volt, stl);
+        }
+
+        // Favor inserts in the first half and erases in the second, to
+        // grow the tree several levels deep and then shrink it back.
+        bool growing = i < ITERATIONS / 2;
+        bool insert = (rand() % 4) < (growing ? 3 : 1);
+        int val = rand() % BIGGEST_VAL;
+        bool exists = stl.find(val) != stl.end();
+        ASSERT_EQ(exists, ! volt.find(val).isEnd());
+        if (insert) {
+            ASSERT_EQ(! exists, volt.insert(std::pair<int, int>(val, val)));
+            if ( ! exists) {
+                stl.insert(std::pair<int, int>(val, val));
+            }
+        }
+        else {
+            ASSERT_EQ(exists, volt.erase(val));
+            stl.erase(val);
+        }
+    }
+    verifyContents(volt, stl);
+
+    // erase everything, through iterators
+    while (volt.size() > 0) {
+        RankedBTree::iterator iter = volt.findRank(volt.size() / 2 + 1);
+        ASSERT_TRUE(!iter.isEnd());
+        stl.erase(iter.key());
+        volt.erase(iter);
+        if ((volt.size() % 500) == 0) {
+            verifyContents(volt, stl);
+        }
+    }
+    verifyContents(volt, stl);
+}
+
+TEST_F(CompactingBTreeTest, RandomMulti) {
+    const int ITERATIONS = 50000;
+    const int BIGGEST_VAL = 300;
+
+    std::multimap<int, int> stl;
+    RankedBTree volt(false, IntComparator());
+    RankedMap map(false, IntComparator());
+
+    srand(1);
+    for (int i = 0; i < ITERATIONS; i++) {
+        if ((i % 5000) == 0) {
+            verifyContents(volt, stl);
+        }
+
+        bool growing = i < ITERATIONS / 2;
+        int op = rand() % 8;
+        int val = rand() % BIGGEST_VAL;
+        if (op < (growing ? 3 : 1)) {
+            ASSERT_TRUE(volt.insert(std::pair<int, int>(val, i)));
+            ASSERT_TRUE(map.insert(std::pair<int, int>(val, i)));
+            stl.insert(std::pair<int, int>(val, i));
+        }
+        else if (op < 4) {
+            bool exists = stl.find(val) != stl.end();
+            ASSERT_EQ(exists, volt.erase(val));
+            ASSERT_EQ(exists, map.erase(val));
+            if (exists) {
+                stl.erase(stl.lower_bound(val));
+            }
+        }
+        else if (op == 4) {
+            // duplicates are found and erased first to last
+            RankedBTree::iterator iter = volt.find(val);
+            std::multimap<int, int>::iterator stli = stl.lower_bound(val);
+            if (stli != stl.end() && stli->first != val) {
+                stli = stl.end();
+            }
+            ASSERT_EQ(stli == stl.end(), iter.isEnd());
+            if ( ! iter.isEnd()) {
+                ASSERT_EQ(stli->second, iter.value());
+                volt.erase(iter);
+                map.erase(val);
+                stl.erase(stli);
+            }
+        }
+        else if (op == 5) {
+            RankedBTree::iterator lower = volt.lowerBound(val);
+            RankedBTree::iterator upper = volt.upperBound(val);
+            std::multimap<int, int>::iterator stlLower = stl.lower_bound(val);
+            std::multimap<int, int>::iterator stlUpper = stl.upper_bound(val);
+            ASSERT_EQ(stlLower == stl.end(), lower.isEnd());
+            ASSERT_EQ(stlUpper == stl.end(), upper.isEnd());
+            for (; stlLower != stlUpper; ++stlLower, lower.moveNext()) {
+                ASSERT_TRUE(!lower.isEnd());
+                ASSERT_EQ(stlLower->first, lower.key());
+                ASSERT_EQ(stlLower->second, lower.value());
+            }
+            ASSERT_TRUE(lower.equals(upper));
+        }
+        else {
+            // ranks agree with the red-black tree
+            ASSERT_EQ(map.rankAsc(val), volt.rankAsc(val));
+            ASSERT_EQ(map.rankUpper(val), volt.rankUpper(val));
+        }
+    }
+    verifyContents(volt, stl);
+}
+
+TEST_F(CompactingBTreeTest, Compaction) {
+    const int ENTRIES = 200000;
+
+    BTree volt(false, IntComparator());
+    for (int i = 0; i < ENTRIES; i++) {
+        volt.insert(std::pair<int, int>(i % 1000, i));
+    }
+    ASSERT_TRUE(volt.verify());
+    size_t full = volt.bytesAllocated();
+    ASSERT_TRUE(full > 0);
+
+    // Erasing from all over the tree leaves holes in the middle of the
+    // allocators, which must be filled so the memory can be returned.
+    srand(2);
+    for (int i = 0; i < ENTRIES * 9 / 10; i++) {
+        ASSERT_TRUE(volt.erase(rand() % 1000) || volt.erase(volt.begin().key()));
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_TRUE(volt.bytesAllocated() < full / 2);
+
+    while (volt.size() > 0) {
+        BTree::iterator iter = volt.rbegin();
+        volt.erase(iter);
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_EQ(0, volt.bytesAllocated());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -44,6 +44,30 @@ public class TestDBBPool extends TestCase {
         }
     }
 
+    @Test
+    public void testMemoryUseAccounting() {
+        EELibraryLoader.loadExecutionEngineLibrary(true);
+        final long direct = DBBPool.getDirectBytesAllocated(DBBPool.MemoryUse.SNAPSHOT);
+        final long nativeBytes = DBBPool.getNativeBytesAllocated(DBBPool.MemoryUse.EXPORT);
+        final long allocations = DBBPool.getAllocationCount(DBBPool.MemoryUse.SNAPSHOT);
+
+        BBContainer cont = DBBPool.allocateDirect(4096, DBBPool.MemoryUse.SNAPSHOT);
+        assertEquals(direct + 4096, DBBPool.getDirectBytesAllocated(DBBPool.MemoryUse.SNAPSHOT));
+        assertEquals(allocations + 1, DBBPool.getAllocationCount(DBBPool.MemoryUse.SNAPSHOT));
+        cont.discard();
+        assertEquals(direct, DBBPool.getDirectBytesAllocated(DBBPool.MemoryUse.SNAPSHOT));
+
+        // pooled buffers are held until the pool lets them go
+        cont = DBBPool.allocateDirectAndPool(8191, DBBPool.MemoryUse.SNAPSHOT);
+        cont.discard();
+        assertEquals(direct + 8191, DBBPool.getDirectBytesAllocated(DBBPool.MemoryUse.SNAPSHOT));
+
+        cont = DBBPool.allocateUnsafeByteBuffer(2048, DBBPool.MemoryUse.EXPORT);
+        assertEquals(nativeBytes + 2048, DBBPool.getNativeBytesAllocated(DBBPool.MemoryUse.EXPORT));
+        cont.discard();
+        assertEquals(nativeBytes, DBBPool.getNativeBytesAllocated(DBBPool.MemoryUse.EXPORT));
+    }
+
     @Test
     public void testChecksum() {
         EELibraryLoader.loadExecutionEngineLibrary(true);
@@ -0,0 +1,78 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPrometheusExporter {
+
+    private MockVoltDB m_mvoltdb;
+
+    @Before
+    public void setUp() throws Exception {
+        m_mvoltdb = new MockVoltDB();
+        VoltDB.replaceVoltDBInstanceForTest(m_mvoltdb);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        m_mvoltdb.shutdown(null);
+        VoltDB.replaceVoltDBInstanceForTest(null);
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        MockStatsSource.columns = Arrays.asList(
+                new VoltTable.ColumnInfo("TIMESTAMP", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("HOST_ID", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("PROCEDURE", VoltType.STRING),
+                new VoltTable.ColumnInfo("INVOCATIONS", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("AVG_EXECUTION_TIME", VoltType.FLOAT));
+        m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.PROCEDURE, 0,
+                new MockStatsSource(new Object[][] {
+                    { 100L, 0, "Insert", 10L, 1.5 },
+                    { 100L, 0, "a\"b\\c\nd", 20L, null }
+                }));
+
+        String metrics = new PrometheusExporter(m_mvoltdb.getStatsAgent()).getMetrics();
+        assertEquals(
+                "# TYPE voltdb_procedure_invocations untyped\n" +
+                "voltdb_procedure_invocations{host_id=\"0\",procedure=\"Insert\"} 10\n" +
+                "voltdb_procedure_invocations{host_id=\"0\",procedure=\"a\\\"b\\\\c\\nd\"} 20\n" +
+                "# TYPE voltdb_procedure_avg_execution_time untyped\n" +
+                "voltdb_procedure_avg_execution_time{host_id=\"0\",procedure=\"Insert\"} 1.5\n",
+                metrics);
+    }
+
+    @Test
+    public void testNothingRegistered() throws Exception {
+        assertTrue(new PrometheusExporter(m_mvoltdb.getStatsAgent()).getMetrics().isEmpty());
+    }
+}
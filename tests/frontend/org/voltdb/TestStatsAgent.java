@@ -26,18 +26,26 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.Test;
 
 import org.voltcore.network.*;
+import org.voltcore.utils.DBBPool.MemoryUse;
+import org.voltdb.catalog.Procedure;
 import org.voltdb.client.ClientResponse;
 
 public class TestStatsAgent {
@@ -174,6 +182,194 @@ public class TestStatsAgent {
         }
     }
 
+    @Test
+    public void testCollectProcedureLatencyStats() throws Exception {
+        Procedure fast = m_mvoltdb.addProcedureForTest("Fast");
+        Procedure slow = m_mvoltdb.addProcedureForTest("Slow");
+        for (int site = 0; site < 2; site++) {
+            ProcedureLatencyStatsCollector fastStats = new ProcedureLatencyStatsCollector(site, site, fast);
+            ProcedureLatencyStatsCollector slowStats = new ProcedureLatencyStatsCollector(site, site, slow);
+            for (int ii = 1; ii <= 100; ii++) {
+                fastStats.recordExecutionTime(TimeUnit.MICROSECONDS.toNanos(10));
+                slowStats.recordExecutionTime(TimeUnit.MICROSECONDS.toNanos(ii > 98 ? 5000 : 10));
+            }
+            m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.PROCEDURELATENCY, site, fastStats);
+            m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.PROCEDURELATENCY, site, slowStats);
+        }
+
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselect("PROCEDURELATENCY", 1));
+        ClientResponseImpl response = responses.take();
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        VoltTable results[] = response.getResults();
+        assertEquals(1, results.length);
+        System.out.println(results[0]);
+
+        // one row per procedure, merged across the sites, the slow tail first
+        assertEquals(2, results[0].getRowCount());
+        results[0].advanceRow();
+        assertEquals("Slow", results[0].getString("PROCEDURE"));
+        assertEquals(200, results[0].getLong("INVOCATIONS"));
+        assertEquals(10, results[0].getLong("P50"));
+        assertEquals(10, results[0].getLong("P95"));
+        assertTrue(results[0].getLong("P99") >= 4990);
+        assertTrue(results[0].getLong("MAX") >= 4990);
+        results[0].advanceRow();
+        assertEquals("Fast", results[0].getString("PROCEDURE"));
+        assertEquals(200, results[0].getLong("INVOCATIONS"));
+        assertEquals(10, results[0].getLong("MAX"));
+
+        // nothing was recorded since the last interval
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselect("PROCEDURELATENCY", 1));
+        response = responses.take();
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        assertEquals(0, response.getResults()[0].getRowCount());
+
+        // but everything was since the beginning
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselect("PROCEDURELATENCY", 0));
+        response = responses.take();
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        assertEquals(2, response.getResults()[0].getRowCount());
+    }
+
+    @Test
+    public void testProcedureLatencyStatsIntervals() throws Exception {
+        Procedure proc = m_mvoltdb.addProcedureForTest("Proc");
+        ProcedureLatencyStatsCollector stats = new ProcedureLatencyStatsCollector(0, 0, proc);
+        m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.PROCEDURELATENCY, 0, stats);
+        // an hour is tracked as the longest time, 10 seconds
+        stats.recordExecutionTime(TimeUnit.HOURS.toNanos(1));
+        stats.recordExecutionTime(TimeUnit.MICROSECONDS.toNanos(10));
+
+        VoltTable since = procedureLatency(0);
+        since.advanceRow();
+        assertEquals(2, since.getLong("INVOCATIONS"));
+        assertTrue(since.getLong("MAX") >= TimeUnit.SECONDS.toMicros(10) * 99 / 100);
+        assertTrue(since.getLong("MAX") <= TimeUnit.SECONDS.toMicros(10) * 101 / 100);
+
+        // the invocations recorded between polls count once in each interval
+        assertEquals(2, procedureLatency(1).fetchRow(0).getLong("INVOCATIONS"));
+        stats.recordExecutionTime(TimeUnit.MICROSECONDS.toNanos(20));
+        assertEquals(3, procedureLatency(0).fetchRow(0).getLong("INVOCATIONS"));
+        stats.recordExecutionTime(TimeUnit.MICROSECONDS.toNanos(30));
+        assertEquals(2, procedureLatency(1).fetchRow(0).getLong("INVOCATIONS"));
+        assertEquals(0, procedureLatency(1).getRowCount());
+        assertEquals(4, procedureLatency(0).fetchRow(0).getLong("INVOCATIONS"));
+
+        // nothing recorded while the intervals are polled is lost
+        final ProcedureLatencyStatsCollector concurrent = new ProcedureLatencyStatsCollector(1, 1, proc);
+        final int recorded = 100000;
+        Thread site = new Thread() {
+            @Override
+            public void run() {
+                for (int ii = 0; ii < recorded; ii++) {
+                    concurrent.recordExecutionTime(TimeUnit.MICROSECONDS.toNanos(ii % 1000));
+                }
+            }
+        };
+        site.start();
+        long polled = 0;
+        while (site.isAlive()) {
+            polled += intervalInvocations(concurrent);
+        }
+        site.join();
+        polled += intervalInvocations(concurrent);
+        assertEquals(recorded, polled);
+
+        // system procedures are not tracked
+        Procedure sysproc = m_mvoltdb.addProcedureForTest("@SystemProcedure");
+        sysproc.setSystemproc(true);
+        assertNull(new ProcedureStatsCollector(0, 0, sysproc).getLatencyStatsCollector());
+        assertNotNull(new ProcedureStatsCollector(0, 0, proc).getLatencyStatsCollector());
+    }
+
+    private static long intervalInvocations(ProcedureLatencyStatsCollector stats) {
+        Object rows[][] = stats.getStatsRows(true, 0L);
+        return rows.length == 0 ? 0 : (Long) rows[0][stats.columnNameToIndex.get("INVOCATIONS")];
+    }
+
+    private VoltTable procedureLatency(int interval) throws Exception {
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselect("PROCEDURELATENCY", interval));
+        ClientResponseImpl response = responses.take();
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        return response.getResults()[0];
+    }
+
+    @Test
+    public void testCollectGCAndOffHeapStats() throws Exception {
+        GCStats gcStats = new GCStats();
+        m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.GC, 0, gcStats);
+        m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.OFFHEAP, 0, new OffHeapStats());
+
+        // the notifications of the collections come asynchronously
+        long collections = 0;
+        for (int tries = 0; collections == 0 && tries < 100; tries++) {
+            System.gc();
+            Thread.sleep(50);
+            collections = 0;
+            for (Object[] row : gcStats.getStatsRows(false, System.currentTimeMillis())) {
+                collections += (Long) row[gcStats.columnNameToIndex.get("COLLECTIONS")];
+            }
+        }
+        assertTrue(collections > 0);
+
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselect("GC", 0));
+        ClientResponseImpl response = responses.take();
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        VoltTable results[] = response.getResults();
+        assertEquals(1, results.length);
+        assertTrue(results[0].getRowCount() > 0);
+
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                subselect("OFFHEAP", 0));
+        response = responses.take();
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        results = response.getResults();
+        assertEquals(1, results.length);
+
+        // a row per subsystem, then the hashinators and the JVM
+        Set<String> subsystems = new HashSet<String>();
+        while (results[0].advanceRow()) {
+            subsystems.add(results[0].getString("SUBSYSTEM"));
+            assertTrue(results[0].getLong("DIRECT_BYTES") >= 0);
+        }
+        for (MemoryUse use : MemoryUse.values()) {
+            assertTrue(subsystems.contains(use.name()));
+        }
+        assertTrue(subsystems.contains(OffHeapStats.HASHINATOR));
+        assertTrue(subsystems.contains(OffHeapStats.JVM));
+    }
+
+    @Test
+    public void testGCConcurrentCycles() throws Exception {
+        GCStats gcStats = new GCStats();
+        // a young collection pause, then a concurrent cycle that is not one
+        gcStats.collected("ParNew", 20, 1000, 100);
+        gcStats.collected("ConcurrentMarkSweep", 3000, 600, 200);
+        assertTrue(GCStats.isConcurrentCollector("ZGC Cycles"));
+        assertTrue(GCStats.isConcurrentCollector("G1 Concurrent GC"));
+        assertFalse(GCStats.isConcurrentCollector("G1 Young Generation"));
+        assertFalse(GCStats.isConcurrentCollector("ZGC Pauses"));
+
+        Map<String, Object[]> rows = new HashMap<String, Object[]>();
+        for (Object[] row : gcStats.getStatsRows(false, System.currentTimeMillis())) {
+            rows.put((String) row[gcStats.columnNameToIndex.get("COLLECTOR")], row);
+        }
+        Object[] young = rows.get("ParNew");
+        assertEquals(20L, young[gcStats.columnNameToIndex.get("PAUSE_TIME")]);
+        assertEquals(20L, young[gcStats.columnNameToIndex.get("PAUSE_MAX")]);
+        assertEquals(0L, young[gcStats.columnNameToIndex.get("CYCLE_TIME")]);
+        Object[] concurrent = rows.get("ConcurrentMarkSweep");
+        assertEquals(1L, concurrent[gcStats.columnNameToIndex.get("COLLECTIONS")]);
+        assertEquals(0L, concurrent[gcStats.columnNameToIndex.get("PAUSE_TIME")]);
+        assertEquals(0L, concurrent[gcStats.columnNameToIndex.get("PAUSE_MAX")]);
+        assertEquals(3000L, concurrent[gcStats.columnNameToIndex.get("CYCLE_TIME")]);
+    }
+
     @Test
     public void testCollectUnavailableStats() throws Exception {
         for (StatsSelector selector : StatsSelector.values()) {
@@ -0,0 +1,139 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.voltdb.VoltDB.Configuration;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.compiler.VoltProjectBuilder;
+import org.voltdb.types.TimestampType;
+import org.voltdb.utils.MiscUtils;
+
+public class TestTimeToLive extends TestCase {
+
+    static final String schema =
+            "create table EVENTS (" +
+            "ID integer not null, " +
+            "TS timestamp not null) " +
+            "using ttl 60 on column TS batch_size 3 max_frequency 10;" +
+            "create index EVENTS_TS on EVENTS (TS);";
+
+    private ServerThread m_server = null;
+    private Client m_client = null;
+
+    @Override
+    public void setUp() throws Exception {
+        String pathToCatalog = Configuration.getPathToCatalogForTest("ttl.jar");
+        String pathToDeployment = Configuration.getPathToCatalogForTest("ttl.xml");
+
+        VoltProjectBuilder builder = new VoltProjectBuilder();
+        builder.addLiteralSchema(schema);
+        builder.addPartitionInfo("EVENTS", "ID");
+        boolean success = builder.compile(pathToCatalog, 2, 1, 0);
+        assertTrue("Schema compilation failed", success);
+        MiscUtils.copyFile(builder.getPathToDeployment(), pathToDeployment);
+
+        VoltDB.Configuration config = new VoltDB.Configuration();
+        config.m_pathToCatalog = pathToCatalog;
+        config.m_pathToDeployment = pathToDeployment;
+        m_server = new ServerThread(config);
+        m_server.start();
+        m_server.waitForInitialization();
+
+        m_client = ClientFactory.createClient();
+        m_client.createConnection("localhost");
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (m_client != null) {
+            m_client.close();
+        }
+        if (m_server != null) {
+            m_server.shutdown();
+            m_server.join();
+        }
+    }
+
+    private void insert(int id, long ageSeconds, int count) throws Exception {
+        long micros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(ageSeconds));
+        for (int i = 0; i < count; i++) {
+            m_client.callProcedure("EVENTS.insert", id, new TimestampType(micros - i));
+        }
+    }
+
+    private long count(String where) throws Exception {
+        return m_client.callProcedure("@AdHoc", "select count(*) from EVENTS " + where + ";")
+                .getResults()[0].asScalarLong();
+    }
+
+    public void testExpireRows() throws Exception {
+        // five expired and two live rows in the partition of 0, none expired elsewhere
+        insert(0, 3600, 5);
+        insert(0, 0, 2);
+        insert(1, 0, 2);
+
+        TimestampType cutoff = new TimestampType(
+                TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(60)));
+        // a batch at a time, the last one short
+        long deleted = m_client.callProcedure("@ExpireRows", 0, "EVENTS", cutoff, 3)
+                .getResults()[0].asScalarLong();
+        assertTrue(deleted <= 5);
+        long total = deleted;
+        while (deleted >= 3) {
+            deleted = m_client.callProcedure("@ExpireRows", 0, "EVENTS", cutoff, 3)
+                    .getResults()[0].asScalarLong();
+            total += deleted;
+        }
+        // the TTLManager may have deleted some of them first
+        assertTrue(total <= 5);
+        assertEquals(2, count("where ID = 0"));
+        assertEquals(4, count(""));
+    }
+
+    public void testTTLManagerDeletesExpiredRows() throws Exception {
+        insert(0, 3600, 7);
+        insert(1, 3600, 7);
+        insert(2, 0, 4);
+
+        // the TTLManager scans every second and deletes 3 rows per batch
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60);
+        while (count("") > 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals(4, count(""));
+        assertEquals(4, count("where ID = 2"));
+
+        VoltTable stats = m_client.callProcedure("@Statistics", "TTL", 0).getResults()[0];
+        long rowsDeleted = 0;
+        while (stats.advanceRow()) {
+            rowsDeleted += stats.getLong("ROWS_DELETED");
+        }
+        assertEquals(14, rowsDeleted);
+    }
+}
@@ -0,0 +1,150 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.catalog;
+
+import java.io.File;
+
+import org.voltdb.LegacyHashinator;
+import org.voltdb.TheHashinator.HashinatorConfig;
+import org.voltdb.TheHashinator.HashinatorType;
+import org.voltdb.VoltDB;
+import org.voltdb.compiler.VoltProjectBuilder;
+import org.voltdb.jni.ExecutionEngine;
+import org.voltdb.jni.ExecutionEngineJNI;
+import org.voltdb.utils.BuildDirectoryUtils;
+
+/**
+ * Measures the cold start cost of a large catalog, from parsing it on the host
+ * to loading it into the EE of every site, for the text commands and for the
+ * binary form. Not a unit test, run it by hand with the EE library on the
+ * java.library.path:
+ *
+ *   java org.voltdb.catalog.CatalogLoadBenchmark [tables] [procedures] [sites]
+ */
+public class CatalogLoadBenchmark {
+
+    static Catalog compileCatalog(int tableCount, int procCount) throws Exception {
+        VoltProjectBuilder project = new VoltProjectBuilder();
+        StringBuilder ddl = new StringBuilder();
+        for (int i = 0; i < tableCount; ++i) {
+            ddl.append("CREATE TABLE T").append(i).append(" (ID BIGINT NOT NULL, ");
+            for (int c = 0; c < 8; ++c) {
+                ddl.append("C").append(c).append(c % 2 == 0 ? " INTEGER, " : " VARCHAR(64), ");
+            }
+            ddl.append("PRIMARY KEY (ID));\n");
+            ddl.append("PARTITION TABLE T").append(i).append(" ON COLUMN ID;\n");
+        }
+        project.addLiteralSchema(ddl.toString());
+        for (int i = 0; i < procCount; ++i) {
+            String table = "T" + (i % tableCount);
+            String sql = (i % 2 == 0) ?
+                    "SELECT * FROM " + table + " WHERE ID = ?;" :
+                    "UPDATE " + table + " SET C0 = C0 + 1 WHERE ID = ?;";
+            project.addStmtProcedure("P" + i, sql, table + ".ID: 0");
+        }
+        String jar = BuildDirectoryUtils.getBuildDirectoryPath() + File.separator + "catalogloadbenchmark.jar";
+        Catalog catalog = project.compile(jar, 1, 1, 0, null);
+        if (catalog == null) {
+            throw new RuntimeException("Failed to compile the benchmark catalog");
+        }
+        return catalog;
+    }
+
+    static long loadIntoEE(byte[] catalogBytes) {
+        ExecutionEngine ee = new ExecutionEngineJNI(0, 0, 0, 0, "", 100,
+                new HashinatorConfig(HashinatorType.LEGACY, LegacyHashinator.getConfigureBytes(1), 0, 0), false);
+        try {
+            long start = System.nanoTime();
+            ee.loadCatalog(0, catalogBytes);
+            return System.nanoTime() - start;
+        } finally {
+            try {
+                ee.release();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tableCount = args.length > 0 ? Integer.parseInt(args[0]) : 600;
+        int procCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int siteCount = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        VoltDB.instance().readBuildInfo("Test");
+
+        Catalog catalog = compileCatalog(tableCount, procCount);
+        String commands = catalog.serialize();
+        byte[] binary = catalog.serializeBinary();
+        System.out.printf("%d tables, %d procedures: %d bytes of commands, %d bytes binary%n",
+                tableCount, procCount, commands.length(), binary.length);
+
+        // warm up both paths before measuring
+        for (int i = 0; i < 2; ++i) {
+            new Catalog().execute(commands);
+            new Catalog().executeBinary(binary);
+            loadIntoEE(ExecutionEngine.getStringBytes(catalog.serialize()));
+            loadIntoEE(catalog.serializeBinary());
+        }
+
+        long start = System.nanoTime();
+        new Catalog().execute(commands);
+        long textParse = System.nanoTime() - start;
+        start = System.nanoTime();
+        new Catalog().executeBinary(binary);
+        long binaryParse = System.nanoTime() - start;
+
+        // text: every site serializes the catalog and the EE parses the commands
+        long textSerialize = 0;
+        long textLoad = 0;
+        for (int i = 0; i < siteCount; ++i) {
+            start = System.nanoTime();
+            byte[] bytes = ExecutionEngine.getStringBytes(catalog.serialize());
+            textSerialize += System.nanoTime() - start;
+            textLoad += loadIntoEE(bytes);
+        }
+
+        // binary: serialized once for the host, then shared by all the sites
+        start = System.nanoTime();
+        byte[] shared = catalog.serializeBinary();
+        long binarySerialize = System.nanoTime() - start;
+        long binaryLoad = 0;
+        for (int i = 0; i < siteCount; ++i) {
+            binaryLoad += loadIntoEE(shared);
+        }
+
+        System.out.printf("host parse:          text %8.1f ms, binary %8.1f ms%n",
+                millis(textParse), millis(binaryParse));
+        System.out.printf("serialize, %2d sites: text %8.1f ms, binary %8.1f ms%n",
+                siteCount, millis(textSerialize), millis(binarySerialize));
+        System.out.printf("EE load,   %2d sites: text %8.1f ms, binary %8.1f ms%n",
+                siteCount, millis(textLoad), millis(binaryLoad));
+        System.out.printf("cold start total:    text %8.1f ms, binary %8.1f ms%n",
+                millis(textParse + textSerialize + textLoad),
+                millis(binaryParse + binarySerialize + binaryLoad));
+    }
+}
@@ -56,4 +56,19 @@ public class TestCatalogSerialization extends TestCase {
         assertTrue(catalog1.equals(catalog2));
         assertTrue(catalog1.equals(catalog3));
     }
+
+    public void testBinary() throws IOException
+    {
+        Catalog catalog1 = TPCCProjectBuilder.getTPCCSchemaCatalog();
+
+        byte[] bytes = catalog1.serializeBinary();
+        assertEquals(Catalog.BINARY_MAGIC, bytes[0]);
+        assertTrue(bytes.length < catalog1.serialize().length());
+
+        Catalog catalog2 = new Catalog();
+        catalog2.executeBinary(bytes);
+
+        assertEquals(catalog1.serialize(), catalog2.serialize());
+        assertTrue(catalog1.equals(catalog2));
+    }
 }
@@ -0,0 +1,169 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.voltdb.ServerThread;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltDB.Configuration;
+import org.voltdb.client.AuthenticatedConnectionCache.Connection;
+import org.voltdb.compiler.VoltProjectBuilder;
+
+/**
+ * Reference counts of the cached connections, while requests acquire and release
+ * them and lost connections are closed under them.
+ */
+public class TestAuthenticatedConnectionCacheRelease extends TestCase {
+
+    static final int USERS = 4;
+    static final int THREADS = 8;
+    static final int ITERATIONS = 500;
+
+    ServerThread server;
+    AuthenticatedConnectionCache cache;
+
+    @Override
+    public void setUp() throws Exception {
+        VoltProjectBuilder builder = new VoltProjectBuilder();
+        builder.addLiteralSchema("CREATE TABLE foo (bar BIGINT NOT NULL, PRIMARY KEY (bar));");
+        boolean success = builder.compile(Configuration.getPathToCatalogForTest("connectioncache.jar"));
+        assertTrue(success);
+
+        VoltDB.Configuration config = new VoltDB.Configuration();
+        config.m_pathToCatalog = config.setPathToCatalogForTest("connectioncache.jar");
+        config.m_pathToDeployment = builder.getPathToDeployment();
+        server = new ServerThread(config);
+        server.start();
+        server.waitForInitialization();
+
+        cache = new AuthenticatedConnectionCache(USERS, "localhost", config.m_port,
+                "localhost", config.m_adminPort);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (cache != null) {
+            cache.closeAll();
+        }
+        if (server != null) {
+            server.shutdown();
+            server.join();
+        }
+    }
+
+    public void testReleaseOfLostClient() throws Exception {
+        Client client = cache.getClient("user", "password", null, false);
+        Connection conn = cache.m_clientConnections.get(client);
+        assertEquals(1, conn.refCount.get());
+
+        // A request that looked the connection up before it was lost releases it after
+        cache.releaseClient(client, true);
+        conn.release();
+        assertEquals(AuthenticatedConnectionCache.CLOSED, conn.refCount.get());
+        assertFalse(conn.acquire());
+        // and so does one that it was handed to, which is left alone
+        cache.releaseClient(client, false);
+        assertEquals(AuthenticatedConnectionCache.CLOSED, conn.refCount.get());
+
+        // The user connects again
+        Client again = cache.getClient("user", "password", null, false);
+        assertNotSame(client, again);
+        cache.releaseClient(again, false);
+        assertEquals(0, cache.m_clientConnections.get(again).refCount.get());
+    }
+
+    // Run the threads, each acquiring and releasing clients, the first also forcing
+    // every tenth release.
+    private Set<Connection> acquireAndRelease(final Runnable whileRunning) throws Exception {
+        final Set<Connection> seen = Collections.newSetFromMap(new ConcurrentHashMap<Connection, Boolean>());
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final boolean forcing = (t == 0);
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            Client client = cache.getClient("user" + (i % USERS), "password", null, false);
+                            Connection conn = cache.m_clientConnections.get(client);
+                            if (conn != null) {
+                                seen.add(conn);
+                            }
+                            cache.releaseClient(client, forcing && i % 10 == 0);
+                            if (forcing && i == ITERATIONS / 2 && whileRunning != null) {
+                                whileRunning.run();
+                            }
+                        }
+                    } catch (Throwable x) {
+                        failure.compareAndSet(null, x);
+                    }
+                }
+            };
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        return seen;
+    }
+
+    // Every connection is either closed for good or, with all its users gone, unused.
+    private void checkReleased(Set<Connection> seen) {
+        assertFalse(seen.isEmpty());
+        for (Connection conn : seen) {
+            int count = conn.refCount.get();
+            if (cache.m_connections.get(conn.key) == conn) {
+                assertEquals(0, count);
+            } else {
+                assertEquals(AuthenticatedConnectionCache.CLOSED, count);
+            }
+        }
+    }
+
+    public void testConcurrentAcquireAndForcedRelease() throws Exception {
+        checkReleased(acquireAndRelease(null));
+        assertTrue(cache.getSize() <= USERS);
+    }
+
+    public void testConcurrentAcquireAndCloseAll() throws Exception {
+        checkReleased(acquireAndRelease(new Runnable() {
+            @Override
+            public void run() {
+                cache.closeAll();
+            }
+        }));
+    }
+}
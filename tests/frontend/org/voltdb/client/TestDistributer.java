@@ -29,12 +29,16 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import junit.framework.TestCase;
 
@@ -43,6 +47,7 @@ import org.voltcore.network.Connection;
 import org.voltcore.network.QueueMonitor;
 import org.voltcore.network.VoltNetworkPool;
 import org.voltcore.network.VoltProtocolHandler;
+import org.voltcore.utils.CoreUtils;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltTable;
@@ -474,6 +479,150 @@ public class TestDistributer extends TestCase {
         }
     }
 
+    @Test
+    public void testCallbackExecutor() throws Exception {
+
+        // Responses are decoded and called back on the executor, not the network thread
+        MockVolt volt0 = null;
+        ExecutorService callbackExecutor = Executors.newSingleThreadExecutor(CoreUtils.getThreadFactory("TestCallbacks"));
+        try {
+            volt0 = new MockVolt(20000);
+            volt0.start();
+
+            Distributer dist = new Distributer(false,
+                    ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                    ClientConfig.DEFAULT_CONNECTION_TIMOUT_MS,
+                    false, null /* subject */);
+            dist.setCallbackExecutor(callbackExecutor);
+            dist.createConnection("localhost", "", "", 20000, ClientAuthHashScheme.HASH_SHA1);
+
+            final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+            final AtomicLong values = new AtomicLong();
+            ProcedureCallback callback = new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse clientResponse) {
+                    threads.add(Thread.currentThread().getName());
+                    VoltTable result = clientResponse.getResults()[0];
+                    result.advanceRow();
+                    values.addAndGet(result.getLong(0));
+                }
+            };
+            for (int handle = 1; handle <= 10; handle++) {
+                dist.queue(new ProcedureInvocation(handle, "i1", new Integer(1)), callback, true, System.nanoTime(), 0);
+            }
+            dist.drain();
+
+            assertEquals(10, threads.size());
+            for (String thread : threads) {
+                assertTrue(thread, thread.startsWith("TestCallbacks"));
+            }
+            assertEquals(10, values.get());
+        }
+        finally {
+            callbackExecutor.shutdown();
+            if (volt0 != null) {
+                volt0.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testCallbackExecutorBackpressure() throws Exception {
+
+        // A transaction stays outstanding until its callback on the executor is done
+        MockVolt volt0 = new MockVolt(20000);
+        ExecutorService callbackExecutor = Executors.newCachedThreadPool(CoreUtils.getThreadFactory("TestCallbacks"));
+        Client clientPtr = null;
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            volt0.start();
+
+            ClientConfig config = new ClientConfig();
+            config.setMaxOutstandingTxns(2);
+            config.setCallbackExecutor(callbackExecutor);
+
+            final Client client = ClientFactory.createClient(config);
+            client.createConnection("localhost", 20000);
+            clientPtr = client;
+
+            final AtomicInteger called = new AtomicInteger(0);
+            final ProcedureCallback callback = new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse clientResponse) throws Exception {
+                    release.await();
+                    called.incrementAndGet();
+                }
+            };
+            final AtomicInteger sent = new AtomicInteger(0);
+            final Thread loadThread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int ii = 0; ii < 3; ii++) {
+                            client.callProcedure(callback, "i1", new Integer(1));
+                            sent.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            };
+            loadThread.start();
+
+            loadThread.join(300);
+            assertEquals(2, sent.get());
+            assertEquals(0, called.get());
+
+            release.countDown();
+            loadThread.join();
+            client.drain();
+            assertEquals(3, sent.get());
+            assertEquals(3, called.get());
+        }
+        finally {
+            release.countDown();
+            if (clientPtr != null) clientPtr.close();
+            callbackExecutor.shutdown();
+            volt0.shutdown();
+        }
+    }
+
+    @Test
+    public void testReplicaScore() throws Exception {
+        Distributer dist = new Distributer();
+        try {
+            Distributer.NodeConnection fast = dist.new NodeConnection(null);
+            Distributer.NodeConnection slow = dist.new NodeConnection(null);
+            final long now = System.nanoTime();
+            final long oneMs = TimeUnit.MILLISECONDS.toNanos(1);
+
+            // the first response sets the average, the later ones move it a quarter of the way
+            fast.recordResponseTime(oneMs, false, now);
+            slow.recordResponseTime(oneMs, false, now);
+            assertEquals(fast.replicaScore(now), slow.replicaScore(now));
+            slow.recordResponseTime(41 * oneMs, false, now);
+            assertEquals((11 * oneMs + 1), slow.replicaScore(now));
+            assertTrue(fast.replicaScore(now) < slow.replicaScore(now));
+
+            // a replica that goes without responses is tried again after a while
+            final long later = now + TimeUnit.SECONDS.toNanos(1);
+            fast.recordResponseTime(oneMs, false, later);
+            assertEquals(11 * oneMs / 1024 + 1, slow.replicaScore(later));
+            assertTrue(slow.replicaScore(later) < fast.replicaScore(later));
+
+            // a replica that fails fast counts its errors as slow responses
+            Distributer.NodeConnection failing = dist.new NodeConnection(null);
+            failing.recordResponseTime(oneMs / 10, true, later);
+            assertEquals(Distributer.RESPONSE_TIME_ERROR_PENALTY_NANOS + 1, failing.replicaScore(later));
+            assertTrue(fast.replicaScore(later) < failing.replicaScore(later));
+            fast.recordResponseTime(5 * Distributer.RESPONSE_TIME_ERROR_PENALTY_NANOS, true, later);
+            assertTrue(fast.replicaScore(later) > failing.replicaScore(later));
+        }
+        finally {
+            dist.shutdown();
+        }
+    }
+
     @Test
     public void testQueueMixed() throws Exception {
 
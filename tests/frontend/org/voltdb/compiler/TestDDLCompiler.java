@@ -38,6 +38,7 @@ import org.hsqldb_voltpatches.VoltXMLElement;
 import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
 import org.voltdb.catalog.Catalog;
 import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Index;
 import org.voltdb.catalog.Table;
 import org.voltdb.compiler.VoltCompiler.VoltCompilerException;
 import org.voltdb.compilereport.TableAnnotation;
@@ -446,6 +447,67 @@ public class TestDDLCompiler extends TestCase {
         }
     }
 
+    public void testMinMaxViewIndexes() throws Exception {
+        File jarOut = new File("minMaxViewIndexes.jar");
+        jarOut.deleteOnExit();
+
+        String schema[] = {
+                // no index: one on the group by columns and the MIN argument is created
+                "CREATE TABLE T (D1 INTEGER, D2 INTEGER, VAL1 INTEGER, VAL2 VARBINARY(10));\n" +
+                "CREATE VIEW VT (V_D1, V_D2, CNT, MIN_VAL1) " +
+                "AS SELECT D1, D2, COUNT(*), MIN(VAL1) FROM T GROUP BY D1, D2;",
+
+                // an index on the group by columns and the MAX argument is preferred
+                "CREATE TABLE T (D1 INTEGER, D2 INTEGER, VAL1 INTEGER, VAL2 VARBINARY(10));\n" +
+                "CREATE INDEX T_TREE_1 ON T(D1, D2);\n" +
+                "CREATE INDEX T_TREE_2 ON T(D1, D2, VAL1);\n" +
+                "CREATE VIEW VT (V_D1, V_D2, CNT, MAX_VAL1) " +
+                "AS SELECT D1, D2, COUNT(*), MAX(VAL1) FROM T GROUP BY D1, D2;",
+
+                // VARBINARY can not be indexed: fall back to the index on the group by columns
+                "CREATE TABLE T (D1 INTEGER, D2 INTEGER, VAL1 INTEGER, VAL2 VARBINARY(10));\n" +
+                "CREATE INDEX T_TREE_1 ON T(D1, D2);\n" +
+                "CREATE VIEW VT (V_D1, V_D2, CNT, MAX_VAL2) " +
+                "AS SELECT D1, D2, COUNT(*), MAX(VAL2) FROM T GROUP BY D1, D2;",
+        };
+        String expectedIndex[] = {
+                HSQLInterface.AUTO_GEN_MATVIEW_MINMAX_IDX_PREFIX + "VT",
+                "T_TREE_2",
+                "T_TREE_1"
+        };
+
+        VoltCompiler compiler = new VoltCompiler();
+        for (int ii = 0; ii < schema.length; ++ii) {
+            File schemaFile = VoltProjectBuilder.writeStringToTempFile(schema[ii]);
+            assertTrue(compiler.compileFromDDL(jarOut.getPath(), schemaFile.getPath()));
+
+            Database db = compiler.getCatalog().getClusters().get("cluster").getDatabases().get("database");
+            Table table = db.getTables().getIgnoreCase("T");
+            assertEquals(expectedIndex[ii], table.getViews().get("VT").getIndexforminmax());
+            int generatedIndexes = 0;
+            for (Index index : table.getIndexes()) {
+                if (index.getTypeName().startsWith(HSQLInterface.AUTO_GEN_MATVIEW_MINMAX_IDX_PREFIX)) {
+                    assertFalse(index.getCountable());
+                    generatedIndexes++;
+                }
+            }
+            assertEquals(ii == 0 ? 1 : 0, generatedIndexes);
+            // The generated index is a warning, it changes the memory use of existing schemas
+            int createdWarnings = 0;
+            for (VoltCompiler.Feedback f : compiler.m_warnings) {
+                if (f.message.startsWith("Created index " + HSQLInterface.AUTO_GEN_MATVIEW_MINMAX_IDX_PREFIX)) {
+                    assertTrue(f.message.contains("on table T (D1, D2, VAL1)"));
+                    assertTrue(f.message.contains("one index entry per row of T"));
+                    createdWarnings++;
+                }
+            }
+            assertEquals(generatedIndexes, createdWarnings);
+
+            // cleanup after the test
+            jarOut.delete();
+        }
+    }
+
     public void testExportTables() {
         File jarOut = new File("exportTables.jar");
         jarOut.deleteOnExit();
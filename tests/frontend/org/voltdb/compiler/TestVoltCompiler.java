@@ -50,6 +50,7 @@ import org.voltdb.catalog.ConnectorTableInfo;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Group;
 import org.voltdb.catalog.GroupRef;
+import org.voltdb.catalog.Index;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.SnapshotSchedule;
 import org.voltdb.catalog.Table;
@@ -963,6 +964,49 @@ public class TestVoltCompiler extends TestCase {
         assertTrue(cat1.compareTo(cat2) == 0);
     }
 
+    public void testParallelPlanning() throws IOException {
+        String schemaPath = "";
+        try {
+            final URL url = TPCCProjectBuilder.class.getResource("tpcc-ddl.sql");
+            schemaPath = URLDecoder.decode(url.getPath(), "UTF-8");
+        } catch (final UnsupportedEncodingException e) {
+            e.printStackTrace();
+            System.exit(-1);
+        }
+        final String procSchema =
+            "PARTITION TABLE CUSTOMER ON COLUMN C_W_ID;\n" +
+            "CREATE PROCEDURE FROM CLASS org.voltdb.compiler.procedures.TPCCTestProc;\n" +
+            "CREATE PROCEDURE GetItem AS SELECT I_NAME FROM ITEM WHERE I_ID = ?;\n" +
+            "CREATE PROCEDURE GetCustomer AS SELECT C_FIRST, C_LAST FROM CUSTOMER " +
+                "WHERE C_W_ID = ? AND C_D_ID = ? AND C_ID = ?;\n" +
+            "PARTITION PROCEDURE GetCustomer ON TABLE CUSTOMER COLUMN C_W_ID;\n" +
+            "CREATE PROCEDURE CountOrders AS SELECT O_D_ID, COUNT(*) FROM ORDERS GROUP BY O_D_ID;\n" +
+            "CREATE PROCEDURE AddItem AS INSERT INTO ITEM VALUES (?, ?, ?, ?, ?);\n";
+        final String procPath = VoltProjectBuilder.writeStringToTempFile(procSchema).getPath();
+
+        // statements planned ahead in parallel make the same catalog
+        final VoltCompiler serial = new VoltCompiler();
+        assertTrue(compileFromDDL(serial, testout_jar, schemaPath, procPath));
+        final String cat1 = VoltCompilerUtils.readFileFromJarfile(testout_jar, "catalog.txt");
+        final VoltCompiler parallel = new VoltCompiler();
+        parallel.setPlannerThreads(4);
+        assertTrue(compileFromDDL(parallel, testout_jar, schemaPath, procPath));
+        final String cat2 = VoltCompilerUtils.readFileFromJarfile(testout_jar, "catalog.txt");
+        assertEquals(cat1, cat2);
+        assertEquals(feedbackToString(serial.m_warnings), feedbackToString(parallel.m_warnings));
+
+        // and the same errors
+        final String badPath = VoltProjectBuilder.writeStringToTempFile(procSchema +
+                "CREATE PROCEDURE BadItem AS SELECT NO_SUCH_COLUMN FROM ITEM;\n").getPath();
+        final VoltCompiler serialBad = new VoltCompiler();
+        assertFalse(compileFromDDL(serialBad, testout_jar, schemaPath, badPath));
+        final VoltCompiler parallelBad = new VoltCompiler();
+        parallelBad.setPlannerThreads(4);
+        assertFalse(compileFromDDL(parallelBad, testout_jar, schemaPath, badPath));
+        assertEquals(feedbackToString(serialBad.m_errors), feedbackToString(parallelBad.m_errors));
+        assertTrue(isFeedbackPresent("Failed to plan for statement", parallelBad.m_errors));
+    }
+
     private Catalog compileCatalogFromProject(
             final VoltCompiler compiler,
             final String projectPath)
@@ -1842,6 +1886,29 @@ public class TestVoltCompiler extends TestCase {
         }
     }
 
+    public void testDDLCompilerBTreeIndexAllowed()
+    {
+        for (int i = 0; i < column_types.length; i++)
+        {
+            final String s =
+                "create table t(id " + column_types[i] + " not null, num integer not null, " +
+                "constraint pk_btree primary key (id));\n" +
+                "create index idx_t_idnum_btree on t(id,num);\n" +
+                "create index idx_t_num_tree on t(num);";
+            VoltCompiler c = compileForDDLTest(getPathForSchema(s), can_be_tree[i]);
+            assertFalse(c.hasErrors());
+            Database d = c.m_catalog.getClusters().get("cluster").getDatabases().get("database");
+            Index pkey = d.getTables().getIgnoreCase("t").getConstraints().getIgnoreCase("pk_btree").getIndex();
+            assertEquals(IndexType.BTREE.getValue(), pkey.getType());
+            Index idnum = d.getTables().getIgnoreCase("t").getIndexes().getIgnoreCase("idx_t_idnum_btree");
+            assertEquals(IndexType.BTREE.getValue(), idnum.getType());
+            // counting works the same as with the red-black tree
+            assertTrue(idnum.getCountable());
+            assertEquals(IndexType.BALANCED_TREE.getValue(),
+                        d.getTables().getIgnoreCase("t").getIndexes().getIgnoreCase("idx_t_num_tree").getType());
+        }
+    }
+
     public void testUniqueIndexAllowed()
     {
         final String s =
@@ -2598,6 +2665,77 @@ public class TestVoltCompiler extends TestCase {
         // in TestSQLFeaturesNewSuite
     }
 
+    public void testDDLCompilerTimeToLive()
+    {
+        final String partition = "partition table t on column id;";
+        String ddl;
+
+        ddl = "create table t(id integer not null, ts timestamp not null) " +
+                "using ttl 2 hours on column ts;\n" +
+              "create index tsidx on t(ts);" + partition;
+        VoltCompiler compiler = new VoltCompiler();
+        assertTrue(compileDDL(ddl, compiler));
+        Table tbl = compiler.getCatalog().getClusters().get("cluster").getDatabases().get("database").
+                getTables().getIgnoreCase("t");
+        assertEquals(7200, tbl.getTtlseconds());
+        assertEquals("TS", tbl.getTtlcolumn().getTypeName());
+        assertEquals(DDLCompiler.DEFAULT_TTL_BATCH_SIZE, tbl.getTtlbatchsize());
+        assertEquals(DDLCompiler.DEFAULT_TTL_MAX_FREQUENCY, tbl.getTtlmaxfrequency());
+        assertNotNull(tbl.getTtlstmts().get(CatalogUtil.TTL_BOUNDARY_STMT));
+        assertNotNull(tbl.getTtlstmts().get(CatalogUtil.TTL_DELETE_STMT));
+        assertFalse(isFeedbackPresent("is not the first column of an ordered index", compiler.m_warnings));
+
+        ddl = "create table t(id integer not null, ts timestamp not null) " +
+                "using ttl 30 on column ts batch_size 50 max_frequency 4;" + partition;
+        compiler = new VoltCompiler();
+        assertTrue(compileDDL(ddl, compiler));
+        tbl = compiler.getCatalog().getClusters().get("cluster").getDatabases().get("database").
+                getTables().getIgnoreCase("t");
+        assertEquals(30, tbl.getTtlseconds());
+        assertEquals(50, tbl.getTtlbatchsize());
+        assertEquals(4, tbl.getTtlmaxfrequency());
+        // Without an index on the TTL column every batch scans the table
+        assertTrue(isFeedbackPresent("is not the first column of an ordered index", compiler.m_warnings));
+
+        // No TTL
+        ddl = "create table t(id integer not null, ts timestamp not null);" + partition;
+        compiler = new VoltCompiler();
+        assertTrue(compileDDL(ddl, compiler));
+        tbl = compiler.getCatalog().getClusters().get("cluster").getDatabases().get("database").
+                getTables().getIgnoreCase("t");
+        assertEquals(0, tbl.getTtlseconds());
+        assertNull(tbl.getTtlcolumn());
+        assertEquals(0, tbl.getTtlstmts().size());
+
+        ddl = "create table t(id integer not null, ts timestamp not null) " +
+                "using ttl 10 minutes on column nosuch;" + partition;
+        checkDDLErrorMessage(ddl, "object not found: NOSUCH");
+
+        ddl = "create table t(id integer not null, ts timestamp not null) " +
+                "using ttl 10 minutes on column id;" + partition;
+        checkDDLErrorMessage(ddl, "must be a TIMESTAMP");
+
+        ddl = "create table t(id integer not null, ts timestamp not null) " +
+                "using ttl 0 days on column ts;" + partition;
+        checkDDLErrorMessage(ddl, "the time to live must be between 1 and");
+
+        ddl = "create table t(id integer not null, ts timestamp not null) " +
+                "using ttl 1000000000 days on column ts;" + partition;
+        checkDDLErrorMessage(ddl, "the time to live must be between 1 and");
+
+        ddl = "create table t(id integer not null, ts timestamp not null) " +
+                "using ttl 10 on column ts batch_size 0;" + partition;
+        checkDDLErrorMessage(ddl, "BATCH_SIZE and MAX_FREQUENCY must be positive");
+
+        ddl = "create table t(id integer not null, ts timestamp not null) " +
+                "using ttl 10 weeks on column ts;" + partition;
+        checkDDLErrorMessage(ddl, "unexpected token: WEEKS");
+
+        ddl = "create table t(id integer not null, ts timestamp not null) " +
+                "using ttl 10 on column ts;";
+        checkDDLErrorMessage(ddl, "TTL is only supported on partitioned tables");
+    }
+
     public void testPartitionOnBadType() {
         final String simpleSchema =
             "create table books (cash float default 0.0 NOT NULL, title varchar(10) default 'foo', PRIMARY KEY(cash));";
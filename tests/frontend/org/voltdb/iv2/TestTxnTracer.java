@@ -0,0 +1,97 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONObject;
+
+public class TestTxnTracer extends TestCase
+{
+    static {
+        // before TxnTracer is loaded, each test class runs in its own JVM
+        System.setProperty("TXN_TRACE_SAMPLE_INTERVAL", "4");
+    }
+
+    public void testSampling()
+    {
+        assertTrue(TxnTracer.TXN_TRACE_ENABLED);
+        assertFalse(TxnTracer.isSampled(Long.MIN_VALUE));
+
+        for (int partition = 0; partition < 4; partition++) {
+            TxnEgo ego = TxnEgo.makeZero(partition);
+            int sampled = 0;
+            for (int ii = 0; ii < 4000; ii++) {
+                ego = ego.makeNext();
+                if (TxnTracer.isSampled(ego.getTxnId())) {
+                    sampled++;
+                    // the same transaction is sampled everywhere
+                    assertTrue(TxnTracer.isSampled(ego.getTxnId()));
+                }
+            }
+            assertTrue("sampled " + sampled, sampled > 800 && sampled < 1200);
+        }
+    }
+
+    public void testChromeTrace() throws Exception
+    {
+        final long txnId = TxnEgo.makeZero(1).makeNext().getTxnId();
+        TxnTracer.recordSpan("Site", txnId, 1000000, 3000000);
+        Thread other = new Thread("TraceTestThread") {
+            @Override
+            public void run() {
+                TxnTracer.recordSpan("EE", txnId, 1500000, 2500000);
+            }
+        };
+        other.start();
+        other.join();
+
+        JSONObject trace = new JSONObject(TxnTracer.toChromeTraceJson(7));
+        JSONArray events = trace.getJSONArray("traceEvents");
+        Map<String, JSONObject> spans = new HashMap<String, JSONObject>();
+        Map<Long, String> threads = new HashMap<Long, String>();
+        for (int ii = 0; ii < events.length(); ii++) {
+            JSONObject event = events.getJSONObject(ii);
+            assertEquals(7, event.getInt("pid"));
+            if (event.getString("ph").equals("M")) {
+                threads.put(event.getLong("tid"), event.getJSONObject("args").getString("name"));
+            }
+            else {
+                spans.put(event.getString("name"), event);
+            }
+        }
+        assertEquals(2, spans.size());
+        assertEquals(1000, spans.get("Site").getLong("ts"));
+        assertEquals(2000, spans.get("Site").getLong("dur"));
+        assertEquals(1500, spans.get("EE").getLong("ts"));
+        assertEquals(1000, spans.get("EE").getLong("dur"));
+        assertEquals(txnId, spans.get("EE").getJSONObject("args").getLong("txnId"));
+        assertEquals("TraceTestThread", threads.get(spans.get("EE").getLong("tid")));
+        assertEquals(Thread.currentThread().getName(), threads.get(spans.get("Site").getLong("tid")));
+    }
+}
@@ -33,6 +33,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -40,6 +41,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.List;
@@ -53,9 +55,15 @@ import org.junit.Test;
 import org.voltdb.BackendTarget;
 import org.voltdb.ServerThread;
 import org.voltdb.VoltDB.Configuration;
+import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.client.ArbitraryDurationProc;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcCallException;
 import org.voltdb.client.TestClientFeatures;
+import org.voltdb.compiler.AdHocPreparedStatementCache;
 import org.voltdb.compiler.VoltProjectBuilder;
 import org.voltdb.types.VoltDecimalHelper;
 import org.voltdb.utils.MiscUtils;
@@ -736,6 +744,339 @@ public class TestJDBCDriver {
         assertFalse(threw);
     }
 
+    @Test
+    public void testPipelinedBatch() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.PIPELINE_BATCH, "true");
+        myconn = getJdbcConnection("jdbc:voltdb://localhost:21212", props);
+        Statement stmt = myconn.createStatement();
+        for (int i = 0; i < 20; i++) {
+            stmt.addBatch("INSERT INTO BLAST_IT VALUES (" + i + ", " + (i * 2) + ")");
+        }
+        stmt.addBatch("UPDATE BLAST_IT SET A2 = 0");
+        int[] counts = stmt.executeBatch();
+        assertEquals(21, counts.length);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(1, counts[i]);
+        }
+        assertEquals(40, stmt.getUpdateCount());
+
+        // A failed statement does not stop the others
+        stmt.addBatch("INSERT INTO BLAST_IT VALUES (100, 1)");
+        stmt.addBatch("INSERT INTO BLAST_IT VALUES (5, 1)");
+        stmt.addBatch("INSERT INTO BLAST_IT VALUES (101, 1)");
+        try {
+            stmt.executeBatch();
+            fail("Duplicate key did not fail the batch");
+        }
+        catch (BatchUpdateException e) {
+            assertTrue(e.getMessage().contains("violation of constraint"));
+            counts = e.getUpdateCounts();
+            assertEquals(24, counts.length);
+            assertEquals(1, counts[21]);
+            assertEquals(Statement.EXECUTE_FAILED, counts[22]);
+            assertEquals(1, counts[23]);
+        }
+        ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM BLAST_IT");
+        rs.next();
+        assertEquals(22, rs.getInt(1));
+        stmt.execute("DELETE FROM BLAST_IT");
+        myconn.close();
+        myconn = null;
+    }
+
+    @Test
+    public void testPipelinedBatchWithoutCount() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.PIPELINE_BATCH, "true");
+        myconn = getJdbcConnection("jdbc:voltdb://localhost:21212", props);
+        JDBC4Statement stmt = (JDBC4Statement) myconn.createStatement();
+        stmt.addBatch("INSERT INTO BLAST_IT VALUES (1, 1)");
+        // @Ping succeeds without returning any table
+        stmt.addBatch(JDBC4Statement.VoltSQL.parseCall("{call @Ping}").getExecutableQuery());
+        stmt.addBatch("INSERT INTO BLAST_IT VALUES (2, 1)");
+        try {
+            stmt.executeBatch();
+            fail("A statement without an update count did not fail the batch");
+        }
+        catch (BatchUpdateException e) {
+            int[] counts = e.getUpdateCounts();
+            assertEquals(3, counts.length);
+            assertEquals(1, counts[0]);
+            assertEquals(Statement.EXECUTE_FAILED, counts[1]);
+            assertEquals(1, counts[2]);
+        }
+        stmt.execute("DELETE FROM BLAST_IT");
+        myconn.close();
+        myconn = null;
+    }
+
+    @Test
+    public void testGroupedBatch() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.GROUP_BATCH, "true");
+        myconn = getJdbcConnection("jdbc:voltdb://localhost:21212", props);
+        PreparedStatement stmt = myconn.prepareStatement("INSERT INTO ROBBIE_MUSTOE (A2_ID, A1) VALUES (?, ?)");
+        for (int i = 0; i < 500; i++) {
+            stmt.setInt(1, i * 3);
+            stmt.setInt(2, i);
+            stmt.addBatch();
+        }
+        int[] counts = stmt.executeBatch();
+        assertEquals(500, counts.length);
+        for (int count : counts) {
+            assertEquals(1, count);
+        }
+        assertEquals(500, stmt.getUpdateCount());
+        stmt.clearBatch();
+
+        // Only the duplicate rows fail
+        for (int i = 495; i < 505; i++) {
+            stmt.setInt(1, i * 3);
+            stmt.setInt(2, i);
+            stmt.addBatch();
+        }
+        try {
+            stmt.executeBatch();
+            fail("Duplicate keys did not fail the batch");
+        }
+        catch (BatchUpdateException e) {
+            counts = e.getUpdateCounts();
+            assertEquals(10, counts.length);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i < 5 ? Statement.EXECUTE_FAILED : 1, counts[i]);
+            }
+        }
+        stmt.close();
+
+        Statement query = myconn.createStatement();
+        ResultSet rs = query.executeQuery("SELECT COUNT(*), SUM(A2_ID - 3 * A1) FROM ROBBIE_MUSTOE");
+        rs.next();
+        assertEquals(505, rs.getInt(1));
+        assertEquals(0, rs.getInt(2));
+        query.execute("DELETE FROM ROBBIE_MUSTOE");
+        myconn.close();
+        myconn = null;
+    }
+
+    @Test
+    public void testPagedResultSet() throws Exception
+    {
+        PreparedStatement insert = conn.prepareStatement("INSERT INTO LAST VALUES (?, ?)");
+        for (int i = 0; i < 1050; i++) {
+            insert.setInt(1, i);
+            insert.setInt(2, i % 7);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+
+        // Without the connection property results are read whole
+        Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(100);
+        ResultSet rs = stmt.executeQuery("SELECT A1, A2_ID FROM LAST ORDER BY A1");
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, rs.getType());
+
+        // Forward only statements with a fetch size read results ordered by a unique key page by page
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.PAGED_RESULTS, "true");
+        myconn = getJdbcConnection("jdbc:voltdb://localhost:21212", props);
+        stmt = myconn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(100);
+        rs = stmt.executeQuery("SELECT A1, A2_ID FROM LAST ORDER BY A1");
+        assertEquals(ResultSet.TYPE_FORWARD_ONLY, rs.getType());
+        assertTrue(rs.isBeforeFirst());
+        int count = 0;
+        while (rs.next()) {
+            assertEquals(count, rs.getInt(1));
+            assertEquals(count % 7, rs.getInt("A2_ID"));
+            count++;
+            assertEquals(count, rs.getRow());
+        }
+        assertEquals(1050, count);
+        assertTrue(rs.isAfterLast());
+        assertFalse(rs.next());
+        try {
+            rs.previous();
+            fail("Moved back in a forward only result set");
+        }
+        catch (SQLException e) {}
+
+        // Parameters and the row limit apply to the pages
+        PreparedStatement query = myconn.prepareStatement(
+                "SELECT A1 FROM LAST WHERE A2_ID = ? OR A2_ID = ? ORDER BY A1 DESC",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        query.setFetchSize(10);
+        query.setMaxRows(55);
+        query.setInt(1, 3);
+        query.setInt(2, 5);
+        rs = query.executeQuery();
+        assertEquals(ResultSet.TYPE_FORWARD_ONLY, rs.getType());
+        count = 0;
+        int last = Integer.MAX_VALUE;
+        while (rs.next()) {
+            int a1 = rs.getInt(1);
+            assertTrue(a1 % 7 == 3 || a1 % 7 == 5);
+            assertTrue(a1 < last);
+            last = a1;
+            count++;
+        }
+        assertEquals(55, count);
+
+        // Queries not ordered by a unique key, whose pages could split ties, are read whole
+        rs = stmt.executeQuery("SELECT A1, A2_ID FROM LAST ORDER BY A2_ID");
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, rs.getType());
+        count = 0;
+        while (rs.next()) {
+            count++;
+        }
+        assertEquals(1050, count);
+        rs = stmt.executeQuery("SELECT COUNT(*) FROM LAST");
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, rs.getType());
+        assertTrue(rs.next());
+        assertEquals(1050, rs.getInt(1));
+
+        // As are results without the key once they are more than a page
+        rs = stmt.executeQuery("SELECT A2_ID FROM LAST WHERE A1 < 50 ORDER BY A1");
+        assertEquals(ResultSet.TYPE_FORWARD_ONLY, rs.getType());
+        rs = stmt.executeQuery("SELECT A2_ID FROM LAST ORDER BY A1");
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, rs.getType());
+        count = 0;
+        while (rs.next()) {
+            assertEquals(count % 7, rs.getInt(1));
+            count++;
+        }
+        assertEquals(1050, count);
+        stmt.execute("DELETE FROM LAST");
+    }
+
+    @Test
+    public void testServerPreparedStatement() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.SERVER_PREPARE, "true");
+        myconn = getJdbcConnection("jdbc:voltdb://localhost:21212", props);
+        // Planned once on the server, then run by handle
+        PreparedStatement insert = myconn.prepareStatement("INSERT INTO TT VALUES (?, ?)");
+        for (int i = 0; i < 20; i++) {
+            insert.setInt(1, 1000 + i);
+            insert.setInt(2, i * 2);
+            assertEquals(1, insert.executeUpdate());
+        }
+        PreparedStatement query = myconn.prepareStatement("SELECT A2_ID FROM TT WHERE A1 = ?");
+        for (int i = 0; i < 20; i++) {
+            query.setInt(1, 1000 + i);
+            ResultSet rs = query.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(i * 2, rs.getInt(1));
+            assertFalse(rs.next());
+        }
+        insert.setInt(1, 1000);
+        insert.setInt(2, 0);
+        try {
+            insert.executeUpdate();
+            fail("Duplicate key was inserted");
+        }
+        catch (SQLException e) {}
+
+        // Statements without parameters are prepared too
+        Statement stmt = myconn.createStatement();
+        PreparedStatement count = myconn.prepareStatement("SELECT COUNT(*) FROM TT WHERE A1 >= 1000");
+        ResultSet rs = count.executeQuery();
+        assertTrue(rs.next());
+        assertEquals(20, rs.getInt(1));
+        stmt.execute("DELETE FROM TT WHERE A1 >= 1000");
+        myconn.close();
+        myconn = null;
+    }
+
+    @Test
+    public void testAdHocPrepareAndExecute() throws Exception
+    {
+        Client client = ClientFactory.createClient();
+        client.createConnection("localhost");
+        try {
+            // Unknown handles are reported, for the client to send the text instead
+            ClientResponse response;
+            try {
+                response = client.callProcedure("@AdHocExecute", 1234L, 1);
+                fail("Unknown handle was executed");
+            }
+            catch (ProcCallException e) {
+                response = e.getClientResponse();
+            }
+            assertEquals(ClientResponse.GRACEFUL_FAILURE, response.getStatus());
+            assertTrue(response.getStatusString().startsWith(AdHocPreparedStatementCache.UNKNOWN_HANDLE));
+
+            long handle = client.callProcedure("@AdHocPrepare",
+                    "INSERT INTO STEAL_THIS_TABLE VALUES (?, ?);").getResults()[0].asScalarLong();
+            for (int i = 0; i < 10; i++) {
+                client.callProcedure("@AdHocExecute", handle, i, i + 1);
+            }
+            // The same text has the same handle, and @AdHoc calls with parameters can be
+            // executed by handle later
+            client.callProcedure("@AdHoc", "SELECT A2_ID FROM STEAL_THIS_TABLE WHERE A1 = ?;", 3);
+            long queryHandle = AdHocPreparedStatementCache.handleForSql(
+                    "SELECT A2_ID FROM STEAL_THIS_TABLE WHERE A1 = ?;");
+            VoltTable result = client.callProcedure("@AdHocExecute", queryHandle, 5).getResults()[0];
+            assertEquals(6, result.asScalarLong());
+            assertEquals(handle, client.callProcedure("@AdHocPrepare",
+                    "INSERT INTO STEAL_THIS_TABLE VALUES (?, ?);").getResults()[0].asScalarLong());
+
+            try {
+                client.callProcedure("@AdHocPrepare", "CREATE TABLE NOT_PREPARED (A1 INTEGER);");
+                fail("DDL was prepared");
+            }
+            catch (ProcCallException e) {}
+            try {
+                client.callProcedure("@AdHocExecute", handle, 20);
+                fail("Statement was executed with too few parameters");
+            }
+            catch (ProcCallException e) {
+                assertEquals(ClientResponse.GRACEFUL_FAILURE, e.getClientResponse().getStatus());
+                assertEquals("Incorrect number of parameters passed: expected 2, passed 1",
+                        e.getClientResponse().getStatusString());
+            }
+            try {
+                client.callProcedure("@AdHocExecute", queryHandle, 5, 6);
+                fail("Statement was executed with too many parameters");
+            }
+            catch (ProcCallException e) {
+                assertEquals("Incorrect number of parameters passed: expected 1, passed 2",
+                        e.getClientResponse().getStatusString());
+            }
+
+            // The text sent for a statement without parameters, when the handle was not
+            // known, teaches the node its handle as well
+            String countSql = "SELECT COUNT(*) FROM STEAL_THIS_TABLE WHERE A1 >= 5;";
+            long countHandle = AdHocPreparedStatementCache.handleForSql(countSql);
+            try {
+                client.callProcedure("@AdHocExecute", countHandle);
+                fail("Unknown handle was executed");
+            }
+            catch (ProcCallException e) {
+                assertTrue(e.getClientResponse().getStatusString().startsWith(
+                        AdHocPreparedStatementCache.UNKNOWN_HANDLE));
+            }
+            assertEquals(5, client.callProcedure("@AdHoc", countSql).getResults()[0].asScalarLong());
+            assertEquals(5, client.callProcedure("@AdHocExecute", countHandle).getResults()[0].asScalarLong());
+            try {
+                client.callProcedure("@AdHocExecute", countHandle, 1);
+                fail("Statement without parameters was executed with one");
+            }
+            catch (ProcCallException e) {
+                assertEquals("Incorrect number of parameters passed: expected 0, passed 1",
+                        e.getClientResponse().getStatusString());
+            }
+            client.callProcedure("@AdHoc", "DELETE FROM STEAL_THIS_TABLE;");
+        }
+        finally {
+            client.close();
+        }
+    }
+
     @Test
     public void testSafetyOffThroughProperties() throws Exception
     {
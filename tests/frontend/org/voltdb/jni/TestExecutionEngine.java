@@ -25,6 +25,7 @@ package org.voltdb.jni;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -44,6 +45,8 @@ import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
 import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.CatalogMap;
+import org.voltdb.catalog.Table;
 import org.voltdb.exceptions.EEException;
 import org.voltdb.expressions.HashRangeExpressionBuilder;
 import org.voltdb.sysprocs.saverestore.SnapshotPredicates;
@@ -147,6 +150,33 @@ public class TestExecutionEngine extends TestCase {
         assertEquals(1000, sourceEngine.serializeTable(STOCK_TABLEID).getRowCount());
     }
 
+    public void testLoadBinaryCatalog() throws Exception {
+        sourceEngine.loadCatalog( 0, m_catalog.serializeBinary());
+
+        int WAREHOUSE_TABLEID = warehouseTableId(m_catalog);
+        int STOCK_TABLEID = stockTableId(m_catalog);
+
+        loadTestTables( sourceEngine, m_catalog);
+
+        assertEquals(200, sourceEngine.serializeTable(WAREHOUSE_TABLEID).getRowCount());
+        assertEquals(1000, sourceEngine.serializeTable(STOCK_TABLEID).getRowCount());
+    }
+
+    public void testGetTableChangeCounts() throws Exception {
+        sourceEngine.loadCatalog( 0, m_catalog.serialize());
+
+        final int tableIds[] = new int[] { warehouseTableId(m_catalog), stockTableId(m_catalog), 9999 };
+        assertTrue(Arrays.equals(new long[] { 0, 0, -1 }, sourceEngine.getTableChangeCounts(tableIds)));
+
+        loadTestTables( sourceEngine, m_catalog);
+
+        final long changeCounts[] = sourceEngine.getTableChangeCounts(tableIds);
+        assertTrue(changeCounts[0] >= 200);
+        assertEquals(1000, changeCounts[1]);
+        assertEquals(-1, changeCounts[2]);
+        assertTrue(Arrays.equals(changeCounts, sourceEngine.getTableChangeCounts(tableIds)));
+    }
+
     public void testStreamTables() throws Exception {
         sourceEngine.loadCatalog( 0, m_catalog.serialize());
 
@@ -260,6 +290,49 @@ public class TestExecutionEngine extends TestCase {
         }
     }
 
+    public void testGetTableMemoryStats() throws Exception {
+        sourceEngine.loadCatalog( 0, m_catalog.serialize());
+
+        final long counters[] = new long[ExecutionEngine.TABLE_MEMORY_COUNTER_COUNT];
+        sourceEngine.getTableMemoryStats(counters);
+        assertEquals(0, counters[ExecutionEngine.TABLE_MEMORY_TUPLE_COUNT]);
+        assertEquals(0, counters[ExecutionEngine.TABLE_MEMORY_TUPLE_DATA]);
+
+        loadTestTables( sourceEngine, m_catalog);
+        sourceEngine.getTableMemoryStats(counters);
+
+        // the counters add up to what the statistics of every table say
+        final CatalogMap<Table> tables = m_catalog.getClusters().get("cluster").getDatabases().get("database").getTables();
+        final int locators[] = new int[tables.size()];
+        int i = 0;
+        for (Table table : tables) {
+            locators[i++] = table.getRelativeIndex();
+        }
+        final VoltTable tableStats = sourceEngine.getStats(StatsSelector.TABLE, locators, false, 0L)[0];
+        long tupleCount = 0;
+        long tupleAllocatedKb = 0;
+        long tupleDataKb = 0;
+        while (tableStats.advanceRow()) {
+            tupleCount += tableStats.getLong("TUPLE_COUNT");
+            tupleAllocatedKb += tableStats.getLong("TUPLE_ALLOCATED_MEMORY");
+            tupleDataKb += tableStats.getLong("TUPLE_DATA_MEMORY");
+        }
+        final VoltTable indexStats = sourceEngine.getStats(StatsSelector.INDEX, locators, false, 0L)[0];
+        long indexKb = 0;
+        while (indexStats.advanceRow()) {
+            indexKb += indexStats.getLong("MEMORY_ESTIMATE");
+        }
+
+        assertEquals(1200, tupleCount);
+        assertEquals(tupleCount, counters[ExecutionEngine.TABLE_MEMORY_TUPLE_COUNT]);
+        // the statistics round the memory of each table down to kilobytes
+        assertEquals(tupleAllocatedKb, counters[ExecutionEngine.TABLE_MEMORY_TUPLE_ALLOCATED] / 1024);
+        assertTrue(tupleDataKb <= counters[ExecutionEngine.TABLE_MEMORY_TUPLE_DATA] / 1024);
+        assertTrue(tupleDataKb + tables.size() > counters[ExecutionEngine.TABLE_MEMORY_TUPLE_DATA] / 1024);
+        assertTrue(indexKb <= counters[ExecutionEngine.TABLE_MEMORY_INDEX] / 1024);
+        assertTrue(indexKb + indexStats.getRowCount() > counters[ExecutionEngine.TABLE_MEMORY_INDEX] / 1024);
+    }
+
     public void testStreamIndex() throws Exception {
         sourceEngine.loadCatalog( 0, m_catalog.serialize());
 
@@ -35,6 +35,8 @@ import org.mockito.Mockito;
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.LegacyHashinator;
 import org.voltdb.ParameterSet;
+import org.voltdb.PlanNodeStats;
+import org.voltdb.StatsSelector;
 import org.voltdb.TheHashinator.HashinatorConfig;
 import org.voltdb.TheHashinator.HashinatorType;
 import org.voltdb.VoltDB;
@@ -301,6 +303,72 @@ public class TestFragmentProgressUpdate extends TestCase {
         assertTrue(m_ee.m_peakMemoryInBytes > m_ee.m_currMemoryInBytes);
     }
 
+    @SuppressWarnings("deprecation")
+    public void testPlanNodeStats() throws Exception {
+        m_ee.loadCatalog( 0, m_catalog.serialize());
+        m_ee.setPlanNodeProfiling(true);
+
+        int rowCount = 100;
+        m_warehousedata.clearRowData();
+        for (int i = 0; i < rowCount; ++i) {
+            m_warehousedata.addRow(i, "name" + i, "st1", "st2", "city", "ST", "zip", 0, 0);
+        }
+        m_ee.loadTable(WAREHOUSE_TABLEID, m_warehousedata, 0, 0, 0, 0, false, false, WRITE_TOKEN);
+
+        Statement joinStmt = m_testProc.getStatements().getIgnoreCase("warehouse_join");
+        PlanFragment joinBottomFrag = null;
+        int i = 0;
+        // this kinda assumes the right order
+        for (PlanFragment f : joinStmt.getFragments()) {
+            if (i != 0) joinBottomFrag = f;
+            i++;
+        }
+        long fragId = CatalogUtil.getUniqueIdForFragment(joinBottomFrag);
+        ActivePlanRepository.clear();
+        ActivePlanRepository.addFragmentForTest(
+                fragId,
+                Encoder.decodeBase64AndDecompressToBytes(joinBottomFrag.getPlannodetree()),
+                joinStmt.getSqltext());
+
+        for (int run = 0; run < 2; run++) {
+            m_ee.executePlanFragments(
+                    1,
+                    new long[] { fragId },
+                    null,
+                    new ParameterSet[] { ParameterSet.emptyParameterSet() },
+                    new String[] { joinStmt.getSqltext() },
+                    3, 3, 2, 42, READ_ONLY_TOKEN);
+        }
+
+        VoltTable[] results = m_ee.getStats(StatsSelector.PLANNODE, new int[0], false, 0L);
+        assertEquals(1, results.length);
+        PlanNodeStats planNodeStats = new PlanNodeStats(0);
+        planNodeStats.setEEStats(results[0]);
+        VoltTable stats = planNodeStats.getStatsTable();
+        assertTrue(stats.getRowCount() > 0);
+
+        boolean sawJoin = false;
+        while (stats.advanceRow()) {
+            assertEquals(fragId, stats.getLong("FRAGMENT_ID"));
+            assertEquals(joinStmt.getSqltext(), stats.getString("STATEMENT"));
+            assertEquals(2, stats.getLong("INVOCATIONS"));
+            if (stats.getString("PLAN_NODE_TYPE").equals("NESTLOOPINDEX")) {
+                sawJoin = true;
+                // a lookup of W2 for every row of W1, on both runs
+                assertEquals(2 * rowCount, stats.getLong("INDEX_PROBES"));
+                assertTrue(stats.getLong("TUPLES_IN") >= 2 * rowCount);
+            }
+        }
+        assertTrue(sawJoin);
+
+        // an interval poll only has what ran since the last one
+        m_ee.getStats(StatsSelector.PLANNODE, new int[0], true, 0L);
+        results = m_ee.getStats(StatsSelector.PLANNODE, new int[0], true, 0L);
+        while (results[0].advanceRow()) {
+            assertEquals(0, results[0].getLong("INVOCATIONS"));
+        }
+    }
+
     public void testProgressUpdateLogSqlStmt() throws Exception {
         verifyLongRunningQueries(50, 0, "item_crazy_join", 5, true, SqlTextExpectation.SQL_STATEMENT);
     }
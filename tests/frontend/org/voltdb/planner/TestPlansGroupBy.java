@@ -206,6 +206,35 @@ public class TestPlansGroupBy extends PlannerTestCase {
         assertTrue(p.toExplainPlanString().contains("for deterministic order only"));
     }
 
+    public void testApproxCountDistinct() {
+        AbstractPlanNode p;
+        AggregatePlanNode aggNode;
+        // Partitions send sketches; the coordinator merges them.
+        pns = compileToFragments("SELECT approx_count_distinct(B4) from T4");
+        p = pns.get(0).getChild(0);
+        assertTrue(p instanceof AggregatePlanNode);
+        aggNode = (AggregatePlanNode)p;
+        assertEquals(ExpressionType.AGGREGATE_HYPERLOGLOGS_TO_CARD, aggNode.getAggregateType(0));
+        assertTrue(p.getChild(0) instanceof ReceivePlanNode);
+
+        p = pns.get(1).getChild(0);
+        assertTrue(p instanceof AbstractScanPlanNode);
+        aggNode = (AggregatePlanNode)p.getInlinePlanNode(PlanNodeType.AGGREGATE);
+        assertNotNull(aggNode);
+        assertEquals(ExpressionType.AGGREGATE_VALS_TO_HYPERLOGLOG, aggNode.getAggregateType(0));
+
+        // Grouped by the partition column, each partition has the final answer.
+        pns = compileToFragments("SELECT A4, approx_count_distinct(B4) from T4 group by A4");
+        p = pns.get(0).getChild(0);
+        assertTrue(p instanceof ReceivePlanNode);
+
+        p = pns.get(1).getChild(0);
+        assertTrue(p instanceof AbstractScanPlanNode);
+        aggNode = (AggregatePlanNode)p.getInlinePlanNode(PlanNodeType.HASHAGGREGATE);
+        assertNotNull(aggNode);
+        assertEquals(ExpressionType.AGGREGATE_APPROX_COUNT_DISTINCT, aggNode.getAggregateType(0));
+    }
+
     public void testDistinctA1() {
         pns = compileToFragments("SELECT DISTINCT A1 FROM T1");
     }
@@ -0,0 +1,143 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import java.util.List;
+
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.IndexScanPlanNode;
+import org.voltdb.plannodes.OrderByPlanNode;
+import org.voltdb.plannodes.ReceivePlanNode;
+import org.voltdb.plannodes.SendPlanNode;
+import org.voltdb.plannodes.WindowFunctionPlanNode;
+import org.voltdb.types.ExpressionType;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+public class TestPlansWindowFunctions extends PlannerTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        setupSchema(getClass().getResource("testplans-windowfunctions-ddl.sql"),
+                    "testplanswindowfunctions", false);
+    }
+
+    private static WindowFunctionPlanNode findWindowNode(AbstractPlanNode root) {
+        List<AbstractPlanNode> nodes = root.findAllNodesOfType(PlanNodeType.WINDOWFUNCTION);
+        assertEquals(1, nodes.size());
+        return (WindowFunctionPlanNode) nodes.get(0);
+    }
+
+    public void testRankSortsInput() {
+        AbstractPlanNode pn = compile("SELECT ID, RANK() OVER (ORDER BY SCORE DESC) AS R FROM R");
+        WindowFunctionPlanNode windowNode = findWindowNode(pn);
+        assertEquals(ExpressionType.WINDOW_RANK, windowNode.getWindowFunctionTypes().get(0));
+        assertTrue(windowNode.getPartitionByExpressions().isEmpty());
+        assertEquals(1, windowNode.getOrderByExpressions().size());
+        assertEquals(SortDirectionType.DESC, windowNode.getOrderByDirections().get(0));
+
+        AbstractPlanNode child = windowNode.getChild(0);
+        assertTrue(child instanceof OrderByPlanNode);
+        List<AbstractExpression> sortExprs = ((OrderByPlanNode) child).getSortExpressions();
+        assertEquals(1, sortExprs.size());
+        assertEquals("SCORE", ((TupleValueExpression) sortExprs.get(0)).getColumnName());
+        // The window function value reaches the projection.
+        assertEquals(PlanNodeType.PROJECTION, windowNode.getParent(0).getPlanNodeType());
+    }
+
+    public void testIndexProvidesWindowOrder() {
+        // The index on (GRP, SCORE) delivers the rows in window order.
+        AbstractPlanNode pn = compile(
+                "SELECT ID, ROW_NUMBER() OVER (PARTITION BY GRP ORDER BY SCORE) FROM R");
+        WindowFunctionPlanNode windowNode = findWindowNode(pn);
+        assertTrue(windowNode.getChild(0) instanceof IndexScanPlanNode);
+        assertFalse(pn.hasAnyNodeOfType(PlanNodeType.ORDERBY));
+
+        // An ORDER BY that is a prefix of the window order needs no sort either.
+        pn = compile("SELECT ID, DENSE_RANK() OVER (PARTITION BY GRP ORDER BY SCORE) FROM R " +
+                     "ORDER BY GRP, SCORE");
+        windowNode = findWindowNode(pn);
+        assertTrue(windowNode.getChild(0) instanceof IndexScanPlanNode);
+        assertFalse(pn.hasAnyNodeOfType(PlanNodeType.ORDERBY));
+
+        // A different ORDER BY sorts the window output.
+        pn = compile("SELECT ID, RANK() OVER (PARTITION BY GRP ORDER BY SCORE) AS R FROM R " +
+                     "ORDER BY R, ID");
+        windowNode = findWindowNode(pn);
+        assertTrue(windowNode.getChild(0) instanceof IndexScanPlanNode);
+        assertTrue(windowNode.getParent(0) instanceof OrderByPlanNode);
+    }
+
+    public void testRunningAggregates() {
+        AbstractPlanNode pn = compile(
+                "SELECT ID, COUNT(*) OVER (PARTITION BY GRP ORDER BY SCORE), " +
+                "SUM(SCORE) OVER (PARTITION BY GRP ORDER BY SCORE), " +
+                "MAX(NAME) OVER (PARTITION BY GRP ORDER BY SCORE) FROM R");
+        WindowFunctionPlanNode windowNode = findWindowNode(pn);
+        List<ExpressionType> types = windowNode.getWindowFunctionTypes();
+        assertEquals(3, types.size());
+        assertEquals(ExpressionType.AGGREGATE_COUNT_STAR, types.get(0));
+        assertEquals(ExpressionType.AGGREGATE_SUM, types.get(1));
+        assertEquals(ExpressionType.AGGREGATE_MAX, types.get(2));
+        assertTrue(windowNode.toExplainPlanString().contains("WINDOW FUNCTION"));
+    }
+
+    public void testMultiPartition() {
+        // Partitioned on the window's PARTITION BY: evaluated on each partition.
+        List<AbstractPlanNode> pns = compileToFragments(
+                "SELECT ID, RANK() OVER (PARTITION BY ID ORDER BY SCORE) FROM P");
+        assertEquals(2, pns.size());
+        assertFalse(pns.get(0).hasAnyNodeOfType(PlanNodeType.WINDOWFUNCTION));
+        WindowFunctionPlanNode windowNode = findWindowNode(pns.get(1));
+        assertTrue(windowNode.getParent(0) instanceof SendPlanNode);
+
+        // Otherwise the coordinator sorts the rows of all the partitions.
+        pns = compileToFragments(
+                "SELECT ID, RANK() OVER (PARTITION BY GRP ORDER BY SCORE DESC) FROM P");
+        assertFalse(pns.get(1).hasAnyNodeOfType(PlanNodeType.WINDOWFUNCTION));
+        windowNode = findWindowNode(pns.get(0));
+        AbstractPlanNode child = windowNode.getChild(0);
+        assertTrue(child instanceof OrderByPlanNode);
+        assertTrue(child.getChild(0) instanceof ReceivePlanNode);
+    }
+
+    public void testTopNPerGroup() {
+        AbstractPlanNode pn = compile(
+                "SELECT ID, GRP FROM (SELECT ID, GRP, " +
+                "ROW_NUMBER() OVER (PARTITION BY GRP ORDER BY SCORE DESC) AS RN FROM R) S " +
+                "WHERE RN <= 3");
+        assertTrue(pn.hasAnyNodeOfType(PlanNodeType.WINDOWFUNCTION));
+    }
+
+    public void testUnsupported() {
+        failToCompile("SELECT GRP, RANK() OVER (ORDER BY GRP) FROM R GROUP BY GRP",
+                      "Window functions are not supported in queries with GROUP BY");
+        failToCompile("SELECT MAX(SCORE), RANK() OVER (ORDER BY MAX(SCORE)) FROM R",
+                      "Window functions are not supported");
+        failToCompile("SELECT RANK() OVER (ORDER BY GRP), RANK() OVER (ORDER BY SCORE) FROM R",
+                      "must have the same PARTITION BY and ORDER BY");
+        failToCompile("SELECT AVG(SCORE) OVER (ORDER BY GRP) FROM R");
+    }
+}
@@ -0,0 +1,18 @@
+CREATE TABLE R (
+    ID INTEGER NOT NULL,
+    GRP INTEGER NOT NULL,
+    SCORE INTEGER NOT NULL,
+    NAME VARCHAR(32),
+    PRIMARY KEY (ID)
+);
+CREATE INDEX R_GRP_SCORE ON R (GRP, SCORE);
+
+CREATE TABLE P (
+    ID INTEGER NOT NULL,
+    GRP INTEGER NOT NULL,
+    SCORE INTEGER NOT NULL,
+    NAME VARCHAR(32),
+    PRIMARY KEY (ID)
+);
+PARTITION TABLE P ON COLUMN ID;
+CREATE INDEX P_GRP_SCORE ON P (GRP, SCORE);
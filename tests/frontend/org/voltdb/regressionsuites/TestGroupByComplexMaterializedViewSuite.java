@@ -1477,7 +1477,7 @@ public class TestGroupByComplexMaterializedViewSuite extends RegressionSuite {
         lines = captured.split("\n");
 
         assertTrue(foundLineMatching(lines,
-                ".*V0.*must have non-group by columns aggregated by sum, count, min or max.*"));
+                ".*V0.*must have non-group by columns aggregated by sum, count, min, max or approx_count_distinct.*"));
 
         VoltProjectBuilder project1 = new VoltProjectBuilder();
         project1.setCompilerDebugPrintStream(capturing);
@@ -0,0 +1,357 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.regressionsuites;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.voltdb.BackendTarget;
+import org.voltdb.VoltTable;
+import org.voltdb.client.Client;
+import org.voltdb.compiler.VoltProjectBuilder;
+
+public class TestWindowFunctionSuite extends RegressionSuite {
+
+    static final long NULL = Long.MIN_VALUE;
+
+    // The same rows in a replicated table, a table partitioned on its primary key and a
+    // table partitioned on the PARTITION BY column of the windows.
+    static final String[] TABLES = { "R", "P", "PG" };
+
+    // ID, GRP, SCORE: ties and NULL scores in groups 1 and 3, a group of peers in group 2
+    static final long[][] ROWS = {
+        {  1, 1,   10 },
+        {  2, 1,   20 },
+        {  3, 1,   20 },
+        {  4, 1, NULL },
+        {  5, 1,   30 },
+        {  6, 2,    5 },
+        {  7, 2,    5 },
+        {  8, 2,    5 },
+        {  9, 3, NULL },
+        { 10, 3, NULL },
+        { 11, 3,    7 },
+    };
+
+    public TestWindowFunctionSuite(String name) {
+        super(name);
+    }
+
+    private void loadRows(Client client) throws Exception {
+        for (String table : TABLES) {
+            for (long[] row : ROWS) {
+                client.callProcedure(table + ".insert", row[0], row[1],
+                        row[2] == NULL ? null : row[2], "name" + row[0]);
+            }
+        }
+    }
+
+    // The ID and window function values of each row, ordered by ID.
+    private void validateById(Client client, String table, String functions, long[][] expected)
+            throws Exception {
+        validateTableOfLongs(client,
+                "SELECT ID, " + functions + " FROM " + table + " ORDER BY ID;", expected);
+    }
+
+    // ROW_NUMBER gives peers distinct numbers in any order: the numbers of each group of
+    // peers, listed by ID, are checked as a set.
+    private void validateRowNumbers(Client client, String sql, long[][] peersById, long[][] numbers)
+            throws Exception {
+        VoltTable vt = client.callProcedure("@AdHoc", sql).getResults()[0];
+        Map<Long, Long> rowNumbers = new HashMap<Long, Long>();
+        while (vt.advanceRow()) {
+            rowNumbers.put(vt.getLong(0), vt.getLong(1));
+        }
+        assertEquals(ROWS.length, rowNumbers.size());
+        for (int i = 0; i < peersById.length; i++) {
+            Set<Long> actual = new HashSet<Long>();
+            Set<Long> expected = new HashSet<Long>();
+            for (int j = 0; j < peersById[i].length; j++) {
+                actual.add(rowNumbers.get(peersById[i][j]));
+                expected.add(numbers[i][j]);
+            }
+            assertEquals(sql, expected, actual);
+        }
+    }
+
+    public void testRanks() throws Exception {
+        Client client = getClient();
+        loadRows(client);
+
+        // NULL scores sort first and are peers of each other. RANK leaves a gap after
+        // peers, DENSE_RANK does not.
+        long[][] expected = {
+            {  1, 2, 2 },
+            {  2, 3, 3 },
+            {  3, 3, 3 },
+            {  4, 1, 1 },
+            {  5, 5, 4 },
+            {  6, 1, 1 },
+            {  7, 1, 1 },
+            {  8, 1, 1 },
+            {  9, 1, 1 },
+            { 10, 1, 1 },
+            { 11, 3, 2 },
+        };
+        for (String table : TABLES) {
+            validateById(client, table,
+                    "RANK() OVER (PARTITION BY GRP ORDER BY SCORE), " +
+                    "DENSE_RANK() OVER (PARTITION BY GRP ORDER BY SCORE)", expected);
+        }
+
+        // Descending, NULL scores sort last
+        expected = new long[][] {
+            {  1, 4, 3 },
+            {  2, 2, 2 },
+            {  3, 2, 2 },
+            {  4, 5, 4 },
+            {  5, 1, 1 },
+            {  6, 1, 1 },
+            {  7, 1, 1 },
+            {  8, 1, 1 },
+            {  9, 2, 2 },
+            { 10, 2, 2 },
+            { 11, 1, 1 },
+        };
+        for (String table : TABLES) {
+            validateById(client, table,
+                    "RANK() OVER (PARTITION BY GRP ORDER BY SCORE DESC), " +
+                    "DENSE_RANK() OVER (PARTITION BY GRP ORDER BY SCORE DESC)", expected);
+        }
+
+        // Without PARTITION BY all the rows are one window, across the partitions
+        expected = new long[][] {
+            {  1,  8, 4 },
+            {  2,  9, 5 },
+            {  3,  9, 5 },
+            {  4,  1, 1 },
+            {  5, 11, 6 },
+            {  6,  4, 2 },
+            {  7,  4, 2 },
+            {  8,  4, 2 },
+            {  9,  1, 1 },
+            { 10,  1, 1 },
+            { 11,  7, 3 },
+        };
+        for (String table : TABLES) {
+            validateById(client, table,
+                    "RANK() OVER (ORDER BY SCORE), DENSE_RANK() OVER (ORDER BY SCORE)", expected);
+        }
+    }
+
+    public void testRowNumber() throws Exception {
+        Client client = getClient();
+        loadRows(client);
+
+        // Without peers ROW_NUMBER is the RANK
+        long[][] expected = {
+            {  1, 2, 2 },
+            {  2, 3, 3 },
+            {  3, 4, 4 },
+            {  4, 1, 1 },
+            {  5, 5, 5 },
+            {  6, 1, 1 },
+            {  7, 2, 2 },
+            {  8, 3, 3 },
+            {  9, 1, 1 },
+            { 10, 2, 2 },
+            { 11, 3, 3 },
+        };
+        for (String table : TABLES) {
+            validateById(client, table,
+                    "ROW_NUMBER() OVER (PARTITION BY GRP ORDER BY SCORE, ID), " +
+                    "RANK() OVER (PARTITION BY GRP ORDER BY SCORE, ID)", expected);
+        }
+
+        // Peers get consecutive numbers from their rank, restarting in each partition
+        long[][] peersById = { { 1 }, { 2, 3 }, { 4 }, { 5 }, { 6, 7, 8 }, { 9, 10 }, { 11 } };
+        long[][] numbers =   { { 2 }, { 3, 4 }, { 1 }, { 5 }, { 1, 2, 3 }, { 1, 2 },  { 3 } };
+        for (String table : TABLES) {
+            validateRowNumbers(client,
+                    "SELECT ID, ROW_NUMBER() OVER (PARTITION BY GRP ORDER BY SCORE) FROM " + table + ";",
+                    peersById, numbers);
+        }
+    }
+
+    public void testRunningAggregates() throws Exception {
+        Client client = getClient();
+        loadRows(client);
+
+        // The default frame ends with the last peer of the row. NULL scores count for
+        // COUNT(*) only.
+        long[][] expected = {
+            {  1, 2, 1,   10,   10,   10 },
+            {  2, 4, 3,   50,   10,   20 },
+            {  3, 4, 3,   50,   10,   20 },
+            {  4, 1, 0, NULL, NULL, NULL },
+            {  5, 5, 4,   80,   10,   30 },
+            {  6, 3, 3,   15,    5,    5 },
+            {  7, 3, 3,   15,    5,    5 },
+            {  8, 3, 3,   15,    5,    5 },
+            {  9, 2, 0, NULL, NULL, NULL },
+            { 10, 2, 0, NULL, NULL, NULL },
+            { 11, 3, 1,    7,    7,    7 },
+        };
+        for (String table : TABLES) {
+            validateById(client, table,
+                    "COUNT(*) OVER (PARTITION BY GRP ORDER BY SCORE), " +
+                    "COUNT(SCORE) OVER (PARTITION BY GRP ORDER BY SCORE), " +
+                    "SUM(SCORE) OVER (PARTITION BY GRP ORDER BY SCORE), " +
+                    "MIN(SCORE) OVER (PARTITION BY GRP ORDER BY SCORE), " +
+                    "MAX(SCORE) OVER (PARTITION BY GRP ORDER BY SCORE)", expected);
+        }
+
+        // Without ORDER BY every row of a partition is a peer of the others
+        expected = new long[][] {
+            {  1, 5, 80, 10, 30 },
+            {  2, 5, 80, 10, 30 },
+            {  3, 5, 80, 10, 30 },
+            {  4, 5, 80, 10, 30 },
+            {  5, 5, 80, 10, 30 },
+            {  6, 3, 15,  5,  5 },
+            {  7, 3, 15,  5,  5 },
+            {  8, 3, 15,  5,  5 },
+            {  9, 3,  7,  7,  7 },
+            { 10, 3,  7,  7,  7 },
+            { 11, 3,  7,  7,  7 },
+        };
+        for (String table : TABLES) {
+            validateById(client, table,
+                    "COUNT(*) OVER (PARTITION BY GRP), SUM(SCORE) OVER (PARTITION BY GRP), " +
+                    "MIN(SCORE) OVER (PARTITION BY GRP), MAX(SCORE) OVER (PARTITION BY GRP)",
+                    expected);
+        }
+    }
+
+    public void testWindowOrderFromIndex() throws Exception {
+        Client client = getClient();
+        loadRows(client);
+
+        // The index on (GRP, SCORE) of the replicated table delivers the window order
+        String sql = "SELECT ID, RANK() OVER (PARTITION BY GRP ORDER BY SCORE) FROM R;";
+        String explain = client.callProcedure("@Explain", sql).getResults()[0].fetchRow(0).getString(0);
+        assertTrue(explain, explain.contains("WINDOW FUNCTION"));
+        assertTrue(explain, explain.contains("INDEX SCAN"));
+        assertFalse(explain, explain.contains("ORDER BY (SORT)"));
+
+        // The rows come out in index order, GRP then SCORE
+        VoltTable vt = client.callProcedure("@AdHoc", sql).getResults()[0];
+        long[] ranks = new long[ROWS.length + 1];
+        long previousGroup = 0;
+        while (vt.advanceRow()) {
+            long id = vt.getLong(0);
+            long group = ROWS[(int) id - 1][1];
+            assertTrue(group >= previousGroup);
+            previousGroup = group;
+            ranks[(int) id] = vt.getLong(1);
+        }
+        assertEquals(ROWS.length, vt.getRowCount());
+        long[] expected = { 0, 2, 3, 3, 1, 5, 1, 1, 1, 1, 1, 3 };
+        for (int id = 1; id <= ROWS.length; id++) {
+            assertEquals("ID " + id, expected[id], ranks[id]);
+        }
+    }
+
+    public void testPartitionedWindows() throws Exception {
+        Client client = getClient();
+        loadRows(client);
+
+        // PARTITION BY includes the partitioning column of PG: each partition computes its
+        // windows, the coordinator only collects the rows
+        String sql = "SELECT ID, RANK() OVER (PARTITION BY GRP ORDER BY SCORE) FROM PG ORDER BY ID;";
+        String explain = client.callProcedure("@Explain", sql).getResults()[0].fetchRow(0).getString(0);
+        assertTrue(explain, explain.indexOf("WINDOW FUNCTION") > explain.indexOf("RECEIVE FROM ALL PARTITIONS"));
+        validateTableOfLongs(client, sql, new long[][] {
+            {  1, 2 }, {  2, 3 }, {  3, 3 }, {  4, 1 }, {  5, 5 }, {  6, 1 },
+            {  7, 1 }, {  8, 1 }, {  9, 1 }, { 10, 1 }, { 11, 3 } });
+
+        // PARTITION BY the partitioning column and another column
+        validateById(client, "P", "COUNT(*) OVER (PARTITION BY ID, GRP ORDER BY SCORE)",
+                new long[][] {
+            {  1, 1 }, {  2, 1 }, {  3, 1 }, {  4, 1 }, {  5, 1 }, {  6, 1 },
+            {  7, 1 }, {  8, 1 }, {  9, 1 }, { 10, 1 }, { 11, 1 } });
+
+        // Otherwise the coordinator sorts the rows of all the partitions into windows
+        sql = "SELECT ID, RANK() OVER (PARTITION BY GRP ORDER BY SCORE) FROM P ORDER BY ID;";
+        explain = client.callProcedure("@Explain", sql).getResults()[0].fetchRow(0).getString(0);
+        assertTrue(explain, explain.indexOf("WINDOW FUNCTION") < explain.indexOf("RECEIVE FROM ALL PARTITIONS"));
+    }
+
+    public void testTopNPerGroup() throws Exception {
+        Client client = getClient();
+        loadRows(client);
+
+        validateTableOfScalarLongs(client,
+                "SELECT ID FROM (SELECT ID, ROW_NUMBER() OVER " +
+                "(PARTITION BY GRP ORDER BY SCORE DESC, ID) AS RN FROM R) S " +
+                "WHERE RN <= 2 ORDER BY ID;",
+                new long[] { 2, 5, 6, 7, 9, 11 });
+    }
+
+    static public junit.framework.Test suite() {
+        VoltServerConfig config = null;
+        MultiConfigSuiteBuilder builder =
+            new MultiConfigSuiteBuilder(TestWindowFunctionSuite.class);
+        boolean success;
+
+        VoltProjectBuilder project = new VoltProjectBuilder();
+        String literalSchema = "";
+        for (String table : TABLES) {
+            literalSchema +=
+                "CREATE TABLE " + table + " (\n" +
+                "  ID INTEGER NOT NULL,\n" +
+                "  GRP INTEGER NOT NULL,\n" +
+                "  SCORE INTEGER,\n" +
+                "  NAME VARCHAR(32),\n" +
+                (table.equals("PG") ? "  PRIMARY KEY (GRP, ID)\n" : "  PRIMARY KEY (ID)\n") +
+                ");\n" +
+                "CREATE INDEX " + table + "_GRP_SCORE ON " + table + " (GRP, SCORE);\n";
+        }
+        literalSchema +=
+                "PARTITION TABLE P ON COLUMN ID;\n" +
+                "PARTITION TABLE PG ON COLUMN GRP;\n";
+        try {
+            project.addLiteralSchema(literalSchema);
+        }
+        catch (Exception e) {
+            fail();
+        }
+
+        // The HSQL backend has no window functions
+
+        config = new LocalCluster("windowfunction-onesite.jar", 1, 1, 0, BackendTarget.NATIVE_EE_JNI);
+        success = config.compile(project);
+        assertTrue(success);
+        builder.addServerConfig(config);
+
+        config = new LocalCluster("windowfunction-threesite.jar", 3, 1, 0, BackendTarget.NATIVE_EE_JNI);
+        success = config.compile(project);
+        assertTrue(success);
+        builder.addServerConfig(config);
+
+        return builder;
+    }
+}
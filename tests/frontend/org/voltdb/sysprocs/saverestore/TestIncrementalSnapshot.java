@@ -0,0 +1,291 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+import org.json_voltpatches.JSONObject;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.InstanceId;
+import org.voltcore.utils.Pair;
+import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.EELibraryLoader;
+import org.voltdb.LinkedSnapshotDataTarget;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.SnapshotDataTarget;
+import org.voltdb.SnapshotFormat;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
+import org.voltdb.sysprocs.saverestore.SnapshotUtil.Snapshot;
+import org.voltdb.sysprocs.saverestore.SnapshotUtil.TableFiles;
+import org.voltdb.utils.VoltFile;
+
+/**
+ * Save a snapshot, change one of its tables, save an incremental snapshot that
+ * carries the other table over, delete the first snapshot and restore the second
+ * from its files the way restore scans them.
+ */
+public class TestIncrementalSnapshot extends TestCase {
+
+    static final VoltLogger LOG = new VoltLogger("SNAPSHOT");
+    static final long BASE_TXNID = 100;
+    static final long INCREMENTAL_TXNID = 200;
+    static final String TMPDIR = "/tmp/" + System.getProperty("user.name") + "/incrementalsnapshot";
+
+    File m_dir;
+    Database m_database;
+
+    @Override
+    public void setUp() throws Exception {
+        EELibraryLoader.loadExecutionEngineLibrary(true);
+        m_dir = new VoltFile(TMPDIR);
+        VoltFile.recursivelyDelete(m_dir);
+        assertTrue(m_dir.mkdirs());
+        m_database = new Catalog().getClusters().add("cluster").getDatabases().add("database");
+        m_database.getTables().add("CHANGED");
+        m_database.getTables().add("CARRIED");
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        VoltFile.recursivelyDelete(m_dir);
+    }
+
+    private static VoltTable table(Object[]... rows) {
+        VoltTable table = new VoltTable(
+                new ColumnInfo("ID", VoltType.BIGINT),
+                new ColumnInfo("NAME", VoltType.STRING));
+        for (Object[] row : rows) {
+            table.addRow(row);
+        }
+        return table;
+    }
+
+    private File tableFile(String nonce, String table) {
+        return new File(m_dir, SnapshotUtil.constructFilenameForTable(
+                m_database.getTables().get(table), nonce, SnapshotFormat.NATIVE, 0));
+    }
+
+    // Write the rows as one chunk of partition 0, the way the sites stream them
+    private File save(String nonce, String table, long txnId, VoltTable rows) throws Exception {
+        File file = tableFile(nonce, table);
+        DefaultSnapshotDataTarget target = new DefaultSnapshotDataTarget(
+                file, 0, "cluster", "database", table, 1, false, Arrays.asList(0),
+                table(), txnId, System.currentTimeMillis());
+        ByteBuffer data = PrivateVoltTableFactory.getTableDataReference(rows);
+        data.position(data.getInt(0) + 4);
+        final BBContainer chunk = DBBPool.allocateDirect(4 + data.remaining());
+        chunk.b().putInt(0);
+        chunk.b().put(data);
+        chunk.b().flip();
+        target.write(new Callable<BBContainer>() {
+            @Override
+            public BBContainer call() {
+                return chunk;
+            }
+        }, 0).get();
+        target.close();
+        return file;
+    }
+
+    private void writeDigest(String nonce, long txnId, Map<String, Long> carriedTableTxnIds) throws Exception {
+        List<Table> tables = new ArrayList<Table>();
+        for (Table table : m_database.getTables()) {
+            tables.add(table);
+        }
+        SnapshotUtil.writeSnapshotDigest(txnId, 0, TMPDIR, nonce, tables, 0,
+                new HashMap<String, Map<Integer, Pair<Long, Long>>>(),
+                new HashMap<Integer, Pair<Long, Long>>(),
+                Collections.singletonMap(0, txnId),
+                new HashMap<Integer, Map<Integer, Pair<Long, Long>>>(),
+                new InstanceId(0, 0), System.currentTimeMillis(), 0, 1,
+                carriedTableTxnIds).run();
+    }
+
+    private Snapshot scan(String nonce) {
+        Map<String, Snapshot> snapshots = new TreeMap<String, Snapshot>();
+        SnapshotUtil.retrieveSnapshotFiles(m_dir, snapshots, new SnapshotUtil.SnapshotFilter(), true, LOG);
+        return snapshots.get(nonce);
+    }
+
+    // The rows restore plans with, one per table file
+    private static VoltTable saveFileState(Snapshot snapshot) throws IOException {
+        VoltTable state = ClusterSaveFileState.constructEmptySaveFileStateVoltTable();
+        for (TableFiles files : snapshot.m_tableFiles.values()) {
+            for (File file : files.m_files) {
+                TableSaveFile saveFile = new TableSaveFile(new FileInputStream(file), 1, null);
+                try {
+                    for (int partitionId : saveFile.getPartitionIds()) {
+                        state.addRow(0, "localhost", saveFile.getHostId(), saveFile.getHostname(),
+                                saveFile.getClusterName(), saveFile.getDatabaseName(),
+                                saveFile.getTableName(), saveFile.getTxnId(), "FALSE",
+                                partitionId, saveFile.getTotalPartitions());
+                    }
+                } finally {
+                    saveFile.close();
+                }
+            }
+        }
+        return state;
+    }
+
+    private static List<JSONObject> digests(Snapshot snapshot) throws IOException {
+        List<JSONObject> digests = new ArrayList<JSONObject>();
+        for (File file : snapshot.m_digests) {
+            digests.add(SnapshotUtil.CRCCheck(file, LOG));
+        }
+        return digests;
+    }
+
+    private static VoltTable restore(File file) throws IOException {
+        VoltTable restored = table();
+        TableSaveFile saveFile = new TableSaveFile(new FileInputStream(file), 1, null);
+        try {
+            while (saveFile.hasMoreChunks()) {
+                BBContainer chunk = saveFile.getNextChunk();
+                if (chunk == null) {
+                    continue;
+                }
+                try {
+                    VoltTable rows = PrivateVoltTableFactory.createVoltTableFromBuffer(chunk.b(), true);
+                    while (rows.advanceRow()) {
+                        restored.add(rows);
+                    }
+                } finally {
+                    chunk.discard();
+                }
+            }
+        } finally {
+            saveFile.close();
+        }
+        return restored;
+    }
+
+    public void testRestoreIncrementalWithoutBase() throws Exception {
+        // The base snapshot of both tables
+        File baseChanged = save("base", "CHANGED", BASE_TXNID,
+                table(new Object[] {1L, "one"}, new Object[] {2L, "two"}));
+        File baseCarried = save("base", "CARRIED", BASE_TXNID,
+                table(new Object[] {10L, "ten"}));
+        writeDigest("base", BASE_TXNID, Collections.<String, Long>emptyMap());
+
+        // CHANGED is written again, CARRIED is carried over from the base
+        save("incr", "CHANGED", INCREMENTAL_TXNID,
+                table(new Object[] {1L, "one"}, new Object[] {3L, "three"}));
+        LinkedSnapshotDataTarget carried = new LinkedSnapshotDataTarget(baseCarried, tableFile("incr", "CARRIED"));
+        carried.setOnCloseHandler(new Runnable() {
+            @Override
+            public void run() {}
+        });
+        carried.link();
+        carried.close();
+        assertNull(carried.getLastWriteException());
+        writeDigest("incr", INCREMENTAL_TXNID, Collections.singletonMap("CARRIED", BASE_TXNID));
+
+        for (File file : m_dir.listFiles()) {
+            if (file.getName().startsWith("base")) {
+                assertTrue(file.delete());
+            }
+        }
+        assertFalse(baseChanged.exists());
+        assertFalse(baseCarried.exists());
+
+        Snapshot snapshot = scan("incr");
+        assertEquals(INCREMENTAL_TXNID, snapshot.getTxnId());
+        assertEquals(Collections.singleton(BASE_TXNID), snapshot.m_carriedTableTxnIds.get("CARRIED"));
+
+        // The carried file keeps the transaction ID of the base, which the digest accounts for
+        VoltTable state = saveFileState(snapshot);
+        ClusterSaveFileState clusterState = new ClusterSaveFileState(state, digests(snapshot));
+        assertEquals(2, clusterState.getSavedTableNames().size());
+        state.resetRowPosition();
+        try {
+            new ClusterSaveFileState(state, Collections.<JSONObject>emptyList());
+            fail("The carried table must be refused without the digest");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("CARRIED"));
+        }
+
+        VoltTable changed = restore(snapshot.m_tableFiles.get("CHANGED").m_files.get(0));
+        assertEquals(2, changed.getRowCount());
+        changed.advanceRow();
+        assertEquals(1, changed.getLong("ID"));
+        changed.advanceRow();
+        assertEquals(3, changed.getLong("ID"));
+        assertEquals("three", changed.getString("NAME"));
+
+        VoltTable restoredCarried = restore(snapshot.m_tableFiles.get("CARRIED").m_files.get(0));
+        assertEquals(1, restoredCarried.getRowCount());
+        restoredCarried.advanceRow();
+        assertEquals(10, restoredCarried.getLong("ID"));
+        assertEquals("ten", restoredCarried.getString("NAME"));
+    }
+
+    public void testCarriedTargetDropsWrites() throws Exception {
+        File base = save("base", "CARRIED", BASE_TXNID, table(new Object[] {10L, "ten"}));
+        LinkedSnapshotDataTarget carried = new LinkedSnapshotDataTarget(base, tableFile("incr", "CARRIED"));
+        carried.link();
+        long length = carried.getFile().length();
+        assertEquals(length, carried.getBytesWritten());
+
+        final BBContainer chunk = DBBPool.allocateDirect(64);
+        final boolean discarded[] = new boolean[1];
+        carried.write(new Callable<BBContainer>() {
+            @Override
+            public BBContainer call() {
+                return new BBContainer(chunk.b()) {
+                    @Override
+                    public void discard() {
+                        super.discard();
+                        discarded[0] = true;
+                        chunk.discard();
+                    }
+                };
+            }
+        }, 0).get();
+        assertTrue(discarded[0]);
+        assertEquals(length, carried.getFile().length());
+        assertNull(carried.getLastWriteException());
+        assertEquals(SnapshotDataTarget.ROW_COUNT_UNSUPPORTED, carried.getInContainerRowCount(chunk));
+    }
+}
@@ -33,8 +33,12 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -851,6 +855,72 @@ public class TestCSVLoader {
         assertEquals(TimeUnit.MICROSECONDS.toHours(diff), 7);
     }
 
+    @Test
+    public void testParallelism() throws Exception
+    {
+        String []myOptions = {
+                "-f" + path_csv,
+                "--reportdir=" + reportDir,
+                "--maxerrors=50",
+                "--user=",
+                "--password=",
+                "--port=",
+                "--separator=,",
+                "--quotechar=\"",
+                "--escape=\\",
+                "--skip=3",
+                "--parallelism=4",
+                "BlAh"
+        };
+        String currentTime = new TimestampType().toString();
+        String []myData = new String[500];
+        List<Long> expectedErrorLines = new ArrayList<Long>();
+        long line = 0;
+        long multiLineCnt = 0;
+        for (int i = 1; i <= myData.length; i++) {
+            line++;
+            if (i % 60 == 0) {
+                // incorrect number of columns
+                myData[i - 1] = i + ",1";
+                expectedErrorLines.add(line);
+            }
+            else if (i % 50 == 0) {
+                // invalid tinyint
+                myData[i - 1] = i + ",abc,1,1,bad,1.10,1.11," + currentTime;
+                expectedErrorLines.add(line);
+            }
+            else if (i % 7 == 0) {
+                // quoted value on two lines, the file must not be cut there
+                myData[i - 1] = i + ",1,1,1,\"multi\nline\",1.10,1.11," + currentTime;
+                line++;
+                multiLineCnt++;
+            }
+            else {
+                myData[i - 1] = i + ",1,1," + i + ",row " + i + ",1.10,1.11," + currentTime;
+            }
+        }
+        int invalidLineCnt = expectedErrorLines.size();
+        int validLineCnt = myData.length - 3 - invalidLineCnt;
+        test_Interface(myOptions, myData, invalidLineCnt, validLineCnt);
+
+        // The errors are reported in file order, with their line numbers
+        List<Long> errorLines = new ArrayList<Long>();
+        BufferedReader log = new BufferedReader(new FileReader(CSVLoader.pathLogfile));
+        String logLine;
+        while ((logLine = log.readLine()) != null) {
+            Matcher m = Pattern.compile("^Invalid input on line (\\d+)\\.").matcher(logLine);
+            if (m.find()) {
+                errorLines.add(Long.parseLong(m.group(1)));
+            }
+        }
+        log.close();
+        assertEquals(expectedErrorLines, errorLines);
+
+        VoltTable result = client.callProcedure("@AdHoc",
+                "SELECT COUNT(*) FROM BLAH WHERE clm_string LIKE 'multi%line';").getResults()[0];
+        assertEquals(multiLineCnt, result.asScalarLong());
+    }
+
     public void test_Interface(String[] my_options, String[] my_data, int invalidLineCnt,
             int validLineCnt) throws Exception {
         try{
@@ -246,6 +246,54 @@ public class TestJDBCLoader {
         test_Interface(myOptions, jdbcOptions, myData, invalidLineCnt, validLineCnt);
     }
 
+    @Test
+    public void testParallelReaders() throws Exception
+    {
+        String []myOptions = {
+            "-f" + path_csv,
+            "--reportdir=" + reportDir,
+            "--maxerrors=50",
+            "--user=",
+            "--password=",
+            "--port=",
+            "--separator=,",
+            "--quotechar=\"",
+            "--escape=\\",
+            "--skip=1",
+            "BlAh"
+        };
+
+        String[] jdbcOptions = {
+            "--jdbcdriver=" + driver_class,
+            "--jdbcurl=" + jdbc_url,
+            "--jdbctable=" + "BlAh",
+            "--parallelism=3",
+            "--splitcolumn=clm_integer",
+            "--reportdir=" + reportDir,
+            "--maxerrors=50",
+            "--user=",
+            "--password=",
+            "--port=",
+            "JBlAh"
+        };
+
+        String currentTime = new TimestampType().toString();
+        String []myData = {
+            "1,2,2,222222,second,3.30,NULL," + currentTime,
+            "2,3,3,333333, third ,NULL, 3.33," + currentTime,
+            "3,4,4,444444, NULL ,4.40 ,4.44," + currentTime,
+            "4,5,5,5555555,  \"abcde\"g, 5.50, 5.55," + currentTime,
+            "5,6,NULL,666666, sixth, 6.60, 6.66," + currentTime,
+            "6,7,NULL,777777, seventh, 7.70, 7.77," + currentTime,
+            "7,8,NULL,888888, eighth, 8.80, 8.88," + currentTime,
+            // the next one the string is too big
+            "8,9,NULL,999999, longerthansixteencha, 9.90, 9.99," + currentTime,
+        };
+        int invalidLineCnt = 1;
+        int validLineCnt = 6;
+        test_Interface(myOptions, jdbcOptions, myData, invalidLineCnt, validLineCnt);
+    }
+
     public void test_Interface(String[] csv_options, String[] jdbc_options, String[] my_data, int invalidLineCnt,
             int validLineCnt) throws Exception {
         try{
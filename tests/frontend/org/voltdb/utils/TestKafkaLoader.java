@@ -0,0 +1,272 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.zookeeper_voltpatches.CreateMode;
+import org.apache.zookeeper_voltpatches.ZooDefs.Ids;
+import org.apache.zookeeper_voltpatches.ZooKeeper;
+import org.junit.Test;
+import org.voltcore.zk.ZKTestBase;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.utils.KafkaLoader.AvroMessageDecoder;
+import org.voltdb.utils.KafkaLoader.CSVMessageDecoder;
+import org.voltdb.utils.KafkaLoader.JSONMessageDecoder;
+import org.voltdb.utils.KafkaLoader.MessageDecoder;
+
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.MetricName;
+
+public class TestKafkaLoader extends ZKTestBase {
+
+    // Keeps the rows it is given
+    static class RowCollector implements CSVDataLoader {
+        final List<Object[]> rows = new ArrayList<Object[]>();
+        final List<Long> offsets = new ArrayList<Long>();
+
+        @Override
+        public VoltType[] getColumnTypes() {
+            return new VoltType[0];
+        }
+
+        @Override
+        public void insertRow(RowWithMetaData metaData, Object[] values) {
+            rows.add(values);
+            offsets.add(metaData.lineNumber);
+        }
+
+        @Override
+        public void close() {}
+
+        @Override
+        public long getProcessedRows() {
+            return rows.size();
+        }
+
+        @Override
+        public long getFailedRows() {
+            return 0;
+        }
+
+        @Override
+        public void setFlushInterval(int delay, int seconds) {}
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void drain() {}
+    }
+
+    // Keeps the errors it is given
+    static class ErrorCollector implements BulkLoaderErrorHandler {
+        final List<String> errors = new ArrayList<String>();
+
+        @Override
+        public boolean handleError(RowWithMetaData metaData, ClientResponse response, String error) {
+            errors.add(metaData.rawLine + ": " + error);
+            return false;
+        }
+
+        @Override
+        public boolean hasReachedErrorLimit() {
+            return false;
+        }
+    }
+
+    private final RowCollector m_loader = new RowCollector();
+    private final ErrorCollector m_errors = new ErrorCollector();
+
+    private void decode(MessageDecoder decoder, String message, long offset) throws Exception {
+        decoder.insertRows(message.getBytes("UTF-8"), offset, m_loader, m_errors);
+    }
+
+    @Test
+    public void testCSVMessageDecoder() throws Exception {
+        MessageDecoder decoder = new CSVMessageDecoder();
+        decode(decoder, "1,abc,2.5", 10);
+        // A quoted value keeps its line breaks and commas
+        decode(decoder, "2,\"first line\nsecond, line\",3.5", 11);
+        decode(decoder, "3,\"crlf\r\nend\",", 12);
+
+        assertEquals(3, m_loader.rows.size());
+        assertArrayEquals(new Object[] {"1", "abc", "2.5"}, m_loader.rows.get(0));
+        assertArrayEquals(new Object[] {"2", "first line\nsecond, line", "3.5"}, m_loader.rows.get(1));
+        assertArrayEquals(new Object[] {"3", "crlf\r\nend", ""}, m_loader.rows.get(2));
+        assertEquals(Arrays.asList(10L, 11L, 12L), m_loader.offsets);
+
+        // An unterminated quote is an error, not a row
+        decode(decoder, "4,\"open", 13);
+        assertEquals(3, m_loader.rows.size());
+        assertEquals(1, m_errors.errors.size());
+    }
+
+    @Test
+    public void testJSONMessageDecoder() throws Exception {
+        MessageDecoder decoder = new JSONMessageDecoder(Arrays.asList("ID", "NAME", "TAGS"));
+        // A row as an array, rows as an array of arrays or objects
+        decode(decoder, "[1, \"one\", null]", 0);
+        decode(decoder, "[[2, \"two\", [\"a\"]], [3, \"three\", null]]", 1);
+        decode(decoder, "{\"name\": \"four\", \"Id\": 4}", 2);
+        decode(decoder, "[{\"ID\": 5, \"TAGS\": {\"b\": 1}}]", 3);
+
+        assertEquals(5, m_loader.rows.size());
+        assertArrayEquals(new Object[] {1, "one", null}, m_loader.rows.get(0));
+        assertArrayEquals(new Object[] {2, "two", "[\"a\"]"}, m_loader.rows.get(1));
+        assertArrayEquals(new Object[] {3, "three", null}, m_loader.rows.get(2));
+        assertArrayEquals(new Object[] {4, "four", null}, m_loader.rows.get(3));
+        assertArrayEquals(new Object[] {5, null, "{\"b\":1}"}, m_loader.rows.get(4));
+        assertEquals(Arrays.asList(0L, 1L, 1L, 2L, 3L), m_loader.offsets);
+        assertTrue(m_errors.errors.isEmpty());
+
+        // Malformed json, and objects for a procedure, which has no column names
+        decode(decoder, "[1, \"one\"", 4);
+        decode(new JSONMessageDecoder(null), "{\"ID\": 6}", 5);
+        assertEquals(5, m_loader.rows.size());
+        assertEquals(2, m_errors.errors.size());
+    }
+
+    @Test
+    public void testAvroMessageDecoder() throws Exception {
+        Schema schema = new Schema.Parser().parse(
+                "{\"type\": \"record\", \"name\": \"row\", \"fields\": [" +
+                "{\"name\": \"id\", \"type\": \"long\"}," +
+                "{\"name\": \"name\", \"type\": [\"null\", \"string\"]}," +
+                "{\"name\": \"data\", \"type\": \"bytes\"}]}");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<GenericRecord>(schema);
+        for (int i = 0; i < 3; i++) {
+            GenericRecord record = new GenericData.Record(schema);
+            record.put("id", (long) i);
+            record.put("name", i == 1 ? null : "row" + i);
+            record.put("data", ByteBuffer.wrap(new byte[] {(byte) i, 7}));
+            writer.write(record, encoder);
+        }
+        encoder.flush();
+        byte[] message = out.toByteArray();
+
+        MessageDecoder decoder = new AvroMessageDecoder(schema);
+        // Records back to back in one message
+        decoder.insertRows(message, 42, m_loader, m_errors);
+        assertEquals(3, m_loader.rows.size());
+        for (int i = 0; i < 3; i++) {
+            Object[] row = m_loader.rows.get(i);
+            assertEquals((long) i, row[0]);
+            if (i == 1) {
+                assertNull(row[1]);
+            } else {
+                assertEquals("row" + i, row[1]);
+            }
+            assertArrayEquals(new byte[] {(byte) i, 7}, (byte[]) row[2]);
+            assertEquals(42L, (long) m_loader.offsets.get(i));
+        }
+        assertTrue(m_errors.errors.isEmpty());
+
+        // The rows before a cut off record are loaded, the rest is an error
+        decoder.insertRows(Arrays.copyOf(message, message.length - 2), 43, m_loader, m_errors);
+        assertEquals(5, m_loader.rows.size());
+        assertEquals(1, m_errors.errors.size());
+        assertTrue(m_errors.errors.get(0).startsWith("avro record 3 of the message"));
+    }
+
+    @Test
+    public void testGetPartitionCount() throws Exception {
+        setUpZK(1);
+        try {
+            ZooKeeper zk = getClient(0);
+            String partitions = "/brokers/topics/loaded/partitions";
+            String path = "";
+            for (String node : partitions.substring(1).split("/")) {
+                path += "/" + node;
+                zk.create(path, null, Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            }
+            for (int i = 0; i < 5; i++) {
+                zk.create(partitions + "/" + i, null, Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            }
+            String connect = "127.0.0.1:" + m_siteIdToZKPort.get(0);
+            assertEquals(5, KafkaLoader.getPartitionCount(connect, "loaded"));
+            // A topic the brokers do not know gets the default
+            assertEquals(KafkaLoader.DEFAULT_CONSUMERS, KafkaLoader.getPartitionCount(connect, "unknown"));
+        }
+        finally {
+            tearDownZK();
+        }
+    }
+
+    @Test
+    public void testGetConsumerLag() throws Exception {
+        // Named clientId-broker-topic-partition-ConsumerLag by the fetchers
+        List<MetricName> names = new ArrayList<MetricName>();
+        names.add(lagGauge("voltdb-loaded-broker1-9092-loaded-0-ConsumerLag", 5));
+        names.add(lagGauge("voltdb-loaded-broker1-9092-loaded-1-ConsumerLag", 7));
+        // The same partition through a second broker, after a leader change
+        names.add(lagGauge("voltdb-loaded-broker2-9092-loaded-1-ConsumerLag", 9));
+        // Other topics, including one whose name ends the same
+        names.add(lagGauge("voltdb-other-broker1-9092-other-0-ConsumerLag", 100));
+        names.add(lagGauge("voltdb-x-broker1-9092-preloaded-0-ConsumerLag", 100));
+        try {
+            Map<Integer, Long> lag = KafkaLoader.getConsumerLag("loaded");
+            assertEquals(2, lag.size());
+            assertEquals(5L, (long) lag.get(0));
+            assertEquals(9L, (long) lag.get(1));
+            assertTrue(KafkaLoader.getConsumerLag("missing").isEmpty());
+        }
+        finally {
+            for (MetricName name : names) {
+                Metrics.defaultRegistry().removeMetric(name);
+            }
+        }
+    }
+
+    private static MetricName lagGauge(String name, final long lag) {
+        MetricName metricName = new MetricName("kafka.server", "FetcherLagMetrics", name);
+        Metrics.newGauge(metricName, new Gauge<Long>() {
+            @Override
+            public Long value() {
+                return lag;
+            }
+        });
+        return metricName;
+    }
+}
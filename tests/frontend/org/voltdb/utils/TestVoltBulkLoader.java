@@ -24,6 +24,7 @@
 package org.voltdb.utils;
 
 import java.io.File;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -36,6 +37,7 @@ import org.voltdb.ServerThread;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltDB.Configuration;
 import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
 import org.voltdb.client.Client;
 import org.voltdb.client.ClientFactory;
 import org.voltdb.client.ClientResponse;
@@ -999,6 +1001,166 @@ public class TestVoltBulkLoader extends TestCase {
                 "BLAH", myData2, myBatchSize2, expectedFailures2, false);
     }
 
+    public void testInsertColumns() throws Exception {
+        test_Columns("clm_integer", 1000, 100);
+    }
+
+    public void testInsertColumnsPartitionedOnString() throws Exception {
+        test_Columns("clm_string", 1000, 30);
+    }
+
+    public void testInsertColumnsMP() throws Exception {
+        test_Columns(null, 500, 50);
+    }
+
+    // Loads my_rowCount rows with insertColumns(), every 97th with a string too long to fit.
+    public void test_Columns(String partitionColumn, int my_rowCount, int my_batchSize) throws Exception {
+        String mySchema =
+                "create table BLAH ("
+                + "clm_integer integer not null, "
+                + "clm_tinyint tinyint default 0, "
+                + "clm_smallint smallint default 0, "
+                + "clm_bigint bigint default 0, "
+                + "clm_string varchar(20) not null, "
+                + "clm_decimal decimal default null, "
+                + "clm_float float default null, "
+                + "clm_varbinary varbinary(20) default null, "
+                + "clm_timestamp timestamp default null "
+                + "); ";
+        try {
+            pathToCatalog = Configuration.getPathToCatalogForTest("vbl.jar");
+            pathToDeployment = Configuration.getPathToCatalogForTest("vbl.xml");
+            builder = new VoltProjectBuilder();
+
+            builder.addLiteralSchema(mySchema);
+            if (partitionColumn != null) {
+                builder.addPartitionInfo("BLAH", partitionColumn);
+            }
+            boolean success = builder.compile(pathToCatalog, 2, 1, 0);
+            assertTrue(success);
+            MiscUtils.copyFile(builder.getPathToDeployment(), pathToDeployment);
+            config = new VoltDB.Configuration();
+            config.m_pathToCatalog = pathToCatalog;
+            config.m_pathToDeployment = pathToDeployment;
+            localServer = new ServerThread(config);
+            client1 = null;
+
+            localServer.start();
+            localServer.waitForInitialization();
+
+            client1 = ClientFactory.createClient();
+            client1.createConnection("localhost");
+
+            TestFailureCallback testCallback = new TestFailureCallback();
+            VoltBulkLoader bulkLoader = client1.getNewBulkLoader("BLAH", my_batchSize, testCallback);
+
+            Integer[] handles = new Integer[my_rowCount];
+            int[] integers = new int[my_rowCount];
+            byte[] tinyints = new byte[my_rowCount];
+            short[] smallints = new short[my_rowCount];
+            long[] bigints = new long[my_rowCount];
+            String[] strings = new String[my_rowCount];
+            BigDecimal[] decimals = new BigDecimal[my_rowCount];
+            double[] floats = new double[my_rowCount];
+            byte[][] varbinaries = new byte[my_rowCount][];
+            long[] timestamps = new long[my_rowCount];
+            ArrayList<Integer> expectedFailures = new ArrayList<Integer>();
+            long expectedSum = 0;
+            long expectedNulls = 0;
+            for (int i = 0; i < my_rowCount; i++) {
+                handles[i] = i;
+                integers[i] = i;
+                tinyints[i] = (i % 10 == 0 ? VoltType.NULL_TINYINT : (byte) (i % 100));
+                smallints[i] = (short) i;
+                bigints[i] = i * 1000L;
+                decimals[i] = (i % 10 == 1 ? null : new BigDecimal(i).movePointLeft(2));
+                floats[i] = i / 4.0;
+                varbinaries[i] = (i % 10 == 2 ? null : new byte[] { (byte) i, (byte) (i >> 8) });
+                timestamps[i] = (i % 10 == 3 ? VoltType.NULL_BIGINT : i * 1000000L);
+                if (i % 97 == 0) {
+                    strings[i] = "this string is longer than the column";
+                    expectedFailures.add(i);
+                }
+                else {
+                    strings[i] = "row " + i;
+                    expectedSum += i;
+                    expectedNulls += (i % 10 < 4 ? 1 : 0);
+                }
+            }
+
+            try {
+                bulkLoader.insertColumns(handles, my_rowCount, integers, tinyints);
+                fail();
+            } catch (IllegalArgumentException expected) {}
+            try {
+                bulkLoader.insertColumns(handles, my_rowCount, integers, tinyints, smallints, integers,
+                        strings, decimals, floats, varbinaries, timestamps);
+                fail();
+            } catch (IllegalArgumentException expected) {}
+
+            // Two calls, one flush in between
+            int half = my_rowCount / 2;
+            bulkLoader.insertColumns(handles, half, integers, tinyints, smallints, bigints,
+                    strings, decimals, floats, varbinaries, timestamps);
+            bulkLoader.flush();
+            bulkLoader.insertColumns(Arrays.copyOfRange(handles, half, my_rowCount), my_rowCount - half,
+                    Arrays.copyOfRange(integers, half, my_rowCount),
+                    Arrays.copyOfRange(tinyints, half, my_rowCount),
+                    Arrays.copyOfRange(smallints, half, my_rowCount),
+                    Arrays.copyOfRange(bigints, half, my_rowCount),
+                    Arrays.copyOfRange(strings, half, my_rowCount),
+                    Arrays.copyOfRange(decimals, half, my_rowCount),
+                    Arrays.copyOfRange(floats, half, my_rowCount),
+                    Arrays.copyOfRange(varbinaries, half, my_rowCount),
+                    Arrays.copyOfRange(timestamps, half, my_rowCount));
+
+            bulkLoader.drain();
+            assertEquals(0, bulkLoader.getOutstandingRowCount());
+            assertEquals(my_rowCount, bulkLoader.getCompletedRowCount());
+            bulkLoader.close();
+            assertTrue(testCallback.failureRowListMatches(expectedFailures));
+
+            VoltTable result = client1.callProcedure("@AdHoc",
+                    "SELECT COUNT(*), SUM(clm_integer), SUM(clm_bigint) FROM BLAH;").getResults()[0];
+            result.advanceRow();
+            assertEquals(my_rowCount - expectedFailures.size(), result.getLong(0));
+            assertEquals(expectedSum, result.getLong(1));
+            assertEquals(expectedSum * 1000, result.getLong(2));
+
+            result = client1.callProcedure("@AdHoc",
+                    "SELECT clm_tinyint, clm_smallint, clm_string, clm_decimal, clm_float, " +
+                    "clm_varbinary, clm_timestamp FROM BLAH WHERE clm_integer = 15;").getResults()[0];
+            assertTrue(result.advanceRow());
+            assertEquals(15, result.getLong(0));
+            assertEquals(15, result.getLong(1));
+            assertEquals("row 15", result.getString(2));
+            assertEquals(new BigDecimal("0.150000000000"), result.getDecimalAsBigDecimal(3));
+            assertEquals(3.75, result.getDouble(4));
+            assertTrue(Arrays.equals(new byte[] { 15, 0 }, result.getVarbinary(5)));
+            assertEquals(new TimestampType(15000000L), result.getTimestampAsTimestamp(6));
+
+            result = client1.callProcedure("@AdHoc",
+                    "SELECT COUNT(*) FROM BLAH WHERE clm_tinyint IS NULL OR clm_decimal IS NULL " +
+                    "OR clm_varbinary IS NULL OR clm_timestamp IS NULL;").getResults()[0];
+            assertEquals(expectedNulls, result.asScalarLong());
+
+            result = client1.callProcedure("@ValidatePartitioning", null, null).getResults()[0];
+            while (result.advanceRow()) {
+                assertEquals(0, result.getLong("MISPARTITIONED_ROWS"));
+            }
+        }
+        finally {
+            if (client1 != null) client1.close();
+            client1 = null;
+
+            if (localServer != null) {
+                localServer.shutdown();
+                localServer.join();
+            }
+            localServer = null;
+        }
+    }
+
     public void test_Interface(String my_schema, Object[][] my_data,
             int my_batchSize, ArrayList<Integer> expectedFailList, int flushInterval) throws Exception {
         try{